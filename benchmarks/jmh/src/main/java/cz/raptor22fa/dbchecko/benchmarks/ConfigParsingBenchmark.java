@@ -0,0 +1,123 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import cz.raptor22fa.dbchecko.db.DbConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of creating {@link DbConnection} from a properties file and from a Tomcat context file. The context file
+ * contains {@code resources} other resources before the {@code jdbc/LiferayPool} one, as real context files do.
+ *
+ * @author Roman Srom
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConfigParsingBenchmark {
+
+    @Param({"0", "20"})
+    public int resources;
+
+    private File propertiesFile;
+    private File contextFile;
+
+    @Setup(Level.Trial)
+    public void writeFiles() throws IOException {
+        propertiesFile = File.createTempFile("db-checko-bench", ".properties");
+        Files.write(propertiesFile.toPath(), getProperties().getBytes(StandardCharsets.UTF_8));
+        contextFile = File.createTempFile("db-checko-bench", ".xml");
+        Files.write(contextFile.toPath(), getContext().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() {
+        propertiesFile.delete();
+        contextFile.delete();
+    }
+
+    @Benchmark
+    public DbConnection fromPropertiesFile() {
+        return DbConnection.fromPropertiesFile(propertiesFile);
+    }
+
+    @Benchmark
+    public DbConnection fromContextFile() {
+        return DbConnection.fromContextFile(contextFile);
+    }
+
+    private String getProperties() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("# Portal database\n");
+        for (int i = 0; i < resources; i++) {
+            sb.append("jdbc.shard").append(i).append(".url=jdbc:postgresql://shard").append(i).append(":5432/lportal\n");
+        }
+        sb.append(DbConnection.DRIVER_CLASS_NAME_PROPERTY).append("=org.postgresql.Driver\n");
+        sb.append(DbConnection.URL_PROPERTY).append("=jdbc:postgresql://localhost:5432/lportal\n");
+        sb.append(DbConnection.USER_PROPERTY).append("=liferay\n");
+        sb.append(DbConnection.PASSWORD_PROPERTY).append("=secret\n");
+        return sb.toString();
+    }
+
+    private String getContext() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<Context crossContext=\"true\">\n");
+        sb.append("    <WatchedResource>WEB-INF/web.xml</WatchedResource>\n");
+        for (int i = 0; i < resources; i++) {
+            appendResource(sb, "jdbc/Shard" + i, "jdbc:postgresql://shard" + i + ":5432/lportal");
+        }
+        appendResource(sb, DbConnection.LIFERAY_POOL_RESOURCE_NAME, "jdbc:postgresql://localhost:5432/lportal");
+        sb.append("</Context>\n");
+        return sb.toString();
+    }
+
+    private static void appendResource(StringBuilder sb, String name, String url) {
+        sb.append("    <Resource name=\"").append(name).append("\" auth=\"Container\" type=\"javax.sql.DataSource\"")
+                .append(" factory=\"org.apache.tomcat.jdbc.pool.DataSourceFactory\"")
+                .append(" driverClassName=\"org.postgresql.Driver\" url=\"").append(url).append('"')
+                .append(" username=\"liferay\" password=\"secret\" maxActive=\"100\" minIdle=\"10\"")
+                .append(" maxWait=\"10000\" testOnBorrow=\"true\" validationQuery=\"SELECT 1\"/>\n");
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import cz.raptor22fa.dbchecko.output.OutputBuffer;
+import cz.raptor22fa.dbchecko.output.OutputFormat;
+import cz.raptor22fa.dbchecko.output.ResultWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of rendering rows of a select by the writers of all output formats. Rows are read from a
+ * {@link SyntheticResultSet} and written to a channel which discards the output, so the score is the cost of the
+ * writer per row. {@link #readValues} reads the same values without rendering them and is the baseline of the
+ * result set itself.
+ *
+ * @author Roman Srom
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowRenderingBenchmark {
+
+    private static final int ROW_COUNT = 1000;
+    private static final int BATCH_SIZE = 1024;
+
+    @State(Scope.Thread)
+    public static class ResultSetState {
+
+        @Param({"4", "16", "64"})
+        public int columns;
+
+        @Param({"8", "64", "512"})
+        public int valueLength;
+
+        @Param({"0.0", "0.1", "0.5"})
+        public double nullRatio;
+
+        SyntheticResultSet data;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            data = new SyntheticResultSet(ROW_COUNT, columns, valueLength, nullRatio, 42L);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FormatState {
+
+        @Param
+        public OutputFormat format;
+
+        final DiscardingChannel channel = new DiscardingChannel();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_COUNT)
+    public long render(ResultSetState state, FormatState formatState) throws SQLException, IOException {
+        final SyntheticResultSet data = state.data;
+        data.rewind();
+        final ResultSet rs = data.getResultSet();
+        final DiscardingChannel channel = formatState.channel;
+        try (ResultWriter writer = formatState.format.createWriter(channel, StandardCharsets.UTF_8,
+                OutputBuffer.DEFAULT_CAPACITY, BATCH_SIZE)) {
+            writer.writeHeader(data.getMetaData());
+            while (rs.next()) {
+                writer.writeRow(rs);
+            }
+        }
+        return channel.written;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_COUNT)
+    public void readValues(ResultSetState state, Blackhole blackhole) throws SQLException {
+        final SyntheticResultSet data = state.data;
+        data.rewind();
+        final ResultSet rs = data.getResultSet();
+        final int columnCount = data.getMetaData().getColumnCount();
+        while (rs.next()) {
+            for (int i = 1; i <= columnCount; i++) {
+                blackhole.consume(rs.getString(i));
+                blackhole.consume(rs.wasNull());
+            }
+        }
+    }
+
+    /**
+     * Channel which only counts the written bytes.
+     */
+    static class DiscardingChannel implements WritableByteChannel {
+
+        long written;
+
+        @Override
+        public int write(ByteBuffer src) {
+            final int count = src.remaining();
+            src.position(src.limit());
+            written += count;
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // the channel is reused by all invocations
+        }
+    }
+}
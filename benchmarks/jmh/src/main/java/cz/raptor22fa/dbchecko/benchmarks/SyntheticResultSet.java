@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.Random;
+
+/**
+ * In-memory result set of VARCHAR columns backed by generated values. The {@link ResultSet} and its
+ * {@link ResultSetMetaData} are dynamic proxies, so only the methods used by the result writers are implemented.
+ * Values are generated once and the result set can be rewound, so a benchmark measures rendering and not the data
+ * generation.
+ *
+ * @author Roman Srom
+ */
+public class SyntheticResultSet implements InvocationHandler {
+
+    private static final String VALUE_CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ";
+
+    private final String[][] rows;
+    private final int columnCount;
+    private final int valueLength;
+    private final ResultSet resultSet;
+    private final ResultSetMetaData metaData;
+
+    private int row = -1;
+    private boolean wasNull;
+
+    /**
+     * Generates the values of the result set.
+     *
+     * @param rowCount count of rows
+     * @param columnCount count of columns
+     * @param valueLength length of every non-null value
+     * @param nullRatio ratio of null values, from 0 to 1
+     * @param seed seed of the generator, the same seed generates the same values
+     */
+    public SyntheticResultSet(int rowCount, int columnCount, int valueLength, double nullRatio, long seed) {
+        this.columnCount = columnCount;
+        this.valueLength = valueLength;
+        this.rows = new String[rowCount][columnCount];
+        final Random random = new Random(seed);
+        final char[] value = new char[valueLength];
+        for (String[] values : rows) {
+            for (int i = 0; i < columnCount; i++) {
+                if (random.nextDouble() < nullRatio) {
+                    continue;
+                }
+                for (int j = 0; j < valueLength; j++) {
+                    value[j] = VALUE_CHARACTERS.charAt(random.nextInt(VALUE_CHARACTERS.length()));
+                }
+                values[i] = new String(value);
+            }
+        }
+        final ClassLoader classLoader = getClass().getClassLoader();
+        this.resultSet = (ResultSet) Proxy.newProxyInstance(classLoader, new Class<?>[] {ResultSet.class}, this);
+        this.metaData = (ResultSetMetaData) Proxy.newProxyInstance(classLoader,
+                new Class<?>[] {ResultSetMetaData.class}, this);
+    }
+
+    public ResultSet getResultSet() {
+        return resultSet;
+    }
+
+    public ResultSetMetaData getMetaData() {
+        return metaData;
+    }
+
+    /**
+     * Moves the cursor before the first row.
+     */
+    public void rewind() {
+        row = -1;
+        wasNull = false;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "next":
+                return ++row < rows.length;
+            case "getString":
+            case "getObject":
+                final String value = rows[row][(Integer) args[0] - 1];
+                wasNull = value == null;
+                return value;
+            case "wasNull":
+                return wasNull;
+            case "getMetaData":
+                return metaData;
+            case "getColumnCount":
+                return columnCount;
+            case "getColumnName":
+            case "getColumnLabel":
+                return "column_" + args[0];
+            case "getColumnType":
+                return Types.VARCHAR;
+            case "getPrecision":
+            case "getColumnDisplaySize":
+                return valueLength;
+            case "getScale":
+                return 0;
+            case "close":
+                return null;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "SyntheticResultSet[" + rows.length + "x" + columnCount + "]";
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+}
@@ -7,5 +7,5 @@ if "%~1"=="" (
 
 set FILE_PATH=%1
 if [%FILE_PATH:~-10%] == [properties] (
-    java -cp target\db-checko.jar;drivers\* cz.raptor22fa.dbchecko.cmd.DbCheckoApp check -p %1
+    java -XX:TieredStopAtLevel=1 -cp target\db-checko.jar;drivers\* cz.raptor22fa.dbchecko.cmd.DbCheckoApp check -p %1
 )
@@ -5,6 +5,19 @@ if [ ! $# == 1 ]; then
   exit
 fi
 
+# The class-data sharing archive is used only with the classpath it was created with, so the drivers are listed in
+# the same order as by the dist build. A different JVM or classpath silently falls back to loading classes from jars.
+CLASSPATH=target/db-checko.jar
+for driver in $(ls drivers/*.jar | sort); do
+  CLASSPATH="$CLASSPATH:$driver"
+done
+
+# A short check doesn't run long enough to benefit from the optimizing JIT compiler
+JAVA_OPTS="-XX:TieredStopAtLevel=1"
+if [ -f target/dbchecko.jsa ]; then
+  JAVA_OPTS="$JAVA_OPTS -XX:+IgnoreUnrecognizedVMOptions -XX:SharedArchiveFile=target/dbchecko.jsa -Xlog:cds*=off"
+fi
+
 if [[ "$1" == *properties ]]; then
-    java -cp target/db-checko.jar:drivers/* cz.raptor22fa.dbchecko.cmd.DbCheckoApp check -p $1
+    java $JAVA_OPTS -cp "$CLASSPATH" cz.raptor22fa.dbchecko.cmd.DbCheckoApp check -p $1
 fi
@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.cmd;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import cz.raptor22fa.dbchecko.db.DbChecko;
+import cz.raptor22fa.dbchecko.exception.MissingParameterDbCheckoException;
+import cz.raptor22fa.dbchecko.sql.BenchOptions;
+import cz.raptor22fa.dbchecko.sql.QueryParameter;
+import cz.raptor22fa.dbchecko.sql.SelectOptions;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.MissingParameterException;
+import picocli.CommandLine.Model;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+/**
+ * It allows you to measure throughput and latency of a select sql command under concurrency.
+ *
+ * @author Roman Srom
+ */
+@Command(
+        name = "bench",
+        mixinStandardHelpOptions = true,
+        description = "Measures throughput and latency of a select sql command run on many connections at once."
+)
+public class BenchCommand implements Runnable {
+
+    @Option(
+            names = "-p", description = "path to properties file"
+    )
+    private File propertiesFile;
+
+    @Option(
+            names = "-c", description = "path to context file"
+    )
+    private File contextFile;
+
+    @Option(
+            names = "-s", description = "select sql, it can contain ? parameters bound from the values file",
+            required = true
+    )
+    private String query;
+
+    @Option(
+            names = "--concurrency", description = "count of connections the query runs on at once"
+    )
+    private int concurrency = BenchOptions.DEFAULT_CONCURRENCY;
+
+    @Option(
+            names = "--duration", description = "duration of the measurement in seconds"
+    )
+    private long duration = BenchOptions.DEFAULT_DURATION;
+
+    @Option(
+            names = "--iterations",
+            description = "count of measured executions of the query, it is measured for the duration if it is not set"
+    )
+    private long iterations = BenchOptions.UNLIMITED_ITERATIONS;
+
+    @Option(
+            names = "--warmup", description = "time in seconds the query runs before the measurement starts"
+    )
+    private long warmup = BenchOptions.DEFAULT_WARMUP;
+
+    @Option(
+            names = "--values", description = "path to csv file with values of the query parameters"
+    )
+    private File valuesFile;
+
+    @Option(
+            names = "--header", description = "skips the first record of the values file"
+    )
+    private boolean header;
+
+    @Option(
+            names = "--fetch-size", description = "count of rows fetched at once"
+    )
+    private int fetchSize = SelectOptions.DEFAULT_FETCH_SIZE;
+
+    @Option(
+            names = "--param", converter = QueryParameterConverter.class,
+            description = "named parameter :name of the sql as name=value or name:type=value, e.g. id:integer=1"
+    )
+    private List<QueryParameter> parameters = new ArrayList<>();
+
+    @Spec
+    private Model.CommandSpec commandSpec;
+
+    @Override
+    public void run() {
+        DbChecko dbChecko;
+        try {
+            dbChecko = DbChecko.getInstance(propertiesFile, contextFile);
+        } catch (MissingParameterDbCheckoException e) {
+            throw new MissingParameterException(commandSpec.commandLine(),
+                    commandSpec.args(), "Missing properties file or context file");
+        }
+
+        SelectOptions options = new SelectOptions();
+        options.setFetchSize(fetchSize);
+        options.setParameters(parameters);
+
+        BenchOptions benchOptions = new BenchOptions();
+        benchOptions.setConcurrency(concurrency);
+        benchOptions.setDuration(duration);
+        benchOptions.setIterations(iterations);
+        benchOptions.setWarmup(warmup);
+        benchOptions.setValuesFile(valuesFile);
+        benchOptions.setHeader(header);
+
+        dbChecko.executeBench(query, options, benchOptions);
+    }
+}
@@ -24,12 +24,21 @@
 package cz.raptor22fa.dbchecko.cmd;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import cz.raptor22fa.dbchecko.db.CheckFormat;
+import cz.raptor22fa.dbchecko.db.CheckResult;
+import cz.raptor22fa.dbchecko.db.CheckTarget;
+import cz.raptor22fa.dbchecko.db.ConnectPhaseOptions;
 import cz.raptor22fa.dbchecko.db.DbChecko;
+import cz.raptor22fa.dbchecko.db.FleetCheck;
+import cz.raptor22fa.dbchecko.db.ProbeOptions;
 import cz.raptor22fa.dbchecko.exception.MissingParameterDbCheckoException;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.MissingParameterException;
 import picocli.CommandLine.Model;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Spec;
 
 /**
@@ -46,28 +55,129 @@ import picocli.CommandLine.Spec;
 public class CheckCommand implements Runnable {
 
     @Option(
-            names = "-p", description = "path to properties file"
+            names = "-p", description = "path to properties file or a directory of them, can be repeated"
     )
-    private File propertiesFile;
+    private List<File> propertiesFiles = new ArrayList<>();
 
     @Option(
-            names = "-c", description = "path to context file"
+            names = "-c", description = "path to context file or a directory of them, can be repeated"
     )
-    private File contextFile;
+    private List<File> contextFiles = new ArrayList<>();
+
+    @Option(
+            names = "--timeout",
+            description = "timeout in seconds of checking one of many databases or of one phase of --phases"
+    )
+    private int timeout = FleetCheck.DEFAULT_TIMEOUT;
+
+    @Option(
+            names = "--parallelism", description = "count of databases checked concurrently"
+    )
+    private int parallelism = FleetCheck.DEFAULT_PARALLELISM;
+
+    @Option(
+            names = {"-f", "--format"},
+            description = "output format of checking many databases: ${COMPLETION-CANDIDATES}"
+    )
+    private CheckFormat format = CheckFormat.TABLE;
+
+    @Option(
+            names = "--interval",
+            description = "probes the database repeatedly with this interval in milliseconds and prints latencies"
+    )
+    private Long interval;
+
+    @Option(
+            names = "--duration",
+            description = "duration of probing in seconds, the probing runs until Ctrl+C if it is not set"
+    )
+    private Long duration;
+
+    @Option(
+            names = "--report-interval", description = "interval in seconds of printing latencies of probing"
+    )
+    private long reportInterval = ProbeOptions.DEFAULT_REPORT_INTERVAL;
+
+    @Option(
+            names = "--validation-query", description = "query whose round trip is measured by probing or --phases"
+    )
+    private String validationQuery;
+
+    @Option(
+            names = "--phases",
+            description = "times DNS lookup, TCP connect, driver connect and the first query separately"
+    )
+    private boolean phases;
+
+    @Option(
+            names = "--runs", description = "count of runs of all phases of --phases"
+    )
+    private int runs = ConnectPhaseOptions.DEFAULT_RUNS;
 
     @Spec
     private Model.CommandSpec commandSpec;
 
     @Override
     public void run() {
+        if (isFleet()) {
+            if (interval != null || duration != null || phases) {
+                throw new ParameterException(commandSpec.commandLine(),
+                        "Only one database can be probed by --interval, --duration and --phases");
+            }
+            checkFleet();
+            return;
+        }
+
         DbChecko dbChecko;
         try {
-            dbChecko = DbChecko.getInstance(propertiesFile, contextFile);
+            dbChecko = DbChecko.getInstance(first(propertiesFiles), first(contextFiles));
         } catch (MissingParameterDbCheckoException e) {
             throw new MissingParameterException(commandSpec.commandLine(),
                     commandSpec.args(), "Missing properties file or context file");
         }
 
-        dbChecko.check();
+        if (phases) {
+            ConnectPhaseOptions options = new ConnectPhaseOptions();
+            options.setRuns(runs);
+            options.setTimeout(timeout);
+            options.setValidationQuery(validationQuery);
+            dbChecko.checkPhases(options);
+            return;
+        }
+
+        if (interval == null && duration == null) {
+            dbChecko.check();
+            return;
+        }
+
+        ProbeOptions options = new ProbeOptions();
+        if (interval != null) {
+            options.setInterval(interval);
+        }
+        if (duration != null) {
+            options.setDuration(duration);
+        }
+        options.setReportInterval(reportInterval);
+        options.setValidationQuery(validationQuery);
+
+        dbChecko.probe(options);
+    }
+
+    private boolean isFleet() {
+        final List<File> files = new ArrayList<>(propertiesFiles);
+        files.addAll(contextFiles);
+        return files.size() > 1 || (files.size() == 1 && files.get(0).isDirectory());
+    }
+
+    private void checkFleet() {
+        final long startTime = System.nanoTime();
+        final FleetCheck fleetCheck =
+                new FleetCheck(CheckTarget.fromFiles(propertiesFiles, contextFiles), timeout, parallelism);
+        final List<CheckResult> results = fleetCheck.run();
+        FleetCheck.print(results, format, System.nanoTime() - startTime, System.out);
+    }
+
+    private static File first(List<File> files) {
+        return files.isEmpty() ? null : files.get(0);
     }
 }
@@ -0,0 +1,167 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.cmd;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Properties;
+import java.util.TimeZone;
+import org.apache.log4j.ConsoleAppender;
+import org.apache.log4j.Layout;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PropertyConfigurator;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.Configurator;
+import org.apache.log4j.spi.LoggerRepository;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.xml.DOMConfigurator;
+
+/**
+ * Log4j configurator of the command line application. Log4j calls it by its default initialization, i.e. when
+ * the first message is logged, so commands which don't log don't initialize logging at all.
+ *
+ * <p>Only levels are read from {@code log4j.properties} ({@code log4j.rootLogger} and {@code log4j.logger.*}) and
+ * all messages are logged to the console in the format {@code HH:mm:ss LEVEL Logger - message}. Unlike
+ * {@link PropertyConfigurator} it doesn't configure appenders by bean introspection and it formats the time without
+ * {@link java.text.SimpleDateFormat}, which both take longer than the rest of a health check. Other configuration
+ * files are passed to the log4j configurators.</p>
+ *
+ * @author Roman Srom
+ */
+public class ConsoleConfigurator implements Configurator {
+
+    private static final String CONFIGURATOR_CLASS_PROPERTY = "log4j.configuratorClass";
+    private static final String CONFIGURATION_PROPERTY = "log4j.configuration";
+    private static final String ROOT_LOGGER_KEY = "log4j.rootLogger";
+    private static final String LOGGER_PREFIX = "log4j.logger.";
+
+    /**
+     * Makes log4j use this configurator unless the configuration is given by system properties.
+     */
+    static void install() {
+        if (System.getProperty(CONFIGURATION_PROPERTY) == null
+                && System.getProperty(CONFIGURATOR_CLASS_PROPERTY) == null) {
+            System.setProperty(CONFIGURATOR_CLASS_PROPERTY, ConsoleConfigurator.class.getName());
+        }
+    }
+
+    @Override
+    public void doConfigure(URL url, LoggerRepository repository) {
+        if (url.getPath().endsWith(".xml")) {
+            new DOMConfigurator().doConfigure(url, repository);
+            return;
+        }
+        if (!url.getPath().endsWith(".properties")) {
+            new PropertyConfigurator().doConfigure(url, repository);
+            return;
+        }
+        try (InputStream inputStream = url.openStream()) {
+            doConfigure(inputStream, repository);
+        } catch (IOException e) {
+            LogLog.error("Could not read configuration file from URL [" + url + "].", e);
+        }
+    }
+
+    @Override
+    public void doConfigure(InputStream inputStream, LoggerRepository repository) {
+        final Properties properties = new Properties();
+        try {
+            properties.load(inputStream);
+        } catch (IOException e) {
+            LogLog.error("Could not read configuration file from input stream.", e);
+            return;
+        }
+
+        final Logger rootLogger = repository.getRootLogger();
+        rootLogger.setLevel(getLevel(properties.getProperty(ROOT_LOGGER_KEY), Level.DEBUG));
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(LOGGER_PREFIX)) {
+                final Logger logger = repository.getLogger(key.substring(LOGGER_PREFIX.length()));
+                logger.setLevel(getLevel(properties.getProperty(key), null));
+            }
+        }
+        rootLogger.addAppender(new ConsoleAppender(new ConsoleLayout()));
+    }
+
+    /**
+     * Parses the level of a logger definition {@code LEVEL, appender...}.
+     */
+    private static Level getLevel(String value, Level defaultLevel) {
+        if (value == null) {
+            return defaultLevel;
+        }
+        final int end = value.indexOf(',');
+        final String level = (end < 0 ? value : value.substring(0, end)).trim();
+        return level.isEmpty() ? defaultLevel : Level.toLevel(level, defaultLevel);
+    }
+
+    /**
+     * Layout equivalent to the pattern {@code %d{HH:mm:ss} %-5p %c{1} - %m%n}.
+     */
+    static class ConsoleLayout extends Layout {
+
+        private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+        @Override
+        public String format(LoggingEvent event) {
+            final StringBuilder sb = new StringBuilder(64);
+            final long millis = event.getTimeStamp();
+            final long localSeconds = Math.floorDiv(millis + getTimeZoneOffset(millis), 1000L);
+            final int secondOfDay = (int) Math.floorMod(localSeconds, SECONDS_PER_DAY);
+            appendTwoDigits(sb, secondOfDay / 3600).append(':');
+            appendTwoDigits(sb, secondOfDay / 60 % 60).append(':');
+            appendTwoDigits(sb, secondOfDay % 60).append(' ');
+
+            final String level = event.getLevel().toString();
+            sb.append(level);
+            for (int i = level.length(); i < 5; i++) {
+                sb.append(' ');
+            }
+            final String loggerName = event.getLoggerName();
+            sb.append(' ').append(loggerName, loggerName.lastIndexOf('.') + 1, loggerName.length());
+            sb.append(" - ").append(event.getRenderedMessage()).append(LINE_SEP);
+            return sb.toString();
+        }
+
+        private static int getTimeZoneOffset(long millis) {
+            return TimeZone.getDefault().getOffset(millis);
+        }
+
+        private static StringBuilder appendTwoDigits(StringBuilder sb, int value) {
+            return sb.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+        }
+
+        @Override
+        public boolean ignoresThrowable() {
+            return true;
+        }
+
+        @Override
+        public void activateOptions() {
+            // no options
+        }
+    }
+}
@@ -23,7 +23,7 @@
  */
 package cz.raptor22fa.dbchecko.cmd;
 
-import org.apache.log4j.Logger;
+import java.util.Arrays;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 
@@ -33,12 +33,17 @@ import picocli.CommandLine.Command;
  * @author Roman Srom
  */
 @Command(
-        name = "dbchecko",
+        name = DbCheckoApp.NAME,
         mixinStandardHelpOptions = true,
         subcommands = {
                 CheckCommand.class,
                 SelectCommand.class,
-                UpdateCommand.class
+                UpdateCommand.class,
+                ImportCommand.class,
+                ScriptCommand.class,
+                BenchCommand.class,
+                DiffCommand.class,
+                ServeCommand.class
         },
         footer = {
                 "Example Windows: java -cp target\\db-checko.jar;drivers\\* ",
@@ -49,10 +54,41 @@ import picocli.CommandLine.Command;
 )
 public class DbCheckoApp implements Runnable {
 
-    private static final Logger LOG = Logger.getLogger(DbCheckoApp.class);
+    static final String NAME = "dbchecko";
 
     public static void main(String... args) {
-        CommandLine.run(new DbCheckoApp(), args);
+        ConsoleConfigurator.install();
+        final Object subcommand = args.length > 0 ? createSubcommand(args[0]) : null;
+        final CommandLine commandLine;
+        if (subcommand != null) {
+            commandLine = new CommandLine(subcommand).setCommandName(NAME + " " + args[0]);
+            args = Arrays.copyOfRange(args, 1, args.length);
+        } else {
+            commandLine = new CommandLine(new DbCheckoApp());
+        }
+        commandLine.setCaseInsensitiveEnumValuesAllowed(true);
+        commandLine.parseWithHandler(new CommandLine.RunLast(), args);
+    }
+
+    /**
+     * Creates the subcommand of the name. Only the model of the invoked subcommand is then built by picocli, which
+     * is the most of the time picocli spends on reflection.
+     *
+     * @param name name of the subcommand
+     * @return subcommand or {@code null} if there is no subcommand of the name
+     */
+    private static Object createSubcommand(String name) {
+        for (Class<?> subcommandClass : DbCheckoApp.class.getAnnotation(Command.class).subcommands()) {
+            final Command command = subcommandClass.getAnnotation(Command.class);
+            if (command != null && command.name().equals(name)) {
+                try {
+                    return subcommandClass.getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
     }
 
     @Override
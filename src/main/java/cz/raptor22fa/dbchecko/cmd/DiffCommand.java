@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.cmd;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import cz.raptor22fa.dbchecko.db.DbChecko;
+import cz.raptor22fa.dbchecko.exception.MissingParameterDbCheckoException;
+import cz.raptor22fa.dbchecko.sql.DiffOptions;
+import cz.raptor22fa.dbchecko.sql.PartitionMethod;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.MissingParameterException;
+import picocli.CommandLine.Model;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+/**
+ * It allows you to compare a table in two databases.
+ *
+ * @author Roman Srom
+ */
+@Command(
+        name = "diff",
+        mixinStandardHelpOptions = true,
+        description = "Compares a table in two databases by checksums of chunks of its key range."
+)
+public class DiffCommand implements Runnable {
+
+    @Option(
+            names = "-p", description = "path to properties file of the source database"
+    )
+    private File propertiesFile;
+
+    @Option(
+            names = "-c", description = "path to context file of the source database"
+    )
+    private File contextFile;
+
+    @Option(
+            names = "--target-p", description = "path to properties file of the target database"
+    )
+    private File targetPropertiesFile;
+
+    @Option(
+            names = "--target-c", description = "path to context file of the target database"
+    )
+    private File targetContextFile;
+
+    @Option(
+            names = {"-t", "--table"}, description = "compared table",
+            required = true
+    )
+    private String table;
+
+    @Option(
+            names = "--key", description = "column which identifies rows of the table",
+            required = true
+    )
+    private String key;
+
+    @Option(
+            names = "--columns", split = ",",
+            description = "comma separated compared columns, all columns of the source table are compared if it is "
+                    + "not set"
+    )
+    private List<String> columns = new ArrayList<>();
+
+    @Option(
+            names = "--chunk-size",
+            description = "count of key values of one chunk, count of rows for ntile chunk method"
+    )
+    private long chunkSize = DiffOptions.DEFAULT_CHUNK_SIZE;
+
+    @Option(
+            names = "--chunk-method", description = "how the key range is split into chunks: ${COMPLETION-CANDIDATES}"
+    )
+    private PartitionMethod chunkMethod = PartitionMethod.MINMAX;
+
+    @Option(
+            names = "--parallelism", description = "count of chunks compared at once on separate connections"
+    )
+    private int parallelism = DiffOptions.DEFAULT_PARALLELISM;
+
+    @Option(
+            names = "--max-differences", description = "count of different rows whose keys are printed"
+    )
+    private int maxDifferences = DiffOptions.DEFAULT_MAX_DIFFERENCES;
+
+    @Spec
+    private Model.CommandSpec commandSpec;
+
+    @Override
+    public void run() {
+        DbChecko source;
+        DbChecko target;
+        try {
+            source = DbChecko.getInstance(propertiesFile, contextFile);
+            target = DbChecko.getInstance(targetPropertiesFile, targetContextFile);
+        } catch (MissingParameterDbCheckoException e) {
+            throw new MissingParameterException(commandSpec.commandLine(),
+                    commandSpec.args(), "Missing properties file or context file of the source or target database");
+        }
+
+        DiffOptions options = new DiffOptions();
+        options.setTable(table);
+        options.setKey(key);
+        options.setColumns(columns);
+        options.setChunkSize(chunkSize);
+        options.setChunkMethod(chunkMethod);
+        options.setParallelism(parallelism);
+        options.setMaxDifferences(maxDifferences);
+
+        source.executeDiff(target, options);
+    }
+}
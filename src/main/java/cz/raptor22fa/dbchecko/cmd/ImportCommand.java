@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.cmd;
+
+import java.io.File;
+import java.util.List;
+import cz.raptor22fa.dbchecko.db.DbChecko;
+import cz.raptor22fa.dbchecko.exception.MissingParameterDbCheckoException;
+import cz.raptor22fa.dbchecko.input.CsvReader;
+import cz.raptor22fa.dbchecko.sql.BatchOptions;
+import cz.raptor22fa.dbchecko.sql.ImportOptions;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.MissingParameterException;
+import picocli.CommandLine.Model;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+/**
+ * It allows you to import a csv file into a table.
+ *
+ * @author Roman Srom
+ */
+@Command(
+        name = "import",
+        mixinStandardHelpOptions = true,
+        description = "Allows you to import a csv file into a table."
+)
+public class ImportCommand implements Runnable {
+
+    @Option(
+            names = "-p", description = "path to properties file"
+    )
+    private File propertiesFile;
+
+    @Option(
+            names = "-c", description = "path to context file"
+    )
+    private File contextFile;
+
+    @Option(
+            names = "--file", description = "path to csv file in UTF-8",
+            required = true
+    )
+    private File file;
+
+    @Option(
+            names = {"-t", "--table"}, description = "table the file is imported into",
+            required = true
+    )
+    private String table;
+
+    @Option(
+            names = "--columns", split = ",",
+            description = "comma separated columns of the table, all columns in their order are used if it is not set"
+    )
+    private List<String> columns;
+
+    @Option(
+            names = "--header", description = "skips the first record of the file"
+    )
+    private boolean header;
+
+    @Option(
+            names = "--delimiter", description = "field delimiter, comma by default"
+    )
+    private char delimiter = CsvReader.DEFAULT_DELIMITER;
+
+    @Option(
+            names = "--batch-size",
+            description = "count of rows inserted at once if the database doesn't support COPY"
+    )
+    private int batchSize = BatchOptions.DEFAULT_BATCH_SIZE;
+
+    @Option(
+            names = "--commit-interval",
+            description = "count of rows after which the import is committed if the database doesn't support COPY, "
+                    + "0 commits once at the end"
+    )
+    private int commitInterval = BatchOptions.COMMIT_AT_END;
+
+    @Spec
+    private Model.CommandSpec commandSpec;
+
+    @Override
+    public void run() {
+        DbChecko dbChecko;
+        try {
+            dbChecko = DbChecko.getInstance(propertiesFile, contextFile);
+        } catch (MissingParameterDbCheckoException e) {
+            throw new MissingParameterException(commandSpec.commandLine(),
+                    commandSpec.args(), "Missing properties file or context file");
+        }
+
+        ImportOptions options = new ImportOptions();
+        options.setFile(file);
+        options.setTable(table);
+        options.setColumns(columns);
+        options.setHeader(header);
+        options.setDelimiter(delimiter);
+        options.setBatchSize(batchSize);
+        options.setCommitInterval(commitInterval);
+
+        dbChecko.executeImport(options);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.cmd;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import cz.raptor22fa.dbchecko.db.DbChecko;
+import cz.raptor22fa.dbchecko.exception.MissingParameterDbCheckoException;
+import cz.raptor22fa.dbchecko.sql.QueryParameter;
+import cz.raptor22fa.dbchecko.sql.ScriptOptions;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.MissingParameterException;
+import picocli.CommandLine.Model;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+/**
+ * It allows you to run a sql script.
+ *
+ * @author Roman Srom
+ */
+@Command(
+        name = "script",
+        mixinStandardHelpOptions = true,
+        description = "Allows you to run a sql script on one connection."
+)
+public class ScriptCommand implements Runnable {
+
+    @Option(
+            names = "-p", description = "path to properties file"
+    )
+    private File propertiesFile;
+
+    @Option(
+            names = "-c", description = "path to context file"
+    )
+    private File contextFile;
+
+    @Option(
+            names = "--file", description = "path to sql script in UTF-8 with statements separated by semicolons",
+            required = true
+    )
+    private File file;
+
+    @Option(
+            names = "--commit-interval",
+            description = "count of statements after which the script is committed, 0 commits every statement"
+    )
+    private int commitInterval = ScriptOptions.AUTO_COMMIT;
+
+    @Option(
+            names = "--slowest", description = "count of the slowest statements printed in the summary"
+    )
+    private int slowestCount = ScriptOptions.DEFAULT_SLOWEST_COUNT;
+
+    @Option(
+            names = "--param", converter = QueryParameterConverter.class,
+            description = "named parameter :name of the sql as name=value or name:type=value, e.g. id:integer=1"
+    )
+    private List<QueryParameter> parameters = new ArrayList<>();
+
+    @Spec
+    private Model.CommandSpec commandSpec;
+
+    @Override
+    public void run() {
+        DbChecko dbChecko;
+        try {
+            dbChecko = DbChecko.getInstance(propertiesFile, contextFile);
+        } catch (MissingParameterDbCheckoException e) {
+            throw new MissingParameterException(commandSpec.commandLine(),
+                    commandSpec.args(), "Missing properties file or context file");
+        }
+
+        ScriptOptions options = new ScriptOptions();
+        options.setFile(file);
+        options.setCommitInterval(commitInterval);
+        options.setSlowestCount(slowestCount);
+        options.setParameters(parameters);
+
+        dbChecko.executeScript(options);
+    }
+}
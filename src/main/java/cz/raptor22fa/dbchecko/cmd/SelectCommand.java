@@ -24,12 +24,26 @@
 package cz.raptor22fa.dbchecko.cmd;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import cz.raptor22fa.dbchecko.db.DbChecko;
 import cz.raptor22fa.dbchecko.exception.MissingParameterDbCheckoException;
+import cz.raptor22fa.dbchecko.output.ArrowResultWriter;
+import cz.raptor22fa.dbchecko.output.Compression;
+import cz.raptor22fa.dbchecko.output.OutputFormat;
+import cz.raptor22fa.dbchecko.sql.ExplainMode;
+import cz.raptor22fa.dbchecko.sql.PartitionMethod;
+import cz.raptor22fa.dbchecko.sql.QueryParameter;
+import cz.raptor22fa.dbchecko.sql.SelectOptions;
+import cz.raptor22fa.dbchecko.sql.StatementCanceller;
+import cz.raptor22fa.dbchecko.stats.JdbcMetrics;
+import cz.raptor22fa.dbchecko.stats.MetricsFormat;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.MissingParameterException;
 import picocli.CommandLine.Model;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Spec;
 
 /**
@@ -60,11 +74,142 @@ public class SelectCommand implements Runnable {
     )
     private String query;
 
+    @Option(
+            names = "--fetch-size",
+            description = "count of rows fetched at once, streams the result through a cursor if greater than 0"
+    )
+    private int fetchSize = SelectOptions.DEFAULT_FETCH_SIZE;
+
+    @Option(
+            names = {"-f", "--format"}, description = "output format: ${COMPLETION-CANDIDATES}"
+    )
+    private OutputFormat format = OutputFormat.TABLE;
+
+    @Option(
+            names = "--batch-size", description = "count of rows in one record batch of arrow format"
+    )
+    private int batchSize = ArrowResultWriter.DEFAULT_BATCH_SIZE;
+
+    @Option(
+            names = "-o", description = "path to output file, the output is printed if it is not set"
+    )
+    private File outputFile;
+
+    @Option(
+            names = "--partition-by",
+            description = "column whose value ranges are selected in parallel on separate connections"
+    )
+    private String partitionColumn;
+
+    @Option(
+            names = "--parallelism", description = "count of partitions and connections of a partitioned select"
+    )
+    private int parallelism = SelectOptions.DEFAULT_PARALLELISM;
+
+    @Option(
+            names = "--partition-method",
+            description = "how ranges of the partition column are found: ${COMPLETION-CANDIDATES}"
+    )
+    private PartitionMethod partitionMethod = PartitionMethod.MINMAX;
+
+    @Option(
+            names = "--ordered", description = "writes rows of a partitioned select ordered by the partition column"
+    )
+    private boolean ordered;
+
+    @Option(
+            names = "--auto-width",
+            description = "sizes table columns by values of this many first rows, not used by a partitioned select"
+    )
+    private int autoWidthRows;
+
+    @Option(
+            names = "--auto-width-buffer", description = "maximal size in MB of the rows buffered by --auto-width"
+    )
+    private int autoWidthBufferSize = SelectOptions.DEFAULT_AUTO_WIDTH_BUFFER_SIZE;
+
+    @Option(
+            names = "--param", converter = QueryParameterConverter.class,
+            description = "named parameter :name of the sql as name=value or name:type=value, e.g. id:integer=1"
+    )
+    private List<QueryParameter> parameters = new ArrayList<>();
+
+    @Option(
+            names = "--timeout",
+            description = "time budget in seconds of the select, the select is cancelled on the server when it runs out"
+    )
+    private int timeout = StatementCanceller.NO_TIMEOUT;
+
+    @Option(
+            names = "--max-rows", description = "maximal count of selected rows, not used by a partitioned select"
+    )
+    private int maxRows;
+
+    @Option(
+            names = "--page-by",
+            description = "ordered unique column the select is paged by, every page selects rows after the last key"
+    )
+    private String pageKey;
+
+    @Option(
+            names = "--page-size", description = "count of rows of one page of a paged select"
+    )
+    private int pageSize = SelectOptions.DEFAULT_PAGE_SIZE;
+
+    @Option(
+            names = "--checkpoint", description = "path to file the last key of a paged select is written to"
+    )
+    private File checkpointFile;
+
+    @Option(
+            names = "--resume",
+            description = "continues a paged select after the key of the checkpoint file and appends to the output file"
+    )
+    private boolean resume;
+
+    @Option(
+            names = "--compress", description = "compression of the output file: ${COMPLETION-CANDIDATES}"
+    )
+    private Compression compression = Compression.NONE;
+
+    @Option(
+            names = "--compress-threads", description = "count of threads compressing the output file"
+    )
+    private int compressionThreads = Runtime.getRuntime().availableProcessors();
+
+    @Option(
+            names = "--shard-size",
+            description = "size in MB before compression the output is split at into numbered files with own headers"
+    )
+    private int shardSize;
+
+    @Option(
+            names = "--explain", arity = "0..1", paramLabel = "analyze",
+            description = "writes plan of the select and its summary instead of the rows, with analyze the select is "
+                    + "executed and the plan has actual rows and timings"
+    )
+    private String explain;
+
+    @Option(
+            names = "--metrics",
+            description = "path to file the timings of connect, execute, fetch and output of the select are written to"
+    )
+    private File metricsFile;
+
+    @Option(
+            names = "--metrics-format", description = "format of the metrics file: ${COMPLETION-CANDIDATES}"
+    )
+    private MetricsFormat metricsFormat = MetricsFormat.JSON;
+
     @Spec
     private Model.CommandSpec commandSpec;
 
     @Override
     public void run() {
+        if (fetchSize < 0) {
+            throw new ParameterException(commandSpec.commandLine(),
+                    "Invalid value of --fetch-size: " + fetchSize + ", expected 0 or more");
+        }
         DbChecko dbChecko;
         try {
             dbChecko = DbChecko.getInstance(propertiesFile, contextFile);
@@ -73,6 +218,49 @@ public class SelectCommand implements Runnable {
                     commandSpec.args(), "Missing properties file or context file");
         }
 
-        dbChecko.executeSelect(query);
+        SelectOptions options = new SelectOptions();
+        options.setFetchSize(fetchSize);
+        options.setFormat(format);
+        options.setOutputFile(outputFile);
+        options.setBatchSize(batchSize);
+        options.setPartitionColumn(partitionColumn);
+        options.setParallelism(parallelism);
+        options.setPartitionMethod(partitionMethod);
+        options.setOrdered(ordered);
+        options.setAutoWidthRows(autoWidthRows);
+        options.setAutoWidthBufferSize(autoWidthBufferSize);
+        options.setParameters(parameters);
+        options.setTimeout(timeout);
+        options.setMaxRows(maxRows);
+        options.setPageKey(pageKey);
+        options.setPageSize(pageSize);
+        options.setCheckpointFile(checkpointFile);
+        options.setResume(resume);
+        options.setCompression(compression);
+        options.setCompressionThreads(compressionThreads);
+        options.setShardSize(shardSize * 1024L * 1024L);
+        options.setExplain(toExplainMode(explain));
+
+        final JdbcMetrics metrics = metricsFile != null ? new JdbcMetrics("select") : null;
+        dbChecko.setMetrics(metrics);
+        dbChecko.executeSelect(query, options);
+        if (metrics != null) {
+            metrics.write(metricsFile, metricsFormat);
+        }
+    }
+
+    private ExplainMode toExplainMode(String explain) {
+        if (explain == null) {
+            return null;
+        }
+        if (explain.isEmpty()) {
+            return ExplainMode.PLAN;
+        }
+        try {
+            return ExplainMode.valueOf(explain.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ParameterException(commandSpec.commandLine(),
+                    "Invalid value of --explain: " + explain + ", expected analyze or plan");
+        }
     }
 }
@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.cmd;
+
+import java.io.File;
+import java.io.IOException;
+import cz.raptor22fa.dbchecko.db.DbConnection;
+import cz.raptor22fa.dbchecko.db.HealthServer;
+import cz.raptor22fa.dbchecko.db.ServeOptions;
+import cz.raptor22fa.dbchecko.exception.DbCheckoException;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.MissingParameterException;
+import picocli.CommandLine.Model;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+/**
+ * It allows you to serve the health of the database over HTTP, e.g. for Kubernetes probes.
+ *
+ * @author Roman Srom
+ */
+@Command(
+        name = "serve",
+        mixinStandardHelpOptions = true,
+        description = "Checks the database in the background and serves the result on /health, /ready and /metrics."
+)
+public class ServeCommand implements Runnable {
+
+    @Option(
+            names = "-p", description = "path to properties file"
+    )
+    private File propertiesFile;
+
+    @Option(
+            names = "-c", description = "path to context file"
+    )
+    private File contextFile;
+
+    @Option(
+            names = "--port", description = "HTTP port"
+    )
+    private int port = ServeOptions.DEFAULT_PORT;
+
+    @Option(
+            names = "--bind", description = "address the HTTP server listens on"
+    )
+    private String bindAddress = ServeOptions.DEFAULT_BIND_ADDRESS;
+
+    @Option(
+            names = "--interval", description = "interval in milliseconds of checking the database"
+    )
+    private long interval = ServeOptions.DEFAULT_INTERVAL;
+
+    @Option(
+            names = "--timeout", description = "timeout in seconds of connecting and of the validation query"
+    )
+    private int timeout = ServeOptions.DEFAULT_TIMEOUT;
+
+    @Option(
+            names = "--validation-query", description = "query run by every check"
+    )
+    private String validationQuery;
+
+    @Spec
+    private Model.CommandSpec commandSpec;
+
+    @Override
+    public void run() {
+        DbConnection dbConnection;
+        if (propertiesFile != null) {
+            dbConnection = DbConnection.fromPropertiesFile(propertiesFile);
+        } else if (contextFile != null) {
+            dbConnection = DbConnection.fromContextFile(contextFile);
+        } else {
+            throw new MissingParameterException(commandSpec.commandLine(),
+                    commandSpec.args(), "Missing properties file or context file");
+        }
+
+        ServeOptions options = new ServeOptions();
+        options.setPort(port);
+        options.setBindAddress(bindAddress);
+        options.setInterval(interval);
+        options.setTimeout(timeout);
+        options.setValidationQuery(validationQuery);
+
+        try {
+            new HealthServer(dbConnection, options).run();
+        } catch (IOException e) {
+            throw new DbCheckoException("Failed to listen on port " + port, e);
+        }
+    }
+}
@@ -24,19 +24,24 @@
 package cz.raptor22fa.dbchecko.cmd;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import cz.raptor22fa.dbchecko.db.DbChecko;
 import cz.raptor22fa.dbchecko.exception.MissingParameterDbCheckoException;
+import cz.raptor22fa.dbchecko.sql.BatchOptions;
+import cz.raptor22fa.dbchecko.sql.QueryParameter;
+import cz.raptor22fa.dbchecko.sql.StatementCanceller;
 import picocli.CommandLine;
 
 /**
- * It allows you to run an update sql command.
+ * It allows you to run an update sql command or a batch of them from a file.
  *
  * @author Roman Srom
  */
 @CommandLine.Command(
         name = "update",
         mixinStandardHelpOptions = true,
-        description = "Allows you to run an update sql command."
+        description = "Allows you to run an update sql command or a batch of them."
 )
 public class UpdateCommand implements Runnable {
 
@@ -51,11 +56,59 @@ public class UpdateCommand implements Runnable {
     private File contextFile;
 
     @CommandLine.Option(
-            names = "-s", description = "update sql",
-            required = true
+            names = "-s", description = "update sql"
     )
     private String query;
 
+    @CommandLine.Option(
+            names = "--param", converter = QueryParameterConverter.class,
+            description = "named parameter :name of the sql as name=value or name:type=value, e.g. id:integer=1"
+    )
+    private List<QueryParameter> parameters = new ArrayList<>();
+
+    @CommandLine.Option(
+            names = "--timeout",
+            description = "seconds after which the update sql of -s is cancelled on the server"
+    )
+    private int timeout = StatementCanceller.NO_TIMEOUT;
+
+    @CommandLine.Option(
+            names = "--file", description = "path to file with one update sql per line executed in batches"
+    )
+    private File statementsFile;
+
+    @CommandLine.Option(
+            names = "--template",
+            description = "update sql with ? parameters executed in batches for every record of the values file"
+    )
+    private String template;
+
+    @CommandLine.Option(
+            names = "--values", description = "path to csv file with values of the template parameters"
+    )
+    private File valuesFile;
+
+    @CommandLine.Option(
+            names = "--header", description = "skips the first record of the values file"
+    )
+    private boolean header;
+
+    @CommandLine.Option(
+            names = "--batch-size", description = "count of sql commands sent to the database at once"
+    )
+    private int batchSize = BatchOptions.DEFAULT_BATCH_SIZE;
+
+    @CommandLine.Option(
+            names = "--commit-interval",
+            description = "count of sql commands after which the batch is committed, 0 commits once at the end"
+    )
+    private int commitInterval = BatchOptions.COMMIT_AT_END;
+
+    @CommandLine.Option(
+            names = "--rewrite-batched-inserts", description = "inserts many rows of the template by one sql command"
+    )
+    private boolean rewriteBatchedInserts;
+
     @CommandLine.Spec
     private CommandLine.Model.CommandSpec commandSpec;
 
@@ -69,7 +122,38 @@ public class UpdateCommand implements Runnable {
                     commandSpec.args(), "Missing properties file or context file");
         }
 
-        dbChecko.executeUpdate(query);
+        final int sourceCount = (query != null ? 1 : 0) + (statementsFile != null ? 1 : 0) + (template != null ? 1 : 0);
+        if (sourceCount != 1) {
+            throw new CommandLine.ParameterException(commandSpec.commandLine(),
+                    "Exactly one of -s, --file and --template has to be set");
+        }
+        if (query == null && !parameters.isEmpty()) {
+            throw new CommandLine.ParameterException(commandSpec.commandLine(),
+                    "Named parameters can be used only with -s");
+        }
+        if (query == null && timeout != StatementCanceller.NO_TIMEOUT) {
+            throw new CommandLine.ParameterException(commandSpec.commandLine(), "Timeout can be used only with -s");
+        }
+        if (template != null && valuesFile == null) {
+            throw new CommandLine.MissingParameterException(commandSpec.commandLine(),
+                    commandSpec.args(), "Missing values file of the template");
+        }
+
+        if (query != null) {
+            dbChecko.executeUpdate(query, parameters, timeout);
+            return;
+        }
+
+        BatchOptions options = new BatchOptions();
+        options.setStatementsFile(statementsFile);
+        options.setTemplate(template);
+        options.setValuesFile(valuesFile);
+        options.setHeader(header);
+        options.setBatchSize(batchSize);
+        options.setCommitInterval(commitInterval);
+        options.setRewriteBatchedInserts(rewriteBatchedInserts);
+
+        dbChecko.executeBatch(options);
     }
 
 }
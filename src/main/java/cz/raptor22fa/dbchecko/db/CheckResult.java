@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.db;
+
+/**
+ * Result of a check of one database.
+ *
+ * @author Roman Srom
+ */
+public class CheckResult {
+
+    public enum Status {
+        /**
+         * Connected and the validation query succeeded.
+         */
+        OK,
+        /**
+         * Connect or the validation query failed.
+         */
+        FAILED,
+        /**
+         * The database didn't respond in time.
+         */
+        TIMEOUT,
+        /**
+         * The configuration of the database is wrong, e.g. the file can't be read or the driver doesn't exist.
+         */
+        ERROR
+    }
+
+    private final String target;
+    private final String url;
+    private final Status status;
+    private final long connectTime;
+    private final long queryTime;
+    private final String message;
+
+    CheckResult(String target, String url, Status status, long connectTime, long queryTime, String message) {
+        this.target = target;
+        this.url = url;
+        this.status = status;
+        this.connectTime = connectTime;
+        this.queryTime = queryTime;
+        this.message = message;
+    }
+
+    /**
+     * Returns name of the configuration file of the database.
+     *
+     * @return target name
+     */
+    public String getTarget() {
+        return target;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns time of connecting in nanoseconds.
+     *
+     * @return connect time, 0 if the connect failed
+     */
+    public long getConnectTime() {
+        return connectTime;
+    }
+
+    /**
+     * Returns round trip of the validation query in nanoseconds.
+     *
+     * @return query time, 0 if the query failed
+     */
+    public long getQueryTime() {
+        return queryTime;
+    }
+
+    /**
+     * Returns reason of the failure.
+     *
+     * @return error message, {@code null} if the check succeeded
+     */
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.db;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Database checked by {@link FleetCheck}. It is a properties file, a Tomcat context file or a {@link DbConnection}.
+ * Files are read by the check itself, so that an invalid file fails only its own check.
+ *
+ * @author Roman Srom
+ */
+public class CheckTarget {
+
+    private static final String PROPERTIES_SUFFIX = ".properties";
+    private static final String CONTEXT_FILE_SUFFIX = ".xml";
+
+    private final String name;
+    private final File file;
+    private final boolean contextFile;
+    private final DbConnection dbConnection;
+
+    private CheckTarget(String name, File file, boolean contextFile, DbConnection dbConnection) {
+        this.name = name;
+        this.file = file;
+        this.contextFile = contextFile;
+        this.dbConnection = dbConnection;
+    }
+
+    public static CheckTarget of(String name, DbConnection dbConnection) {
+        return new CheckTarget(name, null, false, dbConnection);
+    }
+
+    public static CheckTarget ofPropertiesFile(File file) {
+        return new CheckTarget(file.getPath(), file, false, null);
+    }
+
+    public static CheckTarget ofContextFile(File file) {
+        return new CheckTarget(file.getPath(), file, true, null);
+    }
+
+    /**
+     * Creates targets of the files. A directory is replaced by its {@code *.properties} or {@code *.xml} files
+     * respectively, sorted by name.
+     *
+     * @param propertiesFiles properties files or directories with them
+     * @param contextFiles Tomcat context files or directories with them
+     * @return targets
+     */
+    public static List<CheckTarget> fromFiles(List<File> propertiesFiles, List<File> contextFiles) {
+        final List<CheckTarget> targets = new ArrayList<>();
+        for (File file : expand(propertiesFiles, PROPERTIES_SUFFIX)) {
+            targets.add(ofPropertiesFile(file));
+        }
+        for (File file : expand(contextFiles, CONTEXT_FILE_SUFFIX)) {
+            targets.add(ofContextFile(file));
+        }
+        return targets;
+    }
+
+    private static List<File> expand(List<File> files, String suffix) {
+        final List<File> expanded = new ArrayList<>();
+        for (File file : files) {
+            if (file.isDirectory()) {
+                final File[] children = file.listFiles((dir, childName) -> childName.endsWith(suffix));
+                if (children != null) {
+                    Arrays.sort(children);
+                    expanded.addAll(Arrays.asList(children));
+                }
+            } else {
+                expanded.add(file);
+            }
+        }
+        return expanded;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns database connection, the file of the target is read by every call.
+     *
+     * @return database connection
+     * @throws RuntimeException if the file can't be read
+     */
+    DbConnection getDbConnection() {
+        if (dbConnection != null) {
+            return dbConnection;
+        }
+        final DbConnection loaded = contextFile
+                ? DbConnection.fromContextFile(file) : DbConnection.fromPropertiesFile(file);
+        if (loaded == null || loaded.getUrl() == null) {
+            throw new IllegalArgumentException("Database URL not found in " + file);
+        }
+        return loaded;
+    }
+}
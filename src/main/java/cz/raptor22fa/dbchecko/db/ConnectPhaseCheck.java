@@ -0,0 +1,311 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.db;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import cz.raptor22fa.dbchecko.stats.LatencyHistogram;
+import org.apache.log4j.LogMF;
+import org.apache.log4j.Logger;
+
+/**
+ * Times the phases of connecting to the database separately, so that it can be seen where the connection latency goes.
+ * Every run resolves the host of the JDBC URL, opens and closes a plain TCP connection to its port, connects by the
+ * driver and runs the first round trip on the connection.
+ * <p>
+ * The driver resolves the host from the address cache of the JVM, so the driver connect after the TCP connect is
+ * mostly TLS, authentication and setup of the session. It is printed as the login phase. Only the first DNS lookup
+ * goes to the resolver, next ones are answered by the cache. The network phases are skipped if the URL has no host,
+ * e.g. of an embedded database.
+ *
+ * @author Roman Srom
+ */
+public class ConnectPhaseCheck {
+
+    private static final Logger LOG = Logger.getLogger(ConnectPhaseCheck.class);
+
+    private static final Map<String, Integer> DEFAULT_PORTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULT_PORTS.put("jdbc:postgresql:", 5432);
+        DEFAULT_PORTS.put("jdbc:sqlserver:", 1433);
+        DEFAULT_PORTS.put("jdbc:mysql:", 3306);
+        DEFAULT_PORTS.put("jdbc:mariadb:", 3306);
+        DEFAULT_PORTS.put("jdbc:oracle:", 1521);
+        DEFAULT_PORTS.put("jdbc:db2:", 50000);
+        DEFAULT_PORTS.put("jdbc:hsqldb:hsql:", 9001);
+        DEFAULT_PORTS.put("jdbc:hsqldb:hsqls:", 554);
+        DEFAULT_PORTS.put("jdbc:hsqldb:http:", 80);
+        DEFAULT_PORTS.put("jdbc:hsqldb:https:", 443);
+    }
+
+    /**
+     * Phases of a connect in the order they run.
+     */
+    enum Phase {
+        DNS("dns"),
+        TCP("tcp"),
+        DRIVER("driver"),
+        LOGIN("login"),
+        QUERY("query");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    private final InetSocketAddress address;
+    private final ConnectionFactory connectionFactory;
+    private final String validationQuery;
+    private final ConnectPhaseOptions options;
+    private final PrintStream output;
+
+    private final Map<Phase, LatencyHistogram> latencies = new EnumMap<>(Phase.class);
+    private final Map<Phase, Long> failures = new EnumMap<>(Phase.class);
+    private long firstLookup = -1;
+    private String lastError;
+
+    ConnectPhaseCheck(String url, ConnectionFactory connectionFactory, String validationQuery,
+            ConnectPhaseOptions options, PrintStream output) {
+        this.address = parseAddress(url);
+        this.connectionFactory = connectionFactory;
+        this.validationQuery = validationQuery;
+        this.options = options;
+        this.output = output;
+        for (Phase phase : Phase.values()) {
+            latencies.put(phase, new LatencyHistogram());
+            failures.put(phase, 0L);
+        }
+    }
+
+    /**
+     * Runs all phases the given count of times and prints their latencies.
+     *
+     * @return {@code true} if all phases of all runs succeeded
+     */
+    public boolean run() {
+        if (address == null) {
+            LOG.info("The URL has no host and port, network phases are skipped");
+        } else {
+            LogMF.info(LOG, "Timing connect phases of {0}:{1}", address.getHostString(),
+                    String.valueOf(address.getPort()));
+        }
+        for (int i = 0; i < options.getRuns(); i++) {
+            runOnce();
+        }
+        report();
+        return failures.values().stream().allMatch(count -> count == 0);
+    }
+
+    private void runOnce() {
+        long networkTime = 0;
+        if (address != null) {
+            final long lookupStart = System.nanoTime();
+            final InetAddress inetAddress;
+            try {
+                inetAddress = InetAddress.getByName(address.getHostString());
+            } catch (IOException e) {
+                fail(Phase.DNS, e.toString());
+                return;
+            }
+            final long lookupTime = record(Phase.DNS, lookupStart);
+            if (firstLookup < 0) {
+                firstLookup = lookupTime;
+            }
+
+            final long socketStart = System.nanoTime();
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(inetAddress, address.getPort()),
+                        (int) TimeUnit.SECONDS.toMillis(options.getTimeout()));
+            } catch (IOException e) {
+                fail(Phase.TCP, e.toString());
+                return;
+            }
+            networkTime = record(Phase.TCP, socketStart);
+        }
+
+        final long connectStart = System.nanoTime();
+        final Connection connection;
+        try {
+            connection = connectionFactory.getConnection();
+        } catch (SQLException e) {
+            fail(Phase.DRIVER, e.getMessage());
+            return;
+        }
+        final long connectTime = record(Phase.DRIVER, connectStart);
+        if (address != null) {
+            // the driver connect includes its own TCP connect, which takes about as long as the plain one
+            latencies.get(Phase.LOGIN).record(Math.max(0, connectTime - networkTime));
+        }
+
+        try {
+            final long queryStart = System.nanoTime();
+            ConnectionProbe.validate(connection, validationQuery, options.getTimeout());
+            record(Phase.QUERY, queryStart);
+        } catch (SQLException e) {
+            fail(Phase.QUERY, e.getMessage());
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOG.debug("Failed to close connection", e);
+            }
+        }
+    }
+
+    private long record(Phase phase, long startTime) {
+        final long time = System.nanoTime() - startTime;
+        latencies.get(phase).record(time);
+        return time;
+    }
+
+    /**
+     * Counts the failure, the same repeated error is logged only once.
+     */
+    private void fail(Phase phase, String message) {
+        failures.merge(phase, 1L, Long::sum);
+        final String error = phase.label + " failed: " + message;
+        if (!error.equals(lastError)) {
+            LogMF.warn(LOG, "{0}", error);
+            lastError = error;
+        }
+    }
+
+    private void report() {
+        final long failureCount = failures.values().stream().mapToLong(Long::longValue).sum();
+        output.println(String.format("Connect phases of %s, runs: %d, failures: %d",
+                address != null ? address.getHostString() + ":" + address.getPort() : "database without host",
+                options.getRuns(), failureCount));
+        for (Phase phase : Phase.values()) {
+            if (latencies.get(phase).getTotalCount() == 0 && failures.get(phase) == 0) {
+                continue;
+            }
+            final StringBuilder line = new StringBuilder(ConnectionProbe.format(phase.label, latencies.get(phase)));
+            if (failures.get(phase) > 0) {
+                line.append("  failures: ").append(failures.get(phase));
+            }
+            output.println(line);
+        }
+        if (firstLookup >= 0) {
+            output.println(String.format(Locale.ROOT, "  first dns lookup: %.3f ms, next lookups are cached",
+                    firstLookup / 1_000_000.0));
+        }
+    }
+
+    /**
+     * Finds host and port of the database in the JDBC URL, e.g. {@code jdbc:postgresql://db1:5433,db2/lportal} or
+     * {@code jdbc:oracle:thin:@db:1521:xe}. The first host of many is used and the default port of the database if
+     * the URL has none.
+     *
+     * @param url JDBC URL
+     * @return unresolved address, {@code null} if the URL has no host or the port is not known
+     */
+    static InetSocketAddress parseAddress(String url) {
+        if (url == null) {
+            return null;
+        }
+        int start = url.indexOf("//");
+        final int at = url.indexOf(":@");
+        if (at >= 0 && (start < 0 || at < start)) {
+            start = url.startsWith("//", at + 2) ? at + 4 : at + 2;
+        } else if (start >= 0) {
+            start += 2;
+        } else {
+            return null;
+        }
+        int end = start;
+        while (end < url.length() && "/;?,".indexOf(url.charAt(end)) < 0) {
+            end++;
+        }
+        String authority = url.substring(start, end);
+        authority = authority.substring(authority.lastIndexOf('@') + 1);
+        String host;
+        String port = null;
+        if (authority.startsWith("[")) {
+            final int close = authority.indexOf(']');
+            if (close < 0) {
+                return null;
+            }
+            host = authority.substring(1, close);
+            if (authority.startsWith(":", close + 1)) {
+                port = authority.substring(close + 2);
+            }
+        } else {
+            final int colon = authority.indexOf(':');
+            host = colon < 0 ? authority : authority.substring(0, colon);
+            if (colon >= 0) {
+                port = authority.substring(colon + 1);
+                // Oracle SID after the port
+                if (port.indexOf(':') >= 0) {
+                    port = port.substring(0, port.indexOf(':'));
+                }
+            }
+        }
+        // SQL Server named instance, its port is found by the browser service
+        if (host.indexOf('\\') >= 0) {
+            host = host.substring(0, host.indexOf('\\'));
+        }
+        if (host.isEmpty()) {
+            return null;
+        }
+        final Integer portNumber = port != null && !port.isEmpty() ? parsePort(port) : findPort(url);
+        return portNumber != null ? InetSocketAddress.createUnresolved(host, portNumber) : null;
+    }
+
+    private static Integer findPort(String url) {
+        final String property = ";portnumber=";
+        final int index = url.toLowerCase(Locale.ROOT).indexOf(property);
+        if (index >= 0) {
+            final int end = url.indexOf(';', index + 1);
+            return parsePort(url.substring(index + property.length(), end < 0 ? url.length() : end));
+        }
+        for (Map.Entry<String, Integer> entry : DEFAULT_PORTS.entrySet()) {
+            if (url.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static Integer parsePort(String port) {
+        try {
+            final int number = Integer.parseInt(port.trim());
+            return number > 0 && number <= 65535 ? number : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
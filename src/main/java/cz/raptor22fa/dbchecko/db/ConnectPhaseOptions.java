@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.db;
+
+/**
+ * Contains options of timing the phases of connecting to the database by the check command.
+ *
+ * @author Roman Srom
+ */
+public class ConnectPhaseOptions {
+
+    public static final int DEFAULT_RUNS = 5;
+    public static final int DEFAULT_TIMEOUT = 10;
+
+    private int runs = DEFAULT_RUNS;
+    private int timeout = DEFAULT_TIMEOUT;
+    private String validationQuery;
+
+    /**
+     * Returns count of times all phases are run, so that a single slow run can be told from a slow phase.
+     *
+     * @return count of runs
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    public void setRuns(int runs) {
+        if (runs < 1) {
+            throw new IllegalArgumentException("Count of runs must be greater than 0");
+        }
+        this.runs = runs;
+    }
+
+    /**
+     * Returns timeout in seconds of one phase.
+     *
+     * @return timeout in seconds
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        if (timeout < 1) {
+            throw new IllegalArgumentException("Timeout must be greater than 0");
+        }
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns query of the first round trip after the connection is made. If it is not set, the cheapest query of
+     * the database is used or {@link java.sql.Connection#isValid(int)} if the database is not known.
+     *
+     * @return validation query
+     */
+    public String getValidationQuery() {
+        return validationQuery;
+    }
+
+    public void setValidationQuery(String validationQuery) {
+        this.validationQuery = validationQuery;
+    }
+}
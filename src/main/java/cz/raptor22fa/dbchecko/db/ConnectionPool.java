@@ -0,0 +1,406 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.db;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import org.apache.log4j.LogMF;
+import org.apache.log4j.Logger;
+
+/**
+ * Lightweight pool of connections to the database of a {@link DbConnection}. The min size of connections is opened in
+ * the background when the pool is created. Connections are validated when they are borrowed and idle connections
+ * above the min size are closed after the idle timeout. A borrowed connection returns
+ * to the pool when it is closed, with auto-commit, read-only and transaction isolation of a new connection. Every pooled connection keeps its {@link StatementCache}, which borrowers get by
+ * {@link StatementCache#of(Connection)}.
+ *
+ * @author Roman Srom
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(ConnectionPool.class);
+
+    private final DbConnection dbConnection;
+    private final PoolOptions options;
+
+    /**
+     * Idle connections, the most recently returned first. Borrowers take warm connections from the head and the
+     * evictor closes the oldest ones from the tail.
+     */
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final ScheduledExecutorService evictor;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong totalBorrowWait = new AtomicLong();
+    private final AtomicLong maxBorrowWait = new AtomicLong();
+    private volatile boolean closed;
+
+    public ConnectionPool(DbConnection dbConnection, PoolOptions options) {
+        if (options.getMinSize() > options.getMaxSize()) {
+            throw new IllegalArgumentException("Min size must not be greater than max size");
+        }
+        this.dbConnection = dbConnection;
+        this.options = options;
+        this.permits = new Semaphore(options.getMaxSize(), true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dbchecko-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long interval = Math.max(1, Math.min(options.getIdleTimeout() / 2, TimeUnit.SECONDS.toMillis(30)));
+        this.evictor.scheduleWithFixedDelay(this::evict, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        final long startTime = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(options.getMaxWait(), TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timeout waiting for a connection, all " + options.getMaxSize()
+                        + " connections are in use");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a connection", e);
+        }
+        try {
+            final PooledConnection connection = takeValidConnection();
+            final long wait = System.nanoTime() - startTime;
+            borrowed.incrementAndGet();
+            totalBorrowWait.addAndGet(wait);
+            maxBorrowWait.accumulateAndGet(wait, Math::max);
+            return connection.borrow();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeValidConnection() throws SQLException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.getMaxWait());
+        while (true) {
+            PooledConnection connection = idle.pollFirst();
+            if (connection == null) {
+                if (reserve(options.getMaxSize())) {
+                    return open();
+                }
+                // the borrower holds a permit, so the last free slot is taken by a connection the evictor is opening
+                connection = pollIdle(deadline);
+                if (connection == null) {
+                    continue;
+                }
+            }
+            if (isValid(connection.physical)) {
+                return connection;
+            }
+            validationFailures.incrementAndGet();
+            LOG.info("Closing invalid pooled connection");
+            destroy(connection);
+        }
+    }
+
+    private PooledConnection pollIdle(long deadline) throws SQLException {
+        if (System.nanoTime() - deadline >= 0) {
+            throw new SQLException("Timeout waiting for a connection opened by the pool");
+        }
+        try {
+            return idle.pollFirst(10, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a connection", e);
+        }
+    }
+
+    /**
+     * Reserves a slot for a new connection before it is opened, so that the borrowers and the evictor together never
+     * open more connections than the limit.
+     *
+     * @param limit max size of the pool including the reserved slot
+     * @return {@code true} if the slot was reserved, the caller has to open a connection by {@link #open()}
+     */
+    private boolean reserve(int limit) {
+        int current;
+        do {
+            current = size.get();
+            if (current >= limit) {
+                return false;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private PooledConnection open() throws SQLException {
+        try {
+            final PooledConnection connection = new PooledConnection(connect());
+            created.incrementAndGet();
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            size.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        final Properties properties = options.getConnectTimeout() > 0
+                ? dbConnection.getDialect().getTimeoutProperties(options.getConnectTimeout()) : new Properties();
+        return dbConnection.connect(properties);
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(options.getValidationTimeout());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection connection) {
+        try {
+            if (closed || connection.physical.isClosed()) {
+                destroy(connection);
+                return;
+            }
+            if (!connection.physical.getAutoCommit()) {
+                connection.physical.rollback();
+                connection.physical.setAutoCommit(true);
+            }
+            if (connection.settingsChanged) {
+                // settings of the borrower mustn't leak to the next one
+                connection.physical.setReadOnly(connection.readOnly);
+                connection.physical.setTransactionIsolation(connection.transactionIsolation);
+                connection.settingsChanged = false;
+            }
+            connection.lastUsed = System.nanoTime();
+            idle.offerFirst(connection);
+        } catch (SQLException e) {
+            LOG.warn("Failed to return connection to the pool", e);
+            destroy(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void evict() {
+        try {
+            final long now = System.nanoTime();
+            final long idleTimeout = TimeUnit.MILLISECONDS.toNanos(options.getIdleTimeout());
+            final Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+            while (oldestFirst.hasNext() && size.get() > options.getMinSize()) {
+                final PooledConnection connection = oldestFirst.next();
+                if (now - connection.lastUsed > idleTimeout && idle.removeLastOccurrence(connection)) {
+                    LOG.debug("Closing idle pooled connection");
+                    destroy(connection);
+                }
+            }
+            while (!closed && reserve(options.getMinSize())) {
+                final PooledConnection connection = open();
+                connection.lastUsed = now;
+                idle.offerLast(connection);
+            }
+        } catch (SQLException | RuntimeException e) {
+            LOG.warn("Failed to maintain the connection pool", e);
+        }
+    }
+
+    private void destroy(PooledConnection connection) {
+        size.decrementAndGet();
+        try {
+            connection.physical.close();
+        } catch (SQLException e) {
+            LOG.warn("Failed to close connection", e);
+        }
+    }
+
+    public PoolStats getStats() {
+        final int idleCount = idle.size();
+        return new PoolStats(Math.max(0, size.get() - idleCount), idleCount, created.get(), borrowed.get(),
+                validationFailures.get(), totalBorrowWait.get(), maxBorrowWait.get());
+    }
+
+    /**
+     * Closes idle connections. Borrowed connections are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            destroy(connection);
+        }
+        LogMF.info(LOG, "Connection pool of {0} closed, {1}", dbConnection.getUrl(), getStats());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Connection pool uses credentials of its database connection");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("Connection pool doesn't use java.util.logging");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Connection pool is not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * Physical connection owned by the pool. A borrower gets a proxy of it which returns it to the pool on close.
+     */
+    private final class PooledConnection {
+
+        private final Connection physical;
+        private final StatementCache statements;
+        private final boolean readOnly;
+        private final int transactionIsolation;
+        private volatile long lastUsed;
+        private volatile boolean settingsChanged;
+
+        private PooledConnection(Connection physical) throws SQLException {
+            this.physical = physical;
+            this.statements = new StatementCache(physical, options.getStatementCacheSize(), true);
+            try {
+                this.readOnly = physical.isReadOnly();
+                this.transactionIsolation = physical.getTransactionIsolation();
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    physical.close();
+                } catch (SQLException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+                throw e;
+            }
+        }
+
+        private Connection borrow() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, new BorrowedConnection(this));
+        }
+    }
+
+    private final class BorrowedConnection implements InvocationHandler {
+
+        private final PooledConnection connection;
+        private boolean returned;
+
+        private BorrowedConnection(PooledConnection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(connection);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || connection.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled " + connection.physical;
+                case "isWrapperFor":
+                    if (args[0] == StatementCache.class && !returned) {
+                        return true;
+                    }
+                    break;
+                case "unwrap":
+                    if (args[0] == StatementCache.class && !returned) {
+                        return connection.statements;
+                    }
+                    break;
+                case "setReadOnly":
+                case "setTransactionIsolation":
+                    connection.settingsChanged = true;
+                    break;
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection is closed");
+            }
+            try {
+                return method.invoke(connection.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
+
@@ -0,0 +1,245 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.db;
+
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import cz.raptor22fa.dbchecko.stats.LatencyHistogram;
+import org.apache.log4j.LogMF;
+import org.apache.log4j.Logger;
+
+/**
+ * Probes the database repeatedly. Every probe makes a new connection and runs a validation query on it. Time of the
+ * connect (including authentication) and round trip of the query are recorded separately, so that slow connecting
+ * can be told apart from slow queries. Percentiles and failure counts are printed periodically and at the end.
+ *
+ * @author Roman Srom
+ */
+public class ConnectionProbe {
+
+    private static final Logger LOG = Logger.getLogger(ConnectionProbe.class);
+
+    private static final int VALIDATION_TIMEOUT = 5;
+    private static final long SHUTDOWN_TIMEOUT = 5000;
+
+    private final ConnectionFactory connectionFactory;
+    private final String validationQuery;
+    private final ProbeOptions options;
+    private final PrintStream output;
+
+    private final Stats interval = new Stats();
+    private final Stats total = new Stats();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile boolean stopped;
+    private String lastError;
+
+    ConnectionProbe(ConnectionFactory connectionFactory, String validationQuery, ProbeOptions options,
+            PrintStream output) {
+        this.connectionFactory = connectionFactory;
+        this.validationQuery = validationQuery;
+        this.options = options;
+        this.output = output;
+    }
+
+    /**
+     * Probes the database for the duration of the probing or until the JVM is shut down.
+     *
+     * @return {@code true} if all probes succeeded
+     */
+    public boolean run() {
+        final Thread probingThread = Thread.currentThread();
+        final Thread shutdownHook = new Thread(() -> {
+            stopped = true;
+            probingThread.interrupt();
+            try {
+                finished.await(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "dbchecko-probe-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        try {
+            probe();
+        } finally {
+            report("Total", total);
+            finished.countDown();
+            removeShutdownHook(shutdownHook);
+        }
+        return total.connectFailures == 0 && total.queryFailures == 0;
+    }
+
+    private void probe() {
+        final long intervalNanos = TimeUnit.MILLISECONDS.toNanos(options.getInterval());
+        final long reportNanos = TimeUnit.SECONDS.toNanos(options.getReportInterval());
+        final long startTime = System.nanoTime();
+        final long endTime = options.getDuration() != ProbeOptions.UNLIMITED_DURATION
+                ? startTime + TimeUnit.SECONDS.toNanos(options.getDuration()) : Long.MAX_VALUE;
+        long nextProbe = startTime;
+        long nextReport = startTime + reportNanos;
+
+        while (!stopped) {
+            probeOnce();
+            long now = System.nanoTime();
+            if (now - nextReport >= 0) {
+                report(new SimpleDateFormat("HH:mm:ss").format(new Date()), interval);
+                total.add(interval);
+                interval.reset();
+                nextReport += reportNanos;
+            }
+            nextProbe = Math.max(nextProbe + intervalNanos, now);
+            if (endTime - nextProbe <= 0) {
+                break;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(nextProbe - now);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        if (interval.probes > 0) {
+            report(new SimpleDateFormat("HH:mm:ss").format(new Date()), interval);
+            total.add(interval);
+        }
+    }
+
+    private void probeOnce() {
+        interval.probes++;
+        final long connectStart = System.nanoTime();
+        final Connection connection;
+        try {
+            connection = connectionFactory.getConnection();
+        } catch (SQLException e) {
+            interval.connectFailures++;
+            logFailure("Connect failed", e);
+            return;
+        }
+        interval.connect.record(System.nanoTime() - connectStart);
+
+        try {
+            final long queryStart = System.nanoTime();
+            validate(connection, validationQuery, VALIDATION_TIMEOUT);
+            interval.query.record(System.nanoTime() - queryStart);
+        } catch (SQLException e) {
+            interval.queryFailures++;
+            logFailure("Validation failed", e);
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOG.debug("Failed to close connection", e);
+            }
+        }
+    }
+
+    /**
+     * Runs the validation query on the connection.
+     *
+     * @param connection connection
+     * @param validationQuery query, {@link Connection#isValid(int)} is used if it is {@code null}
+     * @param timeout timeout in seconds
+     * @throws SQLException if the query fails or the connection is not valid
+     */
+    static void validate(Connection connection, String validationQuery, int timeout) throws SQLException {
+        if (validationQuery == null) {
+            if (!connection.isValid(timeout)) {
+                throw new SQLException("Connection is not valid");
+            }
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(timeout);
+            try (ResultSet rs = statement.executeQuery(validationQuery)) {
+                rs.next();
+            }
+        }
+    }
+
+    /**
+     * Logs the failure, the same repeated error is logged only once to keep the output readable during an outage.
+     */
+    private void logFailure(String description, SQLException e) {
+        final String error = description + ": " + e.getMessage();
+        if (!error.equals(lastError)) {
+            LogMF.warn(LOG, "{0}", error);
+            lastError = error;
+        }
+    }
+
+    private void report(String label, Stats stats) {
+        output.println(String.format("%s probes: %d, connect failures: %d, query failures: %d",
+                label, stats.probes, stats.connectFailures, stats.queryFailures));
+        output.println(format("connect", stats.connect));
+        output.println(format("query", stats.query));
+    }
+
+    static String format(String name, LatencyHistogram histogram) {
+        return String.format("  %-8s ms  p50: %9.3f  p90: %9.3f  p99: %9.3f  max: %9.3f", name,
+                toMillis(histogram.getValueAtPercentile(50)), toMillis(histogram.getValueAtPercentile(90)),
+                toMillis(histogram.getValueAtPercentile(99)), toMillis(histogram.getMax()));
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static void removeShutdownHook(Thread shutdownHook) {
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // the JVM is shutting down, the hook is running
+        }
+    }
+
+    private static final class Stats {
+
+        private final LatencyHistogram connect = new LatencyHistogram();
+        private final LatencyHistogram query = new LatencyHistogram();
+        private long probes;
+        private long connectFailures;
+        private long queryFailures;
+
+        private void add(Stats other) {
+            connect.add(other.connect);
+            query.add(other.query);
+            probes += other.probes;
+            connectFailures += other.connectFailures;
+            queryFailures += other.queryFailures;
+        }
+
+        private void reset() {
+            connect.reset();
+            query.reset();
+            probes = 0;
+            connectFailures = 0;
+            queryFailures = 0;
+        }
+    }
+}
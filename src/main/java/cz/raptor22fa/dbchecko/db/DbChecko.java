@@ -26,12 +26,32 @@ package cz.raptor22fa.dbchecko.db;
 import java.io.File;
 import java.io.PrintStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import cz.raptor22fa.dbchecko.exception.DbCheckoException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import javax.sql.DataSource;
 import cz.raptor22fa.dbchecko.exception.MissingParameterDbCheckoException;
+import cz.raptor22fa.dbchecko.sql.BatchOptions;
+import cz.raptor22fa.dbchecko.sql.BatchUpdateHandler;
+import cz.raptor22fa.dbchecko.sql.BenchHandler;
+import cz.raptor22fa.dbchecko.sql.BenchOptions;
+import cz.raptor22fa.dbchecko.sql.DiffHandler;
+import cz.raptor22fa.dbchecko.sql.DiffOptions;
+import cz.raptor22fa.dbchecko.sql.ExplainHandler;
+import cz.raptor22fa.dbchecko.sql.ImportHandler;
+import cz.raptor22fa.dbchecko.sql.ImportOptions;
+import cz.raptor22fa.dbchecko.sql.KeysetSelectHandler;
+import cz.raptor22fa.dbchecko.sql.PartitionedSelectHandler;
+import cz.raptor22fa.dbchecko.sql.QueryParameter;
+import cz.raptor22fa.dbchecko.sql.ScriptHandler;
+import cz.raptor22fa.dbchecko.sql.ScriptOptions;
 import cz.raptor22fa.dbchecko.sql.SelectHandler;
+import cz.raptor22fa.dbchecko.sql.SelectOptions;
+import cz.raptor22fa.dbchecko.sql.StatementCanceller;
 import cz.raptor22fa.dbchecko.sql.UpdateHandler;
+import cz.raptor22fa.dbchecko.stats.JdbcMetrics;
 import org.apache.log4j.LogMF;
 import org.apache.log4j.Logger;
 
@@ -45,11 +65,28 @@ public class DbChecko {
     private static final Logger LOG = Logger.getLogger(DbChecko.class);
 
     private DbConnection dbConnection;
+    private DataSource dataSource;
+    private JdbcMetrics metrics;
 
     public DbChecko(DbConnection dbConnection) {
         this.dbConnection = dbConnection;
     }
 
+    /**
+     * Creates instance which borrows connections from the data source, e.g. a connection pool of the application
+     * the instance is embedded in.
+     *
+     * @param dataSource data source of connections
+     */
+    public DbChecko(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    protected DbChecko(DbConnection dbConnection, DataSource dataSource) {
+        this.dbConnection = dbConnection;
+        this.dataSource = dataSource;
+    }
+
     public static DbChecko getInstance(File propertiesFile, File contextFile) {
         if (propertiesFile != null) {
             return new DbChecko(DbConnection.fromPropertiesFile(propertiesFile));
@@ -60,52 +97,299 @@ public class DbChecko {
         }
     }
 
+    /**
+     * Instruments connections opened from now on, so that their calls are recorded to the metrics.
+     *
+     * @param metrics metrics or {@code null} to stop instrumenting connections
+     */
+    public void setMetrics(JdbcMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     private Connection getConnection() throws SQLException {
-        LogMF.info(LOG, "Getting connection to {0}", dbConnection.getUrl());
+        return getConnection(new Properties());
+    }
 
-        try {
-            Class.forName(dbConnection.getDriverClassName());
-        } catch (ClassNotFoundException e) {
-            LogMF.error(LOG, e, "Where is your JDBC Driver {0}?", new Object[] {dbConnection.getDriverClassName()});
-            throw new DbCheckoException("JDBC Driver not found", e);
+    /**
+     * Opens connection with additional driver specific properties. The properties are ignored if the connection is
+     * borrowed from a data source.
+     *
+     * @param properties driver properties, user and password are added to them
+     * @return connection
+     * @throws SQLException if the connection fails
+     */
+    private Connection getConnection(Properties properties) throws SQLException {
+        if (metrics == null) {
+            return connect(properties);
         }
+        final long startTime = System.nanoTime();
+        final Connection connection = connect(properties);
+        metrics.recordConnect(System.nanoTime() - startTime);
+        return metrics.instrument(connection);
+    }
 
-        LOG.info("JDBC Driver Registered!");
+    private Connection connect(Properties properties) throws SQLException {
+        if (dataSource != null) {
+            return dataSource.getConnection();
+        }
+        LogMF.info(LOG, "Getting connection to {0}", dbConnection.getUrl());
+
+        return dbConnection.connect(properties);
+    }
 
-        Connection connection =
-                DriverManager.getConnection(dbConnection.getUrl(), dbConnection.getUser(), dbConnection.getPassword());
-        return connection;
+    private String getUrl() {
+        return dbConnection != null ? dbConnection.getUrl() : String.valueOf(dataSource);
+    }
+
+    private Dialect getDialect(Connection connection) throws SQLException {
+        return dbConnection != null
+                ? dbConnection.getDialect() : Dialect.of(null, connection.getMetaData().getURL());
     }
 
     public boolean check() {
         try (Connection connection = getConnection()) {
-            LogMF.info(LOG, "Connected to {0}!", dbConnection.getUrl());
+            LogMF.info(LOG, "Connected to {0}!", getUrl());
             return true;
         } catch (SQLException e) {
-            LogMF.warn(LOG, "Failed to make connection to {0}!", dbConnection.getUrl());
+            LogMF.warn(LOG, "Failed to make connection to {0}!", getUrl());
             return false;
         }
     }
 
+    public boolean probe(ProbeOptions options) {
+        return probe(options, System.out);
+    }
+
+    /**
+     * Probes the database repeatedly and prints latency percentiles of connecting and of a validation query.
+     *
+     * @param options options of the probing
+     * @param output stream the statistics are printed to
+     * @return {@code true} if all probes succeeded
+     */
+    public boolean probe(ProbeOptions options, PrintStream output) {
+        String validationQuery = options.getValidationQuery();
+        if (validationQuery == null && dbConnection != null) {
+            validationQuery = dbConnection.getDialect().getValidationQuery();
+        }
+        LogMF.info(LOG, "Probing {0} every {1} ms", getUrl(), options.getInterval());
+        ConnectionProbe probe = new ConnectionProbe(this::getConnection, validationQuery, options, output);
+        return probe.run();
+    }
+
+    public boolean checkPhases(ConnectPhaseOptions options) {
+        return checkPhases(options, System.out);
+    }
+
+    /**
+     * Times DNS lookup, TCP connect, driver connect and the first round trip separately and prints their latencies.
+     *
+     * @param options options of the check
+     * @param output stream the latencies are printed to
+     * @return {@code true} if all phases succeeded
+     */
+    public boolean checkPhases(ConnectPhaseOptions options, PrintStream output) {
+        if (dbConnection == null) {
+            ConnectPhaseCheck check =
+                    new ConnectPhaseCheck(null, this::getConnection, options.getValidationQuery(), options, output);
+            return check.run();
+        }
+        final String validationQuery = options.getValidationQuery() != null
+                ? options.getValidationQuery() : dbConnection.getDialect().getValidationQuery();
+        final Properties properties = dbConnection.getDialect().getTimeoutProperties(options.getTimeout());
+        // connections are made by the driver even if the instance has a pool, a borrow would hide the phases
+        ConnectPhaseCheck check = new ConnectPhaseCheck(dbConnection.getUrl(),
+                () -> dbConnection.connect(properties), validationQuery, options, output);
+        return check.run();
+    }
+
     public void executeSelect(String query) {
         executeSelect(query, System.out);
     }
 
     public void executeSelect(String query, PrintStream output) {
+        executeSelect(query, new SelectOptions(), output);
+    }
+
+    public void executeSelect(String query, SelectOptions options) {
+        executeSelect(query, options, System.out);
+    }
+
+    public void executeSelect(String query, SelectOptions options, PrintStream output) {
+        if (options.getExplain() != null) {
+            executeExplain(query, options, output);
+            return;
+        }
+        if (options.isPaged()) {
+            executePagedSelect(query, options, output);
+            return;
+        }
+        if (options.isPartitioned()) {
+            executePartitionedSelect(query, options, output);
+            return;
+        }
+        try (Connection connection = getConnection()) {
+            SelectHandler selectHandler = new SelectHandler(connection, query, output, options);
+            selectHandler.execute();
+        } catch (SQLException e) {
+            LogMF.warn(LOG, "Failed to make connection to {0}!", getUrl());
+        }
+    }
+
+    private void executeExplain(String query, SelectOptions options, PrintStream output) {
+        try (Connection connection = getConnection()) {
+            ExplainHandler explainHandler =
+                    new ExplainHandler(connection, getDialect(connection), query, output, options);
+            explainHandler.execute();
+        } catch (SQLException e) {
+            LogMF.warn(LOG, "Failed to make connection to {0}!", getUrl());
+        }
+    }
+
+    private void executePagedSelect(String query, SelectOptions options, PrintStream output) {
         try (Connection connection = getConnection()) {
-            SelectHandler selectHandler = new SelectHandler(connection, query, output);
+            KeysetSelectHandler selectHandler =
+                    new KeysetSelectHandler(connection, getDialect(connection), query, output, options);
             selectHandler.execute();
         } catch (SQLException e) {
-            LogMF.warn(LOG, "Failed to make connection to {0}!", dbConnection.getUrl());
+            LogMF.warn(LOG, "Failed to make connection to {0}!", getUrl());
+        }
+    }
+
+    private void executePartitionedSelect(String query, SelectOptions options, PrintStream output) {
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < options.getParallelism(); i++) {
+                connections.add(getConnection());
+            }
+            PartitionedSelectHandler selectHandler =
+                    new PartitionedSelectHandler(connections, query, output, options);
+            selectHandler.execute();
+        } catch (SQLException e) {
+            LogMF.warn(LOG, "Failed to make connection to {0}!", getUrl());
+        } finally {
+            closeConnections(connections);
+        }
+    }
+
+    public void executeBench(String query, SelectOptions options, BenchOptions benchOptions) {
+        executeBench(query, options, benchOptions, System.out);
+    }
+
+    public void executeBench(String query, SelectOptions options, BenchOptions benchOptions, PrintStream output) {
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < benchOptions.getConcurrency(); i++) {
+                connections.add(getConnection());
+            }
+            BenchHandler benchHandler = new BenchHandler(connections, query, output, options, benchOptions);
+            benchHandler.execute();
+        } catch (SQLException e) {
+            LogMF.warn(LOG, "Failed to make connection to {0}!", getUrl());
+        } finally {
+            closeConnections(connections);
+        }
+    }
+
+    public boolean executeDiff(DbChecko target, DiffOptions options) {
+        return executeDiff(target, options, System.out);
+    }
+
+    /**
+     * Compares a table of this database with the same table of the target database.
+     *
+     * @param target target database, e.g. of a migration
+     * @param options options of the comparison
+     * @param output stream the differences are printed to
+     * @return {@code true} if the table is the same in both databases, {@code false} if it is not or the connection
+     * failed
+     */
+    public boolean executeDiff(DbChecko target, DiffOptions options, PrintStream output) {
+        List<Connection> sourceConnections = new ArrayList<>();
+        List<Connection> targetConnections = new ArrayList<>();
+        try {
+            for (int i = 0; i < options.getParallelism(); i++) {
+                sourceConnections.add(getConnection());
+                targetConnections.add(target.getConnection());
+            }
+            DiffHandler diffHandler = new DiffHandler(sourceConnections, getDialect(sourceConnections.get(0)),
+                    targetConnections, target.getDialect(targetConnections.get(0)), options, output);
+            return diffHandler.execute();
+        } catch (SQLException e) {
+            LogMF.warn(LOG, "Failed to make connection to {0} or {1}!", getUrl(), target.getUrl());
+            return false;
+        } finally {
+            closeConnections(sourceConnections);
+            closeConnections(targetConnections);
+        }
+    }
+
+    private void closeConnections(List<Connection> connections) {
+        for (Connection connection : connections) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOG.warn("Failed to close connection", e);
+            }
         }
     }
 
     public void executeUpdate(String query) {
+        executeUpdate(query, Collections.emptyList());
+    }
+
+    public void executeUpdate(String query, List<QueryParameter> parameters) {
+        executeUpdate(query, parameters, StatementCanceller.NO_TIMEOUT);
+    }
+
+    /**
+     * Runs the update sql.
+     *
+     * @param query update sql
+     * @param parameters values of named parameters of the sql
+     * @param timeout time budget in seconds, the command is cancelled on the server when it runs out,
+     * {@link StatementCanceller#NO_TIMEOUT} for none
+     */
+    public void executeUpdate(String query, List<QueryParameter> parameters, int timeout) {
         try (Connection connection = getConnection()) {
-            UpdateHandler updateHandler = new UpdateHandler(connection, query);
+            UpdateHandler updateHandler = new UpdateHandler(connection, query, parameters, timeout);
+            updateHandler.execute();
+        } catch (SQLException e) {
+            LogMF.warn(LOG, "Failed to make connection to {0}!", getUrl());
+        }
+    }
+
+    public void executeBatch(BatchOptions options) {
+        final Properties properties = new Properties();
+        final boolean driverRewritesInserts = options.isRewriteBatchedInserts() && dataSource == null
+                && dbConnection.getDialect() == Dialect.POSTGRESQL;
+        if (driverRewritesInserts) {
+            properties.setProperty("reWriteBatchedInserts", "true");
+        }
+        try (Connection connection = getConnection(properties)) {
+            BatchUpdateHandler updateHandler = new BatchUpdateHandler(connection, options,
+                    options.isRewriteBatchedInserts() && !driverRewritesInserts);
             updateHandler.execute();
         } catch (SQLException e) {
-            LogMF.warn(LOG, "Failed to make connection to {0}!", dbConnection.getUrl());
+            LogMF.warn(LOG, "Failed to make connection to {0}!", getUrl());
+        }
+    }
+
+    public void executeImport(ImportOptions options) {
+        try (Connection connection = getConnection()) {
+            ImportHandler importHandler = new ImportHandler(connection, getDialect(connection), options);
+            importHandler.execute();
+        } catch (SQLException e) {
+            LogMF.warn(LOG, "Failed to make connection to {0}!", getUrl());
+        }
+    }
+
+    public void executeScript(ScriptOptions options) {
+        try (Connection connection = getConnection()) {
+            ScriptHandler scriptHandler = new ScriptHandler(connection, options);
+            scriptHandler.execute();
+        } catch (SQLException e) {
+            LogMF.warn(LOG, "Failed to make connection to {0}!", getUrl());
         }
     }
 }
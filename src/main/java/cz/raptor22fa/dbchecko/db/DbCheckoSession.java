@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.db;
+
+/**
+ * DbChecko which can be reused across many calls. It borrows connections from its own {@link ConnectionPool}, so
+ * that the connection handshake is done only once per pooled connection instead of once per call. The session has to
+ * be closed to close the pooled connections.
+ *
+ * <pre>
+ * try (DbCheckoSession session = new DbCheckoSession(DbConnection.fromPropertiesFile(file))) {
+ *     session.check();
+ *     session.executeUpdate(sql);
+ *     PoolStats stats = session.getPoolStats();
+ * }
+ * </pre>
+ *
+ * @author Roman Srom
+ */
+public class DbCheckoSession extends DbChecko implements AutoCloseable {
+
+    private final ConnectionPool pool;
+
+    public DbCheckoSession(DbConnection dbConnection) {
+        this(dbConnection, new PoolOptions());
+    }
+
+    public DbCheckoSession(DbConnection dbConnection, PoolOptions options) {
+        this(dbConnection, new ConnectionPool(dbConnection, options));
+    }
+
+    private DbCheckoSession(DbConnection dbConnection, ConnectionPool pool) {
+        super(dbConnection, pool);
+        this.pool = pool;
+    }
+
+    public PoolStats getPoolStats() {
+        return pool.getStats();
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
@@ -28,9 +28,13 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.SQLException;
 import java.util.Properties;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import cz.raptor22fa.dbchecko.exception.DbCheckoException;
 import org.apache.log4j.LogMF;
 import org.apache.log4j.Logger;
 import org.w3c.dom.Document;
@@ -57,6 +61,7 @@ public class DbConnection {
     private String user;
     private String password;
     private String driverClassName;
+    private volatile Driver driver;
 
     public DbConnection(String url, String user, String password, String driverClassName) {
         this.url = url;
@@ -169,7 +174,70 @@ public class DbConnection {
         return password;
     }
 
+    /**
+     * Returns the configured driver class or the driver class of the URL's subprotocol if none is configured.
+     *
+     * @return driver class name, {@code null} if it's neither configured nor known for the URL
+     */
     public String getDriverClassName() {
-        return driverClassName;
+        if (driverClassName != null && !driverClassName.isEmpty()) {
+            return driverClassName;
+        }
+        return JdbcDrivers.getDriverClassName(url);
+    }
+
+    public Dialect getDialect() {
+        return Dialect.of(driverClassName, url);
+    }
+
+    /**
+     * Creates the JDBC driver. The driver class is loaded only by the first call. Connections are opened by the driver
+     * directly, so {@link java.sql.DriverManager} doesn't load every driver on the classpath.
+     */
+    public void loadDriver() {
+        if (driver != null) {
+            return;
+        }
+        final String className = getDriverClassName();
+        if (className == null) {
+            LogMF.error(LOG, "No JDBC Driver is configured or known for {0}", new Object[] {url});
+            throw new DbCheckoException("JDBC Driver not configured");
+        }
+        try {
+            driver = (Driver) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            LogMF.error(LOG, e, "Where is your JDBC Driver {0}?", new Object[] {className});
+            throw new DbCheckoException("JDBC Driver not found", e);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            LogMF.error(LOG, e, "Failed to create JDBC Driver {0}", new Object[] {className});
+            throw new DbCheckoException("JDBC Driver can't be created", e);
+        }
+
+        LOG.info("JDBC Driver Registered!");
+    }
+
+    /**
+     * Opens a new physical connection to the database.
+     *
+     * @param properties driver specific properties, user and password are added to them
+     * @return connection
+     * @throws SQLException if the connection fails
+     */
+    public Connection connect(Properties properties) throws SQLException {
+        loadDriver();
+
+        final Properties info = new Properties();
+        info.putAll(properties);
+        if (user != null) {
+            info.setProperty("user", user);
+        }
+        if (password != null) {
+            info.setProperty("password", password);
+        }
+        final Connection connection = driver.connect(url, info);
+        if (connection == null) {
+            throw new SQLException("No suitable driver found for " + url, "08001");
+        }
+        return connection;
     }
 }
@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.db;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Databases with specific behaviour the application knows about.
+ *
+ * @author Roman Srom
+ */
+public enum Dialect {
+
+    POSTGRESQL("org.postgresql.", "jdbc:postgresql:", "SELECT 1"),
+    SQLSERVER("com.microsoft.sqlserver.", "jdbc:sqlserver:", "SELECT 1"),
+    HSQLDB("org.hsqldb.", "jdbc:hsqldb:", "VALUES (1)"),
+    GENERIC(null, null, null);
+
+    private final String driverPackage;
+    private final String urlPrefix;
+    private final String validationQuery;
+
+    Dialect(String driverPackage, String urlPrefix, String validationQuery) {
+        this.driverPackage = driverPackage;
+        this.urlPrefix = urlPrefix;
+        this.validationQuery = validationQuery;
+    }
+
+    /**
+     * Returns the cheapest query with one round trip to the database.
+     *
+     * @return validation query, {@code null} if the database is not known
+     */
+    public String getValidationQuery() {
+        return validationQuery;
+    }
+
+    /**
+     * Returns driver properties which limit time of connecting and of waiting for the database, so that an
+     * unreachable database doesn't block the caller.
+     *
+     * @param seconds timeout in seconds
+     * @return driver properties, empty if the driver is not known
+     */
+    public Properties getTimeoutProperties(int seconds) {
+        final Properties properties = new Properties();
+        switch (this) {
+            case POSTGRESQL:
+                properties.setProperty("connectTimeout", String.valueOf(seconds));
+                properties.setProperty("loginTimeout", String.valueOf(seconds));
+                properties.setProperty("socketTimeout", String.valueOf(seconds));
+                break;
+            case SQLSERVER:
+                properties.setProperty("loginTimeout", String.valueOf(seconds));
+                properties.setProperty("socketTimeout", String.valueOf(TimeUnit.SECONDS.toMillis(seconds)));
+                break;
+            default:
+                break;
+        }
+        return properties;
+    }
+
+    /**
+     * Returns sql expression of a hash of the columns of a row, so that rows can be compared without transferring
+     * them. Hashes are comparable only between databases of the same dialect.
+     *
+     * @param columns columns of the row
+     * @return hash expression, {@code null} if the database has no hash function
+     */
+    public String getRowHashExpression(List<String> columns) {
+        final String columnList = String.join(", ", columns);
+        switch (this) {
+            case POSTGRESQL:
+                // 60 bits, so that a sum of many hashes doesn't overflow numeric precision of other databases
+                return "('x' || substr(md5(ROW(" + columnList + ")::text), 1, 15))::bit(60)::bigint";
+            case SQLSERVER:
+                // BINARY_CHECKSUM collides easily and ignores text and xml columns, so the row serialized to xml
+                // (a null column is left out, dates keep full precision) is hashed by SHA-256 and the first 64 bits
+                // are taken, as decimal so that a sum of many hashes doesn't overflow bigint
+                return "CAST(CAST(SUBSTRING(HASHBYTES('SHA2_256', (SELECT " + columnList
+                        + " FOR XML RAW, BINARY BASE64)), 1, 8) AS BIGINT) AS DECIMAL(19, 0))";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns clause which limits count of rows of an ordered query, so that the database can plan the query for the
+     * first rows only, e.g. as a short index range scan.
+     *
+     * @param rows maximal count of rows
+     * @return clause appended after {@code ORDER BY}, empty if the database is not known
+     */
+    public String getLimitClause(int rows) {
+        switch (this) {
+            case POSTGRESQL:
+            case HSQLDB:
+                return " FETCH FIRST " + rows + " ROWS ONLY";
+            case SQLSERVER:
+                return " OFFSET 0 ROWS FETCH NEXT " + rows + " ROWS ONLY";
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * Finds dialect by driver's class name or, if the class name is not set, by the database connection URL.
+     *
+     * @param driverClassName driver's class name, can be {@code null}
+     * @param url database connection URL, can be {@code null}
+     * @return Dialect, {@link #GENERIC} if the database is not known
+     */
+    public static Dialect of(String driverClassName, String url) {
+        for (Dialect dialect : values()) {
+            if (dialect == GENERIC) {
+                continue;
+            }
+            if (driverClassName != null && !driverClassName.isEmpty()) {
+                if (driverClassName.startsWith(dialect.driverPackage)) {
+                    return dialect;
+                }
+            } else if (url != null && url.startsWith(dialect.urlPrefix)) {
+                return dialect;
+            }
+        }
+        return GENERIC;
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.db;
+
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import cz.raptor22fa.dbchecko.db.CheckResult.Status;
+import cz.raptor22fa.dbchecko.output.Json;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.LogMF;
+import org.apache.log4j.Logger;
+
+/**
+ * Checks many databases at once. Every database is checked on its own thread, at most the given count of them
+ * concurrently. Virtual threads are used if the JVM supports them. A database which doesn't respond in the timeout is
+ * reported as timed out without waiting for it, so that the whole check takes about as long as the slowest database.
+ *
+ * @author Roman Srom
+ */
+public class FleetCheck {
+
+    private static final Logger LOG = Logger.getLogger(FleetCheck.class);
+
+    public static final int DEFAULT_TIMEOUT = 10;
+    public static final int DEFAULT_PARALLELISM = 16;
+
+    /**
+     * Time the driver gets on top of the timeout to report its own error, which says more than a timeout.
+     */
+    private static final long TIMEOUT_GRACE = 500;
+    private static final long POLL_INTERVAL = 10;
+    private static final int MAX_MESSAGE_WIDTH = 100;
+
+    private final List<CheckTarget> targets;
+    private final int timeout;
+    private final int parallelism;
+
+    /**
+     * Creates check of the targets.
+     *
+     * @param targets checked databases
+     * @param timeout timeout in seconds of one database
+     * @param parallelism count of databases checked concurrently
+     */
+    public FleetCheck(List<CheckTarget> targets, int timeout, int parallelism) {
+        if (timeout < 1) {
+            throw new IllegalArgumentException("Timeout must be greater than 0");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater than 0");
+        }
+        this.targets = targets;
+        this.timeout = timeout;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Checks all targets.
+     *
+     * @return results in order of the targets
+     */
+    public List<CheckResult> run() {
+        final ExecutorService executor = newExecutor(parallelism);
+        final Semaphore permits = new Semaphore(parallelism);
+        final List<Future<CheckResult>> futures = new ArrayList<>(targets.size());
+        final List<AtomicLong> startTimes = new ArrayList<>(targets.size());
+        try {
+            for (CheckTarget target : targets) {
+                final AtomicLong startTime = new AtomicLong();
+                startTimes.add(startTime);
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        startTime.set(System.nanoTime());
+                        return check(target);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            return awaitResults(futures, startTimes);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<CheckResult> awaitResults(List<Future<CheckResult>> futures, List<AtomicLong> startTimes) {
+        final long hardTimeout = TimeUnit.SECONDS.toNanos(timeout) + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_GRACE);
+        final CheckResult[] results = new CheckResult[futures.size()];
+        final List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            pending.add(i);
+        }
+        while (!pending.isEmpty()) {
+            final long now = System.nanoTime();
+            for (Iterator<Integer> it = pending.iterator(); it.hasNext(); ) {
+                final int i = it.next();
+                final Future<CheckResult> future = futures.get(i);
+                final long startTime = startTimes.get(i).get();
+                if (future.isDone()) {
+                    results[i] = getResult(targets.get(i), future);
+                    it.remove();
+                } else if (startTime != 0 && now - startTime > hardTimeout) {
+                    future.cancel(true);
+                    results[i] = new CheckResult(targets.get(i).getName(), null, Status.TIMEOUT, 0, 0,
+                            "No response in " + timeout + " s");
+                    it.remove();
+                }
+            }
+            if (!pending.isEmpty()) {
+                try {
+                    Thread.sleep(POLL_INTERVAL);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        for (int i : pending) {
+            results[i] = new CheckResult(targets.get(i).getName(), null, Status.TIMEOUT, 0, 0, "Interrupted");
+        }
+        return Arrays.asList(results);
+    }
+
+    private static CheckResult getResult(CheckTarget target, Future<CheckResult> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return new CheckResult(target.getName(), null, Status.ERROR, 0, 0, String.valueOf(e.getCause()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new CheckResult(target.getName(), null, Status.TIMEOUT, 0, 0, "Interrupted");
+        }
+    }
+
+    private CheckResult check(CheckTarget target) {
+        final DbConnection dbConnection;
+        try {
+            dbConnection = target.getDbConnection();
+            dbConnection.loadDriver();
+        } catch (RuntimeException e) {
+            return new CheckResult(target.getName(), null, Status.ERROR, 0, 0, getMessage(e));
+        }
+        final Dialect dialect = dbConnection.getDialect();
+
+        final long connectStart = System.nanoTime();
+        final long connectTime;
+        try (Connection connection = dbConnection.connect(dialect.getTimeoutProperties(timeout))) {
+            connectTime = System.nanoTime() - connectStart;
+            final long queryStart = System.nanoTime();
+            try {
+                ConnectionProbe.validate(connection, dialect.getValidationQuery(), timeout);
+            } catch (SQLException e) {
+                return new CheckResult(target.getName(), dbConnection.getUrl(), Status.FAILED, connectTime, 0,
+                        getMessage(e));
+            }
+            final long queryTime = System.nanoTime() - queryStart;
+            return new CheckResult(target.getName(), dbConnection.getUrl(), Status.OK, connectTime, queryTime, null);
+        } catch (SQLException e) {
+            LogMF.debug(LOG, "Failed to connect to {0}", dbConnection.getUrl());
+            return new CheckResult(target.getName(), dbConnection.getUrl(), Status.FAILED, 0, 0, getMessage(e));
+        }
+    }
+
+    static String getMessage(Exception e) {
+        final String message = e.getMessage() != null ? e.getMessage() : e.toString();
+        return StringUtils.abbreviate(StringUtils.normalizeSpace(message), MAX_MESSAGE_WIDTH);
+    }
+
+    /**
+     * Creates executor with virtual threads if they are supported (Java 21+), otherwise with a fixed count of
+     * daemon platform threads. It is called by reflection, because the application is built for Java 8.
+     */
+    static ExecutorService newExecutor(int parallelism) {
+        try {
+            final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            final ExecutorService executor = (ExecutorService) method.invoke(null);
+            LOG.debug("Checking on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newFixedThreadPool(parallelism, runnable -> {
+                Thread thread = new Thread(runnable, "dbchecko-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Prints the results.
+     *
+     * @param results results of the check
+     * @param format output format
+     * @param wallTime time of the whole check in nanoseconds
+     * @param output stream the results are printed to
+     */
+    public static void print(List<CheckResult> results, CheckFormat format, long wallTime, PrintStream output) {
+        if (format == CheckFormat.JSON) {
+            printJson(results, wallTime, output);
+        } else {
+            printTable(results, wallTime, output);
+        }
+    }
+
+    private static void printTable(List<CheckResult> results, long wallTime, PrintStream output) {
+        int targetWidth = "TARGET".length();
+        for (CheckResult result : results) {
+            targetWidth = Math.max(targetWidth, result.getTarget().length());
+        }
+        final String format = "%-" + targetWidth + "s  %-7s  %10s  %10s  %s";
+        output.println(String.format(format, "TARGET", "STATUS", "CONNECT ms", "QUERY ms", "URL / MESSAGE"));
+        int ok = 0;
+        for (CheckResult result : results) {
+            final boolean succeeded = result.getStatus() == Status.OK;
+            if (succeeded) {
+                ok++;
+            }
+            output.println(String.format(format, result.getTarget(), result.getStatus(),
+                    result.getConnectTime() > 0 ? toMillis(result.getConnectTime()) : "-",
+                    succeeded ? toMillis(result.getQueryTime()) : "-",
+                    succeeded ? result.getUrl() : result.getMessage()));
+        }
+        output.println(String.format("Checked %d databases in %d ms: %d ok, %d not ok", results.size(),
+                TimeUnit.NANOSECONDS.toMillis(wallTime), ok, results.size() - ok));
+    }
+
+    private static void printJson(List<CheckResult> results, long wallTime, PrintStream output) {
+        final StringBuilder json = new StringBuilder("{\"wallTimeMs\":").append(toMillis(wallTime))
+                .append(",\"targets\":[");
+        for (int i = 0; i < results.size(); i++) {
+            final CheckResult result = results.get(i);
+            json.append(i > 0 ? ",\n" : "\n").append("{\"target\":");
+            Json.appendString(json, result.getTarget()).append(",\"url\":");
+            Json.appendString(json, result.getUrl()).append(",\"status\":\"").append(result.getStatus())
+                    .append("\",\"connectMs\":").append(result.getConnectTime() > 0
+                            ? toMillis(result.getConnectTime()) : "null")
+                    .append(",\"queryMs\":").append(result.getStatus() == Status.OK
+                            ? toMillis(result.getQueryTime()) : "null")
+                    .append(",\"message\":");
+            Json.appendString(json, result.getMessage()).append('}');
+        }
+        json.append("\n]}");
+        output.println(json);
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.db;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import cz.raptor22fa.dbchecko.db.CheckResult.Status;
+import cz.raptor22fa.dbchecko.output.Json;
+import cz.raptor22fa.dbchecko.stats.PrometheusText;
+import org.apache.log4j.LogMF;
+import org.apache.log4j.Logger;
+
+/**
+ * Long running health check of a database served over HTTP. The database is checked in the background on a pooled
+ * connection every {@link ServeOptions#getInterval()} and the endpoints serve the result of the last check, so that
+ * a request is answered without touching the database and the load of the database is the same for any count of
+ * requests:
+ * <ul>
+ * <li>{@code /health} - the server is alive, i.e. the checks are not stuck (503 if the last check is too old)</li>
+ * <li>{@code /ready} - the last check succeeded and is not too old (503 otherwise)</li>
+ * <li>{@code /metrics} - result of the last check and counts of checks in Prometheus text format</li>
+ * </ul>
+ *
+ * @author Roman Srom
+ */
+public class HealthServer implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(HealthServer.class);
+
+    private static final int HANDLER_THREADS = 2;
+    private static final String JSON_TYPE = "application/json";
+    private static final String PROMETHEUS_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final DbConnection dbConnection;
+    private final ServeOptions options;
+    private final String validationQuery;
+    private final long staleTimeout;
+    private final ConnectionPool pool;
+    private final ScheduledExecutorService refresher;
+    private final ExecutorService handlers;
+    private final HttpServer server;
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private long checks;
+    private long failures;
+    private volatile Snapshot snapshot;
+
+    /**
+     * Creates the server and binds its port. Checks start by {@link #start()}.
+     *
+     * @param dbConnection checked database
+     * @param options options of the server
+     * @throws IOException if the port can't be bound
+     */
+    public HealthServer(DbConnection dbConnection, ServeOptions options) throws IOException {
+        this.dbConnection = dbConnection;
+        this.options = options;
+        this.validationQuery = options.getValidationQuery() != null
+                ? options.getValidationQuery() : dbConnection.getDialect().getValidationQuery();
+        // a check takes at most the connect and query timeouts, two of them in a row mean the checks are stuck
+        this.staleTimeout = TimeUnit.MILLISECONDS.toNanos(2 * options.getInterval())
+                + TimeUnit.SECONDS.toNanos(2 * options.getTimeout());
+
+        final PoolOptions poolOptions = new PoolOptions();
+        poolOptions.setMinSize(0);
+        poolOptions.setMaxSize(1);
+        poolOptions.setIdleTimeout(Math.max(PoolOptions.DEFAULT_IDLE_TIMEOUT, 2 * options.getInterval()));
+        poolOptions.setValidationTimeout(options.getTimeout());
+        poolOptions.setConnectTimeout(options.getTimeout());
+        this.pool = new ConnectionPool(dbConnection, poolOptions);
+        this.snapshot = new Snapshot(null, System.nanoTime(), 0, 0);
+
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dbchecko-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.handlers = Executors.newFixedThreadPool(HANDLER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "dbchecko-health-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(options.getBindAddress(), options.getPort()), 0);
+        } catch (IOException e) {
+            refresher.shutdownNow();
+            handlers.shutdownNow();
+            pool.close();
+            throw e;
+        }
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(handlers);
+    }
+
+    /**
+     * Starts checking the database and serving the endpoints.
+     */
+    public void start() {
+        refresher.scheduleWithFixedDelay(this::refresh, 0, options.getInterval(), TimeUnit.MILLISECONDS);
+        server.start();
+        LogMF.info(LOG, "Serving health of {0} on port {1}, checked every {2} ms",
+                new Object[] {dbConnection.getUrl(), String.valueOf(getPort()), options.getInterval()});
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Starts the server and serves until the JVM is shut down, e.g. by Ctrl+C or SIGTERM of Kubernetes.
+     */
+    public void run() {
+        final Thread shutdownHook = new Thread(this::close, "dbchecko-health-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        start();
+        try {
+            closed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+        }
+    }
+
+    /**
+     * Returns result of the last check.
+     *
+     * @return result or {@code null} if the database hasn't been checked yet
+     */
+    public CheckResult getLastResult() {
+        return snapshot.result;
+    }
+
+    private void refresh() {
+        try {
+            final CheckResult result = check();
+            checks++;
+            if (result.getStatus() != Status.OK) {
+                failures++;
+                if (snapshot.isOk() || snapshot.result == null) {
+                    LogMF.warn(LOG, "Check of {0} failed: {1}", dbConnection.getUrl(), result.getMessage());
+                }
+            } else if (snapshot.result != null && !snapshot.isOk()) {
+                LogMF.info(LOG, "Check of {0} succeeded again", dbConnection.getUrl());
+            }
+            snapshot = new Snapshot(result, System.nanoTime(), checks, failures);
+        } catch (RuntimeException e) {
+            // an exception would cancel the scheduled checks
+            LOG.error("Check failed", e);
+        }
+    }
+
+    private CheckResult check() {
+        final long connectStart = System.nanoTime();
+        try (Connection connection = pool.getConnection()) {
+            final long connectTime = System.nanoTime() - connectStart;
+            final long queryStart = System.nanoTime();
+            try {
+                ConnectionProbe.validate(connection, validationQuery, options.getTimeout());
+            } catch (SQLException e) {
+                return new CheckResult(null, dbConnection.getUrl(), Status.FAILED, connectTime, 0,
+                        FleetCheck.getMessage(e));
+            }
+            final long queryTime = System.nanoTime() - queryStart;
+            return new CheckResult(null, dbConnection.getUrl(), Status.OK, connectTime, queryTime, null);
+        } catch (SQLException e) {
+            return new CheckResult(null, dbConnection.getUrl(), Status.FAILED, 0, 0, FleetCheck.getMessage(e));
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            final String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                send(exchange, 405, "text/plain", "Method not allowed\n".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            final Snapshot current = snapshot;
+            final boolean fresh = System.nanoTime() - current.time <= staleTimeout;
+            switch (exchange.getRequestURI().getPath()) {
+                case "/health":
+                    send(exchange, fresh ? 200 : 503, JSON_TYPE, current.json);
+                    break;
+                case "/ready":
+                    send(exchange, fresh && current.isOk() ? 200 : 503, JSON_TYPE, current.json);
+                    break;
+                case "/metrics":
+                    send(exchange, 200, PROMETHEUS_TYPE, current.metrics);
+                    break;
+                default:
+                    send(exchange, 404, "text/plain", "Not found\n".getBytes(StandardCharsets.UTF_8));
+                    break;
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed.getCount() == 0) {
+            return;
+        }
+        server.stop(0);
+        refresher.shutdownNow();
+        handlers.shutdownNow();
+        pool.close();
+        closed.countDown();
+    }
+
+    /**
+     * Result of a check with the responses prepared for the endpoints.
+     */
+    private final class Snapshot {
+
+        private final CheckResult result;
+        private final long time;
+        private final byte[] json;
+        private final byte[] metrics;
+
+        private Snapshot(CheckResult result, long time, long checks, long failures) {
+            this.result = result;
+            this.time = time;
+            this.json = toJson(result).getBytes(StandardCharsets.UTF_8);
+            this.metrics = toMetrics(result, checks, failures).getBytes(StandardCharsets.UTF_8);
+        }
+
+        private boolean isOk() {
+            return result != null && result.getStatus() == Status.OK;
+        }
+
+        private String toJson(CheckResult result) {
+            final StringBuilder json = new StringBuilder("{\"status\":\"")
+                    .append(result != null ? result.getStatus() : "STARTING").append("\",\"url\":");
+            Json.appendString(json, dbConnection.getUrl());
+            if (result != null) {
+                json.append(",\"checkedAt\":\"").append(Instant.now()).append("\",\"connectMs\":")
+                        .append(toMillis(result.getConnectTime())).append(",\"queryMs\":")
+                        .append(toMillis(result.getQueryTime())).append(",\"message\":");
+                Json.appendString(json, result.getMessage());
+            }
+            return json.append("}\n").toString();
+        }
+
+        private String toMetrics(CheckResult result, long checks, long failures) {
+            final boolean ok = isOk();
+            return new PrometheusText()
+                    .gauge("up", "Whether the last check of the database succeeded", ok ? 1 : 0)
+                    .gauge("check_connect_seconds", "Time of getting a pooled connection by the last check",
+                            PrometheusText.toSeconds(result != null ? result.getConnectTime() : 0))
+                    .gauge("check_query_seconds", "Round trip of the validation query of the last check",
+                            PrometheusText.toSeconds(ok ? result.getQueryTime() : 0))
+                    .counter("checks_total", "Count of checks of the database", checks)
+                    .counter("check_failures_total", "Count of failed checks of the database", failures)
+                    .counter("connections_created_total", "Count of connections opened by the checks",
+                            pool.getStats().getCreated())
+                    .gauge("last_check_timestamp_seconds", "Unix time of the last check",
+                            result != null ? System.currentTimeMillis() / 1000 : 0)
+                    .toString();
+        }
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+}
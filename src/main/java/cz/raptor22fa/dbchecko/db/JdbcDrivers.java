@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.db;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import cz.raptor22fa.dbchecko.exception.DbCheckoException;
+
+/**
+ * Index of JDBC driver classes by the subprotocol of the JDBC URL. The index is the {@code jdbc-drivers.properties}
+ * resource and it's read on the first lookup.
+ *
+ * @author Roman Srom
+ */
+final class JdbcDrivers {
+
+    private static final String INDEX_RESOURCE = "jdbc-drivers.properties";
+    private static final String JDBC_PREFIX = "jdbc:";
+
+    private JdbcDrivers() {
+    }
+
+    /**
+     * Finds the driver class of the JDBC URL.
+     *
+     * @param url JDBC URL
+     * @return driver class name or {@code null} if the URL's subprotocol isn't in the index
+     */
+    static String getDriverClassName(String url) {
+        if (url == null || !url.startsWith(JDBC_PREFIX)) {
+            return null;
+        }
+        final int end = url.indexOf(':', JDBC_PREFIX.length());
+        if (end < 0) {
+            return null;
+        }
+        return Index.DRIVERS.getProperty(url.substring(JDBC_PREFIX.length(), end));
+    }
+
+    /**
+     * Holder of the index, it's loaded when the class is initialized by the first lookup.
+     */
+    private static final class Index {
+
+        private static final Properties DRIVERS = load();
+
+        private static Properties load() {
+            final Properties drivers = new Properties();
+            try (InputStream inputStream = JdbcDrivers.class.getResourceAsStream(INDEX_RESOURCE)) {
+                if (inputStream != null) {
+                    drivers.load(inputStream);
+                }
+            } catch (IOException e) {
+                throw new DbCheckoException("Failed to read index of JDBC drivers", e);
+            }
+            return drivers;
+        }
+    }
+}
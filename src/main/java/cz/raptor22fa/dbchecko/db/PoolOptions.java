@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.db;
+
+/**
+ * Contains options of a {@link ConnectionPool}.
+ *
+ * @author Roman Srom
+ */
+public class PoolOptions {
+
+    public static final int DEFAULT_MIN_SIZE = 1;
+    public static final int DEFAULT_MAX_SIZE = 8;
+    public static final int DEFAULT_VALIDATION_TIMEOUT = 5;
+    public static final long DEFAULT_IDLE_TIMEOUT = 10 * 60 * 1000L;
+    public static final long DEFAULT_MAX_WAIT = 30 * 1000L;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = StatementCache.DEFAULT_CAPACITY;
+
+    private int minSize = DEFAULT_MIN_SIZE;
+    private int maxSize = DEFAULT_MAX_SIZE;
+    private int validationTimeout = DEFAULT_VALIDATION_TIMEOUT;
+    private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private long maxWait = DEFAULT_MAX_WAIT;
+    private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+    private int connectTimeout;
+
+    /**
+     * Returns count of connections which are kept open even if they are idle.
+     *
+     * @return minimal count of connections
+     */
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public void setMinSize(int minSize) {
+        if (minSize < 0) {
+            throw new IllegalArgumentException("Min size must not be negative");
+        }
+        this.minSize = minSize;
+    }
+
+    /**
+     * Returns count of connections which can be open at once. A partitioned select needs as many connections as is
+     * its parallelism.
+     *
+     * @return maximal count of connections
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Max size must be greater than 0");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns timeout in seconds of the validation of an idle connection before it is borrowed.
+     *
+     * @return validation timeout in seconds
+     */
+    public int getValidationTimeout() {
+        return validationTimeout;
+    }
+
+    public void setValidationTimeout(int validationTimeout) {
+        if (validationTimeout < 0) {
+            throw new IllegalArgumentException("Validation timeout must not be negative");
+        }
+        this.validationTimeout = validationTimeout;
+    }
+
+    /**
+     * Returns time in milliseconds after which an idle connection above the min size is closed.
+     *
+     * @return idle timeout in milliseconds
+     */
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        if (idleTimeout < 1) {
+            throw new IllegalArgumentException("Idle timeout must be greater than 0");
+        }
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Returns time in milliseconds a borrower waits for a connection if all of them are in use.
+     *
+     * @return max wait in milliseconds
+     */
+    public long getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(long maxWait) {
+        if (maxWait < 0) {
+            throw new IllegalArgumentException("Max wait must not be negative");
+        }
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Returns count of prepared statements cached by every pooled connection.
+     *
+     * @return size of the statement cache
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        if (statementCacheSize < 1) {
+            throw new IllegalArgumentException("Statement cache size must be greater than 0");
+        }
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Returns timeout in seconds of connecting and of waiting for the database on pooled connections. The timeout is
+     * set by driver properties of the dialect, so that an unreachable database doesn't block the borrower.
+     *
+     * @return connect timeout in seconds, 0 keeps the defaults of the driver
+     */
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        if (connectTimeout < 0) {
+            throw new IllegalArgumentException("Connect timeout must not be negative");
+        }
+        this.connectTimeout = connectTimeout;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.db;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of statistics of a {@link ConnectionPool}.
+ *
+ * @author Roman Srom
+ */
+public class PoolStats {
+
+    private final int active;
+    private final int idle;
+    private final long created;
+    private final long borrowed;
+    private final long validationFailures;
+    private final long totalBorrowWait;
+    private final long maxBorrowWait;
+
+    PoolStats(int active, int idle, long created, long borrowed, long validationFailures, long totalBorrowWait,
+            long maxBorrowWait) {
+        this.active = active;
+        this.idle = idle;
+        this.created = created;
+        this.borrowed = borrowed;
+        this.validationFailures = validationFailures;
+        this.totalBorrowWait = totalBorrowWait;
+        this.maxBorrowWait = maxBorrowWait;
+    }
+
+    /**
+     * Returns count of borrowed connections.
+     *
+     * @return active connections
+     */
+    public int getActive() {
+        return active;
+    }
+
+    /**
+     * Returns count of open connections waiting in the pool.
+     *
+     * @return idle connections
+     */
+    public int getIdle() {
+        return idle;
+    }
+
+    /**
+     * Returns count of physical connections opened since the pool was created.
+     *
+     * @return created connections
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    public long getBorrowed() {
+        return borrowed;
+    }
+
+    /**
+     * Returns count of idle connections which were closed because they weren't valid when they were borrowed.
+     *
+     * @return validation failures
+     */
+    public long getValidationFailures() {
+        return validationFailures;
+    }
+
+    /**
+     * Returns average time of borrowing including waiting for a free connection, its validation or opening.
+     *
+     * @return average borrow wait in nanoseconds
+     */
+    public long getAverageBorrowWait() {
+        return borrowed > 0 ? totalBorrowWait / borrowed : 0;
+    }
+
+    public long getMaxBorrowWait() {
+        return maxBorrowWait;
+    }
+
+    @Override
+    public String toString() {
+        return "active: " + active + ", idle: " + idle + ", created: " + created + ", borrowed: " + borrowed
+                + ", validation failures: " + validationFailures
+                + ", borrow wait avg: " + TimeUnit.NANOSECONDS.toMicros(getAverageBorrowWait()) + " us"
+                + ", max: " + TimeUnit.NANOSECONDS.toMicros(maxBorrowWait) + " us";
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.db;
+
+/**
+ * Contains options of a continuous probing of the database by the check command.
+ *
+ * @author Roman Srom
+ */
+public class ProbeOptions {
+
+    public static final long DEFAULT_INTERVAL = 1000;
+    public static final long DEFAULT_REPORT_INTERVAL = 10;
+
+    /**
+     * Duration that probes until the probing is interrupted, e.g. by Ctrl+C.
+     */
+    public static final long UNLIMITED_DURATION = 0;
+
+    private long interval = DEFAULT_INTERVAL;
+    private long duration = UNLIMITED_DURATION;
+    private long reportInterval = DEFAULT_REPORT_INTERVAL;
+    private String validationQuery;
+
+    /**
+     * Returns time in milliseconds between starts of two probes. If a probe takes longer, the next one starts right
+     * after it.
+     *
+     * @return interval in milliseconds
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    public void setInterval(long interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Interval must be greater than 0");
+        }
+        this.interval = interval;
+    }
+
+    /**
+     * Returns time in seconds of the probing.
+     *
+     * @return duration in seconds, {@link #UNLIMITED_DURATION} probes until interrupted
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(long duration) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("Duration must not be negative");
+        }
+        this.duration = duration;
+    }
+
+    /**
+     * Returns time in seconds after which statistics of the last probes are printed.
+     *
+     * @return report interval in seconds
+     */
+    public long getReportInterval() {
+        return reportInterval;
+    }
+
+    public void setReportInterval(long reportInterval) {
+        if (reportInterval < 1) {
+            throw new IllegalArgumentException("Report interval must be greater than 0");
+        }
+        this.reportInterval = reportInterval;
+    }
+
+    /**
+     * Returns query whose round trip is measured after the connection is made. If it is not set, the cheapest query
+     * of the database is used or {@link java.sql.Connection#isValid(int)} if the database is not known.
+     *
+     * @return validation query
+     */
+    public String getValidationQuery() {
+        return validationQuery;
+    }
+
+    public void setValidationQuery(String validationQuery) {
+        this.validationQuery = validationQuery;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import cz.raptor22fa.dbchecko.sql.SqlParameters;
+import org.apache.log4j.LogMF;
+import org.apache.log4j.Logger;
+
+/**
+ * Cache of prepared statements of one connection keyed by their sql. Repeated executions of the same sql reuse the
+ * prepared statement, so the database parses and plans it only once (the PostgreSQL driver switches to a named server
+ * side prepared statement after {@code prepareThreshold} executions of the same statement). The least recently used
+ * statement is closed when the cache is full.
+ *
+ * <p>Statements are owned by the cache and must not be closed by the caller. The cache is not thread safe, just like
+ * its connection is used by one thread at once. A connection borrowed from a {@link ConnectionPool} has its cache kept
+ * with the pooled connection, so statements stay prepared for the next borrower.</p>
+ *
+ * @author Roman Srom
+ */
+public class StatementCache implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(StatementCache.class);
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private static final int[] UNKNOWN_TYPES = new int[0];
+
+    private final Connection connection;
+    private final boolean pooled;
+    private final Map<String, CachedStatement> statements;
+    private long hits;
+    private long misses;
+
+    public StatementCache(Connection connection) {
+        this(connection, DEFAULT_CAPACITY, false);
+    }
+
+    StatementCache(Connection connection, int capacity, boolean pooled) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be greater than 0");
+        }
+        this.connection = connection;
+        this.pooled = pooled;
+        this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() > capacity) {
+                    closeStatement(eldest.getValue().statement);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns cache of the connection. A connection borrowed from a {@link ConnectionPool} shares the cache of its
+     * pooled connection, otherwise a new cache is created.
+     *
+     * @param connection connection
+     * @return statement cache which has to be closed when the connection is not used anymore
+     */
+    public static StatementCache of(Connection connection) {
+        try {
+            if (connection.isWrapperFor(StatementCache.class)) {
+                return connection.unwrap(StatementCache.class);
+            }
+        } catch (SQLException e) {
+            LOG.debug("Connection doesn't provide statement cache", e);
+        }
+        return new StatementCache(connection);
+    }
+
+    /**
+     * Returns prepared statement of the sql with cleared parameters.
+     *
+     * @param sql sql
+     * @return prepared statement owned by the cache
+     * @throws SQLException if preparing fails
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        final CachedStatement cached = statements.get(sql);
+        if (cached != null && !cached.statement.isClosed()) {
+            hits++;
+            cached.statement.clearParameters();
+            return cached.statement;
+        }
+        misses++;
+        final PreparedStatement statement = connection.prepareStatement(sql);
+        statements.put(sql, new CachedStatement(statement));
+        return statement;
+    }
+
+    /**
+     * Returns sql types of parameters of the sql. They are read from the parameter metadata only once, because some
+     * drivers need a round trip to the database for them.
+     *
+     * @param sql sql
+     * @return sql types of the parameters or {@code null} if the driver doesn't provide them
+     * @throws SQLException if preparing fails
+     */
+    public int[] getParameterTypes(String sql) throws SQLException {
+        CachedStatement cached = statements.get(sql);
+        if (cached == null || cached.statement.isClosed()) {
+            prepare(sql);
+            cached = statements.get(sql);
+        }
+        if (cached.parameterTypes == null) {
+            final int[] types = SqlParameters.getParameterTypes(cached.statement);
+            cached.parameterTypes = types != null ? types : UNKNOWN_TYPES;
+        }
+        return cached.parameterTypes != UNKNOWN_TYPES ? cached.parameterTypes : null;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Closes all statements unless the cache belongs to a pooled connection, whose statements stay prepared until the
+     * pool closes the connection.
+     */
+    @Override
+    public void close() {
+        LogMF.debug(LOG, "Statement cache hits: {0}, misses: {1}", hits, misses);
+        if (pooled) {
+            return;
+        }
+        for (CachedStatement cached : statements.values()) {
+            closeStatement(cached.statement);
+        }
+        statements.clear();
+    }
+
+    private static void closeStatement(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            LOG.warn("Failed to close prepared statement", e);
+        }
+    }
+
+    private static final class CachedStatement {
+
+        private final PreparedStatement statement;
+        private int[] parameterTypes;
+
+        private CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.input;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming reader of comma separated values according to RFC 4180. Only one record is held in memory at once. Quoted
+ * fields can contain delimiters, quotes written twice and line breaks. An empty unquoted field is read as {@code null}
+ * and {@code ""} as an empty string, which matches the output of the csv format of the select command.
+ *
+ * @author Roman Srom
+ */
+public class CsvReader implements RecordReader {
+
+    public static final char DEFAULT_DELIMITER = ',';
+
+    private static final char QUOTE = '"';
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final char delimiter;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> record = new ArrayList<>();
+    private int position;
+    private int limit;
+    private long recordNumber;
+
+    public CsvReader(Reader reader) {
+        this(reader, DEFAULT_DELIMITER);
+    }
+
+    public CsvReader(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Reads next record. The returned list is reused by the next call.
+     *
+     * @return fields of the record or {@code null} at the end of the input
+     * @throws IOException if reading fails or a quoted field is not terminated
+     */
+    @Override
+    public List<String> next() throws IOException {
+        record.clear();
+        int c = read();
+        if (c < 0) {
+            return null;
+        }
+        while (true) {
+            if (c == QUOTE) {
+                c = readQuotedField();
+            } else {
+                c = readField(c);
+            }
+            if (c == delimiter) {
+                c = read();
+                continue;
+            }
+            if (c == '\r') {
+                c = read();
+                if (c != '\n' && c >= 0) {
+                    position--;
+                }
+            }
+            recordNumber++;
+            return record;
+        }
+    }
+
+    /**
+     * Returns number of the last record read, starting with 1.
+     *
+     * @return record number
+     */
+    @Override
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * Reads unquoted field starting with the character.
+     *
+     * @return character which terminated the field
+     */
+    private int readField(int c) throws IOException {
+        field.setLength(0);
+        while (c >= 0 && c != delimiter && c != '\n' && c != '\r') {
+            field.append((char) c);
+            c = read();
+        }
+        record.add(field.length() == 0 ? null : field.toString());
+        return c;
+    }
+
+    /**
+     * Reads quoted field, the opening quote has already been read.
+     *
+     * @return character which terminated the field
+     */
+    private int readQuotedField() throws IOException {
+        field.setLength(0);
+        while (true) {
+            int c = read();
+            if (c < 0) {
+                throw new IOException("Unterminated quoted field in record " + (recordNumber + 1));
+            }
+            if (c == QUOTE) {
+                c = read();
+                if (c != QUOTE) {
+                    record.add(field.toString());
+                    // characters between the closing quote and the delimiter are not valid, they are ignored
+                    while (c >= 0 && c != delimiter && c != '\n' && c != '\r') {
+                        c = read();
+                    }
+                    return c;
+                }
+            }
+            field.append((char) c);
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
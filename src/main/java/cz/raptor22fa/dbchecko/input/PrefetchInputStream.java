@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.input;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Input stream which reads the underlying stream ahead on a separate thread, so that reading of a file overlaps with
+ * sending of its content to the database. Only a fixed count of chunks is held in memory, the reading thread waits
+ * until a chunk is consumed.
+ *
+ * @author Roman Srom
+ */
+public class PrefetchInputStream extends InputStream {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    public static final int DEFAULT_CHUNK_COUNT = 16;
+
+    private final InputStream input;
+    private final BlockingQueue<Chunk> freeChunks;
+    private final BlockingQueue<Chunk> filledChunks;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    private Chunk chunk;
+    private int position;
+    private boolean end;
+
+    public PrefetchInputStream(InputStream input) {
+        this(input, DEFAULT_CHUNK_SIZE, DEFAULT_CHUNK_COUNT);
+    }
+
+    /**
+     * Creates the stream and starts reading of the underlying stream.
+     *
+     * @param input underlying stream, it is closed by {@link #close()}
+     * @param chunkSize size of one chunk read at once
+     * @param chunkCount count of chunks held in memory
+     */
+    public PrefetchInputStream(InputStream input, int chunkSize, int chunkCount) {
+        this.input = input;
+        this.freeChunks = new ArrayBlockingQueue<>(chunkCount);
+        this.filledChunks = new ArrayBlockingQueue<>(chunkCount + 1);
+        for (int i = 0; i < chunkCount; i++) {
+            freeChunks.add(new Chunk(new byte[chunkSize]));
+        }
+        this.thread = new Thread(this::prefetch, "dbchecko-prefetch");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void prefetch() {
+        try {
+            while (!closed) {
+                final Chunk free = freeChunks.take();
+                free.length = input.read(free.data);
+                filledChunks.put(free);
+                if (free.length < 0) {
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            final Chunk failed = new Chunk(null);
+            failed.error = e;
+            filledChunks.offer(failed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextChunk()) {
+            return -1;
+        }
+        return chunk.data[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextChunk()) {
+            return -1;
+        }
+        final int count = Math.min(len, chunk.length - position);
+        System.arraycopy(chunk.data, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    /**
+     * Makes sure there are unread bytes in the current chunk.
+     *
+     * @return {@code false} at the end of the stream
+     */
+    private boolean nextChunk() throws IOException {
+        while (!end && (chunk == null || position == chunk.length)) {
+            if (chunk != null) {
+                freeChunks.offer(chunk);
+            }
+            try {
+                chunk = filledChunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Reading was interrupted");
+            }
+            position = 0;
+            if (chunk.error != null) {
+                throw new IOException("Reading of the input failed", chunk.error);
+            }
+            end = chunk.length < 0;
+        }
+        return !end;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        thread.interrupt();
+        input.close();
+    }
+
+    private static final class Chunk {
+
+        private final byte[] data;
+        private int length;
+        private Exception error;
+
+        private Chunk(byte[] data) {
+            this.data = data;
+        }
+    }
+}
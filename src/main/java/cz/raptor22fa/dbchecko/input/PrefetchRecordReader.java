@@ -0,0 +1,149 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.input;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Record reader which reads records of the underlying reader ahead on a separate thread, so that parsing of the input
+ * overlaps with execution of sql commands. Records are passed in blocks and only a fixed count of blocks is held in
+ * memory, the reading thread waits until a block is consumed.
+ *
+ * @author Roman Srom
+ */
+public class PrefetchRecordReader implements RecordReader {
+
+    public static final int DEFAULT_BLOCK_COUNT = 4;
+
+    private final RecordReader reader;
+    private final int blockSize;
+    private final BlockingQueue<Block> blocks;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    private Block block;
+    private int index;
+    private long recordNumber;
+    private boolean end;
+
+    public PrefetchRecordReader(RecordReader reader, int blockSize) {
+        this(reader, blockSize, DEFAULT_BLOCK_COUNT);
+    }
+
+    /**
+     * Creates the reader and starts reading of the underlying reader.
+     *
+     * @param reader underlying reader, it is closed by {@link #close()}
+     * @param blockSize count of records passed at once
+     * @param blockCount count of blocks held in memory
+     */
+    public PrefetchRecordReader(RecordReader reader, int blockSize, int blockCount) {
+        this.reader = reader;
+        this.blockSize = blockSize;
+        this.blocks = new ArrayBlockingQueue<>(blockCount);
+        this.thread = new Thread(this::prefetch, "dbchecko-prefetch");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void prefetch() {
+        try {
+            Block filled = new Block(blockSize);
+            List<String> record;
+            while (!closed && (record = reader.next()) != null) {
+                filled.records.add(new ArrayList<>(record));
+                filled.recordNumbers[filled.records.size() - 1] = reader.getRecordNumber();
+                if (filled.records.size() == blockSize) {
+                    blocks.put(filled);
+                    filled = new Block(blockSize);
+                }
+            }
+            if (!filled.records.isEmpty()) {
+                blocks.put(filled);
+            }
+            blocks.put(new Block(0));
+        } catch (IOException | RuntimeException e) {
+            final Block failed = new Block(0);
+            failed.error = e;
+            try {
+                blocks.put(failed);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public List<String> next() throws IOException {
+        while (!end && (block == null || index == block.records.size())) {
+            try {
+                block = blocks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Reading was interrupted");
+            }
+            index = 0;
+            if (block.error != null) {
+                throw new IOException("Reading of records failed", block.error);
+            }
+            end = block.records.isEmpty();
+        }
+        if (end) {
+            return null;
+        }
+        recordNumber = block.recordNumbers[index];
+        return block.records.get(index++);
+    }
+
+    @Override
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        thread.interrupt();
+        reader.close();
+    }
+
+    private static final class Block {
+
+        private final List<List<String>> records;
+        private final long[] recordNumbers;
+        private Exception error;
+
+        private Block(int size) {
+            this.records = new ArrayList<>(size);
+            this.recordNumbers = new long[size];
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.input;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming reader of sql statements of a script. Statements are separated by semicolons and only one statement is
+ * held in memory at once. Semicolons inside of string literals ({@code 'it''s'}, {@code E'it\'s'}), quoted identifiers,
+ * PostgreSQL dollar quoted strings ({@code $$ ... $$}, {@code $body$ ... $body$}), line comments and nested block
+ * comments don't split statements. Comments and whitespace before a statement are skipped.
+ *
+ * @author Roman Srom
+ */
+public class SqlStatementReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char DELIMITER = ';';
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder statement = new StringBuilder();
+    private int position;
+    private int limit;
+    private int pushback = -1;
+    private long lineNumber = 1;
+    private long statementLineNumber;
+    private int previous;
+    private int beforePrevious;
+
+    public SqlStatementReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads next statement without the terminating semicolon.
+     *
+     * @return statement or {@code null} at the end of the script
+     * @throws IOException if reading fails
+     */
+    public String next() throws IOException {
+        statement.setLength(0);
+        previous = 0;
+        beforePrevious = 0;
+        int c;
+        while ((c = read()) >= 0) {
+            if (c == DELIMITER) {
+                if (statement.length() > 0) {
+                    return statement.toString().trim();
+                }
+                continue;
+            }
+            if (statement.length() == 0 && Character.isWhitespace(c)) {
+                continue;
+            }
+            if (c == '-' && peek() == '-') {
+                skipLineComment(c);
+            } else if (c == '/' && peek() == '*') {
+                skipBlockComment(c);
+            } else {
+                if (statement.length() == 0) {
+                    statementLineNumber = lineNumber;
+                }
+                readToken(c);
+            }
+        }
+        return statement.length() > 0 ? statement.toString().trim() : null;
+    }
+
+    /**
+     * Returns line number of the beginning of the last read statement, starting with 1.
+     *
+     * @return line number
+     */
+    public long getLineNumber() {
+        return statementLineNumber;
+    }
+
+    private void readToken(int c) throws IOException {
+        if (c == '\'') {
+            final boolean escapes = (previous == 'E' || previous == 'e') && !isIdentifierPart(beforePrevious);
+            append(c);
+            readQuoted('\'', escapes);
+        } else if (c == '"') {
+            append(c);
+            readQuoted('"', false);
+        } else if (c == '$' && !isIdentifierPart(previous)) {
+            append(c);
+            readDollarQuoted();
+        } else {
+            append(c);
+        }
+    }
+
+    private void append(int c) {
+        statement.append((char) c);
+        beforePrevious = previous;
+        previous = c;
+    }
+
+    private void readQuoted(char quote, boolean escapes) throws IOException {
+        int c;
+        while ((c = read()) >= 0) {
+            append(c);
+            if (escapes && c == '\\') {
+                c = read();
+                if (c < 0) {
+                    return;
+                }
+                append(c);
+            } else if (c == quote) {
+                if (peek() != quote) {
+                    return;
+                }
+                append(read());
+            }
+        }
+    }
+
+    /**
+     * Reads dollar quoted string if the preceding {@code $} starts its tag, otherwise the {@code $} is an ordinary
+     * character (e.g. a positional parameter {@code $1}).
+     */
+    private void readDollarQuoted() throws IOException {
+        final StringBuilder tag = new StringBuilder("$");
+        int c;
+        while ((c = read()) >= 0 && c != '$') {
+            if (!(tag.length() == 1 ? Character.isJavaIdentifierStart(c) && c != '$' : isIdentifierPart(c))) {
+                unread(c);
+                return;
+            }
+            append(c);
+            tag.append((char) c);
+        }
+        if (c < 0) {
+            return;
+        }
+        append(c);
+        tag.append('$');
+
+        int matched = 0;
+        while ((c = read()) >= 0) {
+            append(c);
+            if (c == tag.charAt(matched)) {
+                if (++matched == tag.length()) {
+                    return;
+                }
+            } else {
+                matched = c == '$' ? 1 : 0;
+            }
+        }
+    }
+
+    private void skipLineComment(int c) throws IOException {
+        final boolean keep = statement.length() > 0;
+        while (c >= 0 && c != '\n') {
+            if (keep) {
+                statement.append((char) c);
+            }
+            c = read();
+        }
+        if (keep && c >= 0) {
+            statement.append('\n');
+        }
+    }
+
+    private void skipBlockComment(int c) throws IOException {
+        final boolean keep = statement.length() > 0;
+        int depth = 0;
+        int last = 0;
+        while (c >= 0) {
+            if (keep) {
+                statement.append((char) c);
+            }
+            if (last == '/' && c == '*') {
+                depth++;
+                c = 0;
+            } else if (last == '*' && c == '/') {
+                if (--depth == 0) {
+                    return;
+                }
+                c = 0;
+            }
+            last = c;
+            c = read();
+        }
+    }
+
+    private static boolean isIdentifierPart(int c) {
+        return c > 0 && (Character.isLetterOrDigit(c) || c == '_' || c == '$');
+    }
+
+    private int peek() throws IOException {
+        final int c = read();
+        if (c >= 0) {
+            unread(c);
+        }
+        return c;
+    }
+
+    private void unread(int c) {
+        pushback = c;
+        if (c == '\n') {
+            lineNumber--;
+        }
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (pushback >= 0) {
+            c = pushback;
+            pushback = -1;
+        } else {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            c = buffer[position++];
+        }
+        if (c == '\n') {
+            lineNumber++;
+        }
+        return c;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,571 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.output;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Column vector of one Arrow record batch. Values of the column are read from the result set into reusable little-endian
+ * buffers which are reset after every batch.
+ *
+ * @author Roman Srom
+ */
+abstract class ArrowColumn {
+
+    /**
+     * Ids of the {@code Type} union in Arrow {@code Schema.fbs}.
+     */
+    static final byte TYPE_INT = 2;
+    static final byte TYPE_FLOATING_POINT = 3;
+    static final byte TYPE_BINARY = 4;
+    static final byte TYPE_UTF8 = 5;
+    static final byte TYPE_BOOL = 6;
+    static final byte TYPE_DECIMAL = 7;
+    static final byte TYPE_DATE = 8;
+    static final byte TYPE_TIMESTAMP = 10;
+
+    private static final int MAX_DECIMAL_PRECISION = 38;
+    private static final short PRECISION_SINGLE = 1;
+    private static final short PRECISION_DOUBLE = 2;
+    private static final short DATE_UNIT_DAY = 0;
+    private static final short TIME_UNIT_MICROSECOND = 2;
+
+    private final String name;
+    private final byte typeId;
+    protected final ArrowBuffer validity = new ArrowBuffer();
+    protected final ArrowBuffer values = new ArrowBuffer();
+    private int length;
+    private int nullCount;
+
+    protected ArrowColumn(String name, byte typeId) {
+        this.name = name;
+        this.typeId = typeId;
+    }
+
+    /**
+     * Creates column vector matching the sql type of the result set column.
+     *
+     * @param metaData metadata of the result set
+     * @param column index of the column starting with 1
+     * @return ArrowColumn
+     * @throws SQLException if reading the metadata fails
+     */
+    static ArrowColumn forColumn(ResultSetMetaData metaData, int column) throws SQLException {
+        final String name = metaData.getColumnLabel(column);
+        switch (metaData.getColumnType(column)) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return new IntColumn(name);
+            case Types.BIGINT:
+                return new BigIntColumn(name);
+            case Types.REAL:
+                return new FloatColumn(name);
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return new DoubleColumn(name);
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                final int precision = metaData.getPrecision(column);
+                final int scale = metaData.getScale(column);
+                if (precision > 0 && precision <= MAX_DECIMAL_PRECISION && scale >= 0 && scale <= precision) {
+                    return new DecimalColumn(name, precision, scale);
+                }
+                // unconstrained numeric (e.g. PostgreSQL numeric without precision) is kept as text
+                return new Utf8Column(name);
+            case Types.BOOLEAN:
+                return new BoolColumn(name);
+            case Types.BIT:
+                return metaData.getPrecision(column) <= 1 ? new BoolColumn(name) : new Utf8Column(name);
+            case Types.DATE:
+                return new DateColumn(name);
+            case Types.TIMESTAMP:
+                return new TimestampColumn(name);
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return new BinaryColumn(name);
+            default:
+                return new Utf8Column(name);
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    byte getTypeId() {
+        return typeId;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    int getNullCount() {
+        return nullCount;
+    }
+
+    /**
+     * Reads value of the column from the current row of the result set and appends it to the vector.
+     *
+     * @param rs result set
+     * @param column index of the column starting with 1
+     * @throws SQLException if reading the value fails
+     */
+    void append(ResultSet rs, int column) throws SQLException {
+        if ((length & 7) == 0) {
+            validity.putByte(0);
+        }
+        if (readValue(rs, column)) {
+            validity.setBit(length);
+        } else {
+            nullCount++;
+        }
+        length++;
+    }
+
+    /**
+     * Clears the vector after the batch is written. Allocated memory is kept for the next batch.
+     */
+    void reset() {
+        validity.clear();
+        values.clear();
+        length = 0;
+        nullCount = 0;
+    }
+
+    /**
+     * Returns buffers of the vector in the order defined by the Arrow columnar format.
+     *
+     * @return buffers
+     */
+    ArrowBuffer[] getBuffers() {
+        return new ArrowBuffer[] {validity, values};
+    }
+
+    /**
+     * Reads the value and appends it to the value buffers. A placeholder has to be appended for null.
+     *
+     * @return {@code false} if the value is null
+     */
+    protected abstract boolean readValue(ResultSet rs, int column) throws SQLException;
+
+    /**
+     * Creates the type table of the {@code Type} union.
+     *
+     * @return offset of the type table
+     */
+    abstract int createType(FlatBufferBuilder builder);
+
+    private static class IntColumn extends ArrowColumn {
+
+        IntColumn(String name) {
+            super(name, TYPE_INT);
+        }
+
+        @Override
+        protected boolean readValue(ResultSet rs, int column) throws SQLException {
+            values.putInt(rs.getInt(column));
+            return !rs.wasNull();
+        }
+
+        @Override
+        int createType(FlatBufferBuilder builder) {
+            return createIntType(builder, 32);
+        }
+    }
+
+    private static class BigIntColumn extends ArrowColumn {
+
+        BigIntColumn(String name) {
+            super(name, TYPE_INT);
+        }
+
+        @Override
+        protected boolean readValue(ResultSet rs, int column) throws SQLException {
+            values.putLong(rs.getLong(column));
+            return !rs.wasNull();
+        }
+
+        @Override
+        int createType(FlatBufferBuilder builder) {
+            return createIntType(builder, 64);
+        }
+    }
+
+    private static int createIntType(FlatBufferBuilder builder, int bitWidth) {
+        builder.startTable(2);
+        builder.addInt(0, bitWidth);
+        builder.addBoolean(1, true);
+        return builder.endTable();
+    }
+
+    private static class FloatColumn extends ArrowColumn {
+
+        FloatColumn(String name) {
+            super(name, TYPE_FLOATING_POINT);
+        }
+
+        @Override
+        protected boolean readValue(ResultSet rs, int column) throws SQLException {
+            values.putInt(Float.floatToRawIntBits(rs.getFloat(column)));
+            return !rs.wasNull();
+        }
+
+        @Override
+        int createType(FlatBufferBuilder builder) {
+            builder.startTable(1);
+            builder.addShort(0, PRECISION_SINGLE);
+            return builder.endTable();
+        }
+    }
+
+    private static class DoubleColumn extends ArrowColumn {
+
+        DoubleColumn(String name) {
+            super(name, TYPE_FLOATING_POINT);
+        }
+
+        @Override
+        protected boolean readValue(ResultSet rs, int column) throws SQLException {
+            values.putLong(Double.doubleToRawLongBits(rs.getDouble(column)));
+            return !rs.wasNull();
+        }
+
+        @Override
+        int createType(FlatBufferBuilder builder) {
+            builder.startTable(1);
+            builder.addShort(0, PRECISION_DOUBLE);
+            return builder.endTable();
+        }
+    }
+
+    private static class DecimalColumn extends ArrowColumn {
+
+        private static final int BIT_WIDTH = 128;
+        private static final int BYTE_WIDTH = BIT_WIDTH / 8;
+
+        private final int precision;
+        private final int scale;
+
+        DecimalColumn(String name, int precision, int scale) {
+            super(name, TYPE_DECIMAL);
+            this.precision = precision;
+            this.scale = scale;
+        }
+
+        @Override
+        protected boolean readValue(ResultSet rs, int column) throws SQLException {
+            final BigDecimal value = rs.getBigDecimal(column);
+            if (value == null) {
+                values.putZeros(BYTE_WIDTH);
+                return false;
+            }
+            final BigInteger unscaled = value.setScale(scale, RoundingMode.HALF_UP).unscaledValue();
+            if (unscaled.bitLength() < Long.SIZE) {
+                final long unscaledLong = unscaled.longValue();
+                values.putLong(unscaledLong);
+                values.putLong(unscaledLong < 0 ? -1L : 0L);
+            } else {
+                // big-endian two's complement sign-extended to 16 bytes and written in little-endian order
+                final byte[] bigEndian = unscaled.toByteArray();
+                final byte sign = (byte) (unscaled.signum() < 0 ? -1 : 0);
+                for (int i = 0; i < BYTE_WIDTH; i++) {
+                    final int index = bigEndian.length - 1 - i;
+                    values.putByte(index >= 0 ? bigEndian[index] : sign);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        int createType(FlatBufferBuilder builder) {
+            builder.startTable(3);
+            builder.addInt(0, precision);
+            builder.addInt(1, scale);
+            builder.addInt(2, BIT_WIDTH);
+            return builder.endTable();
+        }
+    }
+
+    private static class BoolColumn extends ArrowColumn {
+
+        BoolColumn(String name) {
+            super(name, TYPE_BOOL);
+        }
+
+        @Override
+        protected boolean readValue(ResultSet rs, int column) throws SQLException {
+            final int index = getLength();
+            if ((index & 7) == 0) {
+                values.putByte(0);
+            }
+            if (rs.getBoolean(column)) {
+                values.setBit(index);
+            }
+            return !rs.wasNull();
+        }
+
+        @Override
+        int createType(FlatBufferBuilder builder) {
+            builder.startTable(0);
+            return builder.endTable();
+        }
+    }
+
+    private static class DateColumn extends ArrowColumn {
+
+        DateColumn(String name) {
+            super(name, TYPE_DATE);
+        }
+
+        @Override
+        protected boolean readValue(ResultSet rs, int column) throws SQLException {
+            final Date value = rs.getDate(column);
+            values.putInt(value == null ? 0 : (int) value.toLocalDate().toEpochDay());
+            return value != null;
+        }
+
+        @Override
+        int createType(FlatBufferBuilder builder) {
+            builder.startTable(1);
+            builder.addShort(0, DATE_UNIT_DAY);
+            return builder.endTable();
+        }
+    }
+
+    private static class TimestampColumn extends ArrowColumn {
+
+        private static final long MICROS_PER_SECOND = 1_000_000L;
+        private static final int NANOS_PER_MICRO = 1_000;
+
+        TimestampColumn(String name) {
+            super(name, TYPE_TIMESTAMP);
+        }
+
+        @Override
+        protected boolean readValue(ResultSet rs, int column) throws SQLException {
+            final Timestamp value = rs.getTimestamp(column);
+            if (value == null) {
+                values.putLong(0);
+                return false;
+            }
+            // timestamp without time zone, the wall clock time is stored as if it was UTC
+            final LocalDateTime dateTime = value.toLocalDateTime();
+            values.putLong(dateTime.toEpochSecond(ZoneOffset.UTC) * MICROS_PER_SECOND
+                    + dateTime.getNano() / NANOS_PER_MICRO);
+            return true;
+        }
+
+        @Override
+        int createType(FlatBufferBuilder builder) {
+            builder.startTable(2);
+            builder.addShort(0, TIME_UNIT_MICROSECOND);
+            return builder.endTable();
+        }
+    }
+
+    /**
+     * Base class of variable length columns which have an additional buffer of 32-bit offsets.
+     */
+    private abstract static class VariableWidthColumn extends ArrowColumn {
+
+        protected final ArrowBuffer offsets = new ArrowBuffer();
+
+        VariableWidthColumn(String name, byte typeId) {
+            super(name, typeId);
+            offsets.putInt(0);
+        }
+
+        @Override
+        protected boolean readValue(ResultSet rs, int column) throws SQLException {
+            final boolean notNull = readBytes(rs, column);
+            offsets.putInt(values.size());
+            return notNull;
+        }
+
+        protected abstract boolean readBytes(ResultSet rs, int column) throws SQLException;
+
+        @Override
+        void reset() {
+            super.reset();
+            offsets.clear();
+            offsets.putInt(0);
+        }
+
+        @Override
+        ArrowBuffer[] getBuffers() {
+            return new ArrowBuffer[] {validity, offsets, values};
+        }
+
+        @Override
+        int createType(FlatBufferBuilder builder) {
+            builder.startTable(0);
+            return builder.endTable();
+        }
+    }
+
+    private static class Utf8Column extends VariableWidthColumn {
+
+        Utf8Column(String name) {
+            super(name, TYPE_UTF8);
+        }
+
+        @Override
+        protected boolean readBytes(ResultSet rs, int column) throws SQLException {
+            final String value = rs.getString(column);
+            if (value == null) {
+                return false;
+            }
+            values.putUtf8(value);
+            return true;
+        }
+    }
+
+    private static class BinaryColumn extends VariableWidthColumn {
+
+        BinaryColumn(String name) {
+            super(name, TYPE_BINARY);
+        }
+
+        @Override
+        protected boolean readBytes(ResultSet rs, int column) throws SQLException {
+            final byte[] value = rs.getBytes(column);
+            if (value == null) {
+                return false;
+            }
+            values.putBytes(value);
+            return true;
+        }
+    }
+
+    /**
+     * Growable little-endian byte buffer.
+     */
+    static class ArrowBuffer {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private byte[] bytes = new byte[INITIAL_CAPACITY];
+        private int size;
+
+        byte[] array() {
+            return bytes;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void putByte(int value) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void putZeros(int count) {
+            ensureCapacity(count);
+            Arrays.fill(bytes, size, size + count, (byte) 0);
+            size += count;
+        }
+
+        void setBit(int index) {
+            bytes[index >> 3] |= (byte) (1 << (index & 7));
+        }
+
+        void putInt(int value) {
+            ensureCapacity(4);
+            bytes[size++] = (byte) value;
+            bytes[size++] = (byte) (value >> 8);
+            bytes[size++] = (byte) (value >> 16);
+            bytes[size++] = (byte) (value >> 24);
+        }
+
+        void putLong(long value) {
+            ensureCapacity(8);
+            for (int i = 0; i < 8; i++) {
+                bytes[size++] = (byte) (value >> (8 * i));
+            }
+        }
+
+        void putBytes(byte[] value) {
+            ensureCapacity(value.length);
+            System.arraycopy(value, 0, bytes, size, value.length);
+            size += value.length;
+        }
+
+        /**
+         * Encodes the string to UTF-8 directly into the buffer.
+         */
+        void putUtf8(String value) {
+            final int length = value.length();
+            ensureCapacity(length * 3);
+            for (int i = 0; i < length; i++) {
+                final char c = value.charAt(i);
+                if (c < 0x80) {
+                    bytes[size++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[size++] = (byte) (0xC0 | (c >> 6));
+                    bytes[size++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    bytes[size++] = (byte) (0xF0 | (codePoint >> 18));
+                    bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    bytes[size++] = '?';
+                } else {
+                    bytes[size++] = (byte) (0xE0 | (c >> 12));
+                    bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[size++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        private void ensureCapacity(int length) {
+            final int required = size + length;
+            if (required > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length * 2));
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.output;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import cz.raptor22fa.dbchecko.output.ArrowColumn.ArrowBuffer;
+
+/**
+ * Writes rows in Apache Arrow IPC streaming format. Rows are collected into typed column vectors and written as record
+ * batches of the configured size, so memory is bounded by one batch. The output can be read by any Arrow implementation
+ * (e.g. {@code pyarrow.ipc.open_stream}) without parsing.
+ *
+ * <p>Integers, floating point numbers, decimals, booleans, dates, timestamps and binary values are written as native
+ * Arrow types, all other sql types as UTF-8 strings.</p>
+ *
+ * @author Roman Srom
+ */
+public class ArrowResultWriter implements ResultWriter {
+
+    public static final int DEFAULT_BATCH_SIZE = 64 * 1024;
+
+    private static final int CONTINUATION_MARKER = 0xFFFFFFFF;
+    private static final short METADATA_VERSION_V5 = 4;
+    private static final byte MESSAGE_HEADER_SCHEMA = 1;
+    private static final byte MESSAGE_HEADER_RECORD_BATCH = 3;
+    private static final int ALIGNMENT = 8;
+    private static final int PREFIX_SIZE = 8;
+    private static final byte[] PADDING = new byte[ALIGNMENT];
+
+    private final WritableByteChannel channel;
+    private final int batchSize;
+    private final FlatBufferBuilder builder = new FlatBufferBuilder(1024);
+    private ByteBuffer metadataBuffer = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+    private ArrowColumn[] columns;
+    private int rowCount;
+
+    public ArrowResultWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BATCH_SIZE);
+    }
+
+    public ArrowResultWriter(WritableByteChannel channel, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be greater than 0");
+        }
+        this.channel = channel;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void prepare(ResultSetMetaData metaData) throws SQLException {
+        final int columnCount = metaData.getColumnCount();
+        columns = new ArrowColumn[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            columns[i-1] = ArrowColumn.forColumn(metaData, i);
+        }
+    }
+
+    @Override
+    public void writeHeader(ResultSetMetaData metaData) throws SQLException, IOException {
+        prepare(metaData);
+        writeFully(new ByteBuffer[] {createMessage(MESSAGE_HEADER_SCHEMA, createSchema(), 0)});
+    }
+
+    @Override
+    public void writeRow(ResultSet rs) throws SQLException, IOException {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].append(rs, i + 1);
+        }
+        rowCount++;
+        if (rowCount == batchSize) {
+            writeRecordBatch();
+        }
+    }
+
+    /**
+     * Writes collected rows as a record batch even if the batch is not full.
+     *
+     * @throws IOException if writing the output fails
+     */
+    @Override
+    public void flush() throws IOException {
+        if (rowCount > 0) {
+            writeRecordBatch();
+        }
+    }
+
+    /**
+     * Writes the last record batch and the end-of-stream marker.
+     *
+     * @throws IOException if writing the output fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (columns == null) {
+            return;
+        }
+        flush();
+        metadataBuffer.clear();
+        metadataBuffer.putInt(CONTINUATION_MARKER).putInt(0);
+        metadataBuffer.flip();
+        writeFully(new ByteBuffer[] {metadataBuffer});
+        columns = null;
+    }
+
+    private int createSchema() {
+        builder.clear();
+        final int[] fields = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            final ArrowColumn column = columns[i];
+            final int name = builder.createString(column.getName());
+            final int type = column.createType(builder);
+            final int children = builder.createOffsetVector(new int[0]);
+            builder.startTable(7);
+            builder.addOffset(0, name);
+            builder.addBoolean(1, true);
+            builder.addByte(2, column.getTypeId());
+            builder.addOffset(3, type);
+            builder.addOffset(5, children);
+            fields[i] = builder.endTable();
+        }
+        final int fieldVector = builder.createOffsetVector(fields);
+        builder.startTable(4);
+        builder.addOffset(1, fieldVector);
+        return builder.endTable();
+    }
+
+    private void writeRecordBatch() throws IOException {
+        int bufferCount = 0;
+        for (ArrowColumn column : columns) {
+            bufferCount += column.getBuffers().length;
+        }
+
+        final long[] nodes = new long[2 * columns.length];
+        final long[] buffers = new long[2 * bufferCount];
+        // metadata followed by every buffer and its padding, the whole message is written at once
+        final ByteBuffer[] message = new ByteBuffer[1 + 2 * bufferCount];
+        long bodyLength = 0;
+        int bufferIndex = 0;
+        for (int i = 0; i < columns.length; i++) {
+            final ArrowColumn column = columns[i];
+            nodes[2 * i] = column.getLength();
+            nodes[2 * i + 1] = column.getNullCount();
+            for (ArrowBuffer buffer : column.getBuffers()) {
+                final int size = buffer.size();
+                buffers[2 * bufferIndex] = bodyLength;
+                buffers[2 * bufferIndex + 1] = size;
+                message[1 + 2 * bufferIndex] = ByteBuffer.wrap(buffer.array(), 0, size);
+                message[2 + 2 * bufferIndex] = ByteBuffer.wrap(PADDING, 0, (int) (align(size) - size));
+                bodyLength += align(size);
+                bufferIndex++;
+            }
+        }
+
+        builder.clear();
+        final int nodeVector = builder.createLongPairVector(nodes, columns.length);
+        final int bufferVector = builder.createLongPairVector(buffers, bufferCount);
+        builder.startTable(5);
+        builder.addLong(0, rowCount);
+        builder.addOffset(1, nodeVector);
+        builder.addOffset(2, bufferVector);
+        final int recordBatch = builder.endTable();
+
+        message[0] = createMessage(MESSAGE_HEADER_RECORD_BATCH, recordBatch, bodyLength);
+        writeFully(message);
+        for (ArrowColumn column : columns) {
+            column.reset();
+        }
+        rowCount = 0;
+    }
+
+    /**
+     * Creates encapsulated message metadata: continuation marker, length of the metadata and flatbuffer
+     * {@code Message} padded to 8 bytes. The body has to be written right after it.
+     */
+    private ByteBuffer createMessage(byte headerType, int header, long bodyLength) {
+        builder.startTable(5);
+        builder.addLong(3, bodyLength);
+        builder.addOffset(2, header);
+        builder.addShort(0, METADATA_VERSION_V5);
+        builder.addByte(1, headerType);
+        final int size = builder.finish(builder.endTable());
+        final int paddedSize = (int) align(PREFIX_SIZE + size) - PREFIX_SIZE;
+
+        if (metadataBuffer.capacity() < PREFIX_SIZE + paddedSize) {
+            metadataBuffer = ByteBuffer.allocate(PREFIX_SIZE + paddedSize).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        metadataBuffer.clear();
+        metadataBuffer.putInt(CONTINUATION_MARKER).putInt(paddedSize);
+        builder.copyTo(metadataBuffer.array(), PREFIX_SIZE);
+        for (int i = PREFIX_SIZE + size; i < PREFIX_SIZE + paddedSize; i++) {
+            metadataBuffer.put(i, (byte) 0);
+        }
+        metadataBuffer.position(PREFIX_SIZE + paddedSize);
+        metadataBuffer.flip();
+        return metadataBuffer;
+    }
+
+    private void writeFully(ByteBuffer[] buffers) throws IOException {
+        if (channel instanceof GatheringByteChannel) {
+            final GatheringByteChannel gatheringChannel = (GatheringByteChannel) channel;
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= gatheringChannel.write(buffers);
+            }
+            return;
+        }
+        for (ByteBuffer buffer : buffers) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static long align(long size) {
+        return (size + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+    }
+}
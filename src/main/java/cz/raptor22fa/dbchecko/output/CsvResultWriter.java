@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.output;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Writes rows as comma separated values according to RFC 4180. Values containing a delimiter, a quote or a line break
+ * are quoted. Null is written as an empty field and an empty string as {@code ""}, the same way as PostgreSQL
+ * {@code COPY ... (FORMAT csv)} does.
+ *
+ * @author Roman Srom
+ */
+public class CsvResultWriter extends TextResultWriter {
+
+    public static final char DELIMITER = ',';
+    public static final char QUOTE = '"';
+    public static final char LINE_SEPARATOR = '\n';
+
+    private int columnCount;
+
+    public CsvResultWriter(OutputBuffer buffer) {
+        super(buffer);
+    }
+
+    @Override
+    public void prepare(ResultSetMetaData metaData) throws SQLException {
+        columnCount = metaData.getColumnCount();
+    }
+
+    @Override
+    public void writeHeader(ResultSetMetaData metaData) throws SQLException, IOException {
+        prepare(metaData);
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) {
+                buffer.append(DELIMITER);
+            }
+            appendValue(metaData.getColumnLabel(i));
+        }
+        buffer.append(LINE_SEPARATOR);
+        buffer.endRow();
+    }
+
+    @Override
+    public void writeRow(ResultSet rs) throws SQLException, IOException {
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) {
+                buffer.append(DELIMITER);
+            }
+            final String value = rs.getString(i);
+            if (value != null) {
+                appendValue(value);
+            }
+        }
+        buffer.append(LINE_SEPARATOR);
+        buffer.endRow();
+    }
+
+    private void appendValue(String value) {
+        if (!value.isEmpty() && !needsQuoting(value)) {
+            buffer.append(value);
+            return;
+        }
+
+        buffer.append(QUOTE);
+        int start = 0;
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) == QUOTE) {
+                // the quote is written twice, once at the end of this segment and once at the start of the next one
+                buffer.append(value, start, i + 1);
+                start = i;
+            }
+        }
+        buffer.append(value, start, length);
+        buffer.append(QUOTE);
+    }
+
+    private static boolean needsQuoting(String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c == DELIMITER || c == QUOTE || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.output;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal FlatBuffers builder used to encode Arrow IPC metadata. Like the reference implementation it builds the buffer
+ * from the end to the start, so children have to be created before their parents. Only the subset needed by
+ * {@link ArrowResultWriter} is implemented.
+ *
+ * @author Roman Srom
+ */
+class FlatBufferBuilder {
+
+    private static final int SIZEOF_SHORT = 2;
+    private static final int SIZEOF_INT = 4;
+    private static final int SIZEOF_LONG = 8;
+
+    private byte[] buffer;
+    private int space;
+    private int minAlign = 1;
+    private int[] vtable;
+    private int objectStart;
+
+    FlatBufferBuilder(int initialSize) {
+        this.buffer = new byte[initialSize];
+        this.space = initialSize;
+    }
+
+    /**
+     * Clears the builder so that it can be reused for another buffer.
+     */
+    void clear() {
+        space = buffer.length;
+        minAlign = 1;
+        vtable = null;
+    }
+
+    /**
+     * Returns current offset measured from the end of the buffer.
+     *
+     * @return offset
+     */
+    int offset() {
+        return buffer.length - space;
+    }
+
+    void startTable(int numFields) {
+        vtable = new int[numFields];
+        objectStart = offset();
+    }
+
+    void addByte(int slot, int value) {
+        prep(1, 0);
+        buffer[--space] = (byte) value;
+        vtable[slot] = offset();
+    }
+
+    void addBoolean(int slot, boolean value) {
+        addByte(slot, value ? 1 : 0);
+    }
+
+    void addShort(int slot, int value) {
+        prep(SIZEOF_SHORT, 0);
+        putShort(value);
+        vtable[slot] = offset();
+    }
+
+    void addInt(int slot, int value) {
+        prep(SIZEOF_INT, 0);
+        putInt(value);
+        vtable[slot] = offset();
+    }
+
+    void addLong(int slot, long value) {
+        prep(SIZEOF_LONG, 0);
+        putLong(value);
+        vtable[slot] = offset();
+    }
+
+    void addOffset(int slot, int value) {
+        addOffset(value);
+        vtable[slot] = offset();
+    }
+
+    int endTable() {
+        prep(SIZEOF_INT, 0);
+        putInt(0);
+        final int objectOffset = offset();
+        for (int i = vtable.length - 1; i >= 0; i--) {
+            prep(SIZEOF_SHORT, 0);
+            putShort(vtable[i] != 0 ? objectOffset - vtable[i] : 0);
+        }
+        prep(SIZEOF_SHORT, 0);
+        putShort(objectOffset - objectStart);
+        prep(SIZEOF_SHORT, 0);
+        putShort((vtable.length + 2) * SIZEOF_SHORT);
+        // the table starts with a signed offset to its vtable which is placed just before it
+        putInt(buffer.length - objectOffset, offset() - objectOffset);
+        vtable = null;
+        return objectOffset;
+    }
+
+    int createString(String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        prep(SIZEOF_INT, bytes.length + 1);
+        buffer[--space] = 0;
+        space -= bytes.length;
+        System.arraycopy(bytes, 0, buffer, space, bytes.length);
+        putInt(bytes.length);
+        return offset();
+    }
+
+    /**
+     * Creates a vector of tables or strings.
+     *
+     * @param offsets offsets of the elements
+     * @return offset of the vector
+     */
+    int createOffsetVector(int[] offsets) {
+        startVector(SIZEOF_INT, offsets.length, SIZEOF_INT);
+        for (int i = offsets.length - 1; i >= 0; i--) {
+            addOffset(offsets[i]);
+        }
+        return endVector(offsets.length);
+    }
+
+    /**
+     * Creates a vector of structs which consist of two longs, e.g. {@code FieldNode} or {@code Buffer} of Arrow.
+     *
+     * @param values first and second values of the structs, the length is twice the count of the structs
+     * @param count count of the structs
+     * @return offset of the vector
+     */
+    int createLongPairVector(long[] values, int count) {
+        startVector(2 * SIZEOF_LONG, count, SIZEOF_LONG);
+        for (int i = count - 1; i >= 0; i--) {
+            putLong(values[2 * i + 1]);
+            putLong(values[2 * i]);
+        }
+        return endVector(count);
+    }
+
+    /**
+     * Finishes the buffer with the given root table.
+     *
+     * @param rootTable offset of the root table
+     * @return size of the finished buffer
+     */
+    int finish(int rootTable) {
+        prep(minAlign, SIZEOF_INT);
+        addOffset(rootTable);
+        return offset();
+    }
+
+    /**
+     * Copies finished buffer to the array.
+     *
+     * @param target target array
+     * @param targetOffset position of the buffer in the target array
+     */
+    void copyTo(byte[] target, int targetOffset) {
+        System.arraycopy(buffer, space, target, targetOffset, offset());
+    }
+
+    private void startVector(int elementSize, int count, int alignment) {
+        prep(SIZEOF_INT, elementSize * count);
+        prep(alignment, elementSize * count);
+    }
+
+    private int endVector(int count) {
+        putInt(count);
+        return offset();
+    }
+
+    private void addOffset(int value) {
+        prep(SIZEOF_INT, 0);
+        putInt(offset() - value + SIZEOF_INT);
+    }
+
+    /**
+     * Aligns the buffer so that an element of the given size is aligned after {@code additionalBytes} are written.
+     */
+    private void prep(int size, int additionalBytes) {
+        if (size > minAlign) {
+            minAlign = size;
+        }
+        final int alignSize = (~(buffer.length - space + additionalBytes) + 1) & (size - 1);
+        while (space < alignSize + size + additionalBytes) {
+            grow();
+        }
+        for (int i = 0; i < alignSize; i++) {
+            buffer[--space] = 0;
+        }
+    }
+
+    private void grow() {
+        final int oldLength = buffer.length;
+        final byte[] newBuffer = new byte[oldLength * 2];
+        System.arraycopy(buffer, 0, newBuffer, oldLength, oldLength);
+        buffer = newBuffer;
+        space += oldLength;
+    }
+
+    private void putShort(int value) {
+        space -= SIZEOF_SHORT;
+        buffer[space] = (byte) value;
+        buffer[space + 1] = (byte) (value >> 8);
+    }
+
+    private void putInt(int value) {
+        space -= SIZEOF_INT;
+        putInt(space, value);
+    }
+
+    private void putInt(int position, int value) {
+        buffer[position] = (byte) value;
+        buffer[position + 1] = (byte) (value >> 8);
+        buffer[position + 2] = (byte) (value >> 16);
+        buffer[position + 3] = (byte) (value >> 24);
+    }
+
+    private void putLong(long value) {
+        space -= SIZEOF_LONG;
+        for (int i = 0; i < SIZEOF_LONG; i++) {
+            buffer[space + i] = (byte) (value >> (8 * i));
+        }
+    }
+}
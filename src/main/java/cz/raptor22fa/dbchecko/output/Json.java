@@ -0,0 +1,265 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.output;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helper methods for writing and reading JSON.
+ *
+ * @author Roman Srom
+ */
+public final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Appends the value as a JSON string or {@code null}.
+     *
+     * @param sb builder the string is appended to
+     * @param value value, can be {@code null}
+     * @return the builder
+     */
+    public static StringBuilder appendString(StringBuilder sb, String value) {
+        if (value == null) {
+            return sb.append("null");
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"');
+    }
+
+    /**
+     * Parses JSON text. Objects are returned as maps with the order of their members, arrays as lists, numbers as
+     * doubles, other values as strings, booleans and {@code null}.
+     *
+     * @param json JSON text
+     * @return parsed value
+     * @throws IllegalArgumentException if the text is not valid JSON
+     */
+    public static Object parse(String json) {
+        final Parser parser = new Parser(json);
+        final Object value = parser.readValue();
+        parser.skipWhitespace();
+        if (parser.position < json.length()) {
+            throw parser.error("end of text");
+        }
+        return value;
+    }
+
+    /**
+     * Recursive descent parser of JSON text.
+     */
+    private static final class Parser {
+
+        private final String json;
+        private int position;
+
+        Parser(String json) {
+            this.json = json;
+        }
+
+        Object readValue() {
+            skipWhitespace();
+            if (position >= json.length()) {
+                throw error("value");
+            }
+            final char c = json.charAt(position);
+            switch (c) {
+                case '{':
+                    return readObject();
+                case '[':
+                    return readArray();
+                case '"':
+                    return readString();
+                case 't':
+                    return readLiteral("true", Boolean.TRUE);
+                case 'f':
+                    return readLiteral("false", Boolean.FALSE);
+                case 'n':
+                    return readLiteral("null", null);
+                default:
+                    return readNumber();
+            }
+        }
+
+        private Map<String, Object> readObject() {
+            final Map<String, Object> object = new LinkedHashMap<>();
+            position++;
+            if (skipTo('}')) {
+                return object;
+            }
+            do {
+                skipWhitespace();
+                if (position >= json.length() || json.charAt(position) != '"') {
+                    throw error("member name");
+                }
+                final String name = readString();
+                skipWhitespace();
+                expect(':');
+                object.put(name, readValue());
+            } while (readSeparator('}'));
+            return object;
+        }
+
+        private List<Object> readArray() {
+            final List<Object> array = new ArrayList<>();
+            position++;
+            if (skipTo(']')) {
+                return array;
+            }
+            do {
+                array.add(readValue());
+            } while (readSeparator(']'));
+            return array;
+        }
+
+        /**
+         * Skips the closing character of an empty object or array.
+         */
+        private boolean skipTo(char end) {
+            skipWhitespace();
+            if (position < json.length() && json.charAt(position) == end) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Reads a comma before the next element or the closing character after the last one.
+         */
+        private boolean readSeparator(char end) {
+            skipWhitespace();
+            if (position < json.length() && json.charAt(position) == ',') {
+                position++;
+                return true;
+            }
+            expect(end);
+            return false;
+        }
+
+        private String readString() {
+            position++;
+            final StringBuilder sb = new StringBuilder();
+            while (position < json.length()) {
+                final char c = json.charAt(position++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (position >= json.length()) {
+                    break;
+                }
+                final char escaped = json.charAt(position++);
+                switch (escaped) {
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'u':
+                        if (position + 4 > json.length()) {
+                            throw error("unicode escape");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("unicode escape");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        sb.append(escaped);
+                        break;
+                }
+            }
+            throw error("end of string");
+        }
+
+        private Object readLiteral(String literal, Object value) {
+            if (!json.startsWith(literal, position)) {
+                throw error(literal);
+            }
+            position += literal.length();
+            return value;
+        }
+
+        private Double readNumber() {
+            final int start = position;
+            while (position < json.length() && "+-0123456789.eE".indexOf(json.charAt(position)) >= 0) {
+                position++;
+            }
+            try {
+                return Double.valueOf(json.substring(start, position));
+            } catch (NumberFormatException e) {
+                position = start;
+                throw error("value");
+            }
+        }
+
+        private void expect(char c) {
+            if (position >= json.length() || json.charAt(position) != c) {
+                throw error("'" + c + "'");
+            }
+            position++;
+        }
+
+        void skipWhitespace() {
+            while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+                position++;
+            }
+        }
+
+        IllegalArgumentException error(String expected) {
+            return new IllegalArgumentException("Invalid JSON, expected " + expected + " at position " + position);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.output;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Writes every row as a JSON object on a separate line (JSON Lines). Numbers and booleans are written as JSON
+ * literals, all other values as JSON strings.
+ *
+ * @author Roman Srom
+ */
+public class JsonLinesResultWriter extends TextResultWriter {
+
+    public static final char LINE_SEPARATOR = '\n';
+
+    private static final char[] NULL_VALUE = "null".toCharArray();
+    private static final char[] TRUE_VALUE = "true".toCharArray();
+    private static final char[] FALSE_VALUE = "false".toCharArray();
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private enum ValueType {
+        NUMBER, BOOLEAN, STRING
+    }
+
+    private char[][] columnPrefixes;
+    private ValueType[] valueTypes;
+
+    public JsonLinesResultWriter(OutputBuffer buffer) {
+        super(buffer);
+    }
+
+    @Override
+    public void writeHeader(ResultSetMetaData metaData) throws SQLException {
+        prepare(metaData);
+    }
+
+    @Override
+    public void prepare(ResultSetMetaData metaData) throws SQLException {
+        final int columnCount = metaData.getColumnCount();
+        columnPrefixes = new char[columnCount][];
+        valueTypes = new ValueType[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            // the key of every column is rendered once, e.g. {"id": or ,"name":
+            StringBuilder prefix = new StringBuilder();
+            prefix.append(i == 1 ? '{' : ',');
+            Json.appendString(prefix, metaData.getColumnLabel(i));
+            prefix.append(':');
+            columnPrefixes[i-1] = prefix.toString().toCharArray();
+            valueTypes[i-1] = getValueType(metaData.getColumnType(i), metaData.getPrecision(i));
+        }
+    }
+
+    @Override
+    public void writeRow(ResultSet rs) throws SQLException, IOException {
+        final int columnCount = columnPrefixes.length;
+        for (int i = 1; i <= columnCount; i++) {
+            buffer.append(columnPrefixes[i-1]);
+            if (valueTypes[i-1] == ValueType.BOOLEAN) {
+                final boolean value = rs.getBoolean(i);
+                buffer.append(rs.wasNull() ? NULL_VALUE : (value ? TRUE_VALUE : FALSE_VALUE));
+                continue;
+            }
+
+            final String value = rs.getString(i);
+            if (value == null) {
+                buffer.append(NULL_VALUE);
+            } else if (valueTypes[i-1] == ValueType.NUMBER && isFinite(value)) {
+                buffer.append(value);
+            } else {
+                appendString(value);
+            }
+        }
+        if (columnCount == 0) {
+            buffer.append('{');
+        }
+        buffer.append('}').append(LINE_SEPARATOR);
+        buffer.endRow();
+    }
+
+    private void appendString(String value) {
+        buffer.append('"');
+        int start = 0;
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                buffer.append(value, start, i);
+                appendEscaped(c);
+                start = i + 1;
+            }
+        }
+        buffer.append(value, start, length);
+        buffer.append('"');
+    }
+
+    private void appendEscaped(char c) {
+        buffer.append('\\');
+        switch (c) {
+            case '"':
+            case '\\':
+                buffer.append(c);
+                break;
+            case '\n':
+                buffer.append('n');
+                break;
+            case '\r':
+                buffer.append('r');
+                break;
+            case '\t':
+                buffer.append('t');
+                break;
+            default:
+                buffer.append('u').append('0').append('0')
+                        .append(HEX_DIGITS[(c >> 4) & 0xF]).append(HEX_DIGITS[c & 0xF]);
+        }
+    }
+
+    private static boolean isFinite(String number) {
+        // NaN and Infinity of floating point columns are not valid JSON numbers
+        final char last = number.charAt(number.length() - 1);
+        return last != 'N' && last != 'y';
+    }
+
+    private static ValueType getValueType(int columnType, int precision) {
+        switch (columnType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return ValueType.NUMBER;
+            case Types.BOOLEAN:
+                return ValueType.BOOLEAN;
+            case Types.BIT:
+                // PostgreSQL reports bit strings as BIT too, only a single bit is a boolean
+                return precision <= 1 ? ValueType.BOOLEAN : ValueType.STRING;
+            default:
+                return ValueType.STRING;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.output;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * Reusable character buffer which is encoded and written to a channel in large blocks. Rows are appended to the buffer
+ * without creating any intermediate strings and the buffer is flushed only at the end of a row, so every block written
+ * to the channel contains whole rows.
+ *
+ * @author Roman Srom
+ */
+public class OutputBuffer implements Flushable, Closeable {
+
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private static final char[] LINE_SEPARATOR = System.lineSeparator().toCharArray();
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final int flushThreshold;
+    private ByteBuffer byteBuffer;
+    private char[] chars;
+    private CharBuffer charBuffer;
+    private int position;
+
+    public OutputBuffer(WritableByteChannel channel, Charset charset) {
+        this(channel, charset, DEFAULT_CAPACITY);
+    }
+
+    public OutputBuffer(WritableByteChannel channel, Charset charset, int capacity) {
+        this.channel = channel;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.byteBuffer = allocate((int) (capacity * encoder.maxBytesPerChar()));
+        this.flushThreshold = capacity;
+        this.chars = new char[capacity];
+        this.charBuffer = CharBuffer.wrap(chars);
+    }
+
+    public OutputBuffer append(char c) {
+        ensureCapacity(1);
+        chars[position++] = c;
+        return this;
+    }
+
+    public OutputBuffer append(char[] src) {
+        return append(src, 0, src.length);
+    }
+
+    public OutputBuffer append(char[] src, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(src, offset, chars, position, length);
+        position += length;
+        return this;
+    }
+
+    public OutputBuffer append(String s) {
+        return append(s, 0, s.length());
+    }
+
+    public OutputBuffer append(String s, int start, int end) {
+        final int length = end - start;
+        ensureCapacity(length);
+        s.getChars(start, end, chars, position);
+        position += length;
+        return this;
+    }
+
+    /**
+     * Appends the character {@code count} times.
+     *
+     * @param c character to append
+     * @param count how many times the character is appended, nothing is appended if it is not positive
+     * @return this buffer
+     */
+    public OutputBuffer repeat(char c, int count) {
+        if (count <= 0) {
+            return this;
+        }
+        ensureCapacity(count);
+        Arrays.fill(chars, position, position + count, c);
+        position += count;
+        return this;
+    }
+
+    /**
+     * Appends a line separator and flushes the buffer to the channel if it is full enough.
+     *
+     * @return this buffer
+     * @throws IOException if writing to the channel fails
+     */
+    public OutputBuffer newLine() throws IOException {
+        append(LINE_SEPARATOR);
+        endRow();
+        return this;
+    }
+
+    /**
+     * Marks the end of a row. The buffer is flushed to the channel if it is full enough.
+     *
+     * @throws IOException if writing to the channel fails
+     */
+    public void endRow() throws IOException {
+        if (position >= flushThreshold) {
+            flush();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (position == 0) {
+            return;
+        }
+        charBuffer.limit(position).position(0);
+        // the whole block is encoded before it is written by a single write, so that a channel shared by several
+        // writers gets whole rows even if a long row has grown the buffer
+        while (encoder.encode(charBuffer, byteBuffer, false).isOverflow()) {
+            final ByteBuffer grown = allocate(byteBuffer.capacity() * 2);
+            byteBuffer.flip();
+            byteBuffer = grown.put(byteBuffer);
+        }
+        writeBytes();
+        // a dangling high surrogate stays in the buffer until the rest of the character is appended
+        final int remaining = charBuffer.remaining();
+        System.arraycopy(chars, charBuffer.position(), chars, 0, remaining);
+        position = remaining;
+        charBuffer.clear();
+    }
+
+    private void writeBytes() throws IOException {
+        byteBuffer.flip();
+        while (byteBuffer.hasRemaining()) {
+            channel.write(byteBuffer);
+        }
+        byteBuffer.clear();
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        // a file channel would copy a heap buffer to a temporary direct buffer on every write
+        return channel instanceof FileChannel ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private void ensureCapacity(int length) {
+        final int required = position + length;
+        if (required > chars.length) {
+            // a single row doesn't fit into the buffer, rows are never split so the buffer has to grow
+            chars = Arrays.copyOf(chars, Math.max(required, chars.length * 2));
+            charBuffer = CharBuffer.wrap(chars);
+        }
+    }
+
+    /**
+     * Flushes the buffer. The underlying channel is not closed.
+     *
+     * @throws IOException if writing to the channel fails
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.output;
+
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Output formats of a select sql command.
+ *
+ * @author Roman Srom
+ */
+public enum OutputFormat {
+
+    /**
+     * Fixed-width table for reading by humans.
+     */
+    TABLE,
+
+    /**
+     * Comma separated values.
+     */
+    CSV,
+
+    /**
+     * Tab separated values.
+     */
+    TSV,
+
+    /**
+     * One JSON object per line.
+     */
+    JSONL,
+
+    /**
+     * Apache Arrow IPC stream of columnar record batches.
+     */
+    ARROW;
+
+    /**
+     * Creates a writer of this format which writes to the channel.
+     *
+     * @param channel channel the output is written to
+     * @param charset charset of the output
+     * @param bufferSize size of the output buffer in characters
+     * @param batchSize count of rows in one batch of a columnar format
+     * @return ResultWriter
+     */
+    public ResultWriter createWriter(WritableByteChannel channel, Charset charset, int bufferSize, int batchSize) {
+        if (this == ARROW) {
+            return new ArrowResultWriter(channel, batchSize);
+        }
+        final OutputBuffer buffer = new OutputBuffer(channel, charset, bufferSize);
+        switch (this) {
+            case CSV:
+                return new CsvResultWriter(buffer);
+            case TSV:
+                return new TsvResultWriter(buffer);
+            case JSONL:
+                return new JsonLinesResultWriter(buffer);
+            default:
+                return new TableResultWriter(buffer);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.output;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Channel which compresses the written bytes to gzip on many threads, in the style of pigz. The bytes are cut into
+ * blocks of a fixed size, every block is compressed by a pool of threads to its own gzip member and the members are
+ * written to the target channel in order by a writer thread. A file of concatenated gzip members is a valid gzip file,
+ * which is decompressed to the concatenated blocks by any gzip tool.
+ * <p>
+ * The thread which writes to the channel only copies bytes to the current block, so rendering of rows, compression
+ * and writing to the disk run in parallel. At most two blocks per compressing thread are in flight, a writer faster
+ * than the compression waits for them. The channel is not thread safe.
+ *
+ * @author Roman Srom
+ */
+public class ParallelGzipChannel implements WritableByteChannel {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    private static final byte[] MEMBER_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int MEMBER_TRAILER_SIZE = 8;
+    private static final long POLL_TIMEOUT = 100;
+
+    private final WritableByteChannel target;
+    private final int blockSize;
+    private final int level;
+    private final ExecutorService compressors;
+    private final BlockingQueue<Future<ByteBuffer>> members;
+    private final Thread writer;
+    private final Future<ByteBuffer> end = new FutureTask<>(() -> null);
+    private volatile Throwable failure;
+    private byte[] block;
+    private int blockLength;
+    private long inputSize;
+    private boolean blockWritten;
+    private boolean open = true;
+
+    public ParallelGzipChannel(WritableByteChannel target, int threads) {
+        this(target, threads, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates the channel and starts its threads.
+     *
+     * @param target channel the gzip members are written to, it is not closed by this channel
+     * @param threads count of compressing threads
+     * @param blockSize size of uncompressed block in bytes
+     * @param level compression level from 1 to 9 or {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    public ParallelGzipChannel(WritableByteChannel target, int threads, int blockSize, int level) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Count of threads must be greater than 0");
+        }
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be greater than 0");
+        }
+        this.target = target;
+        this.blockSize = blockSize;
+        this.level = level;
+        this.block = new byte[blockSize];
+        this.members = new ArrayBlockingQueue<>(2 * threads);
+        this.compressors = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "dbchecko-gzip");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer = new Thread(this::writeMembers, "dbchecko-gzip-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        final int length = src.remaining();
+        while (src.hasRemaining()) {
+            final int count = Math.min(src.remaining(), blockSize - blockLength);
+            src.get(block, blockLength, count);
+            blockLength += count;
+            if (blockLength == blockSize) {
+                submitBlock();
+            }
+        }
+        inputSize += length;
+        return length;
+    }
+
+    /**
+     * Returns count of bytes written to the channel before compression.
+     *
+     * @return uncompressed size
+     */
+    public long getInputSize() {
+        return inputSize;
+    }
+
+    private void submitBlock() throws IOException {
+        final byte[] data = block;
+        final int length = blockLength;
+        enqueue(compressors.submit(() -> compress(data, length)));
+        block = new byte[blockSize];
+        blockLength = 0;
+        blockWritten = true;
+    }
+
+    private void enqueue(Future<ByteBuffer> member) throws IOException {
+        try {
+            while (!members.offer(member, POLL_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for compression", e);
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Writing of compressed output failed", failure);
+        }
+    }
+
+    /**
+     * Compresses the block to a gzip member.
+     */
+    private ByteBuffer compress(byte[] data, int length) {
+        final CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        final Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            byte[] output = new byte[MEMBER_HEADER.length + length / 2 + 64];
+            System.arraycopy(MEMBER_HEADER, 0, output, 0, MEMBER_HEADER.length);
+            int position = MEMBER_HEADER.length;
+            while (!deflater.finished()) {
+                if (position == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                position += deflater.deflate(output, position, output.length - position);
+            }
+            final ByteBuffer member = ByteBuffer.allocate(position + MEMBER_TRAILER_SIZE);
+            member.put(output, 0, position);
+            putIntLittleEndian(member, (int) crc.getValue());
+            putIntLittleEndian(member, length);
+            member.flip();
+            return member;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void putIntLittleEndian(ByteBuffer buffer, int value) {
+        buffer.put((byte) value).put((byte) (value >>> 8)).put((byte) (value >>> 16)).put((byte) (value >>> 24));
+    }
+
+    private void writeMembers() {
+        try {
+            while (true) {
+                final Future<ByteBuffer> member = members.take();
+                if (member == end) {
+                    return;
+                }
+                final ByteBuffer bytes = member.get();
+                while (bytes.hasRemaining()) {
+                    target.write(bytes);
+                }
+            }
+        } catch (InterruptedException e) {
+            failure = e;
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            failure = e.getCause();
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Compresses the rest of the bytes and waits until all of them are written to the target channel. The target
+     * channel is not closed.
+     *
+     * @throws IOException if compressing or writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        try {
+            // an empty output is one empty gzip member, an empty file is not a valid gzip file
+            if (blockLength > 0 || !blockWritten) {
+                submitBlock();
+            }
+            enqueue(end);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for compression", e);
+        } finally {
+            open = false;
+            compressors.shutdownNow();
+            writer.interrupt();
+        }
+        checkFailure();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Writes rows of a result set in some output format. The header has to be written first, then the rows are written one
+ * by one and finally the writer is closed. Closing the writer flushes all buffered output but it doesn't close the
+ * underlying channel.
+ *
+ * <p>A writer can also append rows to the output of another writer of the same format. Such a writer is only prepared
+ * instead of writing the header and flushed instead of being closed, so neither header nor trailer is written twice.
+ * </p>
+ *
+ * @author Roman Srom
+ */
+public interface ResultWriter extends Closeable {
+
+    /**
+     * Prepares the writer for the columns of the result set without writing the header.
+     *
+     * @param metaData metadata of the result set
+     * @throws SQLException if reading the metadata fails
+     */
+    void prepare(ResultSetMetaData metaData) throws SQLException;
+
+    /**
+     * Prepares the writer for the columns of the result set and writes the header if the format has one.
+     *
+     * @param metaData metadata of the result set
+     * @throws SQLException if reading the metadata fails
+     * @throws IOException if writing the output fails
+     */
+    void writeHeader(ResultSetMetaData metaData) throws SQLException, IOException;
+
+    /**
+     * Writes the current row of the result set.
+     *
+     * @param rs result set positioned on the row to write
+     * @throws SQLException if reading the row fails
+     * @throws IOException if writing the output fails
+     */
+    void writeRow(ResultSet rs) throws SQLException, IOException;
+
+    /**
+     * Writes all buffered rows to the channel. Every flush writes whole rows (or whole record batches) in a single
+     * write, so writers sharing a synchronized channel don't interleave within a row.
+     *
+     * @throws IOException if writing the output fails
+     */
+    void flush() throws IOException;
+}
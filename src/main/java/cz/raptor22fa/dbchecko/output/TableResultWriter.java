@@ -0,0 +1,311 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.output;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Writes rows as a fixed-width table separated by {@code ||}. Values which don't fit into the column are abbreviated,
+ * except for the last column.
+ *
+ * <p>Columns are as wide as their names (at least {@link #MIN_COLUMN_NAME_LENGTH}). In auto-width mode the first rows
+ * are buffered and columns are as wide as the longest of their values too (at most {@link #MAX_AUTO_COLUMN_WIDTH}).
+ * The buffer is bounded by count of rows and count of characters, when one of them is reached, the header and the
+ * buffered rows are written and the rest of the rows is streamed with the same widths.</p>
+ *
+ * @author Roman Srom
+ */
+public class TableResultWriter extends TextResultWriter {
+
+    public static final char PAD_CHARACTER = ' ';
+    public static final int MIN_COLUMN_NAME_LENGTH = 10;
+    public static final int MAX_AUTO_COLUMN_WIDTH = 100;
+
+    private static final char[] COLUMN_SEPARATOR = " || ".toCharArray();
+    private static final char[] ABBREVIATION_MARKER = "...".toCharArray();
+    private static final char HEADER_SEPARATOR_CHARACTER = '=';
+    private static final int HEADER_SEPARATOR_LENGTH = 80;
+
+    private final int autoWidthRows;
+    private final int autoWidthChars;
+
+    private int[] columnWidths;
+    private String[] columnNames;
+    private Lookahead lookahead;
+
+    public TableResultWriter(OutputBuffer buffer) {
+        this(buffer, 0, 0);
+    }
+
+    /**
+     * Creates a writer in auto-width mode.
+     *
+     * @param buffer output buffer
+     * @param autoWidthRows count of first rows the widths of columns are computed from, 0 turns auto-width mode off
+     * @param autoWidthChars maximal count of characters of the buffered rows
+     */
+    public TableResultWriter(OutputBuffer buffer, int autoWidthRows, int autoWidthChars) {
+        super(buffer);
+        if (autoWidthRows < 0 || autoWidthChars < 0) {
+            throw new IllegalArgumentException("Auto-width rows and characters must not be negative");
+        }
+        this.autoWidthRows = autoWidthRows;
+        this.autoWidthChars = autoWidthChars;
+    }
+
+    /**
+     * Prepares widths of the columns by their names. Auto-width mode isn't used, the widths have to be the same as of
+     * the writer which has written the header.
+     */
+    @Override
+    public void prepare(ResultSetMetaData metaData) throws SQLException {
+        final int columnCount = metaData.getColumnCount();
+        columnNames = new String[columnCount];
+        columnWidths = new int[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            columnNames[i-1] = metaData.getColumnName(i);
+            columnWidths[i-1] = Math.max(columnNames[i-1].length(), MIN_COLUMN_NAME_LENGTH);
+        }
+    }
+
+    @Override
+    public void writeHeader(ResultSetMetaData metaData) throws SQLException, IOException {
+        prepare(metaData);
+        if (autoWidthRows > 0) {
+            lookahead = new Lookahead(columnNames.length, autoWidthRows, autoWidthChars);
+            return;
+        }
+        appendHeader();
+    }
+
+    private void appendHeader() throws IOException {
+        for (int i = 0; i < columnNames.length; i++) {
+            buffer.append(columnNames[i]);
+            buffer.repeat(PAD_CHARACTER, columnWidths[i] - columnNames[i].length());
+            if (i != columnNames.length - 1) {
+                buffer.append(COLUMN_SEPARATOR);
+            }
+        }
+        buffer.newLine();
+        buffer.repeat(HEADER_SEPARATOR_CHARACTER, HEADER_SEPARATOR_LENGTH);
+        buffer.newLine();
+    }
+
+    @Override
+    public void writeRow(ResultSet rs) throws SQLException, IOException {
+        if (lookahead != null) {
+            bufferRow(rs);
+            return;
+        }
+        final int columnCount = columnWidths.length;
+        for (int i = 1; i <= columnCount; i++) {
+            final boolean lastColumn = (i == columnCount);
+            appendColumnValue(rs.getString(i), columnWidths[i-1], !lastColumn);
+            if (!lastColumn) {
+                buffer.append(COLUMN_SEPARATOR);
+            }
+        }
+        buffer.newLine();
+    }
+
+    private void bufferRow(ResultSet rs) throws SQLException, IOException {
+        final String[] values = lookahead.values;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = rs.getString(i + 1);
+        }
+        if (lookahead.add(values)) {
+            if (lookahead.isFull()) {
+                endLookahead();
+            }
+            return;
+        }
+        // the row doesn't fit into the buffer, so it's the first streamed row
+        endLookahead();
+        final int columnCount = columnWidths.length;
+        for (int i = 0; i < columnCount; i++) {
+            final boolean lastColumn = (i == columnCount - 1);
+            appendColumnValue(values[i], columnWidths[i], !lastColumn);
+            if (!lastColumn) {
+                buffer.append(COLUMN_SEPARATOR);
+            }
+        }
+        buffer.newLine();
+    }
+
+    /**
+     * Computes widths of the columns from the buffered rows and writes the header and the rows.
+     */
+    private void endLookahead() throws IOException {
+        if (lookahead == null) {
+            return;
+        }
+        final Lookahead rows = lookahead;
+        lookahead = null;
+        final int columnCount = columnWidths.length;
+        for (int i = 0; i < columnCount; i++) {
+            columnWidths[i] = Math.max(columnWidths[i], Math.min(rows.maxLengths[i], MAX_AUTO_COLUMN_WIDTH));
+        }
+        appendHeader();
+
+        int offset = 0;
+        int cell = 0;
+        for (int row = 0; row < rows.rowCount; row++) {
+            for (int i = 0; i < columnCount; i++) {
+                final boolean lastColumn = (i == columnCount - 1);
+                final int length = rows.lengths[cell++];
+                if (length == Lookahead.NULL_LENGTH) {
+                    buffer.repeat(PAD_CHARACTER, columnWidths[i]);
+                } else {
+                    appendColumnValue(rows.chars, offset, length, columnWidths[i], !lastColumn);
+                    offset += length;
+                }
+                if (!lastColumn) {
+                    buffer.append(COLUMN_SEPARATOR);
+                }
+            }
+            buffer.newLine();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        endLookahead();
+        super.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        endLookahead();
+        super.close();
+    }
+
+    private void appendColumnValue(String columnValue, int columnWidth, boolean abbreviate) {
+        if (columnValue == null) {
+            buffer.repeat(PAD_CHARACTER, columnWidth);
+            return;
+        }
+
+        final int length = columnValue.length();
+        if (abbreviate && length > columnWidth) {
+            buffer.append(columnValue, 0, columnWidth - ABBREVIATION_MARKER.length);
+            buffer.append(ABBREVIATION_MARKER);
+            return;
+        }
+        buffer.append(columnValue);
+        buffer.repeat(PAD_CHARACTER, columnWidth - length);
+    }
+
+    private void appendColumnValue(char[] chars, int offset, int length, int columnWidth, boolean abbreviate) {
+        if (abbreviate && length > columnWidth) {
+            buffer.append(chars, offset, columnWidth - ABBREVIATION_MARKER.length);
+            buffer.append(ABBREVIATION_MARKER);
+            return;
+        }
+        buffer.append(chars, offset, length);
+        buffer.repeat(PAD_CHARACTER, columnWidth - length);
+    }
+
+    /**
+     * First rows of the result in auto-width mode. Values of all rows are stored in a single character array and
+     * their lengths in a single int array, so the buffer holds no object per value.
+     */
+    private static class Lookahead {
+
+        static final int NULL_LENGTH = -1;
+
+        private static final int INITIAL_CHARS = 4096;
+        private static final int INITIAL_ROWS = 64;
+
+        final String[] values;
+        final int[] maxLengths;
+        final int maxRows;
+        int[] lengths;
+        final int maxChars;
+        char[] chars;
+        int charCount;
+        int rowCount;
+
+        Lookahead(int columnCount, int maxRows, int maxChars) {
+            this.values = new String[columnCount];
+            this.maxLengths = new int[columnCount];
+            this.maxRows = maxRows;
+            this.lengths = new int[columnCount * Math.min(maxRows, INITIAL_ROWS)];
+            this.maxChars = maxChars;
+            this.chars = new char[Math.min(INITIAL_CHARS, maxChars)];
+        }
+
+        /**
+         * Adds the row if there is enough space for it.
+         *
+         * @param row values of the row
+         * @return {@code false} if the row exceeds the character limit and wasn't added
+         */
+        boolean add(String[] row) {
+            int rowChars = 0;
+            for (String value : row) {
+                if (value != null) {
+                    rowChars += value.length();
+                }
+            }
+            if (rowChars > maxChars - charCount) {
+                return false;
+            }
+            ensureCapacity(charCount + rowChars);
+            int cell = rowCount * row.length;
+            if (cell + row.length > lengths.length) {
+                lengths = Arrays.copyOf(lengths, row.length * Math.min(2 * (rowCount + 1), maxRows));
+            }
+            for (int i = 0; i < row.length; i++) {
+                final String value = row[i];
+                if (value == null) {
+                    lengths[cell++] = NULL_LENGTH;
+                    continue;
+                }
+                final int length = value.length();
+                value.getChars(0, length, chars, charCount);
+                charCount += length;
+                lengths[cell++] = length;
+                if (length > maxLengths[i]) {
+                    maxLengths[i] = length;
+                }
+            }
+            rowCount++;
+            return true;
+        }
+
+        boolean isFull() {
+            return rowCount == maxRows;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > chars.length) {
+                chars = Arrays.copyOf(chars, (int) Math.min(Math.max(2L * chars.length, capacity), maxChars));
+            }
+        }
+    }
+}
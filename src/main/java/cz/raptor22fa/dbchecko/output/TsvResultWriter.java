@@ -0,0 +1,114 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.output;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Writes rows as tab separated values. Tabs, line breaks and backslashes in values are escaped with a backslash and
+ * null is written as {@code \N}, so the output can be loaded by PostgreSQL {@code COPY ... FROM} in text format.
+ *
+ * @author Roman Srom
+ */
+public class TsvResultWriter extends TextResultWriter {
+
+    public static final char DELIMITER = '\t';
+    public static final char LINE_SEPARATOR = '\n';
+
+    private static final char ESCAPE = '\\';
+    private static final char[] NULL_VALUE = {ESCAPE, 'N'};
+
+    private int columnCount;
+
+    public TsvResultWriter(OutputBuffer buffer) {
+        super(buffer);
+    }
+
+    @Override
+    public void prepare(ResultSetMetaData metaData) throws SQLException {
+        columnCount = metaData.getColumnCount();
+    }
+
+    @Override
+    public void writeHeader(ResultSetMetaData metaData) throws SQLException, IOException {
+        prepare(metaData);
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) {
+                buffer.append(DELIMITER);
+            }
+            appendValue(metaData.getColumnLabel(i));
+        }
+        buffer.append(LINE_SEPARATOR);
+        buffer.endRow();
+    }
+
+    @Override
+    public void writeRow(ResultSet rs) throws SQLException, IOException {
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) {
+                buffer.append(DELIMITER);
+            }
+            final String value = rs.getString(i);
+            if (value == null) {
+                buffer.append(NULL_VALUE);
+            } else {
+                appendValue(value);
+            }
+        }
+        buffer.append(LINE_SEPARATOR);
+        buffer.endRow();
+    }
+
+    private void appendValue(String value) {
+        int start = 0;
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char escaped = escape(value.charAt(i));
+            if (escaped != 0) {
+                buffer.append(value, start, i);
+                buffer.append(ESCAPE).append(escaped);
+                start = i + 1;
+            }
+        }
+        buffer.append(value, start, length);
+    }
+
+    private static char escape(char c) {
+        switch (c) {
+            case '\t':
+                return 't';
+            case '\n':
+                return 'n';
+            case '\r':
+                return 'r';
+            case ESCAPE:
+                return ESCAPE;
+            default:
+                return 0;
+        }
+    }
+}
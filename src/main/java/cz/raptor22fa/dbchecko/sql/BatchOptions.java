@@ -0,0 +1,153 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.io.File;
+
+/**
+ * Contains options of a batch of update sql commands. The batch is either a file with one sql command per line or
+ * a parameterised sql template with a csv file of values bound to its parameters.
+ *
+ * @author Roman Srom
+ */
+public class BatchOptions {
+
+    /**
+     * Count of sql commands sent to the database in one round trip if it is not set.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * Commit interval that commits the whole batch at once at the end.
+     */
+    public static final int COMMIT_AT_END = 0;
+
+    private File statementsFile;
+    private String template;
+    private File valuesFile;
+    private boolean header;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int commitInterval = COMMIT_AT_END;
+    private boolean rewriteBatchedInserts;
+
+    /**
+     * Returns file with one sql command per line. Empty lines and lines starting with {@code --} are skipped.
+     *
+     * @return file with sql commands
+     */
+    public File getStatementsFile() {
+        return statementsFile;
+    }
+
+    public void setStatementsFile(File statementsFile) {
+        this.statementsFile = statementsFile;
+    }
+
+    /**
+     * Returns sql command with {@code ?} parameters that is executed for every record of the values file.
+     *
+     * @return sql template
+     */
+    public String getTemplate() {
+        return template;
+    }
+
+    public void setTemplate(String template) {
+        this.template = template;
+    }
+
+    /**
+     * Returns csv file with values of the template parameters, one record per execution of the template. An unquoted
+     * empty field is bound as sql null.
+     *
+     * @return csv file with values
+     */
+    public File getValuesFile() {
+        return valuesFile;
+    }
+
+    public void setValuesFile(File valuesFile) {
+        this.valuesFile = valuesFile;
+    }
+
+    /**
+     * Returns whether the first record of the values file is a header that is skipped.
+     *
+     * @return {@code true} if the values file has a header
+     */
+    public boolean isHeader() {
+        return header;
+    }
+
+    public void setHeader(boolean header) {
+        this.header = header;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be greater than 0");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns count of executed sql commands after which the transaction is committed. The commit is done after the
+     * batch that reaches the interval, {@link #COMMIT_AT_END} commits only once at the end.
+     *
+     * @return commit interval
+     */
+    public int getCommitInterval() {
+        return commitInterval;
+    }
+
+    public void setCommitInterval(int commitInterval) {
+        if (commitInterval < 0) {
+            throw new IllegalArgumentException("Commit interval must not be negative");
+        }
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * Returns whether an insert template is rewritten to insert many rows by one sql command. PostgreSQL driver does it
+     * itself by its {@code reWriteBatchedInserts} property, for other databases the template is rewritten to a multi
+     * row {@code VALUES} list.
+     *
+     * @return {@code true} if batched inserts are rewritten
+     */
+    public boolean isRewriteBatchedInserts() {
+        return rewriteBatchedInserts;
+    }
+
+    public void setRewriteBatchedInserts(boolean rewriteBatchedInserts) {
+        this.rewriteBatchedInserts = rewriteBatchedInserts;
+    }
+
+    public boolean isTemplate() {
+        return template != null;
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import cz.raptor22fa.dbchecko.db.StatementCache;
+import cz.raptor22fa.dbchecko.exception.DbCheckoException;
+import cz.raptor22fa.dbchecko.input.CsvReader;
+import cz.raptor22fa.dbchecko.input.RecordReader;
+import cz.raptor22fa.dbchecko.stats.LatencyHistogram;
+import org.apache.log4j.LogMF;
+import org.apache.log4j.Logger;
+
+/**
+ * Runs many update sql commands on one connection. The commands are sent to the database in batches, so that there is
+ * one round trip per batch instead of one per command. It prints count of updated rows and logs throughput and
+ * latency of the batches.
+ *
+ * @author Roman Srom
+ */
+public class BatchUpdateHandler {
+
+    private static final Logger LOG = Logger.getLogger(BatchUpdateHandler.class);
+
+    /**
+     * Maximal count of rows in one multi row insert. It is the limit of SQL Server's table value constructor.
+     */
+    static final int MAX_ROWS_PER_INSERT = 1000;
+
+    /**
+     * Maximal count of parameters in one multi row insert. SQL Server allows 2100 parameters per command.
+     */
+    static final int MAX_PARAMETERS_PER_INSERT = 2000;
+
+    private static final Pattern INSERT_VALUES =
+            Pattern.compile("(?is)^\\s*(INSERT\\s+INTO\\s+.+?\\s+VALUES\\s*)(\\(.*)$");
+
+    private static final Pattern STATEMENT_END = Pattern.compile("\\s*;?\\s*");
+
+    private final Connection connection;
+    private final BatchOptions options;
+    private final boolean rewriteInserts;
+
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+    private long updatedRowsCount;
+    private long executedCount;
+    private long uncommittedCount;
+
+    /**
+     * Creates handler of the batch.
+     *
+     * @param connection connection the batch runs on
+     * @param options options of the batch
+     * @param rewriteInserts {@code true} if the insert template is rewritten to a multi row insert by the handler,
+     * {@code false} if it is not rewritten at all or the driver does it itself
+     */
+    public BatchUpdateHandler(Connection connection, BatchOptions options, boolean rewriteInserts) {
+        this.connection = connection;
+        this.options = options;
+        this.rewriteInserts = rewriteInserts;
+    }
+
+    public void execute() {
+        final long updatedRowsCount = run(null);
+
+        System.out.println("Updated rows count: " + updatedRowsCount);
+    }
+
+    /**
+     * Runs the template for every record of the reader instead of records of the values file.
+     *
+     * @param values reader of the template parameter values, it is closed at the end
+     * @return count of updated rows
+     */
+    public long execute(RecordReader values) {
+        return run(values);
+    }
+
+    private long run(RecordReader values) {
+        final long startTime = System.nanoTime();
+        try {
+            final boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                if (options.isTemplate()) {
+                    executeTemplate(values);
+                } else {
+                    executeStatements();
+                }
+                connection.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException | IOException e) {
+            throw new DbCheckoException("Batch update command failed", e);
+        }
+        logStatistics(System.nanoTime() - startTime);
+        return updatedRowsCount;
+    }
+
+    private void executeStatements() throws SQLException, IOException {
+        try (BufferedReader reader = Files.newBufferedReader(options.getStatementsFile().toPath(),
+                StandardCharsets.UTF_8);
+             Statement statement = connection.createStatement()) {
+            int batchCount = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String sql = toStatement(line);
+                if (sql.isEmpty()) {
+                    continue;
+                }
+                statement.addBatch(sql);
+                if (++batchCount == options.getBatchSize()) {
+                    executeBatch(batchCount, statement);
+                    batchCount = 0;
+                }
+            }
+            if (batchCount > 0) {
+                executeBatch(batchCount, statement);
+            }
+        }
+    }
+
+    static String toStatement(String line) {
+        String sql = line.trim();
+        if (sql.startsWith("--")) {
+            return "";
+        }
+        if (sql.endsWith(";")) {
+            sql = sql.substring(0, sql.length() - 1).trim();
+        }
+        return sql;
+    }
+
+    private void executeTemplate(RecordReader valuesReader) throws SQLException, IOException {
+        try (RecordReader reader = valuesReader != null ? valuesReader : new CsvReader(
+                Files.newBufferedReader(options.getValuesFile().toPath(), StandardCharsets.UTF_8));
+             StatementCache statements = StatementCache.of(connection)) {
+            if (options.isHeader()) {
+                reader.next();
+            }
+            final PreparedStatement statement = statements.prepare(options.getTemplate());
+            final int[] types = statements.getParameterTypes(options.getTemplate());
+
+            final Matcher insert = INSERT_VALUES.matcher(options.getTemplate());
+            final String valuesRow = rewriteInserts && insert.matches() ? getValuesRow(insert.group(2)) : null;
+            if (rewriteInserts && valuesRow == null) {
+                LOG.warn("Only INSERT ... VALUES (...) template without a trailing clause can be rewritten to a multi"
+                        + " row insert");
+            }
+            final int rowsPerInsert = valuesRow != null ? getRowsPerInsert(valuesRow, types) : 1;
+            if (rowsPerInsert > 1) {
+                final String multiRowInsert = toMultiRowInsert(insert.group(1), valuesRow, rowsPerInsert);
+                final PreparedStatement multiRowStatement = statements.prepare(multiRowInsert);
+                executeMultiRowTemplate(reader, statement, multiRowStatement, types, rowsPerInsert);
+                return;
+            }
+
+            int batchCount = 0;
+            List<String> values;
+            while ((values = reader.next()) != null) {
+                if (isBlank(values)) {
+                    continue;
+                }
+                bind(statement, 0, values, types, reader.getRecordNumber());
+                statement.addBatch();
+                if (++batchCount == options.getBatchSize()) {
+                    executeBatch(batchCount, statement);
+                    batchCount = 0;
+                }
+            }
+            if (batchCount > 0) {
+                executeBatch(batchCount, statement);
+            }
+        }
+    }
+
+    /**
+     * Executes the template rewritten to insert many rows by one sql command. Records of one batch are inserted by
+     * the multi row insert, the rest that doesn't fill it is inserted by the original template.
+     */
+    private void executeMultiRowTemplate(RecordReader reader, PreparedStatement statement,
+            PreparedStatement multiRowStatement, int[] types, int rowsPerInsert) throws SQLException, IOException {
+        LogMF.info(LOG, "Template is rewritten to insert {0} rows by one command", rowsPerInsert);
+        final List<List<String>> records = new ArrayList<>(options.getBatchSize());
+        final List<Long> recordNumbers = new ArrayList<>(options.getBatchSize());
+        boolean end = false;
+        while (!end) {
+            final List<String> values = reader.next();
+            if (values == null) {
+                end = true;
+            } else if (!isBlank(values)) {
+                records.add(new ArrayList<>(values));
+                recordNumbers.add(reader.getRecordNumber());
+            }
+            if (records.size() == options.getBatchSize() || (end && !records.isEmpty())) {
+                final int multiRowCount = records.size() / rowsPerInsert * rowsPerInsert;
+                for (int row = 0; row < multiRowCount; row += rowsPerInsert) {
+                    int offset = 0;
+                    for (int i = row; i < row + rowsPerInsert; i++) {
+                        offset = bind(multiRowStatement, offset, records.get(i), types, recordNumbers.get(i));
+                    }
+                    multiRowStatement.addBatch();
+                }
+                for (int i = multiRowCount; i < records.size(); i++) {
+                    bind(statement, 0, records.get(i), types, recordNumbers.get(i));
+                    statement.addBatch();
+                }
+                if (multiRowCount == records.size()) {
+                    executeBatch(records.size(), multiRowStatement);
+                } else if (multiRowCount == 0) {
+                    executeBatch(records.size(), statement);
+                } else {
+                    executeBatch(records.size(), multiRowStatement, statement);
+                }
+                records.clear();
+                recordNumbers.clear();
+            }
+        }
+    }
+
+    private int getRowsPerInsert(String valuesRow, int[] types) {
+        final int parameterCount = types != null ? types.length : countParameters(valuesRow);
+        final int maxRows = parameterCount > 0 ? MAX_PARAMETERS_PER_INSERT / parameterCount : MAX_ROWS_PER_INSERT;
+        return Math.max(1, Math.min(Math.min(MAX_ROWS_PER_INSERT, maxRows), options.getBatchSize()));
+    }
+
+    static String toMultiRowInsert(String insert, String valuesRow, int rowCount) {
+        final StringBuilder sql = new StringBuilder(insert.length() + (valuesRow.length() + 2) * rowCount);
+        sql.append(insert).append(valuesRow);
+        for (int i = 1; i < rowCount; i++) {
+            sql.append(", ").append(valuesRow);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Returns the parenthesised values row the sql starts with, parentheses inside of quotes are skipped.
+     *
+     * @return the values row, {@code null} if anything but the end of the statement follows it (e.g. an
+     * {@code ON CONFLICT} clause which mustn't be repeated for every row)
+     */
+    static String getValuesRow(String sql) {
+        int depth = 0;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            final char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return STATEMENT_END.matcher(sql.substring(i + 1)).matches() ? sql.substring(0, i + 1) : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Counts {@code ?} parameters of the sql, parameters inside of quotes are not counted.
+     */
+    static int countParameters(String sql) {
+        int count = 0;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            final char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Binds values of one record to the parameters following the offset.
+     *
+     * @return offset of the parameters of the next record
+     */
+    private static int bind(PreparedStatement statement, int offset, List<String> values, int[] types,
+            long recordNumber) throws SQLException {
+        if (types != null && values.size() != types.length) {
+            throw new SQLException("Record " + recordNumber + " has " + values.size() + " values, but the template has "
+                    + types.length + " parameters");
+        }
+        for (int i = 0; i < values.size(); i++) {
+            final int sqlType = types != null ? types[i] : Types.VARCHAR;
+            SqlParameters.bind(statement, offset + i + 1, values.get(i), sqlType);
+        }
+        return offset + values.size();
+    }
+
+    private static boolean isBlank(List<String> values) {
+        return values.size() == 1 && values.get(0) == null;
+    }
+
+    private void executeBatch(int count, Statement... statements) throws SQLException {
+        final long startTime = System.nanoTime();
+        for (Statement statement : statements) {
+            for (int updateCount : statement.executeBatch()) {
+                if (updateCount > 0) {
+                    updatedRowsCount += updateCount;
+                }
+            }
+        }
+        executedCount += count;
+        uncommittedCount += count;
+        if (options.getCommitInterval() != BatchOptions.COMMIT_AT_END
+                && uncommittedCount >= options.getCommitInterval()) {
+            connection.commit();
+            uncommittedCount = 0;
+        }
+        batchLatency.record(System.nanoTime() - startTime);
+        LogMF.debug(LOG, "Executed {0} commands", executedCount);
+    }
+
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            LOG.warn("Failed to rollback the batch", e);
+        }
+    }
+
+    private void logStatistics(long totalTime) {
+        final double seconds = totalTime / (double) TimeUnit.SECONDS.toNanos(1);
+        LogMF.info(LOG, "Executed commands: {0}, total time: {1} ms, {2} rows/s, {3} commands/s", new Object[] {
+                executedCount, TimeUnit.NANOSECONDS.toMillis(totalTime),
+                seconds > 0 ? Math.round(updatedRowsCount / seconds) : updatedRowsCount,
+                seconds > 0 ? Math.round(executedCount / seconds) : executedCount});
+        if (batchLatency.getTotalCount() == 0) {
+            return;
+        }
+
+        LogMF.info(LOG, "Batches: {0}, latency min: {1} ms, avg: {2} ms, p50: {3} ms, p95: {4} ms, max: {5} ms",
+                new Object[] {batchLatency.getTotalCount(), toMillis(batchLatency.getMin()),
+                        toMillis(batchLatency.getMean()), toMillis(batchLatency.getValueAtPercentile(50)),
+                        toMillis(batchLatency.getValueAtPercentile(95)), toMillis(batchLatency.getMax())});
+    }
+
+    private static String toMillis(double nanos) {
+        return String.format("%.3f", nanos / 1_000_000.0);
+    }
+}
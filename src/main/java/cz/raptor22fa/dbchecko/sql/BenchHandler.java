@@ -0,0 +1,272 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import cz.raptor22fa.dbchecko.db.StatementCache;
+import cz.raptor22fa.dbchecko.exception.DbCheckoException;
+import cz.raptor22fa.dbchecko.input.CsvReader;
+import cz.raptor22fa.dbchecko.stats.LatencyHistogram;
+import org.apache.log4j.LogMF;
+import org.apache.log4j.Logger;
+
+/**
+ * Runs a select sql command repeatedly on many connections at once and prints its throughput and latency. Rows of
+ * the result are read but not rendered, so that only the database and the driver are measured. Executions during
+ * the warm-up are not measured.
+ *
+ * @author Roman Srom
+ */
+public class BenchHandler extends SelectHandler {
+
+    private static final Logger LOG = Logger.getLogger(BenchHandler.class);
+
+    private final List<Connection> connections;
+    private final BenchOptions benchOptions;
+    private final PrintStream output;
+
+    private NamedParameters parameters;
+    private List<List<String>> values;
+    private final AtomicLong valuesIndex = new AtomicLong();
+    private final AtomicLong remainingIterations = new AtomicLong();
+    private long warmupEnd;
+    private long measurementEnd;
+
+    /**
+     * Creates the benchmark.
+     *
+     * @param connections connections the query runs on, one thread per connection
+     * @param query select sql, it can contain {@code ?} parameters bound from the values file
+     * @param output stream the results are printed to
+     * @param options options of the select, e.g. fetch size
+     * @param benchOptions options of the benchmark
+     */
+    public BenchHandler(List<Connection> connections, String query, PrintStream output, SelectOptions options,
+            BenchOptions benchOptions) {
+        super(connections.get(0), query, output, options);
+        this.connections = connections;
+        this.benchOptions = benchOptions;
+        this.output = output;
+    }
+
+    @Override
+    public void execute() {
+        parameters = NamedParameters.parse(query, options.getParameters());
+        if (!parameters.isEmpty() && benchOptions.getValuesFile() != null) {
+            throw new IllegalArgumentException("Named parameters and values file can't be used together");
+        }
+        try {
+            values = readValues();
+        } catch (IOException e) {
+            throw new DbCheckoException("Reading values of bench command failed", e);
+        }
+        final boolean limitedIterations = benchOptions.getIterations() != BenchOptions.UNLIMITED_ITERATIONS;
+        remainingIterations.set(benchOptions.getIterations());
+        final long startTime = System.nanoTime();
+        warmupEnd = startTime + TimeUnit.SECONDS.toNanos(benchOptions.getWarmup());
+        measurementEnd = limitedIterations
+                ? Long.MAX_VALUE : warmupEnd + TimeUnit.SECONDS.toNanos(benchOptions.getDuration());
+        LogMF.info(LOG, "Running query on {0} connections, warm-up {1} s", connections.size(),
+                benchOptions.getWarmup());
+
+        final List<Worker> workers = new ArrayList<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(connections.size());
+        try {
+            final List<Future<Void>> futures = new ArrayList<>();
+            for (Connection workerConnection : connections) {
+                final Worker worker = new Worker(workerConnection, limitedIterations);
+                workers.add(worker);
+                futures.add(executor.submit(worker));
+            }
+            for (Future<Void> future : futures) {
+                getResult(future);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        printResults(workers, System.nanoTime() - Math.min(warmupEnd, System.nanoTime()));
+    }
+
+    private List<List<String>> readValues() throws IOException {
+        if (benchOptions.getValuesFile() == null) {
+            return null;
+        }
+        final List<List<String>> records = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(
+                Files.newBufferedReader(benchOptions.getValuesFile().toPath(), StandardCharsets.UTF_8))) {
+            if (benchOptions.isHeader()) {
+                reader.next();
+            }
+            List<String> record;
+            while ((record = reader.next()) != null) {
+                records.add(new ArrayList<>(record));
+            }
+        }
+        if (records.isEmpty()) {
+            throw new IOException("Values file " + benchOptions.getValuesFile() + " is empty");
+        }
+        return records;
+    }
+
+    private static void getResult(Future<Void> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DbCheckoException("Bench command was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new DbCheckoException("Bench command failed", e.getCause());
+        }
+    }
+
+    private void printResults(List<Worker> workers, long measurementTime) {
+        final LatencyHistogram latency = new LatencyHistogram();
+        long rowCount = 0;
+        long errorCount = 0;
+        for (Worker worker : workers) {
+            latency.add(worker.latency);
+            rowCount += worker.rowCount;
+            errorCount += worker.errorCount;
+        }
+        final double seconds = measurementTime / (double) TimeUnit.SECONDS.toNanos(1);
+        output.println(String.format("Connections: %d, iterations: %d, errors: %d, rows: %d, time: %.3f s",
+                workers.size(), latency.getTotalCount(), errorCount, rowCount, seconds));
+        output.println(String.format("QPS: %.1f, rows/s: %.1f",
+                seconds > 0 ? latency.getTotalCount() / seconds : 0.0, seconds > 0 ? rowCount / seconds : 0.0));
+        output.println(String.format(
+                "Latency ms  mean: %.3f  p50: %.3f  p90: %.3f  p99: %.3f  p99.9: %.3f  max: %.3f",
+                latency.getMean() / 1_000_000.0, toMilliseconds(latency.getValueAtPercentile(50)),
+                toMilliseconds(latency.getValueAtPercentile(90)), toMilliseconds(latency.getValueAtPercentile(99)),
+                toMilliseconds(latency.getValueAtPercentile(99.9)), toMilliseconds(latency.getMax())));
+    }
+
+    private static double toMilliseconds(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Runs the query repeatedly on its own connection.
+     */
+    private class Worker implements Callable<Void> {
+
+        private final Connection connection;
+        private final boolean limitedIterations;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private long rowCount;
+        private long errorCount;
+
+        Worker(Connection connection, boolean limitedIterations) {
+            this.connection = connection;
+            this.limitedIterations = limitedIterations;
+        }
+
+        @Override
+        public Void call() throws SQLException {
+            try (StatementCache statements = StatementCache.of(connection)) {
+                // named parameters stay bound for all executions
+                final PreparedStatement statement = parameters.prepare(statements);
+                statement.setFetchSize(options.getFetchSize());
+                final int[] types = values != null ? statements.getParameterTypes(parameters.getSql()) : null;
+                String lastError = null;
+                while (true) {
+                    final long startTime = System.nanoTime();
+                    if (startTime - measurementEnd >= 0) {
+                        break;
+                    }
+                    final boolean measured = startTime - warmupEnd >= 0;
+                    if (measured && limitedIterations && remainingIterations.getAndDecrement() <= 0) {
+                        break;
+                    }
+                    try {
+                        bindNextValues(statement, types);
+                        final long rows = drain(statement);
+                        if (measured) {
+                            latency.record(System.nanoTime() - startTime);
+                            rowCount += rows;
+                        }
+                    } catch (SQLException e) {
+                        if (measured) {
+                            errorCount++;
+                        }
+                        if (!String.valueOf(e.getMessage()).equals(lastError)) {
+                            lastError = String.valueOf(e.getMessage());
+                            LogMF.warn(LOG, "Query failed: {0}", lastError);
+                        }
+                        if (!connection.getAutoCommit()) {
+                            connection.rollback();
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+
+        private void bindNextValues(PreparedStatement statement, int[] types) throws SQLException {
+            if (values == null) {
+                return;
+            }
+            final List<String> record = values.get((int) (valuesIndex.getAndIncrement() % values.size()));
+            for (int i = 0; i < record.size(); i++) {
+                SqlParameters.bind(statement, i + 1, record.get(i),
+                        types != null && i < types.length ? types[i] : Types.VARCHAR);
+            }
+        }
+
+        /**
+         * Executes the query and reads all its rows. A streamed result set gets a transaction of its own, so that
+         * locks aren't held and the session isn't idle in a transaction for the whole run.
+         */
+        private long drain(PreparedStatement statement) throws SQLException {
+            final boolean autoCommitSwitched = beginStreaming(connection);
+            boolean succeeded = false;
+            long rows = 0;
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    rows++;
+                }
+                succeeded = true;
+            } finally {
+                endStreaming(connection, autoCommitSwitched, succeeded);
+            }
+            return rows;
+        }
+    }
+}
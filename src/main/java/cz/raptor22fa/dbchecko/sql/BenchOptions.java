@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.io.File;
+
+/**
+ * Contains options of a benchmark of a select sql command.
+ *
+ * @author Roman Srom
+ */
+public class BenchOptions {
+
+    public static final int DEFAULT_CONCURRENCY = 4;
+    public static final long DEFAULT_DURATION = 30;
+    public static final long DEFAULT_WARMUP = 5;
+
+    /**
+     * Iteration count that runs the benchmark for its duration instead.
+     */
+    public static final long UNLIMITED_ITERATIONS = 0;
+
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private long duration = DEFAULT_DURATION;
+    private long iterations = UNLIMITED_ITERATIONS;
+    private long warmup = DEFAULT_WARMUP;
+    private File valuesFile;
+    private boolean header;
+
+    /**
+     * Returns count of connections the query runs on concurrently.
+     *
+     * @return concurrency
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be greater than 0");
+        }
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Returns time in seconds of the measurement after the warm-up. It is ignored if the count of iterations is set.
+     *
+     * @return duration in seconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(long duration) {
+        if (duration < 1) {
+            throw new IllegalArgumentException("Duration must be greater than 0");
+        }
+        this.duration = duration;
+    }
+
+    /**
+     * Returns count of measured executions of the query by all connections together.
+     *
+     * @return iterations, {@link #UNLIMITED_ITERATIONS} runs the benchmark for its duration
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    public void setIterations(long iterations) {
+        if (iterations < 0) {
+            throw new IllegalArgumentException("Iterations must not be negative");
+        }
+        this.iterations = iterations;
+    }
+
+    /**
+     * Returns time in seconds the query runs before the measurement starts, so that caches of the database and JIT
+     * compilation of the client don't distort the results.
+     *
+     * @return warm-up in seconds
+     */
+    public long getWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(long warmup) {
+        if (warmup < 0) {
+            throw new IllegalArgumentException("Warm-up must not be negative");
+        }
+        this.warmup = warmup;
+    }
+
+    /**
+     * Returns csv file with values of the query parameters. Every execution takes the next record, the records are
+     * repeated from the beginning when all of them are used.
+     *
+     * @return csv file with values
+     */
+    public File getValuesFile() {
+        return valuesFile;
+    }
+
+    public void setValuesFile(File valuesFile) {
+        this.valuesFile = valuesFile;
+    }
+
+    public boolean isHeader() {
+        return header;
+    }
+
+    public void setHeader(boolean header) {
+        this.header = header;
+    }
+}
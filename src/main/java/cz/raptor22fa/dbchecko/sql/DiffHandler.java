@@ -0,0 +1,567 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import cz.raptor22fa.dbchecko.db.Dialect;
+import cz.raptor22fa.dbchecko.exception.DbCheckoException;
+import org.apache.log4j.LogMF;
+import org.apache.log4j.Logger;
+
+/**
+ * Compares a table in two databases, e.g. a source of a migration and its target. Value range of the key is split into
+ * chunks, which are compared in parallel, every one of them on its own connection to each database.
+ *
+ * <p>If both databases are of the same dialect with a hash function, only count and sum of row hashes of a chunk are
+ * computed by each database and rows are read only from the chunks whose checksums differ, then only their keys and
+ * hashes. Otherwise rows of every chunk are read and hashed by the client, only the hashes of one chunk per connection
+ * are held in memory. Values are normalized before hashing (e.g. {@code 1.50} and {@code 1.5} are the same), so
+ * databases of different dialects can be compared.</p>
+ *
+ * @author Roman Srom
+ */
+public class DiffHandler {
+
+    private static final Logger LOG = Logger.getLogger(DiffHandler.class);
+
+    /**
+     * Maximal count of chunks of the {@link PartitionMethod#MINMAX} method, a sparse key range gets wider chunks.
+     */
+    static final int MAX_CHUNKS = 100000;
+
+    private static final char VALUE_SEPARATOR = '\u001f';
+    private static final char NULL_VALUE = '\u0000';
+
+    private final List<Connection> sourceConnections;
+    private final List<Connection> targetConnections;
+    private final DiffOptions options;
+    private final PrintStream output;
+    private final Dialect sourceDialect;
+    private final Dialect targetDialect;
+
+    private List<String> columns;
+    private String rowHash;
+    private List<Object> boundaries;
+    private List<List<Difference>> differences;
+    private final AtomicInteger nextChunk = new AtomicInteger();
+    private final AtomicLong differentChunks = new AtomicLong();
+    private final AtomicLong differentRows = new AtomicLong();
+    private final AtomicLong sourceRows = new AtomicLong();
+    private final AtomicLong targetRows = new AtomicLong();
+
+    /**
+     * Creates the comparison.
+     *
+     * @param sourceConnections connections to the source database
+     * @param sourceDialect dialect of the source database
+     * @param targetConnections connections to the target database, as many as to the source database
+     * @param targetDialect dialect of the target database
+     * @param options options of the comparison
+     * @param output stream the differences are printed to
+     */
+    public DiffHandler(List<Connection> sourceConnections, Dialect sourceDialect, List<Connection> targetConnections,
+            Dialect targetDialect, DiffOptions options, PrintStream output) {
+        if (sourceConnections.size() != targetConnections.size()) {
+            throw new IllegalArgumentException("Count of source and target connections must be the same");
+        }
+        this.sourceConnections = sourceConnections;
+        this.sourceDialect = sourceDialect;
+        this.targetConnections = targetConnections;
+        this.targetDialect = targetDialect;
+        this.options = options;
+        this.output = output;
+    }
+
+    /**
+     * Compares the table and prints keys of the different rows and a summary.
+     *
+     * @return {@code true} if the table is the same in both databases
+     */
+    public boolean execute() {
+        final long startTime = System.nanoTime();
+        final int chunkCount;
+        try {
+            columns = options.getColumns().isEmpty() ? readColumns() : options.getColumns();
+            rowHash = sourceDialect == targetDialect ? sourceDialect.getRowHashExpression(columns) : null;
+            if (rowHash != null) {
+                LOG.info("Checksums of chunks are computed by the databases");
+            } else {
+                LogMF.info(LOG, "Rows are hashed by the client, no common hash function of {0} and {1} is known",
+                        sourceDialect, targetDialect);
+            }
+            boundaries = findBoundaries();
+            chunkCount = boundaries.size() + 1;
+            LogMF.info(LOG, "Comparing {0} chunks of {1} by {2}", chunkCount, options.getTable(), options.getKey());
+            differences = new ArrayList<>(chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                differences.add(null);
+            }
+            compareChunks(chunkCount);
+        } catch (SQLException e) {
+            throw new DbCheckoException("Diff command failed", e);
+        }
+
+        printDifferences();
+        output.println(String.format(
+                "Chunks: %d, different chunks: %d, source rows: %d, target rows: %d, different rows: %d, time: %d ms",
+                chunkCount, differentChunks.get(), sourceRows.get(), targetRows.get(), differentRows.get(),
+                SelectHandler.toMillis(System.nanoTime() - startTime)));
+        return differentRows.get() == 0;
+    }
+
+    private List<String> readColumns() throws SQLException {
+        final List<String> names = new ArrayList<>();
+        try (Statement statement = sourceConnections.get(0).createStatement();
+                ResultSet rs = statement.executeQuery("SELECT * FROM " + options.getTable() + " WHERE 1 = 0")) {
+            final ResultSetMetaData metaData = rs.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                names.add(metaData.getColumnName(i));
+            }
+        }
+        return names;
+    }
+
+    private void compareChunks(int chunkCount) throws SQLException {
+        final int workerCount = Math.min(sourceConnections.size(), chunkCount);
+        // every worker reads the target side of its chunk on one more thread
+        final ExecutorService executor = Executors.newFixedThreadPool(2 * workerCount);
+        try {
+            final List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < workerCount; i++) {
+                futures.add(executor.submit(
+                        new Worker(sourceConnections.get(i), targetConnections.get(i), executor, chunkCount)));
+            }
+            for (Future<Void> future : futures) {
+                getResult(future);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> T getResult(Future<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DbCheckoException("Diff command was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new DbCheckoException("Comparing chunk failed", e.getCause());
+        }
+    }
+
+    private void printDifferences() {
+        final String key = options.getKey();
+        long printed = 0;
+        for (List<Difference> chunkDifferences : differences) {
+            if (chunkDifferences == null) {
+                continue;
+            }
+            for (Difference difference : chunkDifferences) {
+                output.println(String.format("%-15s %s=%s", difference.type + ":", key, difference.key));
+                printed++;
+            }
+        }
+        if (printed < differentRows.get()) {
+            output.println("... " + (differentRows.get() - printed) + " more different rows");
+        }
+    }
+
+    /**
+     * Finds upper boundaries (inclusive) of all chunks but the last one.
+     */
+    private List<Object> findBoundaries() throws SQLException {
+        return options.getChunkMethod() == PartitionMethod.NTILE ? findNtileBoundaries() : findMinMaxBoundaries();
+    }
+
+    private List<Object> findMinMaxBoundaries() throws SQLException {
+        final BigInteger[] source = findMinMax(sourceConnections.get(0));
+        final BigInteger[] target = findMinMax(targetConnections.get(0));
+        final List<Object> chunkBoundaries = new ArrayList<>();
+        if (source == null && target == null) {
+            return chunkBoundaries;
+        }
+        final BigInteger min = source == null ? target[0] : target == null ? source[0] : source[0].min(target[0]);
+        final BigInteger max = source == null ? target[1] : target == null ? source[1] : source[1].max(target[1]);
+        final BigInteger span = max.subtract(min).add(BigInteger.ONE);
+        BigInteger step = BigInteger.valueOf(options.getChunkSize());
+        final BigInteger maxChunks = BigInteger.valueOf(MAX_CHUNKS);
+        if (span.add(step).subtract(BigInteger.ONE).divide(step).compareTo(maxChunks) > 0) {
+            step = span.add(maxChunks).subtract(BigInteger.ONE).divide(maxChunks);
+            LogMF.info(LOG, "Key range is too sparse, chunks span {0} key values", step);
+        }
+        for (BigInteger boundary = min.add(step).subtract(BigInteger.ONE); boundary.compareTo(max) < 0;
+                boundary = boundary.add(step)) {
+            chunkBoundaries.add(boundary.bitLength() < Long.SIZE ? (Object) boundary.longValue()
+                    : new BigDecimal(boundary));
+        }
+        return chunkBoundaries;
+    }
+
+    private BigInteger[] findMinMax(Connection connection) throws SQLException {
+        final String key = options.getKey();
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(
+                        "SELECT MIN(" + key + "), MAX(" + key + ") FROM " + options.getTable())) {
+            if (!rs.next() || rs.getObject(1) == null) {
+                return null;
+            }
+            return new BigInteger[] {toBigInteger(rs.getObject(1)), toBigInteger(rs.getObject(2))};
+        }
+    }
+
+    private static BigInteger toBigInteger(Object value) {
+        try {
+            if (value instanceof BigDecimal) {
+                return ((BigDecimal) value).toBigIntegerExact();
+            } else if (value instanceof BigInteger) {
+                return (BigInteger) value;
+            } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                    || value instanceof Byte) {
+                return BigInteger.valueOf(((Number) value).longValue());
+            }
+        } catch (ArithmeticException e) {
+            // handled below
+        }
+        throw new DbCheckoException("Key has to be an integer, use NTILE chunk method");
+    }
+
+    private List<Object> findNtileBoundaries() throws SQLException {
+        final String key = options.getKey();
+        final List<Object> chunkBoundaries = new ArrayList<>();
+        try (Statement statement = sourceConnections.get(0).createStatement()) {
+            final long rowCount;
+            try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + options.getTable())) {
+                rs.next();
+                rowCount = rs.getLong(1);
+            }
+            final long tiles = (rowCount + options.getChunkSize() - 1) / options.getChunkSize();
+            if (tiles <= 1) {
+                return chunkBoundaries;
+            }
+            try (ResultSet rs = statement.executeQuery("SELECT MAX(k_) FROM (SELECT " + key + " AS k_, NTILE("
+                    + tiles + ") OVER (ORDER BY " + key + ") AS tile_ FROM " + options.getTable() + " WHERE " + key
+                    + " IS NOT NULL) t_ GROUP BY tile_ ORDER BY tile_")) {
+                while (rs.next()) {
+                    chunkBoundaries.add(rs.getObject(1));
+                }
+            }
+        }
+        // maximum of the last tile is the maximum of the key, rows of the target above it belong to the last chunk
+        if (!chunkBoundaries.isEmpty()) {
+            chunkBoundaries.remove(chunkBoundaries.size() - 1);
+        }
+        return chunkBoundaries;
+    }
+
+    /**
+     * Returns condition of the key range of the chunk with {@code ?} parameters of its boundaries. Rows with null key
+     * belong to the first chunk.
+     */
+    private String createCondition(int chunk) {
+        final String key = options.getKey();
+        final boolean first = chunk == 0;
+        final boolean last = chunk == boundaries.size();
+        if (first && !last) {
+            return " WHERE (" + key + " IS NULL OR " + key + " <= ?)";
+        } else if (!first && !last) {
+            return " WHERE " + key + " > ? AND " + key + " <= ?";
+        } else if (!first) {
+            return " WHERE " + key + " > ?";
+        }
+        return "";
+    }
+
+    private void bindBoundaries(PreparedStatement statement, int chunk) throws SQLException {
+        int parameterIndex = 1;
+        if (chunk > 0) {
+            statement.setObject(parameterIndex++, boundaries.get(chunk - 1));
+        }
+        if (chunk < boundaries.size()) {
+            statement.setObject(parameterIndex, boundaries.get(chunk));
+        }
+    }
+
+    /**
+     * Converts value to a text which is the same for the same value read from databases of different dialects.
+     *
+     * @param value value read by {@link ResultSet#getObject(int)}
+     * @return normalized value, {@code null} for sql null
+     * @throws SQLException if reading a lob fails
+     */
+    static String normalize(Object value) throws SQLException {
+        if (value == null) {
+            return null;
+        } else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).stripTrailingZeros().toPlainString();
+        } else if (value instanceof Double || value instanceof Float) {
+            final double number = ((Number) value).doubleValue();
+            return Double.isNaN(number) || Double.isInfinite(number)
+                    ? String.valueOf(number) : BigDecimal.valueOf(number).stripTrailingZeros().toPlainString();
+        } else if (value instanceof byte[]) {
+            return toHex((byte[]) value);
+        } else if (value instanceof Blob) {
+            final Blob blob = (Blob) value;
+            return toHex(blob.getBytes(1, (int) blob.length()));
+        } else if (value instanceof Clob) {
+            final Clob clob = (Clob) value;
+            return clob.getSubString(1, (int) clob.length());
+        }
+        return value.toString();
+    }
+
+    private static String toHex(byte[] bytes) {
+        final StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static int compareKeys(String first, String second) {
+        try {
+            return new BigDecimal(first).compareTo(new BigDecimal(second));
+        } catch (NumberFormatException e) {
+            return first.compareTo(second);
+        }
+    }
+
+    /**
+     * Compares chunks one by one on its own pair of connections until all chunks are compared.
+     */
+    private class Worker implements Callable<Void> {
+
+        private final Connection sourceConnection;
+        private final Connection targetConnection;
+        private final ExecutorService executor;
+        private final int chunkCount;
+        private final MessageDigest sourceDigest;
+        private final MessageDigest targetDigest;
+
+        Worker(Connection sourceConnection, Connection targetConnection, ExecutorService executor, int chunkCount) {
+            this.sourceConnection = sourceConnection;
+            this.targetConnection = targetConnection;
+            this.executor = executor;
+            this.chunkCount = chunkCount;
+            try {
+                this.sourceDigest = MessageDigest.getInstance("MD5");
+                this.targetDigest = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("MD5 is always supported", e);
+            }
+        }
+
+        @Override
+        public Void call() throws SQLException {
+            int chunk;
+            while ((chunk = nextChunk.getAndIncrement()) < chunkCount) {
+                compare(chunk);
+            }
+            return null;
+        }
+
+        private void compare(int chunk) throws SQLException {
+            if (rowHash != null) {
+                final String sql = "SELECT COUNT(*), SUM(h_) FROM (SELECT " + rowHash + " AS h_ FROM "
+                        + options.getTable() + createCondition(chunk) + ") c_";
+                final Future<Checksum> target = executor.submit(() -> checksum(targetConnection, sql, chunk));
+                final Checksum source = checksum(sourceConnection, sql, chunk);
+                final Checksum targetChecksum = getResult(target);
+                if (source.equals(targetChecksum)) {
+                    sourceRows.addAndGet(source.count);
+                    targetRows.addAndGet(targetChecksum.count);
+                    return;
+                }
+            }
+
+            final Future<Map<String, Long>> target =
+                    executor.submit(() -> hashRows(targetConnection, targetDigest, chunk));
+            final Map<String, Long> sourceHashes = hashRows(sourceConnection, sourceDigest, chunk);
+            final Map<String, Long> targetHashes = getResult(target);
+            sourceRows.addAndGet(sourceHashes.size());
+            targetRows.addAndGet(targetHashes.size());
+
+            final List<Difference> chunkDifferences = new ArrayList<>();
+            for (Map.Entry<String, Long> entry : sourceHashes.entrySet()) {
+                final Long targetHash = targetHashes.get(entry.getKey());
+                if (targetHash == null && !targetHashes.containsKey(entry.getKey())) {
+                    chunkDifferences.add(new Difference(DifferenceType.ONLY_IN_SOURCE, entry.getKey()));
+                } else if (!Objects.equals(targetHash, entry.getValue())) {
+                    chunkDifferences.add(new Difference(DifferenceType.DIFFERENT, entry.getKey()));
+                }
+            }
+            for (String key : targetHashes.keySet()) {
+                if (!sourceHashes.containsKey(key)) {
+                    chunkDifferences.add(new Difference(DifferenceType.ONLY_IN_TARGET, key));
+                }
+            }
+            if (chunkDifferences.isEmpty()) {
+                return;
+            }
+            differentChunks.incrementAndGet();
+            // keys of all different rows are counted, but only those which can be printed are kept
+            final long previous = differentRows.getAndAdd(chunkDifferences.size());
+            final int kept =
+                    (int) Math.max(0, Math.min(chunkDifferences.size(), options.getMaxDifferences() - previous));
+            chunkDifferences.sort(Comparator.comparing((Difference difference) -> difference.key,
+                    Comparator.nullsFirst(DiffHandler::compareKeys)));
+            differences.set(chunk, new ArrayList<>(chunkDifferences.subList(0, kept)));
+        }
+
+        private Checksum checksum(Connection connection, String sql, int chunk) throws SQLException {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                bindBoundaries(statement, chunk);
+                try (ResultSet rs = statement.executeQuery()) {
+                    rs.next();
+                    return new Checksum(rs.getLong(1), rs.getBigDecimal(2));
+                }
+            }
+        }
+
+        /**
+         * Reads hashes of rows of the chunk by their keys.
+         */
+        private Map<String, Long> hashRows(Connection connection, MessageDigest digest, int chunk)
+                throws SQLException {
+            final String select = rowHash != null ? rowHash : String.join(", ", columns);
+            final String sql = "SELECT " + options.getKey() + ", " + select + " FROM " + options.getTable()
+                    + createCondition(chunk);
+            final Map<String, Long> hashes = new HashMap<>();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                bindBoundaries(statement, chunk);
+                try (ResultSet rs = statement.executeQuery()) {
+                    final int columnCount = rs.getMetaData().getColumnCount();
+                    while (rs.next()) {
+                        final String key = normalize(rs.getObject(1));
+                        hashes.put(key, rowHash != null ? rs.getLong(2) : hash(rs, columnCount, digest));
+                    }
+                }
+            }
+            return hashes;
+        }
+
+        private long hash(ResultSet rs, int columnCount, MessageDigest digest) throws SQLException {
+            final StringBuilder row = new StringBuilder();
+            for (int i = 2; i <= columnCount; i++) {
+                final String value = normalize(rs.getObject(i));
+                if (value == null) {
+                    row.append(NULL_VALUE);
+                } else {
+                    row.append(value);
+                }
+                row.append(VALUE_SEPARATOR);
+            }
+            final byte[] hash = digest.digest(row.toString().getBytes(StandardCharsets.UTF_8));
+            long value = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                value = (value << 8) | (hash[i] & 0xFF);
+            }
+            return value;
+        }
+    }
+
+    private static final class Checksum {
+
+        private final long count;
+        private final BigDecimal sum;
+
+        private Checksum(long count, BigDecimal sum) {
+            this.count = count;
+            this.sum = sum;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Checksum)) {
+                return false;
+            }
+            final Checksum other = (Checksum) o;
+            return count == other.count && (sum == null ? other.sum == null
+                    : other.sum != null && sum.compareTo(other.sum) == 0);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(count, sum == null ? null : sum.stripTrailingZeros());
+        }
+    }
+
+    private enum DifferenceType {
+
+        ONLY_IN_SOURCE("Only in source"),
+        ONLY_IN_TARGET("Only in target"),
+        DIFFERENT("Different");
+
+        private final String label;
+
+        DifferenceType(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private static final class Difference {
+
+        private final DifferenceType type;
+        private final String key;
+
+        private Difference(DifferenceType type, String key) {
+            this.type = type;
+            this.key = key;
+        }
+    }
+}
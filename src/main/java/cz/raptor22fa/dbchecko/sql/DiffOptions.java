@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Contains options of a comparison of a table in two databases.
+ *
+ * @author Roman Srom
+ */
+public class DiffOptions {
+
+    public static final long DEFAULT_CHUNK_SIZE = 10000;
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final int DEFAULT_MAX_DIFFERENCES = 1000;
+
+    private String table;
+    private String key;
+    private List<String> columns = Collections.emptyList();
+    private long chunkSize = DEFAULT_CHUNK_SIZE;
+    private PartitionMethod chunkMethod = PartitionMethod.MINMAX;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int maxDifferences = DEFAULT_MAX_DIFFERENCES;
+
+    public String getTable() {
+        return table;
+    }
+
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    /**
+     * Returns column which identifies rows of the table and whose value range is split into chunks.
+     *
+     * @return key column
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Returns compared columns. If it is empty, all columns of the table in the source database are compared.
+     *
+     * @return compared columns
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<String> columns) {
+        this.columns = new ArrayList<>(columns);
+    }
+
+    /**
+     * Returns size of one chunk. It is count of key values for {@link PartitionMethod#MINMAX} and count of rows for
+     * {@link PartitionMethod#NTILE}.
+     *
+     * @return chunk size
+     */
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(long chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be greater than 0");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public PartitionMethod getChunkMethod() {
+        return chunkMethod;
+    }
+
+    public void setChunkMethod(PartitionMethod chunkMethod) {
+        this.chunkMethod = chunkMethod;
+    }
+
+    /**
+     * Returns count of chunks compared at once, every one of them on its own connection to each database.
+     *
+     * @return parallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater than 0");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns count of different rows whose keys are printed, all of them are counted.
+     *
+     * @return maximal count of printed differences
+     */
+    public int getMaxDifferences() {
+        return maxDifferences;
+    }
+
+    public void setMaxDifferences(int maxDifferences) {
+        if (maxDifferences < 0) {
+            throw new IllegalArgumentException("Max differences must not be negative");
+        }
+        this.maxDifferences = maxDifferences;
+    }
+}
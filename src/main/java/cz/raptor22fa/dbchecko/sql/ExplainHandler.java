@@ -0,0 +1,277 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import cz.raptor22fa.dbchecko.db.Dialect;
+import cz.raptor22fa.dbchecko.db.StatementCache;
+import cz.raptor22fa.dbchecko.exception.DbCheckoException;
+import cz.raptor22fa.dbchecko.output.ResultWriter;
+import org.apache.log4j.LogMF;
+import org.apache.log4j.Logger;
+
+/**
+ * Explains a select by the plan command of the database. The plan is written as the output of the select and its
+ * summary with top-level timings, estimated and actual rows and the most expensive nodes is printed after it.
+ * <ul>
+ * <li>PostgreSQL - {@code EXPLAIN (FORMAT JSON)}, {@code EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON)}</li>
+ * <li>SQL Server - showplan XML of {@code SET SHOWPLAN_XML ON}, {@code SET STATISTICS XML ON}</li>
+ * <li>HSQLDB - {@code EXPLAIN PLAN FOR}, the select is executed by the client to measure its rows and time</li>
+ * </ul>
+ *
+ * @author Roman Srom
+ */
+public class ExplainHandler extends SelectHandler {
+
+    private static final Logger LOG = Logger.getLogger(ExplainHandler.class);
+
+    private final Dialect dialect;
+    private final PrintStream output;
+    private QueryPlan plan;
+
+    /**
+     * Creates the handler.
+     *
+     * @param connection connection the select is explained on
+     * @param dialect dialect of the database
+     * @param query select sql
+     * @param output stream the plan is printed to if there is no output file and the summary is printed to
+     * @param options options with the explain mode set
+     */
+    public ExplainHandler(Connection connection, Dialect dialect, String query, PrintStream output,
+            SelectOptions options) {
+        super(connection, query, output, options);
+        if (options.getExplain() == null) {
+            throw new IllegalArgumentException("Explain mode is not set");
+        }
+        if (options.isPartitioned() || options.isPaged()) {
+            throw new IllegalArgumentException("Partitioned or paged select can't be explained");
+        }
+        if (dialect == Dialect.GENERIC) {
+            throw new IllegalArgumentException("Explain supports only PostgreSQL, SQL Server and HSQLDB");
+        }
+        this.dialect = dialect;
+        this.output = output;
+    }
+
+    @Override
+    public void execute() {
+        super.execute();
+        plan.printSummary(output);
+        output.flush();
+    }
+
+    /**
+     * Returns the plan of the select after it has been explained.
+     *
+     * @return plan or {@code null}
+     */
+    public QueryPlan getPlan() {
+        return plan;
+    }
+
+    @Override
+    protected void write(WritableByteChannel channel, Charset charset, int bufferSize)
+            throws SQLException, IOException {
+        final long startTime = System.nanoTime();
+        final NamedParameters parameters = NamedParameters.parse(query, options.getParameters());
+        final boolean analyze = options.getExplain() == ExplainMode.ANALYZE;
+        LogMF.debug(LOG, "Explaining select on {0}, analyze: {1}", dialect, analyze);
+        final PlanRecorder recorder = new PlanRecorder(createWriter(channel, charset, bufferSize));
+        try (StatementCache statements = StatementCache.of(connection)) {
+            try {
+                switch (dialect) {
+                    case POSTGRESQL:
+                        writePlan(statements, parameters, (analyze ? "EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON) "
+                                : "EXPLAIN (FORMAT JSON) ") + parameters.getSql(), recorder, startTime);
+                        plan = QueryPlan.parsePostgres(recorder.getText());
+                        break;
+                    case SQLSERVER:
+                        writeShowplan(statements, parameters, analyze, recorder, startTime);
+                        plan = QueryPlan.parseShowplan(recorder.getText());
+                        break;
+                    default:
+                        writePlan(statements, parameters, "EXPLAIN PLAN FOR " + parameters.getSql(), recorder,
+                                startTime);
+                        plan = QueryPlan.parseHsqldb(recorder.lines);
+                        if (analyze) {
+                            measure(statements, parameters);
+                        }
+                        break;
+                }
+            } catch (IllegalArgumentException e) {
+                throw new DbCheckoException("Plan of the select can't be parsed", e);
+            } finally {
+                recorder.close();
+            }
+        }
+    }
+
+    private void writePlan(StatementCache statements, NamedParameters parameters, String sql, PlanRecorder recorder,
+            long startTime) throws SQLException, IOException {
+        final PreparedStatement statement = statements.prepare(sql);
+        // HSQLDB plans the sql without values of its parameters
+        if (dialect != Dialect.HSQLDB) {
+            parameters.bind(statement, statements);
+        }
+        try (StatementCanceller canceller = new StatementCanceller(statement, options.getTimeout())) {
+            try (ResultSet rs = statement.executeQuery()) {
+                recorder.writeHeader(rs.getMetaData());
+                writeRows(rs, recorder, startTime, "Plan rows count");
+            } catch (SQLException e) {
+                throw cancelled(canceller, e);
+            }
+        }
+    }
+
+    /**
+     * Writes showplan XML of SQL Server. With statistics the select is executed and the plan is the last result set,
+     * rows of the select are skipped.
+     */
+    private void writeShowplan(StatementCache statements, NamedParameters parameters, boolean analyze,
+            PlanRecorder recorder, long startTime) throws SQLException, IOException {
+        final String setting = analyze ? "STATISTICS XML" : "SHOWPLAN_XML";
+        try (Statement settings = connection.createStatement()) {
+            // the setting has to be the only statement of its batch
+            settings.execute("SET " + setting + " ON");
+            // not cached, the statement is prepared while the setting is on
+            try (PreparedStatement statement = connection.prepareStatement(parameters.getSql());
+                    StatementCanceller canceller = new StatementCanceller(statement, options.getTimeout())) {
+                parameters.bind(statement, statements);
+                try {
+                    boolean resultSet = statement.execute();
+                    while (resultSet || statement.getUpdateCount() != -1) {
+                        if (resultSet) {
+                            try (ResultSet rs = statement.getResultSet()) {
+                                if (isShowplan(rs.getMetaData())) {
+                                    recorder.writeHeader(rs.getMetaData());
+                                    writeRows(rs, recorder, startTime, "Plan rows count");
+                                } else {
+                                    skipRows(rs);
+                                }
+                            }
+                        }
+                        resultSet = statement.getMoreResults();
+                    }
+                } catch (SQLException e) {
+                    throw cancelled(canceller, e);
+                }
+            } finally {
+                settings.execute("SET " + setting + " OFF");
+            }
+        }
+    }
+
+    private static boolean isShowplan(ResultSetMetaData metaData) throws SQLException {
+        return metaData.getColumnCount() == 1 && metaData.getColumnLabel(1).contains("Showplan");
+    }
+
+    private static long skipRows(ResultSet rs) throws SQLException {
+        long rowCount = 0;
+        while (rs.next()) {
+            rowCount++;
+        }
+        return rowCount;
+    }
+
+    /**
+     * Executes the select and fetches its rows for a database whose plan has no actual rows and timings.
+     */
+    private void measure(StatementCache statements, NamedParameters parameters) throws SQLException {
+        final long startTime = System.nanoTime();
+        final PreparedStatement statement = parameters.prepare(statements);
+        statement.setFetchSize(options.getFetchSize());
+        statement.setMaxRows(options.getMaxRows());
+        try (StatementCanceller canceller = new StatementCanceller(statement, options.getTimeout())) {
+            try (ResultSet rs = statement.executeQuery()) {
+                final long rowCount = skipRows(rs);
+                plan.setExecution((System.nanoTime() - startTime) / 1_000_000.0, rowCount);
+            } catch (SQLException e) {
+                throw cancelled(canceller, e);
+            }
+        }
+    }
+
+    /**
+     * Writer which keeps the first column of the plan rows, so that the plan can be parsed.
+     */
+    private static final class PlanRecorder implements ResultWriter {
+
+        private final ResultWriter writer;
+        private final List<String> lines = new ArrayList<>();
+        private boolean header;
+
+        private PlanRecorder(ResultWriter writer) {
+            this.writer = writer;
+        }
+
+        private String getText() {
+            return String.join("\n", lines);
+        }
+
+        @Override
+        public void prepare(ResultSetMetaData metaData) throws SQLException {
+            writer.prepare(metaData);
+        }
+
+        @Override
+        public void writeHeader(ResultSetMetaData metaData) throws SQLException, IOException {
+            // a plan of many result sets is written with one header
+            if (!header) {
+                writer.writeHeader(metaData);
+                header = true;
+            }
+        }
+
+        @Override
+        public void writeRow(ResultSet rs) throws SQLException, IOException {
+            lines.add(rs.getString(1));
+            writer.writeRow(rs);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // a writer of a plan command which failed has nothing to write
+            if (header) {
+                writer.close();
+            }
+        }
+    }
+}
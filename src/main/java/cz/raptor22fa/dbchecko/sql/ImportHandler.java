@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import cz.raptor22fa.dbchecko.db.Dialect;
+import cz.raptor22fa.dbchecko.exception.DbCheckoException;
+import cz.raptor22fa.dbchecko.input.CsvReader;
+import cz.raptor22fa.dbchecko.input.PrefetchInputStream;
+import cz.raptor22fa.dbchecko.input.PrefetchRecordReader;
+import org.apache.log4j.LogMF;
+import org.apache.log4j.Logger;
+
+/**
+ * Imports a csv file into a table and prints count of imported rows. PostgreSQL gets the file as it is by
+ * {@code COPY ... FROM STDIN}, other databases get it by batches of multi row inserts. The file is read on a separate
+ * thread and only a few chunks of it are held in memory.
+ *
+ * @author Roman Srom
+ */
+public class ImportHandler {
+
+    private static final Logger LOG = Logger.getLogger(ImportHandler.class);
+
+    private final Connection connection;
+    private final Dialect dialect;
+    private final ImportOptions options;
+
+    public ImportHandler(Connection connection, Dialect dialect, ImportOptions options) {
+        this.connection = connection;
+        this.dialect = dialect;
+        this.options = options;
+    }
+
+    public void execute() {
+        final long startTime = System.nanoTime();
+        final long importedRowsCount;
+        try {
+            if (dialect == Dialect.POSTGRESQL) {
+                importedRowsCount = copy();
+            } else {
+                importedRowsCount = insert();
+            }
+        } catch (SQLException | IOException e) {
+            throw new DbCheckoException("Import command failed", e);
+        }
+        final long totalTime = System.nanoTime() - startTime;
+
+        System.out.println("Imported rows count: " + importedRowsCount);
+        final double seconds = totalTime / (double) TimeUnit.SECONDS.toNanos(1);
+        final long fileSize = options.getFile().length();
+        LogMF.info(LOG, "Imported rows: {0}, total time: {1} ms, {2} rows/s, {3} MB/s", new Object[] {
+                importedRowsCount, TimeUnit.NANOSECONDS.toMillis(totalTime),
+                Math.round(importedRowsCount / seconds), String.format("%.1f", fileSize / seconds / (1024 * 1024))});
+    }
+
+    private long copy() throws SQLException, IOException {
+        final String sql = toCopySql();
+        LogMF.info(LOG, "Copying {0} by {1}", options.getFile(), sql);
+        try (InputStream input = new PrefetchInputStream(Files.newInputStream(options.getFile().toPath()))) {
+            return PgCopyImporter.copyIn(connection, sql, input);
+        }
+    }
+
+    private String toCopySql() {
+        final StringBuilder sql = new StringBuilder("COPY ").append(options.getTable());
+        if (options.hasColumns()) {
+            sql.append(" (").append(String.join(", ", options.getColumns())).append(')');
+        }
+        sql.append(" FROM STDIN WITH (FORMAT csv, DELIMITER '");
+        if (options.getDelimiter() == '\'') {
+            sql.append('\'');
+        }
+        sql.append(options.getDelimiter()).append("', HEADER ").append(options.isHeader()).append(')');
+        return sql.toString();
+    }
+
+    private long insert() throws SQLException, IOException {
+        final List<String> columns = options.hasColumns() ? options.getColumns() : getTableColumns();
+        final BatchOptions batchOptions = new BatchOptions();
+        batchOptions.setTemplate(toInsertSql(columns));
+        batchOptions.setBatchSize(options.getBatchSize());
+        batchOptions.setCommitInterval(options.getCommitInterval());
+        batchOptions.setRewriteBatchedInserts(true);
+        LogMF.info(LOG, "Inserting {0} by {1}", options.getFile(), batchOptions.getTemplate());
+
+        final CsvReader reader = new CsvReader(
+                Files.newBufferedReader(options.getFile().toPath(), StandardCharsets.UTF_8), options.getDelimiter());
+        try {
+            if (options.isHeader()) {
+                reader.next();
+            }
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+        final BatchUpdateHandler batchHandler = new BatchUpdateHandler(connection, batchOptions, true);
+        return batchHandler.execute(new PrefetchRecordReader(reader, options.getBatchSize()));
+    }
+
+    private List<String> getTableColumns() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT * FROM " + options.getTable() + " WHERE 1 = 0")) {
+            final ResultSetMetaData metaData = rs.getMetaData();
+            final List<String> columns = new ArrayList<>(metaData.getColumnCount());
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                columns.add(metaData.getColumnName(i));
+            }
+            return columns;
+        }
+    }
+
+    private String toInsertSql(List<String> columns) {
+        return "INSERT INTO " + options.getTable() + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+    }
+}
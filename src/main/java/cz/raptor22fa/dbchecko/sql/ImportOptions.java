@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.io.File;
+import java.util.List;
+import cz.raptor22fa.dbchecko.input.CsvReader;
+
+/**
+ * Contains options of an import of a csv file into a table.
+ *
+ * @author Roman Srom
+ */
+public class ImportOptions {
+
+    private File file;
+    private String table;
+    private List<String> columns;
+    private boolean header;
+    private char delimiter = CsvReader.DEFAULT_DELIMITER;
+    private int batchSize = BatchOptions.DEFAULT_BATCH_SIZE;
+    private int commitInterval = BatchOptions.COMMIT_AT_END;
+
+    /**
+     * Returns csv file in UTF-8. An unquoted empty field is imported as null and {@code ""} as an empty string.
+     *
+     * @return csv file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    public void setFile(File file) {
+        this.file = file;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    /**
+     * Returns columns the fields of a record are imported into. If they are not set, all columns of the table in
+     * their order are used.
+     *
+     * @return columns of the table
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<String> columns) {
+        this.columns = columns;
+    }
+
+    public boolean hasColumns() {
+        return columns != null && !columns.isEmpty();
+    }
+
+    /**
+     * Returns whether the first record of the file is a header that is skipped.
+     *
+     * @return {@code true} if the file has a header
+     */
+    public boolean isHeader() {
+        return header;
+    }
+
+    public void setHeader(boolean header) {
+        this.header = header;
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    public void setDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Returns count of rows inserted in one round trip if the database doesn't support {@code COPY}.
+     *
+     * @return batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be greater than 0");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns count of rows after which the transaction is committed if the database doesn't support {@code COPY}.
+     * {@code COPY} always imports the whole file in one transaction.
+     *
+     * @return commit interval
+     */
+    public int getCommitInterval() {
+        return commitInterval;
+    }
+
+    public void setCommitInterval(int commitInterval) {
+        if (commitInterval < 0) {
+            throw new IllegalArgumentException("Commit interval must not be negative");
+        }
+        this.commitInterval = commitInterval;
+    }
+}
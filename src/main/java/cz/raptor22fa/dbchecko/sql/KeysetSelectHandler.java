@@ -0,0 +1,338 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Properties;
+import cz.raptor22fa.dbchecko.db.Dialect;
+import cz.raptor22fa.dbchecko.db.StatementCache;
+import cz.raptor22fa.dbchecko.exception.DbCheckoException;
+import cz.raptor22fa.dbchecko.output.Compression;
+import cz.raptor22fa.dbchecko.output.OutputFormat;
+import cz.raptor22fa.dbchecko.output.ResultWriter;
+import org.apache.log4j.LogMF;
+import org.apache.log4j.Logger;
+
+/**
+ * Runs a select sql command page by page using keyset pagination. Every page selects the rows following the last key
+ * of the previous page ordered by the key, so that it is a short index range scan and a short transaction, which
+ * doesn't hold back vacuum of PostgreSQL like one long running select does.
+ * <p>
+ * If a checkpoint file is set, the last key and the size of the output file are written to it after every page. A
+ * resumed select truncates the output file to the size of the checkpoint (dropping rows of an unfinished page) and
+ * continues after the key of the checkpoint. The checkpoint file is deleted when the select finishes.
+ *
+ * @author Roman Srom
+ */
+public class KeysetSelectHandler extends SelectHandler {
+
+    private static final Logger LOG = Logger.getLogger(KeysetSelectHandler.class);
+
+    private static final String SUBQUERY_ALIAS = "k_";
+
+    private final String firstPageSql;
+    private final String nextPageSql;
+    private Checkpoint resumed;
+
+    /**
+     * Creates the handler.
+     *
+     * @param connection connection the pages are selected on
+     * @param dialect dialect of the database, it limits rows of a page in sql
+     * @param query select sql
+     * @param output stream the output is printed to if there is no output file
+     * @param options options with the page key set
+     */
+    public KeysetSelectHandler(Connection connection, Dialect dialect, String query, PrintStream output,
+            SelectOptions options) {
+        super(connection, query, output, options);
+        if (options.isPartitioned()) {
+            throw new IllegalArgumentException("Select can't be both partitioned and paged");
+        }
+        if (!options.getParameters().isEmpty()) {
+            throw new IllegalArgumentException("Paged select doesn't support named parameters");
+        }
+        if (options.getMaxRows() > 0) {
+            throw new IllegalArgumentException("Paged select doesn't support a row limit");
+        }
+        if (options.getCheckpointFile() != null
+                && (options.getOutputFile() == null || options.getFormat() == OutputFormat.ARROW)) {
+            throw new IllegalArgumentException("Checkpoint needs an output file of a text format");
+        }
+        if (options.getCheckpointFile() != null
+                && (options.isSharded() || options.getCompression() != Compression.NONE)) {
+            throw new IllegalArgumentException("Checkpoint doesn't support compression and shards");
+        }
+        if (options.isResume() && options.getCheckpointFile() == null) {
+            throw new IllegalArgumentException("Resume needs a checkpoint file");
+        }
+        final String key = options.getPageKey();
+        final String subquery = "SELECT * FROM (" + toSubquery(query) + ") " + SUBQUERY_ALIAS;
+        final String orderBy = " ORDER BY " + key + dialect.getLimitClause(options.getPageSize());
+        this.firstPageSql = subquery + orderBy;
+        this.nextPageSql = subquery + " WHERE " + key + " > ?" + orderBy;
+    }
+
+    @Override
+    public void execute() {
+        resumed = options.isResume() ? Checkpoint.read(options.getCheckpointFile()) : null;
+        if (resumed == null) {
+            super.execute();
+            return;
+        }
+        if (!query.equals(resumed.query) || !options.getPageKey().equals(resumed.key)) {
+            throw new DbCheckoException("Checkpoint " + options.getCheckpointFile()
+                    + " was written by another select or key");
+        }
+        LogMF.info(LOG, "Resuming after {0} = {1}, rows already selected: {2}",
+                new Object[] {resumed.key, resumed.lastKey, resumed.rows});
+        try (FileChannel channel = FileChannel.open(options.getOutputFile().toPath(), StandardOpenOption.WRITE)) {
+            // rows of the page which was being written when the select failed are written again
+            channel.truncate(resumed.outputSize);
+            channel.position(resumed.outputSize);
+            write(channel, StandardCharsets.UTF_8, FILE_BUFFER_SIZE);
+        } catch (SQLException e) {
+            throw new DbCheckoException("Select command failed", e);
+        } catch (IOException e) {
+            throw new DbCheckoException("Writing output of select command failed", e);
+        }
+    }
+
+    @Override
+    protected void write(WritableByteChannel channel, Charset charset, int bufferSize)
+            throws SQLException, IOException {
+        final long startTime = System.nanoTime();
+        final ResultWriter writer = createWriter(channel, charset, bufferSize);
+        final KeyTracker keyTracker = new KeyTracker(writer, options.getPageKey());
+        Checkpoint checkpoint = resumed;
+        long rowCount = 0;
+        int page = 0;
+        try (StatementCache statements = StatementCache.of(connection)) {
+            boolean lastPage = false;
+            while (!lastPage) {
+                final long pageStartTime = System.nanoTime();
+                final boolean autoCommitSwitched = beginStreaming(connection);
+                boolean succeeded = false;
+                try {
+                    final PreparedStatement statement =
+                            statements.prepare(checkpoint == null ? firstPageSql : nextPageSql);
+                    statement.setFetchSize(options.getFetchSize());
+                    statement.setMaxRows(options.getPageSize());
+                    if (checkpoint != null) {
+                        SqlParameters.bind(statement, 1, checkpoint.lastKey, checkpoint.keyType);
+                    }
+                    try (StatementCanceller canceller = new StatementCanceller(statement, options.getTimeout())) {
+                        try (ResultSet rs = statement.executeQuery()) {
+                            if (page == 0) {
+                                keyTracker.prepare(rs.getMetaData(), resumed == null);
+                            }
+                            final long pageRowCount = writeRows(rs, keyTracker, pageStartTime,
+                                    "Page " + (page + 1) + " rows count");
+                            lastPage = pageRowCount < options.getPageSize();
+                            rowCount += pageRowCount;
+                            if (pageRowCount > 0) {
+                                checkpoint = new Checkpoint(query, options.getPageKey(), keyTracker.keyType,
+                                        keyTracker.lastKey, (resumed != null ? resumed.rows : 0) + rowCount,
+                                        options.getOutputFile() != null ? options.getOutputFile().length() : 0);
+                                if (options.getCheckpointFile() != null) {
+                                    checkpoint.write(options.getCheckpointFile());
+                                }
+                            }
+                        } catch (SQLException e) {
+                            throw cancelled(canceller, e);
+                        }
+                    }
+                    succeeded = true;
+                } finally {
+                    endStreaming(connection, autoCommitSwitched, succeeded);
+                }
+                page++;
+            }
+        } finally {
+            writer.close();
+        }
+        if (options.getCheckpointFile() != null) {
+            Files.deleteIfExists(options.getCheckpointFile().toPath());
+        }
+        LogMF.info(LOG, "Selected rows count: {0}, pages: {1}, total time: {2} ms",
+                rowCount, page, toMillis(System.nanoTime() - startTime));
+    }
+
+    /**
+     * Writer which remembers the key of the last written row.
+     */
+    private static final class KeyTracker implements ResultWriter {
+
+        private final ResultWriter writer;
+        private final String key;
+        private int keyIndex;
+        private int keyType;
+        private String lastKey;
+
+        private KeyTracker(ResultWriter writer, String key) {
+            this.writer = writer;
+            this.key = key;
+        }
+
+        private void prepare(ResultSetMetaData metaData, boolean header) throws SQLException, IOException {
+            if (header) {
+                writeHeader(metaData);
+            } else {
+                prepare(metaData);
+            }
+        }
+
+        @Override
+        public void prepare(ResultSetMetaData metaData) throws SQLException {
+            writer.prepare(metaData);
+            findKey(metaData);
+        }
+
+        @Override
+        public void writeHeader(ResultSetMetaData metaData) throws SQLException, IOException {
+            writer.writeHeader(metaData);
+            findKey(metaData);
+        }
+
+        private void findKey(ResultSetMetaData metaData) throws SQLException {
+            final String name = key.replace("\"", "");
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if (metaData.getColumnLabel(i).equalsIgnoreCase(name)) {
+                    keyIndex = i;
+                    keyType = metaData.getColumnType(i);
+                    return;
+                }
+            }
+            throw new DbCheckoException("Page key " + key + " is not a column of the select");
+        }
+
+        @Override
+        public void writeRow(ResultSet rs) throws SQLException, IOException {
+            final String value = rs.getString(keyIndex);
+            if (value == null) {
+                throw new DbCheckoException("Page key " + key + " must not be null");
+            }
+            writer.writeRow(rs);
+            lastKey = value;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * Position of a paged select: the last selected key and the size of the output with the rows up to the key.
+     */
+    static final class Checkpoint {
+
+        private final String query;
+        private final String key;
+        private final int keyType;
+        private final String lastKey;
+        private final long rows;
+        private final long outputSize;
+
+        Checkpoint(String query, String key, int keyType, String lastKey, long rows, long outputSize) {
+            this.query = query;
+            this.key = key;
+            this.keyType = keyType;
+            this.lastKey = lastKey;
+            this.rows = rows;
+            this.outputSize = outputSize;
+        }
+
+        /**
+         * Reads the checkpoint.
+         *
+         * @param file checkpoint file
+         * @return checkpoint or {@code null} if the file doesn't exist
+         */
+        static Checkpoint read(File file) {
+            if (!file.exists()) {
+                return null;
+            }
+            final Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                properties.load(in);
+                return new Checkpoint(properties.getProperty("query"), properties.getProperty("key"),
+                        Integer.parseInt(properties.getProperty("keyType")), properties.getProperty("lastKey"),
+                        Long.parseLong(properties.getProperty("rows")),
+                        Long.parseLong(properties.getProperty("outputSize")));
+            } catch (IOException | RuntimeException e) {
+                throw new DbCheckoException("Invalid checkpoint file " + file, e);
+            }
+        }
+
+        /**
+         * Writes the checkpoint. The file is replaced atomically, so that a failure never leaves it half written.
+         *
+         * @param file checkpoint file
+         * @throws IOException if writing fails
+         */
+        void write(File file) throws IOException {
+            final Properties properties = new Properties();
+            properties.setProperty("query", query);
+            properties.setProperty("key", key);
+            properties.setProperty("keyType", String.valueOf(keyType));
+            properties.setProperty("lastKey", lastKey);
+            properties.setProperty("rows", String.valueOf(rows));
+            properties.setProperty("outputSize", String.valueOf(outputSize));
+            final Path target = file.toPath().toAbsolutePath();
+            final Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "Checkpoint of a paged select");
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+}
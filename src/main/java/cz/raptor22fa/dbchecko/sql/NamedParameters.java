@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import cz.raptor22fa.dbchecko.db.StatementCache;
+
+/**
+ * Sql with named parameters ({@code :name}) rewritten to {@code ?} placeholders of a prepared statement, so that the
+ * sql text is the same for all values and the database can reuse its plan. Only names of the given parameters are
+ * rewritten, parameters inside of string literals, quoted identifiers, PostgreSQL dollar quoted strings and comments
+ * and PostgreSQL casts ({@code ::type}) are left untouched.
+ *
+ * @author Roman Srom
+ */
+public final class NamedParameters {
+
+    private final String sql;
+    private final List<QueryParameter> parameters;
+
+    private NamedParameters(String sql, List<QueryParameter> parameters) {
+        this.sql = sql;
+        this.parameters = parameters;
+    }
+
+    /**
+     * Rewrites the given parameters of the sql to {@code ?} placeholders.
+     *
+     * @param sql sql with named parameters
+     * @param parameters parameters, a later parameter of the same name wins
+     * @return sql with placeholders and parameters in order of the placeholders
+     * @throws IllegalArgumentException if the sql contains both {@code ?} placeholders and named parameters
+     */
+    public static NamedParameters parse(String sql, List<QueryParameter> parameters) {
+        if (parameters.isEmpty()) {
+            return new NamedParameters(sql, Collections.emptyList());
+        }
+        final Map<String, QueryParameter> byName = new HashMap<>();
+        for (QueryParameter parameter : parameters) {
+            byName.put(parameter.getName(), parameter);
+        }
+
+        final StringBuilder rewritten = new StringBuilder(sql.length());
+        final List<QueryParameter> placeholders = new ArrayList<>();
+        boolean positional = false;
+        final int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            final char c = sql.charAt(i);
+            final char next = i + 1 < length ? sql.charAt(i + 1) : 0;
+            int end;
+            if (c == '\'') {
+                final boolean escapes = i > 0 && (sql.charAt(i - 1) == 'E' || sql.charAt(i - 1) == 'e')
+                        && (i < 2 || !isIdentifierPart(sql.charAt(i - 2)));
+                end = skipQuoted(sql, i, '\'', escapes);
+            } else if (c == '"') {
+                end = skipQuoted(sql, i, '"', false);
+            } else if (c == '-' && next == '-') {
+                end = sql.indexOf('\n', i);
+                end = end < 0 ? length : end + 1;
+            } else if (c == '/' && next == '*') {
+                end = skipBlockComment(sql, i);
+            } else if (c == '$' && (i == 0 || !isIdentifierPart(sql.charAt(i - 1)))) {
+                end = skipDollarQuoted(sql, i);
+            } else if (c == ':' && next == ':') {
+                end = i + 2;
+            } else if (c == ':' && Character.isJavaIdentifierStart(next)
+                    && (i == 0 || !isIdentifierPart(sql.charAt(i - 1)))) {
+                end = i + 1;
+                while (end < length && isIdentifierPart(sql.charAt(end))) {
+                    end++;
+                }
+                final QueryParameter parameter = byName.get(sql.substring(i + 1, end));
+                if (parameter != null) {
+                    rewritten.append('?');
+                    placeholders.add(parameter);
+                    i = end;
+                    continue;
+                }
+            } else {
+                positional |= c == '?';
+                end = i + 1;
+            }
+            rewritten.append(sql, i, end);
+            i = end;
+        }
+        if (positional && !placeholders.isEmpty()) {
+            throw new IllegalArgumentException("Sql must not contain both ? placeholders and named parameters");
+        }
+        return new NamedParameters(rewritten.toString(), placeholders);
+    }
+
+    private static int skipQuoted(String sql, int start, char quote, boolean escapes) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            final char c = sql.charAt(i);
+            if (escapes && c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return sql.length();
+    }
+
+    private static int skipBlockComment(String sql, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < sql.length() - 1) {
+            if (sql.charAt(i) == '/' && sql.charAt(i + 1) == '*') {
+                depth++;
+                i += 2;
+            } else if (sql.charAt(i) == '*' && sql.charAt(i + 1) == '/') {
+                i += 2;
+                if (--depth == 0) {
+                    return i;
+                }
+            } else {
+                i++;
+            }
+        }
+        return sql.length();
+    }
+
+    /**
+     * Skips dollar quoted string, {@code $} which doesn't start a tag (e.g. {@code $1}) is skipped alone.
+     */
+    private static int skipDollarQuoted(String sql, int start) {
+        int tagEnd = start + 1;
+        while (tagEnd < sql.length() && sql.charAt(tagEnd) != '$') {
+            final char c = sql.charAt(tagEnd);
+            if (!(Character.isLetter(c) || c == '_' || (tagEnd > start + 1 && Character.isDigit(c)))) {
+                return start + 1;
+            }
+            tagEnd++;
+        }
+        if (tagEnd == sql.length()) {
+            return start + 1;
+        }
+        final String tag = sql.substring(start, tagEnd + 1);
+        final int close = sql.indexOf(tag, tagEnd + 1);
+        return close < 0 ? sql.length() : close + tag.length();
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    /**
+     * Returns sql with {@code ?} placeholders instead of the named parameters.
+     *
+     * @return sql
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    public boolean isEmpty() {
+        return parameters.isEmpty();
+    }
+
+    /**
+     * Prepares the sql by the cache of its connection and binds the parameters. Types of untyped parameters are read
+     * from the parameter metadata only once per cached statement.
+     *
+     * @param statements statement cache of the connection
+     * @return prepared statement owned by the cache
+     * @throws SQLException if preparing or binding fails
+     */
+    public PreparedStatement prepare(StatementCache statements) throws SQLException {
+        final PreparedStatement statement = statements.prepare(sql);
+        bind(statement, statements);
+        return statement;
+    }
+
+    /**
+     * Binds the parameters from the first placeholder.
+     *
+     * @param statement statement prepared from {@link #getSql()}
+     * @param statements statement cache the statement was prepared by
+     * @throws SQLException if binding fails
+     */
+    public void bind(PreparedStatement statement, StatementCache statements) throws SQLException {
+        int[] types = null;
+        for (int i = 0; i < parameters.size(); i++) {
+            final QueryParameter parameter = parameters.get(i);
+            int sqlType = parameter.getSqlType();
+            if (!parameter.isTyped()) {
+                if (types == null) {
+                    types = statements.getParameterTypes(sql);
+                }
+                sqlType = types != null && i < types.length ? types[i] : Types.VARCHAR;
+            }
+            SqlParameters.bind(statement, i + 1, parameter.getValue(), sqlType);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import cz.raptor22fa.dbchecko.output.Compression;
+import cz.raptor22fa.dbchecko.output.ParallelGzipChannel;
+
+/**
+ * Output file of a select, optionally compressed.
+ *
+ * @author Roman Srom
+ */
+final class OutputFile implements Closeable {
+
+    private final File file;
+    private final FileChannel fileChannel;
+    private final ParallelGzipChannel gzipChannel;
+
+    private OutputFile(File file, FileChannel fileChannel, ParallelGzipChannel gzipChannel) {
+        this.file = file;
+        this.fileChannel = fileChannel;
+        this.gzipChannel = gzipChannel;
+    }
+
+    /**
+     * Creates or truncates the file.
+     *
+     * @param file path to the file
+     * @param options options with the compression of the file
+     * @return opened file
+     * @throws IOException if the file can't be opened
+     */
+    static OutputFile open(File file, SelectOptions options) throws IOException {
+        final FileChannel fileChannel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        if (options.getCompression() == Compression.GZIP) {
+            return new OutputFile(file, fileChannel,
+                    new ParallelGzipChannel(fileChannel, options.getCompressionThreads()));
+        }
+        return new OutputFile(file, fileChannel, null);
+    }
+
+    /**
+     * Returns path of the shard with the index. The index is inserted before the extensions of the file name, e.g.
+     * {@code users.csv.gz} becomes {@code users-00001.csv.gz}.
+     *
+     * @param file path to the output file
+     * @param index index of the shard starting from 1
+     * @return path to the shard
+     */
+    static File shardFile(File file, int index) {
+        final String name = file.getName();
+        final int dot = name.indexOf('.', 1);
+        final String suffix = String.format("-%05d", index);
+        final String shardName = dot < 0 ? name + suffix : name.substring(0, dot) + suffix + name.substring(dot);
+        return new File(file.getParentFile(), shardName);
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    WritableByteChannel getChannel() {
+        return gzipChannel != null ? gzipChannel : fileChannel;
+    }
+
+    /**
+     * Returns count of bytes written to the file before compression.
+     *
+     * @return size of the output
+     * @throws IOException if the size can't be read
+     */
+    long size() throws IOException {
+        return gzipChannel != null ? gzipChannel.getInputSize() : fileChannel.position();
+    }
+
+    /**
+     * Waits until all compressed output is written and closes the file.
+     *
+     * @throws IOException if compressing or writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (gzipChannel != null) {
+                gzipChannel.close();
+            }
+        } finally {
+            fileChannel.close();
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import cz.raptor22fa.dbchecko.exception.DbCheckoException;
+import cz.raptor22fa.dbchecko.output.ResultWriter;
+import cz.raptor22fa.dbchecko.output.SynchronizedChannel;
+import org.apache.log4j.LogMF;
+import org.apache.log4j.Logger;
+
+/**
+ * Runs a select sql command split into ranges of the partition column. Every range is selected on its own connection
+ * in parallel and rows of all ranges are written to one output.
+ *
+ * <p>Unordered output is written by all partitions to a shared channel as the rows are fetched. Ordered output adds
+ * {@code ORDER BY} of the partition column to every partition, partitions are written to temporary files and appended
+ * to the output in order of their ranges as soon as all previous partitions are appended.</p>
+ *
+ * @author Roman Srom
+ */
+public class PartitionedSelectHandler extends SelectHandler {
+
+    private static final Logger LOG = Logger.getLogger(PartitionedSelectHandler.class);
+
+    private static final String SUBQUERY_ALIAS = "p_";
+
+    private final List<Connection> connections;
+    private final String subquery;
+
+    /**
+     * Creates the handler.
+     *
+     * @param connections connections used by the partitions, their count is the maximal count of partitions
+     * @param query select sql
+     * @param output stream the output is printed to if there is no output file
+     * @param options options with the partition column set
+     */
+    public PartitionedSelectHandler(List<Connection> connections, String query, PrintStream output,
+            SelectOptions options) {
+        super(connections.get(0), query, output, options);
+        if (!options.getParameters().isEmpty()) {
+            throw new IllegalArgumentException("Partitioned select doesn't support named parameters");
+        }
+        if (options.getMaxRows() > 0) {
+            throw new IllegalArgumentException("Partitioned select doesn't support a row limit");
+        }
+        if (options.isSharded()) {
+            throw new IllegalArgumentException("Partitioned select doesn't support shards");
+        }
+        this.connections = connections;
+        this.subquery = "SELECT * FROM (" + toSubquery(query) + ") " + SUBQUERY_ALIAS;
+    }
+
+    @Override
+    protected void write(WritableByteChannel channel, Charset charset, int bufferSize)
+            throws SQLException, IOException {
+        final long startTime = System.nanoTime();
+        final List<Object> boundaries = findBoundaries();
+        final int partitionCount = boundaries.size() + 1;
+        LogMF.info(LOG, "Selecting {0} partitions by {1}, boundaries: {2}",
+                partitionCount, options.getPartitionColumn(), boundaries);
+
+        final ResultWriter writer = createWriter(channel, charset, bufferSize);
+        try {
+            try (Statement statement = connection.createStatement();
+                    ResultSet rs = statement.executeQuery(subquery + " WHERE 1 = 0")) {
+                writer.writeHeader(rs.getMetaData());
+                writer.flush();
+            }
+
+            final ExecutorService executor = Executors.newFixedThreadPool(partitionCount);
+            try {
+                final long rowCount = options.isOrdered()
+                        ? writeOrdered(executor, boundaries, channel, charset, bufferSize)
+                        : writeUnordered(executor, boundaries, channel, charset, bufferSize);
+                LogMF.info(LOG, "Selected rows count: {0}, total time: {1} ms",
+                        rowCount, toMillis(System.nanoTime() - startTime));
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private long writeUnordered(ExecutorService executor, List<Object> boundaries, WritableByteChannel channel,
+            Charset charset, int bufferSize) throws SQLException, IOException {
+        final SynchronizedChannel sharedChannel = new SynchronizedChannel(channel);
+        final List<Future<Long>> futures = new ArrayList<>();
+        for (int i = 0; i <= boundaries.size(); i++) {
+            final ResultWriter partitionWriter = createWriter(sharedChannel, charset, bufferSize);
+            futures.add(executor.submit(new Partition(i, boundaries, partitionWriter)));
+        }
+
+        long rowCount = 0;
+        for (Future<Long> future : futures) {
+            rowCount += getResult(future);
+        }
+        return rowCount;
+    }
+
+    private long writeOrdered(ExecutorService executor, List<Object> boundaries, WritableByteChannel channel,
+            Charset charset, int bufferSize) throws SQLException, IOException {
+        final File outputFile = options.getOutputFile();
+        final Path directory = outputFile != null ? outputFile.getAbsoluteFile().getParentFile().toPath() : null;
+        final List<Path> files = new ArrayList<>();
+        final List<FileChannel> fileChannels = new ArrayList<>();
+        try {
+            final List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i <= boundaries.size(); i++) {
+                final Path file = directory != null
+                        ? Files.createTempFile(directory, "dbchecko-partition-", ".tmp")
+                        : Files.createTempFile("dbchecko-partition-", ".tmp");
+                files.add(file);
+                final FileChannel fileChannel =
+                        FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                fileChannels.add(fileChannel);
+                final ResultWriter partitionWriter = createWriter(fileChannel, charset, bufferSize);
+                futures.add(executor.submit(new Partition(i, boundaries, partitionWriter)));
+            }
+
+            long rowCount = 0;
+            for (int i = 0; i < futures.size(); i++) {
+                rowCount += getResult(futures.get(i));
+                append(fileChannels.get(i), channel);
+            }
+            return rowCount;
+        } finally {
+            for (FileChannel fileChannel : fileChannels) {
+                fileChannel.close();
+            }
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static void append(FileChannel source, WritableByteChannel target) throws IOException {
+        final long size = source.size();
+        long position = 0;
+        while (position < size) {
+            position += source.transferTo(position, size - position, target);
+        }
+    }
+
+    private static long getResult(Future<Long> future) throws SQLException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DbCheckoException("Partitioned select was interrupted", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new DbCheckoException("Partition failed", cause);
+        }
+    }
+
+    /**
+     * Finds upper boundaries (inclusive) of all partitions but the last one.
+     */
+    private List<Object> findBoundaries() throws SQLException {
+        final List<Object> boundaries = options.getPartitionMethod() == PartitionMethod.NTILE
+                ? findNtileBoundaries()
+                : findMinMaxBoundaries();
+
+        // small ranges can produce duplicate boundaries, partitions between them would be empty
+        final List<Object> distinctBoundaries = new ArrayList<>();
+        for (Object boundary : boundaries) {
+            if (boundary != null && !distinctBoundaries.contains(boundary)) {
+                distinctBoundaries.add(boundary);
+            }
+        }
+        return distinctBoundaries;
+    }
+
+    private List<Object> findMinMaxBoundaries() throws SQLException {
+        final String column = options.getPartitionColumn();
+        final String sql = "SELECT MIN(" + column + "), MAX(" + column + ") FROM (" + toSubquery(query) + ") "
+                + SUBQUERY_ALIAS;
+        final List<Object> boundaries = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(sql)) {
+            if (!rs.next() || rs.getObject(1) == null) {
+                return boundaries;
+            }
+            final BigInteger min = toBigInteger(rs.getObject(1));
+            final BigInteger max = toBigInteger(rs.getObject(2));
+            final BigInteger range = max.subtract(min);
+            final BigInteger parallelism = BigInteger.valueOf(connections.size());
+            for (int i = 1; i < connections.size(); i++) {
+                final BigInteger boundary = min.add(range.multiply(BigInteger.valueOf(i)).divide(parallelism));
+                if (boundary.compareTo(max) < 0) {
+                    boundaries.add(boundary.bitLength() < Long.SIZE ? (Object) boundary.longValue()
+                            : new BigDecimal(boundary));
+                }
+            }
+        }
+        return boundaries;
+    }
+
+    private static BigInteger toBigInteger(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return BigInteger.valueOf(((Number) value).longValue());
+        } else if (value instanceof BigInteger) {
+            return (BigInteger) value;
+        } else if (value instanceof BigDecimal) {
+            try {
+                return ((BigDecimal) value).toBigIntegerExact();
+            } catch (ArithmeticException e) {
+                throw new DbCheckoException("Partition column has to be an integer, use NTILE partition method");
+            }
+        }
+        throw new DbCheckoException("Partition column has to be an integer, use NTILE partition method");
+    }
+
+    private List<Object> findNtileBoundaries() throws SQLException {
+        final String column = options.getPartitionColumn();
+        final String sql = "SELECT MAX(k_) FROM (SELECT " + column + " AS k_, NTILE(" + connections.size()
+                + ") OVER (ORDER BY " + column + ") AS tile_ FROM (" + toSubquery(query) + ") " + SUBQUERY_ALIAS
+                + " WHERE " + column + " IS NOT NULL) t_ GROUP BY tile_ ORDER BY tile_";
+        final List<Object> boundaries = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(sql)) {
+            while (rs.next()) {
+                boundaries.add(rs.getObject(1));
+            }
+        }
+        // maximum of the last tile is the maximum of the column
+        if (!boundaries.isEmpty()) {
+            boundaries.remove(boundaries.size() - 1);
+        }
+        return boundaries;
+    }
+
+    /**
+     * Selects one range of the partition column on its own connection.
+     */
+    private class Partition implements Callable<Long> {
+
+        private final int index;
+        private final List<Object> boundaries;
+        private final ResultWriter writer;
+
+        Partition(int index, List<Object> boundaries, ResultWriter writer) {
+            this.index = index;
+            this.boundaries = boundaries;
+            this.writer = writer;
+        }
+
+        @Override
+        public Long call() throws SQLException, IOException {
+            final long startTime = System.nanoTime();
+            final Connection partitionConnection = connections.get(index);
+            final boolean autoCommitSwitched = beginStreaming(partitionConnection);
+            boolean succeeded = false;
+            try (PreparedStatement statement = prepareStatement(partitionConnection, createSql())) {
+                int parameterIndex = 1;
+                if (index > 0) {
+                    statement.setObject(parameterIndex++, boundaries.get(index - 1));
+                }
+                if (index < boundaries.size()) {
+                    statement.setObject(parameterIndex, boundaries.get(index));
+                }
+                try (StatementCanceller canceller = new StatementCanceller(statement, options.getTimeout())) {
+                    try (ResultSet rs = statement.executeQuery()) {
+                        writer.prepare(rs.getMetaData());
+                        final long rowCount = writeRows(rs, writer, startTime, "Partition " + index + " rows count");
+                        succeeded = true;
+                        return rowCount;
+                    } catch (SQLException e) {
+                        throw cancelled(canceller, e);
+                    }
+                }
+            } finally {
+                endStreaming(partitionConnection, autoCommitSwitched, succeeded);
+            }
+        }
+
+        private String createSql() {
+            final String column = options.getPartitionColumn();
+            final StringBuilder sql = new StringBuilder(subquery);
+            final boolean first = index == 0;
+            final boolean last = index == boundaries.size();
+            if (first && !last) {
+                // rows with null in the partition column belong to the first partition
+                sql.append(" WHERE (").append(column).append(" IS NULL OR ").append(column).append(" <= ?)");
+            } else if (!first && !last) {
+                sql.append(" WHERE ").append(column).append(" > ? AND ").append(column).append(" <= ?");
+            } else if (!first) {
+                sql.append(" WHERE ").append(column).append(" > ?");
+            }
+            if (options.isOrdered() && first) {
+                // the nulls go first whether the database sorts them first (e.g. SQL Server) or last (PostgreSQL)
+                sql.append(" ORDER BY CASE WHEN ").append(column).append(" IS NULL THEN 0 ELSE 1 END, ").append(column);
+            } else if (options.isOrdered()) {
+                sql.append(" ORDER BY ").append(column);
+            }
+            return sql.toString();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+/**
+ * Streams data into PostgreSQL by {@code COPY ... FROM STDIN}. It is the only class referencing the PostgreSQL driver,
+ * so the driver is loaded only if it is really used.
+ *
+ * @author Roman Srom
+ */
+final class PgCopyImporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private PgCopyImporter() {
+    }
+
+    /**
+     * Copies the input into the database.
+     *
+     * @param connection PostgreSQL connection
+     * @param sql {@code COPY ... FROM STDIN} command
+     * @param input data in the format of the command
+     * @return count of imported rows
+     * @throws SQLException if the copy fails
+     * @throws IOException if reading of the input fails
+     */
+    static long copyIn(Connection connection, String sql, InputStream input) throws SQLException, IOException {
+        final CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        return copyManager.copyIn(sql, input, BUFFER_SIZE);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.sql.JDBCType;
+import java.sql.Types;
+import java.util.regex.Pattern;
+
+/**
+ * Named parameter of a sql command given as {@code name=value} or {@code name:type=value}, where type is a name of
+ * {@link JDBCType} (e.g. {@code id:integer=1}, {@code since:timestamp=2020-01-01 00:00:00}). {@code name:type} without
+ * a value is sql null. Value of a parameter without a type is converted to the type the driver reports for it.
+ *
+ * @author Roman Srom
+ */
+public final class QueryParameter {
+
+    /**
+     * Type of a parameter whose type is taken from the parameter metadata of the statement.
+     */
+    public static final int UNTYPED = Integer.MIN_VALUE;
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private final String name;
+    private final int sqlType;
+    private final String value;
+
+    public QueryParameter(String name, int sqlType, String value) {
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid parameter name " + name);
+        }
+        if (value == null && sqlType == UNTYPED) {
+            throw new IllegalArgumentException("Type of null parameter " + name + " has to be set");
+        }
+        this.name = name;
+        this.sqlType = sqlType;
+        this.value = value;
+    }
+
+    /**
+     * Parses parameter given as {@code name=value}, {@code name:type=value} or {@code name:type}.
+     *
+     * @param parameter parameter definition
+     * @return parameter
+     * @throws IllegalArgumentException if the definition is invalid
+     */
+    public static QueryParameter parse(String parameter) {
+        final int equals = parameter.indexOf('=');
+        final String declaration = equals >= 0 ? parameter.substring(0, equals) : parameter;
+        final String value = equals >= 0 ? parameter.substring(equals + 1) : null;
+        final int colon = declaration.indexOf(':');
+        if (colon < 0) {
+            return new QueryParameter(declaration.trim(), UNTYPED, value);
+        }
+        return new QueryParameter(declaration.substring(0, colon).trim(),
+                parseType(declaration.substring(colon + 1).trim()), value);
+    }
+
+    private static int parseType(String type) {
+        switch (type.toLowerCase()) {
+            case "int":
+                return Types.INTEGER;
+            case "string":
+            case "text":
+                return Types.VARCHAR;
+            case "bool":
+                return Types.BOOLEAN;
+            default:
+                try {
+                    return JDBCType.valueOf(type.toUpperCase()).getVendorTypeNumber();
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown parameter type " + type, e);
+                }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns sql type from {@link Types} the value is converted to.
+     *
+     * @return sql type or {@link #UNTYPED}
+     */
+    public int getSqlType() {
+        return sqlType;
+    }
+
+    public boolean isTyped() {
+        return sqlType != UNTYPED;
+    }
+
+    /**
+     * Returns value of the parameter as it was given.
+     *
+     * @return value or {@code null} for sql null
+     */
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return name + "=" + value;
+    }
+}
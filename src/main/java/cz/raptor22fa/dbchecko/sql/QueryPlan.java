@@ -0,0 +1,515 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import cz.raptor22fa.dbchecko.output.Json;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Summary of a query plan: top-level timings and rows and the nodes of the plan with their own cost and time, i.e.
+ * without costs and times of their child nodes. Values which the database doesn't report are {@code null}.
+ *
+ * @author Roman Srom
+ */
+public final class QueryPlan {
+
+    /**
+     * Count of the most expensive nodes in the summary.
+     */
+    public static final int SUMMARY_NODES = 5;
+
+    private final List<PlanNode> nodes = new ArrayList<>();
+    private Double planningTime;
+    private Double executionTime;
+    private Double totalCost;
+    private Double estimatedRows;
+    private Double actualRows;
+
+    /**
+     * Parses plan of PostgreSQL {@code EXPLAIN (FORMAT JSON)}.
+     *
+     * @param json plan in JSON format
+     * @return plan
+     * @throws IllegalArgumentException if the text is not a plan in JSON format
+     */
+    public static QueryPlan parsePostgres(String json) {
+        final Object parsed = Json.parse(json);
+        final Object statement = parsed instanceof List && !((List<?>) parsed).isEmpty()
+                ? ((List<?>) parsed).get(0) : parsed;
+        if (!(statement instanceof Map) || !(((Map<?, ?>) statement).get("Plan") instanceof Map)) {
+            throw new IllegalArgumentException("JSON is not a PostgreSQL plan");
+        }
+        final Map<?, ?> root = (Map<?, ?>) ((Map<?, ?>) statement).get("Plan");
+        final QueryPlan plan = new QueryPlan();
+        plan.planningTime = number(((Map<?, ?>) statement).get("Planning Time"));
+        plan.executionTime = number(((Map<?, ?>) statement).get("Execution Time"));
+        plan.totalCost = number(root.get("Total Cost"));
+        plan.estimatedRows = number(root.get("Plan Rows"));
+        plan.actualRows = number(root.get("Actual Rows"));
+        plan.addPostgresNode(root, 0);
+        return plan;
+    }
+
+    private void addPostgresNode(Map<?, ?> node, int depth) {
+        final StringBuilder name = new StringBuilder(String.valueOf(node.get("Node Type")));
+        if (node.get("Relation Name") != null) {
+            name.append(" on ").append(node.get("Relation Name"));
+        }
+        if (node.get("Index Name") != null) {
+            name.append(" using ").append(node.get("Index Name"));
+        }
+        final Double loops = number(node.get("Actual Loops"));
+        final Double totalTime = number(node.get("Actual Total Time"));
+        // time of a node is per loop
+        final PlanNode planNode = new PlanNode(name.toString(), depth, number(node.get("Plan Rows")),
+                number(node.get("Actual Rows")), loops, number(node.get("Total Cost")),
+                totalTime != null && loops != null ? totalTime * loops : null);
+        nodes.add(planNode);
+        final Object children = node.get("Plans");
+        if (children instanceof List) {
+            for (Object child : (List<?>) children) {
+                final int childIndex = nodes.size();
+                addPostgresNode((Map<?, ?>) child, depth + 1);
+                planNode.subtractChild(nodes.get(childIndex));
+            }
+        }
+    }
+
+    /**
+     * Parses SQL Server showplan XML of {@code SET SHOWPLAN_XML} or {@code SET STATISTICS XML}.
+     *
+     * @param xml showplan XML
+     * @return plan of the first statement
+     * @throws IllegalArgumentException if the text is not a showplan XML
+     */
+    public static QueryPlan parseShowplan(String xml) {
+        final Element document;
+        try {
+            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            final DocumentBuilder builder = factory.newDocumentBuilder();
+            document = builder.parse(new InputSource(new StringReader(xml))).getDocumentElement();
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            throw new IllegalArgumentException("Invalid showplan XML", e);
+        }
+        final Element statement = findElement(document, "StmtSimple");
+        final Element root = statement != null ? findElement(statement, "RelOp") : null;
+        if (root == null) {
+            throw new IllegalArgumentException("XML is not a showplan of a query");
+        }
+        final QueryPlan plan = new QueryPlan();
+        final Element queryPlan = findElement(statement, "QueryPlan");
+        final Element timeStats = findElement(statement, "QueryTimeStats");
+        plan.planningTime = queryPlan != null ? attribute(queryPlan, "CompileTime") : null;
+        plan.executionTime = timeStats != null ? attribute(timeStats, "ElapsedTime") : null;
+        plan.totalCost = attribute(statement, "StatementSubTreeCost");
+        plan.estimatedRows = attribute(statement, "StatementEstRows");
+        plan.addShowplanNode(root, 0);
+        plan.actualRows = plan.nodes.get(0).actualRows;
+        return plan;
+    }
+
+    private void addShowplanNode(Element relOp, int depth) {
+        final StringBuilder name = new StringBuilder(relOp.getAttribute("PhysicalOp"));
+        final Element object = findChildObject(relOp);
+        if (object != null && !object.getAttribute("Table").isEmpty()) {
+            name.append(" on ").append(object.getAttribute("Table"));
+            if (!object.getAttribute("Index").isEmpty()) {
+                name.append(" using ").append(object.getAttribute("Index"));
+            }
+        }
+        Double actualRows = null;
+        Double elapsed = null;
+        Double loops = null;
+        final Element runtime = findChild(relOp, "RunTimeInformation");
+        if (runtime != null) {
+            for (Element thread : children(runtime, "RunTimeCountersPerThread")) {
+                actualRows = sum(actualRows, attribute(thread, "ActualRows"));
+                loops = sum(loops, attribute(thread, "ActualExecutions"));
+                final Double threadElapsed = attribute(thread, "ActualElapsedms");
+                elapsed = elapsed == null || threadElapsed != null && threadElapsed > elapsed ? threadElapsed : elapsed;
+            }
+        }
+        if (actualRows != null && loops != null && loops > 0) {
+            // estimated rows are per execution
+            actualRows = actualRows / loops;
+        }
+        final PlanNode planNode = new PlanNode(name.toString(), depth, attribute(relOp, "EstimateRows"),
+                actualRows, loops, attribute(relOp, "EstimatedTotalSubtreeCost"), elapsed);
+        nodes.add(planNode);
+        final List<Element> childRelOps = new ArrayList<>();
+        collectRelOps(relOp, childRelOps);
+        for (Element child : childRelOps) {
+            final int childIndex = nodes.size();
+            addShowplanNode(child, depth + 1);
+            planNode.subtractChild(nodes.get(childIndex));
+        }
+    }
+
+    /**
+     * Finds the nearest RelOp descendants, i.e. the child operators of the operator.
+     */
+    private static void collectRelOps(Element element, List<Element> relOps) {
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element) {
+                if ("RelOp".equals(child.getLocalName())) {
+                    relOps.add((Element) child);
+                } else {
+                    collectRelOps((Element) child, relOps);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the table of the operator, it is an Object element of the operator element.
+     */
+    private static Element findChildObject(Element relOp) {
+        for (Node child = relOp.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element) {
+                final Element object = findChild((Element) child, "Object");
+                if (object != null) {
+                    return object;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Element findElement(Element element, String localName) {
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element) {
+                if (localName.equals(child.getLocalName())) {
+                    return (Element) child;
+                }
+                final Element found = findElement((Element) child, localName);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Element findChild(Element element, String localName) {
+        final List<Element> found = children(element, localName);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    private static List<Element> children(Element element, String localName) {
+        final List<Element> found = new ArrayList<>();
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element && localName.equals(child.getLocalName())) {
+                found.add((Element) child);
+            }
+        }
+        return found;
+    }
+
+    private static Double attribute(Element element, String name) {
+        final String value = element.getAttribute(name);
+        try {
+            return value.isEmpty() ? null : Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses plan of HSQLDB {@code EXPLAIN PLAN FOR}. The plan has only tables with their access and cardinality.
+     *
+     * @param lines lines of the plan
+     * @return plan
+     */
+    public static QueryPlan parseHsqldb(List<String> lines) {
+        final QueryPlan plan = new QueryPlan();
+        String table = null;
+        String access = null;
+        Double cardinality = null;
+        for (String line : lines) {
+            final String trimmed = line.trim();
+            if (trimmed.contains("[range variable")) {
+                plan.addHsqldbNode(table, access, cardinality);
+                table = null;
+                access = null;
+                cardinality = null;
+            } else if (trimmed.startsWith("table=")) {
+                table = trimmed.substring("table=".length());
+            } else if (trimmed.startsWith("access=")) {
+                access = trimmed.substring("access=".length());
+            } else if (trimmed.startsWith("cardinality=")) {
+                try {
+                    cardinality = Double.valueOf(trimmed.substring("cardinality=".length()));
+                } catch (NumberFormatException e) {
+                    cardinality = null;
+                }
+            }
+        }
+        plan.addHsqldbNode(table, access, cardinality);
+        return plan;
+    }
+
+    private void addHsqldbNode(String table, String access, Double cardinality) {
+        if (table != null) {
+            nodes.add(new PlanNode(access != null ? access + " on " + table : table, 0, cardinality,
+                    null, null, null, null));
+        }
+    }
+
+    /**
+     * Records rows and time of an execution measured by the client, for databases which don't report them.
+     *
+     * @param time time of executing the select and fetching its rows in milliseconds
+     * @param rows count of rows
+     */
+    void setExecution(double time, long rows) {
+        this.executionTime = time;
+        this.actualRows = (double) rows;
+    }
+
+    public Double getPlanningTime() {
+        return planningTime;
+    }
+
+    public Double getExecutionTime() {
+        return executionTime;
+    }
+
+    public Double getTotalCost() {
+        return totalCost;
+    }
+
+    public Double getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    public Double getActualRows() {
+        return actualRows;
+    }
+
+    /**
+     * Returns nodes of the plan in depth-first order.
+     *
+     * @return nodes
+     */
+    public List<PlanNode> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    /**
+     * Returns the most expensive nodes by their own time if the plan has timings, otherwise by their own cost or by
+     * estimated rows.
+     *
+     * @param count maximal count of nodes
+     * @return nodes, the most expensive first
+     */
+    public List<PlanNode> getExpensiveNodes(int count) {
+        final Function<PlanNode, Double> measure;
+        if (nodes.stream().anyMatch(node -> node.time != null)) {
+            measure = node -> node.time;
+        } else if (nodes.stream().anyMatch(node -> node.cost != null)) {
+            measure = node -> node.cost;
+        } else {
+            measure = node -> node.estimatedRows;
+        }
+        final List<PlanNode> sorted = new ArrayList<>(nodes);
+        sorted.sort(Comparator.comparing((PlanNode node) -> {
+            final Double value = measure.apply(node);
+            return value != null ? value : -1.0;
+        }).reversed());
+        return sorted.subList(0, Math.min(count, sorted.size()));
+    }
+
+    /**
+     * Prints the top-level values and the most expensive nodes.
+     *
+     * @param output stream the summary is printed to
+     */
+    public void printSummary(PrintStream output) {
+        output.println("Plan summary");
+        if (planningTime != null) {
+            output.println(String.format(Locale.ROOT, "  Planning time: %.3f ms", planningTime));
+        }
+        if (executionTime != null) {
+            output.println(String.format(Locale.ROOT, "  Execution time: %.3f ms", executionTime));
+        }
+        if (totalCost != null) {
+            output.println(String.format(Locale.ROOT, "  Total cost: %.2f", totalCost));
+        }
+        if (estimatedRows != null || actualRows != null) {
+            output.println("  Rows: " + formatRows(estimatedRows, actualRows));
+        }
+        final List<PlanNode> expensiveNodes = getExpensiveNodes(SUMMARY_NODES);
+        if (!expensiveNodes.isEmpty()) {
+            output.println("  Most expensive nodes:");
+            for (PlanNode node : expensiveNodes) {
+                output.println("    " + node);
+            }
+        }
+    }
+
+    private static String formatRows(Double estimated, Double actual) {
+        final StringBuilder sb = new StringBuilder();
+        if (estimated != null) {
+            sb.append(String.format(Locale.ROOT, "%.0f estimated", estimated));
+        }
+        if (actual != null) {
+            sb.append(sb.length() > 0 ? ", " : "").append(String.format(Locale.ROOT, "%.0f actual", actual));
+        }
+        return sb.toString();
+    }
+
+    private static Double number(Object value) {
+        return value instanceof Double ? (Double) value : null;
+    }
+
+    private static Double sum(Double sum, Double value) {
+        return value == null ? sum : sum == null ? value : sum + value;
+    }
+
+    /**
+     * Node of a query plan.
+     */
+    public static final class PlanNode {
+
+        private final String name;
+        private final int depth;
+        private final Double estimatedRows;
+        private final Double actualRows;
+        private final Double loops;
+        private final Double totalCost;
+        private final Double totalTime;
+        private Double cost;
+        private Double time;
+
+        PlanNode(String name, int depth, Double estimatedRows, Double actualRows, Double loops, Double totalCost,
+                Double totalTime) {
+            this.name = name;
+            this.depth = depth;
+            this.estimatedRows = estimatedRows;
+            this.actualRows = actualRows;
+            this.loops = loops;
+            this.totalCost = totalCost;
+            this.totalTime = totalTime;
+            this.cost = totalCost;
+            this.time = totalTime;
+        }
+
+        /**
+         * Subtracts total cost and time of the child, so that the node has only its own cost and time.
+         */
+        private void subtractChild(PlanNode child) {
+            cost = subtract(cost, child.totalCost);
+            time = subtract(time, child.totalTime);
+        }
+
+        private static Double subtract(Double value, Double childValue) {
+            // parallel children may take longer than their parent, the own time is at least zero
+            return value == null || childValue == null ? value : Math.max(0.0, value - childValue);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Returns rows estimated by the database, per loop if the node is executed repeatedly.
+         *
+         * @return estimated rows or {@code null}
+         */
+        public Double getEstimatedRows() {
+            return estimatedRows;
+        }
+
+        /**
+         * Returns rows of the execution, per loop if the node is executed repeatedly.
+         *
+         * @return actual rows or {@code null}
+         */
+        public Double getActualRows() {
+            return actualRows;
+        }
+
+        public Double getLoops() {
+            return loops;
+        }
+
+        /**
+         * Returns cost of the node without costs of its children.
+         *
+         * @return own cost or {@code null}
+         */
+        public Double getCost() {
+            return cost;
+        }
+
+        /**
+         * Returns time in milliseconds of all loops of the node without times of its children.
+         *
+         * @return own time or {@code null}
+         */
+        public Double getTime() {
+            return time;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder(name);
+            if (cost != null) {
+                sb.append(String.format(Locale.ROOT, "  cost: %.2f", cost));
+            }
+            if (estimatedRows != null || actualRows != null) {
+                sb.append("  rows: ").append(formatRows(estimatedRows, actualRows));
+            }
+            if (loops != null && loops > 1) {
+                sb.append(String.format(Locale.ROOT, "  loops: %.0f", loops));
+            }
+            if (time != null) {
+                sb.append(String.format(Locale.ROOT, "  time: %.3f ms", time));
+            }
+            return sb.toString();
+        }
+    }
+}
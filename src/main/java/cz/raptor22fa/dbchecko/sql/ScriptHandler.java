@@ -0,0 +1,239 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import cz.raptor22fa.dbchecko.db.StatementCache;
+import cz.raptor22fa.dbchecko.exception.DbCheckoException;
+import cz.raptor22fa.dbchecko.input.SqlStatementReader;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.LogMF;
+import org.apache.log4j.Logger;
+
+/**
+ * Runs statements of a sql script one by one on one connection. The script is streamed, so it can be of any size.
+ * Statements run on a plain statement unless named parameters are given. With parameters they are prepared by a
+ * {@link StatementCache}, so a statement repeated in the script is prepared only once. At the end it prints a summary
+ * with the slowest statements.
+ *
+ * @author Roman Srom
+ */
+public class ScriptHandler {
+
+    private static final Logger LOG = Logger.getLogger(ScriptHandler.class);
+
+    private static final int PROGRESS_INTERVAL = 10000;
+    private static final int MAX_SQL_WIDTH = 80;
+
+    private final Connection connection;
+    private final ScriptOptions options;
+
+    /**
+     * The slowest statements, the fastest of them at the head.
+     */
+    private final PriorityQueue<StatementTiming> slowest =
+            new PriorityQueue<>(Comparator.comparingLong(StatementTiming::getTime));
+    private long statementCount;
+    private long totalTime;
+    private long rowCount;
+    private long preparedCount;
+    private long reusedCount;
+
+    public ScriptHandler(Connection connection, ScriptOptions options) {
+        this.connection = connection;
+        this.options = options;
+    }
+
+    public void execute() {
+        final long startTime = System.nanoTime();
+        try (SqlStatementReader reader = new SqlStatementReader(
+                Files.newBufferedReader(options.getFile().toPath(), StandardCharsets.UTF_8))) {
+            final boolean autoCommit = connection.getAutoCommit();
+            final boolean transactional = options.getCommitInterval() != ScriptOptions.AUTO_COMMIT;
+            if (transactional) {
+                connection.setAutoCommit(false);
+            }
+            // a plain statement runs any sql, e.g. DDL or a PostgreSQL ? operator, without a server side prepare
+            final boolean prepared = !options.getParameters().isEmpty();
+            try (Statement plainStatement = prepared ? null : connection.createStatement();
+                    StatementCache statements = prepared ? StatementCache.of(connection) : null) {
+                String sql;
+                while ((sql = reader.next()) != null) {
+                    execute(plainStatement, statements, sql, reader.getLineNumber());
+                    if (transactional && statementCount % options.getCommitInterval() == 0) {
+                        connection.commit();
+                    }
+                    if (statementCount % PROGRESS_INTERVAL == 0) {
+                        LogMF.info(LOG, "Executed statements: {0}", statementCount);
+                    }
+                }
+                if (transactional) {
+                    connection.commit();
+                }
+                if (prepared) {
+                    preparedCount = statements.getMisses();
+                    reusedCount = statements.getHits();
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (transactional) {
+                    rollback();
+                }
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException | IOException e) {
+            throw new DbCheckoException("Script command failed", e);
+        }
+
+        printSummary(System.nanoTime() - startTime);
+    }
+
+    private void execute(Statement plainStatement, StatementCache statements, String sql, long lineNumber)
+            throws SQLException {
+        final long startTime = System.nanoTime();
+        long rows = 0;
+        try {
+            final Statement statement;
+            boolean isResultSet;
+            if (statements == null) {
+                statement = plainStatement;
+                isResultSet = statement.execute(sql);
+            } else {
+                final PreparedStatement preparedStatement =
+                        NamedParameters.parse(sql, options.getParameters()).prepare(statements);
+                statement = preparedStatement;
+                isResultSet = preparedStatement.execute();
+            }
+            while (true) {
+                if (isResultSet) {
+                    try (ResultSet rs = statement.getResultSet()) {
+                        while (rs.next()) {
+                            rows++;
+                        }
+                    }
+                } else {
+                    final int updateCount = statement.getUpdateCount();
+                    if (updateCount == -1) {
+                        break;
+                    }
+                    rows += updateCount;
+                }
+                isResultSet = statement.getMoreResults();
+            }
+        } catch (SQLException e) {
+            LogMF.error(LOG, "Statement at line {0} failed: {1}", new Object[] {lineNumber, abbreviate(sql)});
+            throw e;
+        }
+        final long time = System.nanoTime() - startTime;
+
+        statementCount++;
+        totalTime += time;
+        rowCount += rows;
+        if (options.getSlowestCount() > 0
+                && (slowest.size() < options.getSlowestCount() || time > slowest.peek().getTime())) {
+            if (slowest.size() == options.getSlowestCount()) {
+                slowest.poll();
+            }
+            slowest.add(new StatementTiming(lineNumber, abbreviate(sql), time, rows));
+        }
+    }
+
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            LOG.warn("Failed to rollback the script", e);
+        }
+    }
+
+    private void printSummary(long scriptTime) {
+        System.out.println("Executed statements: " + statementCount + ", affected or selected rows: " + rowCount);
+        System.out.println(String.format("Total time: %d ms, statements time: %d ms, average: %.3f ms",
+                TimeUnit.NANOSECONDS.toMillis(scriptTime), TimeUnit.NANOSECONDS.toMillis(totalTime),
+                statementCount > 0 ? totalTime / 1_000_000.0 / statementCount : 0.0));
+        if (!options.getParameters().isEmpty()) {
+            System.out.println("Prepared statements: " + preparedCount + ", reused: " + reusedCount);
+        }
+        if (slowest.isEmpty()) {
+            return;
+        }
+
+        final List<StatementTiming> timings = new ArrayList<>(slowest);
+        timings.sort(Collections.reverseOrder(Comparator.comparingLong(StatementTiming::getTime)));
+        System.out.println("Slowest statements:");
+        for (StatementTiming timing : timings) {
+            System.out.println(String.format("%12.3f ms  line %-7d rows %-9d %s", timing.getTime() / 1_000_000.0,
+                    timing.getLineNumber(), timing.getRows(), timing.getSql()));
+        }
+    }
+
+    private static String abbreviate(String sql) {
+        return StringUtils.abbreviate(StringUtils.normalizeSpace(sql), MAX_SQL_WIDTH);
+    }
+
+    private static final class StatementTiming {
+
+        private final long lineNumber;
+        private final String sql;
+        private final long time;
+        private final long rows;
+
+        private StatementTiming(long lineNumber, String sql, long time, long rows) {
+            this.lineNumber = lineNumber;
+            this.sql = sql;
+            this.time = time;
+            this.rows = rows;
+        }
+
+        private long getLineNumber() {
+            return lineNumber;
+        }
+
+        private String getSql() {
+            return sql;
+        }
+
+        private long getTime() {
+            return time;
+        }
+
+        private long getRows() {
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Contains options of a sql script run.
+ *
+ * @author Roman Srom
+ */
+public class ScriptOptions {
+
+    /**
+     * Commit interval that leaves the connection in auto-commit mode, so that every statement is committed.
+     */
+    public static final int AUTO_COMMIT = 0;
+
+    /**
+     * Count of the slowest statements printed in the summary if it is not set.
+     */
+    public static final int DEFAULT_SLOWEST_COUNT = 10;
+
+    private File file;
+    private int commitInterval = AUTO_COMMIT;
+    private int slowestCount = DEFAULT_SLOWEST_COUNT;
+    private List<QueryParameter> parameters = Collections.emptyList();
+
+    /**
+     * Returns sql script in UTF-8 with statements separated by semicolons.
+     *
+     * @return sql script
+     */
+    public File getFile() {
+        return file;
+    }
+
+    public void setFile(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns count of statements after which the transaction is committed. The rest is committed at the end of the
+     * script, {@link #AUTO_COMMIT} commits every statement.
+     *
+     * @return commit interval
+     */
+    public int getCommitInterval() {
+        return commitInterval;
+    }
+
+    public void setCommitInterval(int commitInterval) {
+        if (commitInterval < 0) {
+            throw new IllegalArgumentException("Commit interval must not be negative");
+        }
+        this.commitInterval = commitInterval;
+    }
+
+    public int getSlowestCount() {
+        return slowestCount;
+    }
+
+    public void setSlowestCount(int slowestCount) {
+        if (slowestCount < 0) {
+            throw new IllegalArgumentException("Count of the slowest statements must not be negative");
+        }
+        this.slowestCount = slowestCount;
+    }
+
+    /**
+     * Returns values of named parameters ({@code :name}) of the sql.
+     *
+     * @return parameters, empty if the sql has none
+     */
+    public List<QueryParameter> getParameters() {
+        return parameters;
+    }
+
+    public void setParameters(List<QueryParameter> parameters) {
+        this.parameters = new ArrayList<>(parameters);
+    }
+}
@@ -23,14 +23,27 @@
  */
 package cz.raptor22fa.dbchecko.sql;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import cz.raptor22fa.dbchecko.db.StatementCache;
 import cz.raptor22fa.dbchecko.exception.DbCheckoException;
-import org.apache.commons.lang3.StringUtils;
+import cz.raptor22fa.dbchecko.output.Compression;
+import cz.raptor22fa.dbchecko.output.OutputBuffer;
+import cz.raptor22fa.dbchecko.output.OutputFormat;
+import cz.raptor22fa.dbchecko.output.ResultWriter;
+import cz.raptor22fa.dbchecko.output.TableResultWriter;
+import cz.raptor22fa.dbchecko.stats.JdbcMetrics;
+import org.apache.log4j.LogMF;
 import org.apache.log4j.Logger;
 
 /**
@@ -42,98 +55,268 @@ public class SelectHandler {
 
     private static final Logger LOG = Logger.getLogger(SelectHandler.class);
 
-    public static final char PAD_CHARACTER = ' ';
-    public static final int MIN_COLUMN_NAME_LENGTH = 10;
+    public static final char PAD_CHARACTER = TableResultWriter.PAD_CHARACTER;
+    public static final int MIN_COLUMN_NAME_LENGTH = TableResultWriter.MIN_COLUMN_NAME_LENGTH;
 
-    private final Connection connection;
-    private final String query;
+    /**
+     * Size of the output buffer in characters when the output is written to a file.
+     */
+    public static final int FILE_BUFFER_SIZE = 1024 * 1024;
+
+    protected final Connection connection;
+    protected final String query;
+    protected final SelectOptions options;
     private final PrintStream output;
-    private Integer[] columnNameLengths;
+    private OutputFile outputFile;
 
     public SelectHandler(Connection connection, String query, PrintStream output) {
+        this(connection, query, output, new SelectOptions());
+    }
+
+    public SelectHandler(Connection connection, String query, PrintStream output, SelectOptions options) {
         this.connection = connection;
         this.query = query;
         this.output = output;
+        this.options = options;
+        if (options.getOutputFile() == null && (options.isSharded() || options.getCompression() != Compression.NONE)) {
+            throw new IllegalArgumentException("Compression and shards need an output file");
+        }
     }
 
-    public void execute() {
-        try (Statement statement = connection.createStatement();
-                ResultSet rs = statement.executeQuery(query)) {
-            final ResultSetMetaData metaData = rs.getMetaData();
-
-            columnNameLengths = getColumnNamesLength(metaData);
+    /**
+     * Returns size of the output buffer in characters when the output is written to a file. Sharded output is flushed
+     * more often, so that the size of a shard is checked at least 16 times before it is full.
+     *
+     * @return buffer size
+     */
+    protected int getFileBufferSize() {
+        return options.isSharded()
+                ? (int) Math.max(1, Math.min(FILE_BUFFER_SIZE, options.getShardSize() / 16)) : FILE_BUFFER_SIZE;
+    }
 
-            printHeader(metaData);
-            printRows(rs, metaData);
+    public void execute() {
+        try {
+            if (options.getOutputFile() == null) {
+                write(Channels.newChannel(output), Charset.defaultCharset(), OutputBuffer.DEFAULT_CAPACITY);
+                output.flush();
+            } else {
+                final File file = options.isSharded()
+                        ? OutputFile.shardFile(options.getOutputFile(), 1) : options.getOutputFile();
+                try (OutputFile opened = OutputFile.open(file, options)) {
+                    outputFile = opened;
+                    write(opened.getChannel(), StandardCharsets.UTF_8, getFileBufferSize());
+                } finally {
+                    outputFile = null;
+                }
+            }
         } catch (SQLException e) {
             throw new DbCheckoException("Select command failed", e);
+        } catch (IOException e) {
+            throw new DbCheckoException("Writing output of select command failed", e);
         }
     }
 
-    private void printRows(ResultSet rs, ResultSetMetaData metaData) throws SQLException {
-        final int columnCount = metaData.getColumnCount();
-        while (rs.next()) {
-            printRow(rs, columnCount);
+    /**
+     * Runs the query and writes its result to the channel.
+     *
+     * @param channel output channel
+     * @param charset charset of text output formats
+     * @param bufferSize size of the output buffer in characters
+     * @throws SQLException if the query fails
+     * @throws IOException if writing the output fails
+     */
+    protected void write(WritableByteChannel channel, Charset charset, int bufferSize)
+            throws SQLException, IOException {
+        final long startTime = System.nanoTime();
+        // a plain statement runs any sql, e.g. with a PostgreSQL ? operator, only named parameters need a prepare
+        final boolean prepared = !options.getParameters().isEmpty();
+        final boolean autoCommitSwitched = beginStreaming(connection);
+        boolean succeeded = false;
+        try (Statement plainStatement = prepared ? null : connection.createStatement();
+                StatementCache statements = prepared ? StatementCache.of(connection) : null) {
+            final PreparedStatement preparedStatement =
+                    prepared ? NamedParameters.parse(query, options.getParameters()).prepare(statements) : null;
+            final Statement statement = prepared ? preparedStatement : plainStatement;
+            statement.setFetchSize(options.getFetchSize());
+            // a cached statement keeps its limit from the previous select, so the limit is set even if it is 0
+            statement.setMaxRows(options.getMaxRows());
+            if (options.isStreaming()) {
+                LogMF.debug(LOG, "Streaming result set with fetch size {0}", options.getFetchSize());
+            }
+            try (StatementCanceller canceller = new StatementCanceller(statement, options.getTimeout())) {
+                try (ResultSet rs = prepared ? preparedStatement.executeQuery() : statement.executeQuery(query)) {
+                    final ResultWriter writer = createWriter(channel, charset, bufferSize);
+                    try {
+                        writer.writeHeader(rs.getMetaData());
+                        final long rowCount = writeRows(rs, writer, startTime, "Selected rows count");
+                        if (options.getMaxRows() > 0 && rowCount == options.getMaxRows()) {
+                            LogMF.info(LOG, "Limit of {0} rows reached, further rows were not selected", rowCount);
+                        }
+                    } finally {
+                        writer.close();
+                    }
+                } catch (SQLException e) {
+                    throw cancelled(canceller, e);
+                }
+            }
+            succeeded = true;
+        } finally {
+            endStreaming(connection, autoCommitSwitched, succeeded);
         }
     }
 
-    private void printRow(ResultSet rs, int columnCount) throws SQLException {
-        for (int i = 1; i <= columnCount; i++) {
-            final String columnValue = rs.getString(i);
-            int columnNameLength = columnNameLengths[i-1];
-            final boolean lastColumn = (i == columnCount);
-            final String normalizedColumnValue = normalizeColumnValue(columnValue, columnNameLength, !lastColumn);
-            output.print(normalizedColumnValue);
-            if (!lastColumn) {
-                output.print(" || ");
-            }
+    /**
+     * Returns exception which says why the select failed if it was cancelled.
+     *
+     * @param canceller canceller of the failed statement
+     * @param e failure of the statement
+     * @return the failure or an exception with the reason of the cancellation
+     */
+    protected static SQLException cancelled(StatementCanceller canceller, SQLException e) {
+        return canceller.isCancelled() ? new SQLException("Select cancelled on " + canceller.getReason(), e) : e;
+    }
+
+    protected ResultWriter createWriter(WritableByteChannel channel, Charset charset, int bufferSize) {
+        if (options.isSharded()) {
+            // the channel is the channel of the first shard, the writer opens the next shards itself
+            return new ShardedResultWriter(outputFile, options,
+                    shardChannel -> createFormatWriter(shardChannel, charset, bufferSize));
         }
-        output.println();
+        return createFormatWriter(channel, charset, bufferSize);
     }
 
-    private String normalizeColumnValue(String columnValue, int columnNameLength, boolean abbreviate) {
-        if (columnValue == null) {
-            return StringUtils.repeat(PAD_CHARACTER, columnNameLength);
+    private ResultWriter createFormatWriter(WritableByteChannel channel, Charset charset, int bufferSize) {
+        if (options.getFormat() == OutputFormat.TABLE && options.isAutoWidth() && !options.isPartitioned()) {
+            // a char takes two bytes
+            final int autoWidthChars = options.getAutoWidthBufferSize() * 512 * 1024;
+            return new TableResultWriter(new OutputBuffer(channel, charset, bufferSize),
+                    options.getAutoWidthRows(), autoWidthChars);
         }
+        return options.getFormat().createWriter(channel, charset, bufferSize, options.getBatchSize());
+    }
+
+    /**
+     * Switches auto-commit off if the result set is streamed. Some drivers (e.g. PostgreSQL) use a server side cursor
+     * only inside a transaction.
+     *
+     * @param connection connection the query runs on
+     * @return {@code true} if auto-commit was switched off and has to be restored by
+     * {@link #endStreaming(Connection, boolean, boolean)}
+     * @throws SQLException if changing auto-commit fails
+     */
+    protected boolean beginStreaming(Connection connection) throws SQLException {
+        if (options.isStreaming() && connection.getAutoCommit()) {
+            connection.setAutoCommit(false);
+            return true;
+        }
+        return false;
+    }
 
-        final int length = columnValue.length();
-        if (abbreviate && length > columnNameLength) {
-            return StringUtils.abbreviate(columnValue, columnNameLength);
+    /**
+     * Ends the transaction started by {@link #beginStreaming(Connection)} and restores auto-commit. The transaction is
+     * committed if the select succeeded, otherwise it is rolled back and a failure of the rollback (e.g. of
+     * a connection broken by the cancel) is only logged, so that it doesn't hide why the select failed.
+     *
+     * @param connection connection the query ran on
+     * @param autoCommitSwitched result of {@link #beginStreaming(Connection)}
+     * @param succeeded {@code true} if the select succeeded
+     * @throws SQLException if the commit or restoring auto-commit after it fails
+     */
+    protected void endStreaming(Connection connection, boolean autoCommitSwitched, boolean succeeded)
+            throws SQLException {
+        if (!autoCommitSwitched) {
+            return;
         }
-        if (length < columnNameLength) {
-            return StringUtils.rightPad(columnValue, columnNameLength, PAD_CHARACTER);
+        if (succeeded) {
+            connection.commit();
+            connection.setAutoCommit(true);
+            return;
+        }
+        try {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            LogMF.warn(LOG, "Rollback of the failed select failed: {0}", e);
         }
-        return columnValue;
     }
 
-    private void printHeader(ResultSetMetaData metaData) throws SQLException {
-        final int columnCount = metaData.getColumnCount();
-        for (int i = 1; i <= columnCount; i++) {
-            final String columnName = metaData.getColumnName(i);
-            output.print(normalizeColumnName(columnName));
-            if (i != columnCount) {
-                output.print(" || ");
-            }
+    protected PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException {
+        PreparedStatement statement =
+                connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        if (options.isStreaming()) {
+            statement.setFetchSize(options.getFetchSize());
         }
-        output.println();
-        output.println(StringUtils.repeat('=', 80));
+        return statement;
     }
 
-    private String normalizeColumnName(String columnName) {
-        final int length = columnName.length();
-        if (length < MIN_COLUMN_NAME_LENGTH) {
-            return StringUtils.rightPad(columnName, MIN_COLUMN_NAME_LENGTH, PAD_CHARACTER);
+    /**
+     * Writes all rows of the result set and logs count of the rows and timings.
+     *
+     * @param rs result set
+     * @param writer writer which has already been prepared for the result set
+     * @param startTime time the query started in nanoseconds
+     * @param description description of the rows used in log
+     * @return count of written rows
+     * @throws SQLException if reading the result set fails
+     * @throws IOException if writing the output fails
+     */
+    protected long writeRows(ResultSet rs, ResultWriter writer, long startTime, String description)
+            throws SQLException, IOException {
+        final JdbcMetrics metrics = JdbcMetrics.of(connection);
+        long rowCount = 0;
+        long firstRowTime = 0;
+        long renderTime = 0;
+        try {
+            while (rs.next()) {
+                if (rowCount == 0) {
+                    firstRowTime = System.nanoTime();
+                }
+                if (metrics == null) {
+                    writer.writeRow(rs);
+                } else {
+                    final long rowStartTime = System.nanoTime();
+                    writer.writeRow(rs);
+                    renderTime += System.nanoTime() - rowStartTime;
+                }
+                rowCount++;
+            }
+        } catch (SQLException e) {
+            LogMF.warn(LOG, "{0}: {1} before the select failed, time to first row: {2} ms, total time: {3} ms",
+                    new Object[] {description, rowCount, rowCount > 0 ? toMillis(firstRowTime - startTime) : "-",
+                            toMillis(System.nanoTime() - startTime)});
+            throw e;
         }
-        return columnName;
+        final long flushStartTime = System.nanoTime();
+        writer.flush();
+        final long endTime = System.nanoTime();
+        if (metrics != null) {
+            metrics.recordRender(renderTime + endTime - flushStartTime);
+        }
+
+        if (rowCount > 0) {
+            LogMF.info(LOG, "{0}: {1}, time to first row: {2} ms, total time: {3} ms", new Object[] {
+                    description, rowCount, toMillis(firstRowTime - startTime), toMillis(endTime - startTime)});
+        } else {
+            LogMF.info(LOG, "{0}: 0, total time: {1} ms", description, toMillis(endTime - startTime));
+        }
+        return rowCount;
+    }
+
+    protected static long toMillis(long nanos) {
+        return nanos / 1_000_000L;
     }
 
-    private Integer[] getColumnNamesLength(ResultSetMetaData metaData) throws SQLException {
-        final int columnCount = metaData.getColumnCount();
-        Integer[] columnNameLengths = new Integer[columnCount];
-        for (int i = 1; i <= columnCount; i++) {
-            final int columnNameLength = metaData.getColumnName(i).length();
-            columnNameLengths[i-1] = Math.max(columnNameLength, MIN_COLUMN_NAME_LENGTH);
+    /**
+     * Removes trailing semicolon and whitespace, so that the query can be used as a subquery.
+     *
+     * @param query sql query
+     * @return query without the semicolon
+     */
+    protected static String toSubquery(String query) {
+        int end = query.length();
+        while (end > 0 && (Character.isWhitespace(query.charAt(end - 1)) || query.charAt(end - 1) == ';')) {
+            end--;
         }
-        return columnNameLengths;
+        return query.substring(0, end);
     }
 }
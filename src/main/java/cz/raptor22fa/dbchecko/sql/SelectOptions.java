@@ -0,0 +1,400 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import cz.raptor22fa.dbchecko.output.ArrowResultWriter;
+import cz.raptor22fa.dbchecko.output.Compression;
+import cz.raptor22fa.dbchecko.output.OutputFormat;
+
+/**
+ * Contains options of a select sql command.
+ *
+ * @author Roman Srom
+ */
+public class SelectOptions {
+
+    /**
+     * Fetch size that lets the driver decide how many rows are fetched at once.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 0;
+
+    /**
+     * Count of connections used by a partitioned select if it is not set.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Size of the buffer of auto-width table output in megabytes if it is not set.
+     */
+    public static final int DEFAULT_AUTO_WIDTH_BUFFER_SIZE = 16;
+
+    /**
+     * Default count of rows of one page of a keyset paginated select.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 10000;
+
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    private OutputFormat format = OutputFormat.TABLE;
+    private File outputFile;
+    private int batchSize = ArrowResultWriter.DEFAULT_BATCH_SIZE;
+    private String partitionColumn;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private PartitionMethod partitionMethod = PartitionMethod.MINMAX;
+    private boolean ordered;
+    private int autoWidthRows;
+    private int autoWidthBufferSize = DEFAULT_AUTO_WIDTH_BUFFER_SIZE;
+    private List<QueryParameter> parameters = Collections.emptyList();
+    private int timeout = StatementCanceller.NO_TIMEOUT;
+    private int maxRows;
+    private String pageKey;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private File checkpointFile;
+    private boolean resume;
+    private Compression compression = Compression.NONE;
+    private int compressionThreads = Runtime.getRuntime().availableProcessors();
+    private long shardSize;
+    private ExplainMode explain;
+
+    /**
+     * Returns count of rows fetched from the database in one round trip. If it is greater than zero, the result set is
+     * streamed through a forward-only, read-only cursor so that only that many rows are held in memory at once.
+     *
+     * @return fetch size
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("Fetch size must not be negative");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    public boolean isStreaming() {
+        return fetchSize > DEFAULT_FETCH_SIZE;
+    }
+
+    public OutputFormat getFormat() {
+        return format;
+    }
+
+    public void setFormat(OutputFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * Returns file the output is written to. If it is {@code null}, the output is printed to the given stream.
+     *
+     * @return output file or {@code null}
+     */
+    public File getOutputFile() {
+        return outputFile;
+    }
+
+    public void setOutputFile(File outputFile) {
+        this.outputFile = outputFile;
+    }
+
+    /**
+     * Returns count of rows in one record batch of a columnar output format.
+     *
+     * @return batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be greater than 0");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns column whose value range is split into partitions selected in parallel. If it is {@code null}, the select
+     * runs on a single connection.
+     *
+     * @return partition column or {@code null}
+     */
+    public String getPartitionColumn() {
+        return partitionColumn;
+    }
+
+    public void setPartitionColumn(String partitionColumn) {
+        this.partitionColumn = partitionColumn;
+    }
+
+    public boolean isPartitioned() {
+        return partitionColumn != null;
+    }
+
+    /**
+     * Returns count of partitions, each of them is selected on its own connection.
+     *
+     * @return parallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be greater than 0");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public PartitionMethod getPartitionMethod() {
+        return partitionMethod;
+    }
+
+    public void setPartitionMethod(PartitionMethod partitionMethod) {
+        this.partitionMethod = partitionMethod;
+    }
+
+    /**
+     * Returns whether rows of a partitioned select are written ordered by the partition column. Otherwise rows of all
+     * partitions are written in the order they are fetched.
+     *
+     * @return {@code true} if the output is ordered
+     */
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    /**
+     * Returns count of first rows the widths of table columns are computed from. If it is zero, the columns are as wide
+     * as their names.
+     *
+     * @return count of rows
+     */
+    public int getAutoWidthRows() {
+        return autoWidthRows;
+    }
+
+    public void setAutoWidthRows(int autoWidthRows) {
+        if (autoWidthRows < 0) {
+            throw new IllegalArgumentException("Auto-width rows must not be negative");
+        }
+        this.autoWidthRows = autoWidthRows;
+    }
+
+    public boolean isAutoWidth() {
+        return autoWidthRows > 0;
+    }
+
+    /**
+     * Returns size in megabytes of the buffer of the first rows in auto-width mode. When it is full, widths are
+     * computed from the rows buffered so far.
+     *
+     * @return buffer size in megabytes
+     */
+    public int getAutoWidthBufferSize() {
+        return autoWidthBufferSize;
+    }
+
+    public void setAutoWidthBufferSize(int autoWidthBufferSize) {
+        if (autoWidthBufferSize <= 0 || autoWidthBufferSize > 1024) {
+            throw new IllegalArgumentException("Auto-width buffer size must be between 1 and 1024 MB");
+        }
+        this.autoWidthBufferSize = autoWidthBufferSize;
+    }
+
+    /**
+     * Returns values of named parameters ({@code :name}) of the sql.
+     *
+     * @return parameters, empty if the sql has none
+     */
+    public List<QueryParameter> getParameters() {
+        return parameters;
+    }
+
+    public void setParameters(List<QueryParameter> parameters) {
+        this.parameters = new ArrayList<>(parameters);
+    }
+
+    /**
+     * Returns time budget in seconds of the select including fetching of its rows. The statement is cancelled on the
+     * server when the time runs out.
+     *
+     * @return timeout in seconds, {@link StatementCanceller#NO_TIMEOUT} for none
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout must not be negative");
+        }
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns maximal count of selected rows, the driver passes the limit to the server if it can.
+     *
+     * @return row limit, 0 for none
+     */
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    public void setMaxRows(int maxRows) {
+        if (maxRows < 0) {
+            throw new IllegalArgumentException("Max rows must not be negative");
+        }
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Returns ordered unique key the select is paged by. Every page is a query of the rows following the last key of
+     * the previous page, i.e. a short index range scan instead of one long running query.
+     *
+     * @return key column, {@code null} if the select is not paged
+     */
+    public String getPageKey() {
+        return pageKey;
+    }
+
+    public void setPageKey(String pageKey) {
+        this.pageKey = pageKey;
+    }
+
+    public boolean isPaged() {
+        return pageKey != null;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Returns file the last key of a paged select is written to after every page.
+     *
+     * @return checkpoint file, {@code null} if no checkpoint is written
+     */
+    public File getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    public void setCheckpointFile(File checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Returns whether a paged select continues after the key of its checkpoint file, if the file exists, and appends
+     * the rows to the output file.
+     *
+     * @return {@code true} if the select is resumed
+     */
+    public boolean isResume() {
+        return resume;
+    }
+
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * Returns compression of the output file. The output is compressed in blocks on many threads while the rows are
+     * being selected.
+     *
+     * @return compression
+     */
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Returns count of threads compressing the output file, by default count of processors.
+     *
+     * @return count of threads
+     */
+    public int getCompressionThreads() {
+        return compressionThreads;
+    }
+
+    public void setCompressionThreads(int compressionThreads) {
+        if (compressionThreads < 1) {
+            throw new IllegalArgumentException("Compression threads must be greater than 0");
+        }
+        this.compressionThreads = compressionThreads;
+    }
+
+    /**
+     * Returns size in bytes before compression a shard of the output file is closed at. The output is then written to
+     * files with a shard index inserted before the extension, e.g. {@code users-00001.csv}, each with its own header.
+     *
+     * @return shard size in bytes, 0 if the output is not sharded
+     */
+    public long getShardSize() {
+        return shardSize;
+    }
+
+    public void setShardSize(long shardSize) {
+        if (shardSize < 0) {
+            throw new IllegalArgumentException("Shard size must not be negative");
+        }
+        this.shardSize = shardSize;
+    }
+
+    public boolean isSharded() {
+        return shardSize > 0;
+    }
+
+    /**
+     * Returns whether the plan of the select is written instead of its rows and how it is explained.
+     *
+     * @return explain mode, {@code null} if the rows are selected
+     */
+    public ExplainMode getExplain() {
+        return explain;
+    }
+
+    public void setExplain(ExplainMode explain) {
+        this.explain = explain;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.function.Function;
+import cz.raptor22fa.dbchecko.output.ResultWriter;
+import org.apache.log4j.LogMF;
+import org.apache.log4j.Logger;
+
+/**
+ * Writes rows to a sequence of shard files of a limited size. When the current shard reaches the size, the next shard
+ * is opened and a new writer writes the header to it, so every shard is a complete output of its rows.
+ *
+ * @author Roman Srom
+ */
+final class ShardedResultWriter implements ResultWriter {
+
+    private static final Logger LOG = Logger.getLogger(ShardedResultWriter.class);
+
+    private final File outputFile;
+    private final SelectOptions options;
+    private final Function<WritableByteChannel, ResultWriter> writerFactory;
+    private final OutputFile firstShard;
+    private OutputFile shard;
+    private ResultWriter writer;
+    private ResultSetMetaData metaData;
+    private boolean header;
+    private int shardIndex = 1;
+    private long shardRows;
+
+    /**
+     * Creates the writer.
+     *
+     * @param firstShard opened first shard, it is closed by the caller
+     * @param options options with the output file and the shard size
+     * @param writerFactory creates writer of the output format for a shard channel
+     */
+    ShardedResultWriter(OutputFile firstShard, SelectOptions options,
+            Function<WritableByteChannel, ResultWriter> writerFactory) {
+        this.outputFile = options.getOutputFile();
+        this.options = options;
+        this.writerFactory = writerFactory;
+        this.firstShard = firstShard;
+        this.shard = firstShard;
+        this.writer = writerFactory.apply(firstShard.getChannel());
+    }
+
+    @Override
+    public void prepare(ResultSetMetaData metaData) throws SQLException {
+        this.metaData = metaData;
+        writer.prepare(metaData);
+    }
+
+    @Override
+    public void writeHeader(ResultSetMetaData metaData) throws SQLException, IOException {
+        this.metaData = metaData;
+        this.header = true;
+        writer.writeHeader(metaData);
+    }
+
+    @Override
+    public void writeRow(ResultSet rs) throws SQLException, IOException {
+        // the size lags behind by the buffered rows, a shard exceeds the size by at most the size of the buffer
+        if (shardRows > 0 && shard.size() >= options.getShardSize()) {
+            nextShard();
+        }
+        writer.writeRow(rs);
+        shardRows++;
+    }
+
+    private void nextShard() throws SQLException, IOException {
+        closeShard();
+        shardIndex++;
+        shard = OutputFile.open(OutputFile.shardFile(outputFile, shardIndex), options);
+        shardRows = 0;
+        writer = writerFactory.apply(shard.getChannel());
+        if (header) {
+            writer.writeHeader(metaData);
+        } else {
+            writer.prepare(metaData);
+        }
+    }
+
+    private void closeShard() throws IOException {
+        try {
+            writer.close();
+        } finally {
+            if (shard != firstShard) {
+                shard.close();
+            }
+        }
+        LogMF.info(LOG, "Shard {0} written, rows: {1}", shard.getFile(), shardRows);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeShard();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import org.apache.log4j.Logger;
+
+/**
+ * Binds text values (e.g. read from a csv file) to parameters of a prepared statement. Values are converted to the sql
+ * type of the parameter, so that strict databases like PostgreSQL accept them without casts in the sql.
+ *
+ * @author Roman Srom
+ */
+public final class SqlParameters {
+
+    private static final Logger LOG = Logger.getLogger(SqlParameters.class);
+
+    private SqlParameters() {
+    }
+
+    /**
+     * Returns sql types of all parameters of the statement. If the driver doesn't provide them, all parameters are
+     * bound as strings.
+     *
+     * @param statement prepared statement
+     * @return sql types of the parameters
+     * @throws SQLException if the statement is closed
+     */
+    public static int[] getParameterTypes(PreparedStatement statement) throws SQLException {
+        int[] types;
+        try {
+            final ParameterMetaData metaData = statement.getParameterMetaData();
+            types = new int[metaData.getParameterCount()];
+            for (int i = 1; i <= types.length; i++) {
+                types[i-1] = metaData.getParameterType(i);
+            }
+        } catch (SQLException | UnsupportedOperationException e) {
+            LOG.debug("Parameter metadata are not available, parameters are bound as strings", e);
+            types = null;
+        }
+        return types;
+    }
+
+    /**
+     * Binds the value converted to the sql type.
+     *
+     * @param statement prepared statement
+     * @param index index of the parameter starting with 1
+     * @param value text value, {@code null} binds sql null
+     * @param sqlType sql type from {@link Types}
+     * @throws SQLException if the value can't be bound
+     */
+    public static void bind(PreparedStatement statement, int index, String value, int sqlType) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, sqlType);
+            return;
+        }
+        try {
+            switch (sqlType) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                    statement.setInt(index, Integer.parseInt(value.trim()));
+                    break;
+                case Types.BIGINT:
+                    statement.setLong(index, Long.parseLong(value.trim()));
+                    break;
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                    statement.setBigDecimal(index, new BigDecimal(value.trim()));
+                    break;
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    statement.setDouble(index, Double.parseDouble(value.trim()));
+                    break;
+                case Types.BOOLEAN:
+                case Types.BIT:
+                    statement.setBoolean(index, parseBoolean(value.trim()));
+                    break;
+                case Types.DATE:
+                    statement.setDate(index, Date.valueOf(value.trim()));
+                    break;
+                case Types.TIME:
+                    statement.setTime(index, Time.valueOf(value.trim()));
+                    break;
+                case Types.TIMESTAMP:
+                    statement.setTimestamp(index, Timestamp.valueOf(value.trim()));
+                    break;
+                default:
+                    statement.setString(index, value);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new SQLException("Invalid value '" + value + "' of parameter " + index, e);
+        }
+    }
+
+    private static boolean parseBoolean(String value) {
+        switch (value.toLowerCase()) {
+            case "true":
+            case "t":
+            case "yes":
+            case "y":
+            case "1":
+                return true;
+            case "false":
+            case "f":
+            case "no":
+            case "n":
+            case "0":
+                return false;
+            default:
+                throw new IllegalArgumentException("Invalid boolean value " + value);
+        }
+    }
+}
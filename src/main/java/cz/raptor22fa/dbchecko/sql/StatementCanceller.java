@@ -0,0 +1,154 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.sql;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.LogMF;
+import org.apache.log4j.Logger;
+
+/**
+ * Cancels a running statement by {@link Statement#cancel()} when its time budget runs out or when the JVM is shut
+ * down, e.g. by Ctrl+C. The driver asks the server to stop the statement, so that it doesn't keep running on the
+ * server after the client gave up on it. The statement fails with an exception in the thread which runs it.
+ * <p>
+ * The canceller has to be closed right after the statement finishes, a closed canceller never cancels the statement
+ * (which can be reused, e.g. by a {@link cz.raptor22fa.dbchecko.db.StatementCache}).
+ *
+ * @author Roman Srom
+ */
+public class StatementCanceller implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(StatementCanceller.class);
+
+    /**
+     * Timeout that disables the time budget.
+     */
+    public static final int NO_TIMEOUT = 0;
+
+    /**
+     * Maximal time in milliseconds the shutdown waits for the cancelled statement to report what it has done.
+     */
+    private static final long SHUTDOWN_TIMEOUT = 5000;
+
+    private final Statement statement;
+    private final Thread shutdownHook;
+    private final ScheduledFuture<?> timeoutTask;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private String reason;
+    private boolean closed;
+
+    /**
+     * Starts watching the statement.
+     *
+     * @param statement statement which is about to be executed
+     * @param timeout time budget in seconds of the statement, {@link #NO_TIMEOUT} for none
+     */
+    public StatementCanceller(Statement statement, int timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout must not be negative");
+        }
+        this.statement = statement;
+        this.shutdownHook = new Thread(() -> {
+            cancel("the application is shutting down");
+            try {
+                finished.await(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "dbchecko-statement-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        this.timeoutTask = timeout != NO_TIMEOUT
+                ? Timer.EXECUTOR.schedule(() -> cancel("timeout of " + timeout + " s"), timeout, TimeUnit.SECONDS)
+                : null;
+    }
+
+    private synchronized void cancel(String reason) {
+        if (closed || this.reason != null) {
+            return;
+        }
+        this.reason = reason;
+        LogMF.warn(LOG, "Cancelling statement on {0}", reason);
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            LOG.warn("Failed to cancel statement", e);
+        }
+    }
+
+    /**
+     * Returns whether the statement has been cancelled.
+     *
+     * @return {@code true} if the statement has been cancelled
+     */
+    public synchronized boolean isCancelled() {
+        return reason != null;
+    }
+
+    /**
+     * Returns why the statement has been cancelled.
+     *
+     * @return reason or {@code null} if the statement hasn't been cancelled
+     */
+    public synchronized String getReason() {
+        return reason;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        finished.countDown();
+        if (timeoutTask != null) {
+            timeoutTask.cancel(false);
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // the JVM is shutting down, the hook is running
+        }
+    }
+
+    /**
+     * Thread of time budgets, it is started only if a timeout is set.
+     */
+    private static final class Timer {
+
+        private static final ScheduledThreadPoolExecutor EXECUTOR = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "dbchecko-statement-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        static {
+            // timeouts of statements which finished in time don't pile up in the queue
+            EXECUTOR.setRemoveOnCancelPolicy(true);
+        }
+    }
+}
@@ -24,8 +24,13 @@
 package cz.raptor22fa.dbchecko.sql;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import cz.raptor22fa.dbchecko.db.StatementCache;
 import cz.raptor22fa.dbchecko.exception.DbCheckoException;
 import org.apache.log4j.Logger;
 
@@ -40,15 +45,61 @@ public class UpdateHandler {
 
     private final Connection connection;
     private final String query;
+    private final List<QueryParameter> parameters;
+    private final int timeout;
 
     public UpdateHandler(Connection connection, String query) {
+        this(connection, query, Collections.emptyList());
+    }
+
+    /**
+     * Creates the handler.
+     *
+     * @param connection connection the command runs on
+     * @param query update sql
+     * @param parameters values of named parameters ({@code :name}) of the sql
+     */
+    public UpdateHandler(Connection connection, String query, List<QueryParameter> parameters) {
+        this(connection, query, parameters, StatementCanceller.NO_TIMEOUT);
+    }
+
+    /**
+     * Creates the handler.
+     *
+     * @param connection connection the command runs on
+     * @param query update sql
+     * @param parameters values of named parameters ({@code :name}) of the sql
+     * @param timeout time budget in seconds of the command, it is cancelled on the server when the time runs out,
+     * {@link StatementCanceller#NO_TIMEOUT} for none
+     */
+    public UpdateHandler(Connection connection, String query, List<QueryParameter> parameters, int timeout) {
         this.connection = connection;
         this.query = query;
+        this.parameters = parameters;
+        this.timeout = timeout;
     }
 
     public void execute() {
-        try (Statement statement = connection.createStatement()) {
-            final int updatedRowsCount = statement.executeUpdate(query);
+        // a plain statement runs any sql, e.g. DDL or a PostgreSQL ? operator, without a server side prepare
+        final boolean prepared = !parameters.isEmpty();
+        try (Statement plainStatement = prepared ? null : connection.createStatement();
+                StatementCache statements = prepared ? StatementCache.of(connection) : null) {
+            final PreparedStatement preparedStatement =
+                    prepared ? NamedParameters.parse(query, parameters).prepare(statements) : null;
+            final Statement statement = prepared ? preparedStatement : plainStatement;
+            final long startTime = System.nanoTime();
+            final int updatedRowsCount;
+            try (StatementCanceller canceller = new StatementCanceller(statement, timeout)) {
+                try {
+                    updatedRowsCount = prepared ? preparedStatement.executeUpdate() : statement.executeUpdate(query);
+                } catch (SQLException e) {
+                    if (canceller.isCancelled()) {
+                        throw new DbCheckoException("Update command cancelled on " + canceller.getReason()
+                                + " after " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + " ms", e);
+                    }
+                    throw e;
+                }
+            }
 
             System.out.println("Updated rows count: " + updatedRowsCount);
         } catch (SQLException e) {
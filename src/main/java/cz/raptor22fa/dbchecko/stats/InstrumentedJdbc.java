@@ -0,0 +1,209 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.stats;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import cz.raptor22fa.dbchecko.db.StatementCache;
+
+/**
+ * Proxies of JDBC objects which record their calls to {@link JdbcMetrics}. Statements created by an instrumented
+ * connection and result sets returned by an instrumented statement are instrumented too.
+ *
+ * @author Roman Srom
+ */
+final class InstrumentedJdbc {
+
+    private InstrumentedJdbc() {
+    }
+
+    static Connection wrap(Connection connection, JdbcMetrics metrics) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new ConnectionHandler(connection, metrics));
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Handles calls common to all proxies. Returns {@code null} if the call is not handled.
+     */
+    private static Object invokeObjectMethod(Object proxy, Object target, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Instrumented " + target;
+            default:
+                return null;
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection connection;
+        private final JdbcMetrics metrics;
+
+        private ConnectionHandler(Connection connection, JdbcMetrics metrics) {
+            this.connection = connection;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final Object result = invokeObjectMethod(proxy, connection, method, args);
+            if (result != null) {
+                return result;
+            }
+            switch (method.getName()) {
+                case "isWrapperFor":
+                    if (args[0] == JdbcMetrics.class) {
+                        return true;
+                    } else if (args[0] == StatementCache.class) {
+                        // statements of a pooled cache are prepared on the physical connection and would not be
+                        // measured, the caller creates its own cache on this connection instead
+                        return false;
+                    }
+                    break;
+                case "unwrap":
+                    if (args[0] == JdbcMetrics.class) {
+                        return metrics;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            final Object value = invokeTarget(connection, method, args);
+            if (value instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                        new Class<?>[] {method.getReturnType()},
+                        new StatementHandler((Statement) value, (Connection) proxy, metrics));
+            }
+            return value;
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+
+        private final Statement statement;
+        private final Connection connection;
+        private final JdbcMetrics metrics;
+
+        private StatementHandler(Statement statement, Connection connection, JdbcMetrics metrics) {
+            this.statement = statement;
+            this.connection = connection;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final Object result = invokeObjectMethod(proxy, statement, method, args);
+            if (result != null) {
+                return result;
+            }
+            final String name = method.getName();
+            if ("getConnection".equals(name)) {
+                return connection;
+            }
+            final Object value;
+            if (name.startsWith("execute")) {
+                final long startTime = System.nanoTime();
+                try {
+                    value = invokeTarget(statement, method, args);
+                } finally {
+                    metrics.recordExecute(System.nanoTime() - startTime);
+                }
+            } else {
+                value = invokeTarget(statement, method, args);
+            }
+            if (value instanceof ResultSet) {
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+                        new ResultSetHandler((ResultSet) value, (Statement) proxy, metrics));
+            }
+            return value;
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+
+        /**
+         * Estimated size of a value which is neither a string nor a byte array.
+         */
+        private static final int VALUE_SIZE = 8;
+
+        private final ResultSet resultSet;
+        private final Statement statement;
+        private final JdbcMetrics metrics;
+
+        private ResultSetHandler(ResultSet resultSet, Statement statement, JdbcMetrics metrics) {
+            this.resultSet = resultSet;
+            this.statement = statement;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final String name = method.getName();
+            if ("next".equals(name)) {
+                final long startTime = System.nanoTime();
+                final boolean row = resultSet.next();
+                metrics.recordFetch(System.nanoTime() - startTime, row);
+                return row;
+            }
+            final Object result = invokeObjectMethod(proxy, resultSet, method, args);
+            if (result != null) {
+                return result;
+            }
+            if ("getStatement".equals(name)) {
+                return statement;
+            }
+            final Object value = invokeTarget(resultSet, method, args);
+            if (args != null && name.startsWith("get") && value != null) {
+                metrics.recordBytes(sizeOf(value));
+            }
+            return value;
+        }
+
+        private static int sizeOf(Object value) {
+            if (value instanceof String) {
+                return ((String) value).length();
+            } else if (value instanceof byte[]) {
+                return ((byte[]) value).length;
+            }
+            return VALUE_SIZE;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.stats;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import cz.raptor22fa.dbchecko.exception.DbCheckoException;
+import cz.raptor22fa.dbchecko.output.Json;
+
+/**
+ * Timings and counters of the JDBC calls of one run. The metrics are collected by proxies of the connections,
+ * statements and result sets created by {@link #instrument(Connection)}, so nothing is measured (and nothing costs)
+ * unless a connection is instrumented.
+ * <p>
+ * Execute time is the time spent in {@code execute*} methods of statements, i.e. until the first rows are returned by
+ * the server. Fetch time is the time spent in {@link java.sql.ResultSet#next()}, where drivers fetch next rows from the
+ * server. Render time is recorded by the caller and covers reading values of rows and writing them to the output. Bytes
+ * are estimated from values read from result sets: length of strings and byte arrays, 8 bytes for other values.
+ * <p>
+ * The metrics are thread safe, a partitioned select records them from many threads.
+ *
+ * @author Roman Srom
+ */
+public class JdbcMetrics {
+
+    private final String command;
+    private final long startTime = System.nanoTime();
+    private final LongAdder connections = new LongAdder();
+    private final LongAdder connectTime = new LongAdder();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder executeTime = new LongAdder();
+    private final LongAdder fetchTime = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder renderTime = new LongAdder();
+
+    /**
+     * Creates metrics of a run.
+     *
+     * @param command name of the command, used as a label of the exported metrics
+     */
+    public JdbcMetrics(String command) {
+        this.command = command;
+    }
+
+    /**
+     * Finds metrics of an instrumented connection.
+     *
+     * @param connection connection
+     * @return metrics the connection records to or {@code null} if it is not instrumented
+     * @throws SQLException if the connection fails
+     */
+    public static JdbcMetrics of(Connection connection) throws SQLException {
+        return connection.isWrapperFor(JdbcMetrics.class) ? connection.unwrap(JdbcMetrics.class) : null;
+    }
+
+    /**
+     * Wraps the connection in a proxy which records its calls to these metrics.
+     *
+     * @param connection connection
+     * @return instrumented connection
+     */
+    public Connection instrument(Connection connection) {
+        return InstrumentedJdbc.wrap(connection, this);
+    }
+
+    public void recordConnect(long nanos) {
+        connections.increment();
+        connectTime.add(nanos);
+    }
+
+    void recordExecute(long nanos) {
+        executions.increment();
+        executeTime.add(nanos);
+    }
+
+    void recordFetch(long nanos, boolean row) {
+        fetchTime.add(nanos);
+        if (row) {
+            rows.increment();
+        }
+    }
+
+    void recordBytes(long count) {
+        bytes.add(count);
+    }
+
+    public void recordRender(long nanos) {
+        renderTime.add(nanos);
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public long getConnections() {
+        return connections.sum();
+    }
+
+    public long getConnectTime() {
+        return connectTime.sum();
+    }
+
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    public long getExecuteTime() {
+        return executeTime.sum();
+    }
+
+    public long getFetchTime() {
+        return fetchTime.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getRenderTime() {
+        return renderTime.sum();
+    }
+
+    /**
+     * Returns the time from the creation of the metrics.
+     *
+     * @return time in nanoseconds
+     */
+    public long getTotalTime() {
+        return System.nanoTime() - startTime;
+    }
+
+    /**
+     * Formats the metrics.
+     *
+     * @param format format
+     * @return formatted metrics
+     */
+    public String format(MetricsFormat format) {
+        return format == MetricsFormat.PROMETHEUS ? toPrometheus() : toJson();
+    }
+
+    /**
+     * Writes the metrics to the file. The file is replaced atomically, so that a collector never reads it half written.
+     *
+     * @param file file
+     * @param format format
+     */
+    public void write(File file, MetricsFormat format) {
+        final Path target = file.toPath().toAbsolutePath();
+        final Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.write(temp, format(format).getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new DbCheckoException("Writing metrics to " + file + " failed", e);
+        }
+    }
+
+    private String toJson() {
+        final StringBuilder json = new StringBuilder("{\"command\":");
+        Json.appendString(json, command)
+                .append(",\"connections\":").append(getConnections())
+                .append(",\"connectMs\":").append(toMillis(getConnectTime()))
+                .append(",\"executions\":").append(getExecutions())
+                .append(",\"executeMs\":").append(toMillis(getExecuteTime()))
+                .append(",\"fetchMs\":").append(toMillis(getFetchTime()))
+                .append(",\"renderMs\":").append(toMillis(getRenderTime()))
+                .append(",\"totalMs\":").append(toMillis(getTotalTime()))
+                .append(",\"rows\":").append(getRows())
+                .append(",\"bytes\":").append(getBytes())
+                .append("}\n");
+        return json.toString();
+    }
+
+    private String toPrometheus() {
+        return new PrometheusText("command", command)
+                .gauge("connections", "Count of connections opened by the last run", getConnections())
+                .gauge("connect_seconds", "Time of opening connections", toSeconds(getConnectTime()))
+                .gauge("executions", "Count of statements executed by the last run", getExecutions())
+                .gauge("execute_seconds", "Time of executing statements", toSeconds(getExecuteTime()))
+                .gauge("fetch_seconds", "Time of fetching rows", toSeconds(getFetchTime()))
+                .gauge("render_seconds", "Time of writing rows to the output", toSeconds(getRenderTime()))
+                .gauge("total_seconds", "Total time of the last run", toSeconds(getTotalTime()))
+                .gauge("rows", "Count of rows fetched by the last run", getRows())
+                .gauge("bytes", "Approximate size of values fetched by the last run", getBytes())
+                .gauge("last_run_timestamp_seconds", "Unix time the last run finished",
+                        toSeconds(System.currentTimeMillis() * 1_000_000L))
+                .toString();
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static String toSeconds(long nanos) {
+        return PrometheusText.toSeconds(nanos);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.stats;
+
+import java.util.Locale;
+
+/**
+ * Builder of metrics in Prometheus text format. All metrics of the builder have the same labels.
+ *
+ * @author Roman Srom
+ */
+public class PrometheusText {
+
+    private static final String PREFIX = "dbchecko_";
+
+    private final StringBuilder text = new StringBuilder();
+    private final String labels;
+
+    public PrometheusText() {
+        this.labels = "";
+    }
+
+    /**
+     * Creates builder of metrics with a label.
+     *
+     * @param labelName name of the label
+     * @param labelValue value of the label
+     */
+    public PrometheusText(String labelName, String labelValue) {
+        final StringBuilder sb = new StringBuilder("{").append(labelName).append("=\"");
+        for (int i = 0; i < labelValue.length(); i++) {
+            final char c = labelValue.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else {
+                sb.append(c);
+            }
+        }
+        this.labels = sb.append("\"}").toString();
+    }
+
+    public PrometheusText gauge(String name, String help, Object value) {
+        return append(name, help, "gauge", value);
+    }
+
+    public PrometheusText counter(String name, String help, Object value) {
+        return append(name, help, "counter", value);
+    }
+
+    private PrometheusText append(String name, String help, String type, Object value) {
+        text.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n')
+                .append(PREFIX).append(name).append(labels).append(' ').append(value).append('\n');
+        return this;
+    }
+
+    /**
+     * Formats nanoseconds as seconds.
+     *
+     * @param nanos time in nanoseconds
+     * @return time in seconds
+     */
+    public static String toSeconds(long nanos) {
+        return String.format(Locale.ROOT, "%.6f", nanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+}
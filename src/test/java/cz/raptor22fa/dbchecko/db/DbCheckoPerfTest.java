@@ -0,0 +1,478 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Roman Srom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package cz.raptor22fa.dbchecko.db;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.ThreadMXBean;
+import cz.raptor22fa.dbchecko.output.OutputFormat;
+import cz.raptor22fa.dbchecko.sql.SelectOptions;
+import org.apache.log4j.LogMF;
+import org.apache.log4j.Logger;
+import org.hsqldb.cmdline.SqlFile;
+import org.hsqldb.cmdline.SqlToolError;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * End-to-end performance test of selects, exports and updates over tables with millions of rows in HSQLDB. It's
+ * excluded from the default build and run by the {@code perf} profile: {@code mvn test -P perf}.
+ *
+ * <p>Every scenario measures rows per second, peak live heap above the heap used by the database itself and
+ * allocated bytes per row, and fails when a metric is worse than the stored baseline by more than the tolerance
+ * ({@code -Dperf.tolerance}, 0.3 by default). Allocation is compared per row and not per second, because the
+ * allocation rate grows with every throughput improvement. Rows per second hold only for the machine which
+ * measured them, so the baseline has to be regenerated on the machine which runs the test by
+ * {@code -Dperf.updateBaseline=true}.</p>
+ *
+ * @author Roman Srom
+ */
+public class DbCheckoPerfTest {
+
+    private static final Logger LOG = Logger.getLogger(DbCheckoPerfTest.class);
+
+    private static final String BASELINE_FILE_PROPERTY = "perf.baseline";
+    private static final String DEFAULT_BASELINE_FILE = "src/test/resources/perf/baseline.properties";
+    private static final String UPDATE_BASELINE_PROPERTY = "perf.updateBaseline";
+    private static final String TOLERANCE_PROPERTY = "perf.tolerance";
+    private static final double DEFAULT_TOLERANCE = 0.3;
+
+    /**
+     * Peak heap difference which is never reported as a regression, heap usage after a young collection depends on
+     * the moment the collection happened.
+     */
+    private static final long HEAP_SLACK = 32 * 1024 * 1024;
+
+    private static final long NARROW_ROWS = 2_000_000;
+    private static final long WIDE_ROWS = 100_000;
+    private static final long LOB_ROWS = 5_000;
+    private static final int FETCH_SIZE = 10_000;
+
+    private static DbConnection dbConnection;
+    private static File baselineFile;
+    private static final Properties baseline = new Properties();
+    private static final Properties measured = new Properties();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(DbConnection.URL_PROPERTY, "jdbc:hsqldb:mem:perf");
+        properties.setProperty(DbConnection.USER_PROPERTY, "sa");
+        properties.setProperty(DbConnection.PASSWORD_PROPERTY, "");
+        properties.setProperty(DbConnection.DRIVER_CLASS_NAME_PROPERTY, "org.hsqldb.jdbc.JDBCDriver");
+        dbConnection = DbConnection.fromProperties(properties);
+        Class.forName(dbConnection.getDriverClassName());
+
+        try (Connection connection = getConnection()) {
+            final long start = System.nanoTime();
+            executeScript("/sql/postgresql-compatibility.sql", connection);
+            executeScript("/sql/init-db.sql", connection);
+            executeScript("/sql/init-perf-db.sql", connection);
+            LogMF.info(LOG, "Perf tables generated in {0} ms",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        baselineFile = new File(System.getProperty(BASELINE_FILE_PROPERTY, DEFAULT_BASELINE_FILE));
+        if (baselineFile.isFile()) {
+            try (InputStream inputStream = new FileInputStream(baselineFile)) {
+                baseline.load(inputStream);
+            }
+        }
+        warmUp();
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        try (Connection connection = getConnection()) {
+            executeScript("/sql/clean-perf-db.sql", connection);
+            executeScript("/sql/clean-db.sql", connection);
+        }
+        if (Boolean.getBoolean(UPDATE_BASELINE_PROPERTY)) {
+            try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                    new FileOutputStream(baselineFile), StandardCharsets.ISO_8859_1))) {
+                writer.println("# Baseline of DbCheckoPerfTest measured on one machine, rows/s differ on another one.");
+                writer.println("# Regenerate it on the machine which runs the test by -Dperf.updateBaseline=true");
+                new TreeMap<>(measured).forEach((key, value) -> writer.println(key + "=" + value));
+            }
+            LogMF.info(LOG, "Baseline stored to {0}", baselineFile.getAbsolutePath());
+        }
+    }
+
+    private static Connection getConnection() throws SQLException {
+        return DriverManager.getConnection(
+                dbConnection.getUrl(), dbConnection.getUser(), dbConnection.getPassword());
+    }
+
+    private static void executeScript(String sqlScript, Connection connection) {
+        try (InputStream inputStream = DbCheckoPerfTest.class.getResourceAsStream(sqlScript)) {
+            SqlFile sqlFile = new SqlFile(
+                    new InputStreamReader(inputStream), sqlScript, System.out, "UTF-8", false, new File("."));
+            sqlFile.setConnection(connection);
+            sqlFile.execute();
+        } catch (IOException | SqlToolError | SQLException e) {
+            LogMF.error(LOG, "Error running script: {0}", new Object[] {sqlScript});
+        }
+    }
+
+    /**
+     * Runs every output format on a part of the wide table, so the first measured scenario doesn't pay for
+     * the JIT compilation of the writers.
+     */
+    private static void warmUp() throws IOException {
+        final File file = File.createTempFile("db-checko-perf", ".out");
+        try {
+            for (OutputFormat format : OutputFormat.values()) {
+                new DbChecko(dbConnection).executeSelect("SELECT * FROM perf_wide WHERE id <= 20000",
+                        selectOptions(format, file));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void select_narrowTable() throws Exception {
+        final File file = temporaryFolder.newFile();
+        final SelectOptions options = selectOptions(OutputFormat.TABLE, file);
+        options.setFetchSize(0);
+
+        measure("select.narrow.table", NARROW_ROWS, () ->
+                new DbChecko(dbConnection).executeSelect("SELECT * FROM perf_narrow", options));
+
+        assertThat(file.length()).isPositive();
+    }
+
+    @Test
+    public void export_narrowCsv() throws Exception {
+        final File file = temporaryFolder.newFile();
+
+        measure("export.narrow.csv", NARROW_ROWS, () -> new DbChecko(dbConnection)
+                .executeSelect("SELECT * FROM perf_narrow", selectOptions(OutputFormat.CSV, file)));
+
+        assertThat(countLines(file)).isEqualTo(NARROW_ROWS + 1);
+    }
+
+    @Test
+    public void export_wideCsv() throws Exception {
+        final File file = temporaryFolder.newFile();
+
+        measure("export.wide.csv", WIDE_ROWS, () -> new DbChecko(dbConnection)
+                .executeSelect("SELECT * FROM perf_wide", selectOptions(OutputFormat.CSV, file)));
+
+        assertThat(countLines(file)).isEqualTo(WIDE_ROWS + 1);
+    }
+
+    @Test
+    public void export_wideJsonLines() throws Exception {
+        final File file = temporaryFolder.newFile();
+
+        measure("export.wide.jsonl", WIDE_ROWS, () -> new DbChecko(dbConnection)
+                .executeSelect("SELECT * FROM perf_wide", selectOptions(OutputFormat.JSONL, file)));
+
+        assertThat(countLines(file)).isEqualTo(WIDE_ROWS);
+    }
+
+    @Test
+    public void export_wideArrow() throws Exception {
+        final File file = temporaryFolder.newFile();
+
+        measure("export.wide.arrow", WIDE_ROWS, () -> new DbChecko(dbConnection)
+                .executeSelect("SELECT * FROM perf_wide", selectOptions(OutputFormat.ARROW, file)));
+
+        assertThat(file.length()).isPositive();
+    }
+
+    @Test
+    public void export_lobCsv() throws Exception {
+        final File file = temporaryFolder.newFile();
+
+        measure("export.lob.csv", LOB_ROWS, () -> new DbChecko(dbConnection)
+                .executeSelect("SELECT * FROM perf_lob", selectOptions(OutputFormat.CSV, file)));
+
+        assertThat(file.length()).isGreaterThan(LOB_ROWS * 10_000);
+    }
+
+    @Test
+    public void update_narrowTable() throws Exception {
+        measure("update.narrow", NARROW_ROWS / 4, () -> new DbChecko(dbConnection)
+                .executeUpdate("UPDATE perf_update SET amount = amount + 1 WHERE MOD(id, 4) = 0"));
+    }
+
+    private static SelectOptions selectOptions(OutputFormat format, File file) {
+        final SelectOptions options = new SelectOptions();
+        options.setFormat(format);
+        options.setOutputFile(file);
+        options.setFetchSize(FETCH_SIZE);
+        return options;
+    }
+
+    private static long countLines(File file) throws IOException {
+        try (Stream<String> lines = Files.lines(file.toPath())) {
+            return lines.count();
+        }
+    }
+
+    private void measure(String scenario, long rows, Runnable action) {
+        final Measurement measurement = Measurement.run(rows, action);
+        LogMF.info(LOG, "{0}: {1} rows/s, peak heap {2} MB, allocated {3} MB/s ({4} B/row)", new Object[] {
+                scenario, Math.round(measurement.getRowsPerSecond()), measurement.peakHeapBytes / (1024 * 1024),
+                Math.round(measurement.getAllocatedBytesPerSecond() / (1024 * 1024)),
+                Math.round(measurement.getAllocatedBytesPerRow())});
+
+        measured.setProperty(scenario + ".rowsPerSecond", String.valueOf(Math.round(measurement.getRowsPerSecond())));
+        if (measurement.peakHeapBytes > 0) {
+            // no retained heap is the same as a missing baseline, which is 0
+            measured.setProperty(scenario + ".peakHeapBytes", String.valueOf(measurement.peakHeapBytes));
+        }
+        measured.setProperty(scenario + ".allocatedBytesPerRow",
+                String.valueOf(Math.round(measurement.getAllocatedBytesPerRow())));
+
+        if (Boolean.getBoolean(UPDATE_BASELINE_PROPERTY)) {
+            return;
+        }
+        if (!baseline.containsKey(scenario + ".rowsPerSecond")) {
+            LogMF.warn(LOG, "No baseline of {0}, run with -D{1}=true to store it", scenario, UPDATE_BASELINE_PROPERTY);
+            return;
+        }
+        final double tolerance = Double.parseDouble(
+                System.getProperty(TOLERANCE_PROPERTY, String.valueOf(DEFAULT_TOLERANCE)));
+        final long baselineRowsPerSecond = getBaseline(scenario + ".rowsPerSecond");
+        final long baselinePeakHeap = Long.parseLong(baseline.getProperty(scenario + ".peakHeapBytes", "0"));
+        final long baselineAllocated = getBaseline(scenario + ".allocatedBytesPerRow");
+
+        assertThat(measurement.getRowsPerSecond())
+                .as("%s rows/s, baseline %d", scenario, baselineRowsPerSecond)
+                .isGreaterThanOrEqualTo(baselineRowsPerSecond * (1 - tolerance));
+        assertThat(measurement.peakHeapBytes)
+                .as("%s peak heap bytes, baseline %d", scenario, baselinePeakHeap)
+                .isLessThanOrEqualTo(Math.max((long) (baselinePeakHeap * (1 + tolerance)),
+                        baselinePeakHeap + HEAP_SLACK));
+        assertThat(measurement.getAllocatedBytesPerRow())
+                .as("%s allocated bytes per row, baseline %d", scenario, baselineAllocated)
+                .isLessThanOrEqualTo(baselineAllocated * (1 + tolerance));
+    }
+
+    private static long getBaseline(String key) {
+        return Long.parseLong(baseline.getProperty(key));
+    }
+
+    /**
+     * Result of one run of a scenario. Peak heap is the highest heap usage after a garbage collection during the run
+     * minus the usage after a full collection before it, so it's the memory retained by the scenario and not the
+     * garbage waiting for the next collection. Allocation is summed over all threads alive at the end of the run.
+     */
+    private static class Measurement {
+
+        private final long rows;
+        private final long nanos;
+        private final long peakHeapBytes;
+        private final long allocatedBytes;
+
+        private Measurement(long rows, long nanos, long peakHeapBytes, long allocatedBytes) {
+            this.rows = rows;
+            this.nanos = nanos;
+            this.peakHeapBytes = peakHeapBytes;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        static Measurement run(long rows, Runnable action) {
+            System.gc();
+            final long heapBefore = getHeapUsed();
+            final HeapAfterGcListener listener = new HeapAfterGcListener(heapBefore);
+            listener.register();
+            final Map<Long, Long> allocatedBefore = getAllocatedBytes();
+            try {
+                final long start = System.nanoTime();
+                action.run();
+                final long nanos = System.nanoTime() - start;
+                final long allocated = getAllocatedSince(allocatedBefore);
+                listener.awaitNotifications();
+                return new Measurement(rows, nanos, listener.getPeak() - heapBefore, allocated);
+            } finally {
+                listener.unregister();
+            }
+        }
+
+        double getRowsPerSecond() {
+            return rows * 1e9 / nanos;
+        }
+
+        double getAllocatedBytesPerSecond() {
+            return allocatedBytes * 1e9 / nanos;
+        }
+
+        double getAllocatedBytesPerRow() {
+            return (double) allocatedBytes / rows;
+        }
+
+        private static long getHeapUsed() {
+            long used = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    used += pool.getUsage().getUsed();
+                }
+            }
+            return used;
+        }
+
+        private static Map<Long, Long> getAllocatedBytes() {
+            final ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+            final long[] ids = threadMXBean.getAllThreadIds();
+            final long[] allocated = threadMXBean.getThreadAllocatedBytes(ids);
+            final Map<Long, Long> allocatedBytes = new HashMap<>();
+            for (int i = 0; i < ids.length; i++) {
+                if (allocated[i] >= 0) {
+                    allocatedBytes.put(ids[i], allocated[i]);
+                }
+            }
+            return allocatedBytes;
+        }
+
+        private static long getAllocatedSince(Map<Long, Long> allocatedBefore) {
+            long allocated = 0;
+            for (Map.Entry<Long, Long> entry : getAllocatedBytes().entrySet()) {
+                allocated += entry.getValue() - allocatedBefore.getOrDefault(entry.getKey(), 0L);
+            }
+            return allocated;
+        }
+    }
+
+    /**
+     * Tracks the highest heap usage after garbage collections reported by the collector notifications.
+     */
+    private static class HeapAfterGcListener implements NotificationListener {
+
+        private final Set<String> heapPools = new HashSet<>();
+        private final AtomicLong peak;
+        private final AtomicLong notified = new AtomicLong();
+        private long collectionsAtStart;
+
+        HeapAfterGcListener(long initialPeak) {
+            this.peak = new AtomicLong(initialPeak);
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    heapPools.add(pool.getName());
+                }
+            }
+        }
+
+        void register() {
+            collectionsAtStart = getCollectionCount();
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) collector).addNotificationListener(this, null, null);
+            }
+        }
+
+        void unregister() {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                try {
+                    ((NotificationEmitter) collector).removeNotificationListener(this);
+                } catch (Exception e) {
+                    LOG.warn("Failed to remove garbage collection listener", e);
+                }
+            }
+        }
+
+        /**
+         * Waits for the notifications of collections done so far, they are delivered asynchronously.
+         */
+        void awaitNotifications() {
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+            while (notified.get() < getCollectionCount() - collectionsAtStart && System.nanoTime() < deadline) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        private static long getCollectionCount() {
+            long count = 0;
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(collector.getCollectionCount(), 0);
+            }
+            return count;
+        }
+
+        long getPeak() {
+            return peak.get();
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            final GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            long used = 0;
+            for (Map.Entry<String, MemoryUsage> entry : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+                if (heapPools.contains(entry.getKey())) {
+                    used += entry.getValue().getUsed();
+                }
+            }
+            peak.accumulateAndGet(used, Math::max);
+            notified.incrementAndGet();
+        }
+    }
+}
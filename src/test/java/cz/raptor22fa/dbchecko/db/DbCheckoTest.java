@@ -28,23 +28,66 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.lang.reflect.Proxy;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import cz.raptor22fa.dbchecko.exception.DbCheckoException;
+import cz.raptor22fa.dbchecko.output.Compression;
+import cz.raptor22fa.dbchecko.output.OutputBuffer;
+import cz.raptor22fa.dbchecko.output.OutputFormat;
+import cz.raptor22fa.dbchecko.output.ParallelGzipChannel;
+import cz.raptor22fa.dbchecko.output.SynchronizedChannel;
+import cz.raptor22fa.dbchecko.sql.BatchOptions;
+import cz.raptor22fa.dbchecko.sql.BenchOptions;
+import cz.raptor22fa.dbchecko.sql.DiffOptions;
+import cz.raptor22fa.dbchecko.sql.ExplainMode;
+import cz.raptor22fa.dbchecko.sql.ImportOptions;
+import cz.raptor22fa.dbchecko.sql.QueryParameter;
+import cz.raptor22fa.dbchecko.sql.QueryPlan;
+import cz.raptor22fa.dbchecko.sql.ScriptOptions;
+import cz.raptor22fa.dbchecko.sql.SelectHandler;
+import cz.raptor22fa.dbchecko.sql.SelectOptions;
+import cz.raptor22fa.dbchecko.sql.StatementCanceller;
+import cz.raptor22fa.dbchecko.stats.JdbcMetrics;
+import cz.raptor22fa.dbchecko.stats.MetricsFormat;
 import org.apache.log4j.LogMF;
 import org.apache.log4j.Logger;
 import org.hsqldb.cmdline.SqlFile;
 import org.hsqldb.cmdline.SqlToolError;
+import org.hsqldb.server.Server;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import static org.assertj.core.api.Assertions.*;
 
 /**
@@ -56,6 +99,9 @@ public class DbCheckoTest {
 
     private static DbConnection dbConnection;
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @BeforeClass
     public static void beforeClass() throws Exception {
         dbConnection = createDbConnection();
@@ -114,6 +160,21 @@ public class DbCheckoTest {
         assertThat(connected).isTrue();
     }
 
+    @Test
+    public void check_driverResolvedFromUrl() {
+        // Given
+        DbConnection connection = new DbConnection(
+                dbConnection.getUrl(), dbConnection.getUser(), dbConnection.getPassword(), null);
+        DbChecko dbChecko = new DbChecko(connection);
+
+        // When
+        final boolean connected = dbChecko.check();
+
+        // Then
+        assertThat(connection.getDriverClassName()).isEqualTo("org.hsqldb.jdbc.JDBCDriver");
+        assertThat(connected).isTrue();
+    }
+
     @Test
     public void check_nonExistingDb() {
         // Given
@@ -131,6 +192,133 @@ public class DbCheckoTest {
         assertThat(connected).isFalse();
     }
 
+    @Test
+    public void probe() {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        ProbeOptions options = new ProbeOptions();
+        options.setInterval(50);
+        options.setDuration(1);
+        options.setReportInterval(1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        final boolean result = dbChecko.probe(options, new PrintStream(out));
+
+        // Then
+        assertThat(result).isTrue();
+        assertThat(out.toString())
+                .contains("Total probes: ")
+                .contains("connect failures: 0, query failures: 0")
+                .contains("connect  ms  p50:")
+                .contains("query    ms  p50:");
+    }
+
+    @Test
+    public void checkPhases() throws IOException {
+        // Given
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Server server = new Server();
+        server.setPort(port);
+        server.setDatabaseName(0, "phases");
+        server.setDatabasePath(0, "mem:phases");
+        server.setSilent(true);
+        server.setLogWriter(null);
+        server.setErrWriter(null);
+        server.start();
+        try {
+            DbChecko dbChecko = new DbChecko(new DbConnection("jdbc:hsqldb:hsql://localhost:" + port + "/phases",
+                    "SA", "", "org.hsqldb.jdbc.JDBCDriver"));
+            ConnectPhaseOptions options = new ConnectPhaseOptions();
+            options.setRuns(3);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            // When
+            final boolean result = dbChecko.checkPhases(options, new PrintStream(out));
+
+            // Then
+            assertThat(result).isTrue();
+            assertThat(out.toString()).containsSubsequence(
+                    "Connect phases of localhost:" + port + ", runs: 3, failures: 0",
+                    "dns      ms  p50:", "tcp      ms  p50:", "driver   ms  p50:", "login    ms  p50:",
+                    "query    ms  p50:", "first dns lookup: ");
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void checkPhases_listenerWithoutDatabase() throws IOException {
+        // Given
+        try (ServerSocket silentServer = new ServerSocket(0)) {
+            DbChecko dbChecko = new DbChecko(new DbConnection("jdbc:postgresql://localhost:"
+                    + silentServer.getLocalPort() + "/lportal", "user", "password", "org.postgresql.Driver"));
+            ConnectPhaseOptions options = new ConnectPhaseOptions();
+            options.setRuns(1);
+            options.setTimeout(1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            // When
+            final boolean result = dbChecko.checkPhases(options, new PrintStream(out));
+
+            // Then
+            assertThat(result).isFalse();
+            assertThat(out.toString()).containsSubsequence(
+                    "runs: 1, failures: 1", "tcp      ms  p50:", "driver   ms  p50:", "failures: 1");
+            assertThat(out.toString()).doesNotContain("query ");
+        }
+    }
+
+    @Test
+    public void connectPhaseCheck_parseAddress() {
+        assertThat(ConnectPhaseCheck.parseAddress("jdbc:postgresql://db1:5433,db2/lportal?ssl=true"))
+                .isEqualTo(InetSocketAddress.createUnresolved("db1", 5433));
+        assertThat(ConnectPhaseCheck.parseAddress("jdbc:postgresql://db/lportal"))
+                .isEqualTo(InetSocketAddress.createUnresolved("db", 5432));
+        assertThat(ConnectPhaseCheck.parseAddress("jdbc:sqlserver://db\\sql1;portNumber=1444;databaseName=lportal"))
+                .isEqualTo(InetSocketAddress.createUnresolved("db", 1444));
+        assertThat(ConnectPhaseCheck.parseAddress("jdbc:oracle:thin:@db:1522:xe"))
+                .isEqualTo(InetSocketAddress.createUnresolved("db", 1522));
+        assertThat(ConnectPhaseCheck.parseAddress("jdbc:mysql://user:secret@[::1]/lportal"))
+                .isEqualTo(InetSocketAddress.createUnresolved("::1", 3306));
+        assertThat(ConnectPhaseCheck.parseAddress("jdbc:hsqldb:mem:lportal")).isNull();
+    }
+
+    @Test
+    public void fleetCheck() throws IOException {
+        // Given
+        File invalidFile = temporaryFolder.newFile("invalid.properties");
+        List<CheckTarget> targets = new ArrayList<>();
+        targets.add(CheckTarget.of("hsqldb", dbConnection));
+        targets.addAll(CheckTarget.fromFiles(Arrays.asList(invalidFile), Collections.<File>emptyList()));
+        try (ServerSocket silentServer = new ServerSocket(0)) {
+            for (int i = 0; i < 3; i++) {
+                targets.add(CheckTarget.of("silent" + i, new DbConnection("jdbc:postgresql://localhost:"
+                        + silentServer.getLocalPort() + "/lportal", "user", "password", "org.postgresql.Driver")));
+            }
+            FleetCheck fleetCheck = new FleetCheck(targets, 1, 4);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            // When
+            final long startTime = System.nanoTime();
+            List<CheckResult> results = fleetCheck.run();
+            final long wallTime = System.nanoTime() - startTime;
+            FleetCheck.print(results, CheckFormat.JSON, wallTime, new PrintStream(out));
+
+            // Then
+            assertThat(results).extracting(CheckResult::getStatus).startsWith(
+                    CheckResult.Status.OK, CheckResult.Status.ERROR);
+            assertThat(results.subList(2, 5)).extracting(CheckResult::getStatus)
+                    .isSubsetOf(CheckResult.Status.FAILED, CheckResult.Status.TIMEOUT);
+            assertThat(wallTime).isLessThan(TimeUnit.SECONDS.toNanos(3));
+            assertThat(out.toString()).contains("{\"target\":\"hsqldb\",\"url\":\"jdbc:hsqldb:mem:users\","
+                    + "\"status\":\"OK\"");
+        }
+    }
+
     @Test
     public void executeSelect() {
         // Given
@@ -153,6 +341,583 @@ public class DbCheckoTest {
         }
     }
 
+    @Test
+    public void executeSelect_streaming() throws SQLException {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        ByteArrayOutputStream testOutputStream = new ByteArrayOutputStream();
+        SelectOptions options = new SelectOptions();
+        options.setFetchSize(1);
+
+        // When
+        try (PrintStream output = new PrintStream(testOutputStream)) {
+            dbChecko.executeSelect("SELECT id, name FROM user_ ORDER BY id", options, output);
+
+            // Then
+            final String outputString = testOutputStream.toString();
+            assertThat(outputString).containsSubsequence(
+                    "ID         || NAME      ",
+                    "1          || Raptor    ",
+                    "2          || Peter     ",
+                    "3          || John      "
+            );
+        }
+    }
+
+    @Test
+    public void executeSelect_autoWidth() {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        ByteArrayOutputStream testOutputStream = new ByteArrayOutputStream();
+        SelectOptions options = new SelectOptions();
+        options.setAutoWidthRows(2);
+
+        // When
+        try (PrintStream output = new PrintStream(testOutputStream)) {
+            dbChecko.executeSelect("SELECT name || '-' || name || '-' || name AS long_name, id FROM user_ ORDER BY id",
+                    options, output);
+
+            // Then
+            final String outputString = testOutputStream.toString();
+            assertThat(outputString).containsSubsequence(
+                    "LONG_NAME            || ID        ",
+                    "Raptor-Raptor-Raptor || 1         ",
+                    "Peter-Peter-Peter    || 2         ",
+                    "John-John-John       || 3         "
+            );
+        }
+    }
+
+    @Test
+    public void executeSelect_maxRows() {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        ByteArrayOutputStream testOutputStream = new ByteArrayOutputStream();
+        SelectOptions options = new SelectOptions();
+        options.setMaxRows(2);
+
+        // When
+        try (PrintStream output = new PrintStream(testOutputStream)) {
+            dbChecko.executeSelect("SELECT id, name FROM user_ ORDER BY id", options, output);
+
+            // Then
+            final String outputString = testOutputStream.toString();
+            assertThat(outputString).contains("Raptor").contains("Peter").doesNotContain("John");
+        }
+    }
+
+    @Test
+    public void statementCanceller_cancelsOnTimeout() throws Exception {
+        // Given
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        try (Connection connection = dbConnection.connect(new Properties());
+                Statement statement = connection.createStatement()) {
+            Statement watchedStatement = (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                    new Class<?>[] {Statement.class}, (proxy, method, args) -> {
+                        if ("cancel".equals(method.getName())) {
+                            cancelled.countDown();
+                        }
+                        return method.invoke(statement, args);
+                    });
+
+            // When
+            try (StatementCanceller canceller = new StatementCanceller(watchedStatement, 1)) {
+                // Then
+                assertThat(cancelled.await(5, TimeUnit.SECONDS)).isTrue();
+                assertThat(canceller.isCancelled()).isTrue();
+                assertThat(canceller.getReason()).isEqualTo("timeout of 1 s");
+            }
+        }
+    }
+
+    @Test
+    public void executeSelect_explainAnalyze() {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        ByteArrayOutputStream testOutputStream = new ByteArrayOutputStream();
+        SelectOptions options = new SelectOptions();
+        options.setFormat(OutputFormat.CSV);
+        options.setExplain(ExplainMode.ANALYZE);
+        options.setParameters(Collections.singletonList(new QueryParameter("id", Types.INTEGER, "1")));
+
+        // When
+        try (PrintStream output = new PrintStream(testOutputStream)) {
+            dbChecko.executeSelect("SELECT id, name FROM user_ WHERE id > :id", options, output);
+
+            // Then
+            assertThat(testOutputStream.toString()).containsSubsequence(
+                    "PLAN", "table=USER_",
+                    "Plan summary", "Execution time: ", "Rows: 2 actual", "Most expensive nodes:", " on USER_"
+            );
+        }
+    }
+
+    @Test
+    public void queryPlan_parsePostgres() {
+        // Given
+        String json = "[{\"Plan\": {\"Node Type\": \"Hash Join\", \"Total Cost\": 40.5, \"Plan Rows\": 100,"
+                + " \"Actual Rows\": 90, \"Actual Loops\": 1, \"Actual Total Time\": 12.0, \"Plans\": ["
+                + "{\"Node Type\": \"Seq Scan\", \"Relation Name\": \"user_\", \"Total Cost\": 30.0,"
+                + " \"Plan Rows\": 1000, \"Actual Rows\": 950, \"Actual Loops\": 1, \"Actual Total Time\": 9.5},"
+                + "{\"Node Type\": \"Index Scan\", \"Relation Name\": \"group_\", \"Index Name\": \"group_pk\","
+                + " \"Total Cost\": 0.5, \"Plan Rows\": 1, \"Actual Rows\": 1, \"Actual Loops\": 2,"
+                + " \"Actual Total Time\": 0.25}]}, \"Planning Time\": 0.125, \"Execution Time\": 12.5}]";
+
+        // When
+        QueryPlan plan = QueryPlan.parsePostgres(json);
+
+        // Then
+        assertThat(plan.getPlanningTime()).isEqualTo(0.125);
+        assertThat(plan.getExecutionTime()).isEqualTo(12.5);
+        assertThat(plan.getEstimatedRows()).isEqualTo(100.0);
+        assertThat(plan.getActualRows()).isEqualTo(90.0);
+        assertThat(plan.getNodes()).hasSize(3);
+        List<QueryPlan.PlanNode> expensiveNodes = plan.getExpensiveNodes(2);
+        assertThat(expensiveNodes).extracting(QueryPlan.PlanNode::getName)
+                .containsExactly("Seq Scan on user_", "Hash Join");
+        assertThat(expensiveNodes.get(1).getTime()).isEqualTo(2.0);
+        assertThat(expensiveNodes.get(1).getCost()).isEqualTo(10.0);
+    }
+
+    @Test
+    public void executeSelect_namedParameters() {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        ByteArrayOutputStream testOutputStream = new ByteArrayOutputStream();
+        SelectOptions options = new SelectOptions();
+        options.setParameters(Arrays.asList(QueryParameter.parse("id=1"), QueryParameter.parse("name:varchar=John")));
+
+        // When
+        try (PrintStream output = new PrintStream(testOutputStream)) {
+            dbChecko.executeSelect("SELECT id, name, ':id' AS literal FROM user_ WHERE id > :id AND name <> :name",
+                    options, output);
+
+            // Then
+            final String outputString = testOutputStream.toString();
+            assertThat(outputString).contains("2          || Peter      || :id");
+            assertThat(outputString).doesNotContain("Raptor").doesNotContain("John");
+        }
+    }
+
+    @Test
+    public void executeSelect_questionMarkOperator() throws SQLException {
+        // Given
+        ByteArrayOutputStream testOutputStream = new ByteArrayOutputStream();
+        try (Connection connection = dbConnection.connect(new Properties())) {
+            // emulates a ? operator (e.g. PostgreSQL jsonb) which only a plain statement passes to the database
+            Connection operatorConnection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                        if ("prepareStatement".equals(method.getName())) {
+                            throw new SQLException("No value specified for parameter 1");
+                        }
+                        Object result = method.invoke(connection, args);
+                        if (!"createStatement".equals(method.getName())) {
+                            return result;
+                        }
+                        return Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                                new Class<?>[] {Statement.class}, (statementProxy, statementMethod, statementArgs) -> {
+                                    if ("executeQuery".equals(statementMethod.getName())) {
+                                        statementArgs[0] = ((String) statementArgs[0]).replace(" ? ", " LIKE ");
+                                    }
+                                    return statementMethod.invoke(result, statementArgs);
+                                });
+                    });
+
+            // When
+            try (PrintStream output = new PrintStream(testOutputStream)) {
+                new SelectHandler(operatorConnection, "SELECT id, name FROM user_ WHERE name ? 'J%'", output,
+                        new SelectOptions()).execute();
+            }
+        }
+
+        // Then
+        assertThat(testOutputStream.toString()).contains("3          || John").doesNotContain("Raptor");
+    }
+
+    @Test
+    public void executeSelect_streamingFailureRolledBack() throws SQLException {
+        // Given
+        List<String> transactionCalls = new ArrayList<>();
+        SelectOptions options = new SelectOptions();
+        options.setFetchSize(10);
+        Throwable thrown;
+        try (Connection connection = dbConnection.connect(new Properties())) {
+            // emulates a connection broken by a cancelled statement
+            Connection brokenConnection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                        if ("commit".equals(method.getName()) || "rollback".equals(method.getName())) {
+                            transactionCalls.add(method.getName());
+                            throw new SQLException("Connection is closed");
+                        }
+                        return method.invoke(connection, args);
+                    });
+
+            // When
+            thrown = catchThrowable(() -> new SelectHandler(brokenConnection, "SELECT missing_column FROM user_",
+                    new PrintStream(new ByteArrayOutputStream()), options).execute());
+        }
+
+        // Then
+        assertThat(transactionCalls).containsExactly("rollback");
+        assertThat(thrown).isInstanceOf(DbCheckoException.class);
+        assertThat(thrown.getCause()).hasMessageContaining("MISSING_COLUMN");
+    }
+
+    @Test
+    public void executeSelect_metrics() throws IOException {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        JdbcMetrics metrics = new JdbcMetrics("select");
+        dbChecko.setMetrics(metrics);
+        File metricsFile = temporaryFolder.newFile("dbchecko.prom");
+
+        // When
+        try (PrintStream output = new PrintStream(new ByteArrayOutputStream())) {
+            dbChecko.executeSelect("SELECT id, name FROM user_ ORDER BY id", new SelectOptions(), output);
+        }
+        metrics.write(metricsFile, MetricsFormat.PROMETHEUS);
+
+        // Then
+        assertThat(metrics.getConnections()).isEqualTo(1);
+        assertThat(metrics.getExecutions()).isEqualTo(1);
+        assertThat(metrics.getRows()).isEqualTo(3);
+        assertThat(metrics.getBytes()).isGreaterThanOrEqualTo("JohnPeterRaptor".length());
+        assertThat(metrics.getRenderTime()).isPositive();
+        assertThat(metrics.format(MetricsFormat.JSON)).startsWith("{\"command\":\"select\",\"connections\":1,")
+                .contains("\"rows\":3,");
+        assertThat(new String(Files.readAllBytes(metricsFile.toPath()), StandardCharsets.UTF_8))
+                .contains("# TYPE dbchecko_rows gauge\ndbchecko_rows{command=\"select\"} 3\n");
+    }
+
+    @Test
+    public void executeSelect_csvFile() throws IOException {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        File outputFile = temporaryFolder.newFile("users.csv");
+        SelectOptions options = new SelectOptions();
+        options.setFormat(OutputFormat.CSV);
+        options.setOutputFile(outputFile);
+
+        // When
+        dbChecko.executeSelect("SELECT id, name, CASE WHEN id = 1 THEN 'say \"hi\", ok' END AS note "
+                + "FROM user_ ORDER BY id", options);
+
+        // Then
+        final List<String> lines = Files.readAllLines(outputFile.toPath(), StandardCharsets.UTF_8);
+        assertThat(lines).containsExactly(
+                "ID,NAME,NOTE",
+                "1,Raptor,\"say \"\"hi\"\", ok\"",
+                "2,Peter,",
+                "3,John,"
+        );
+    }
+
+    @Test
+    public void executeSelect_tsvFile() throws IOException {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        File outputFile = temporaryFolder.newFile("users.tsv");
+        SelectOptions options = new SelectOptions();
+        options.setFormat(OutputFormat.TSV);
+        options.setOutputFile(outputFile);
+
+        // When
+        dbChecko.executeSelect("SELECT id, name, CASE WHEN id = 1 THEN 'tab' || CHAR(9) || 'new' || CHAR(10) "
+                + "|| 'line\\path' END AS note FROM user_ WHERE id <= 2 ORDER BY id", options);
+
+        // Then
+        final String output = new String(Files.readAllBytes(outputFile.toPath()), StandardCharsets.UTF_8);
+        assertThat(output).isEqualTo("ID\tNAME\tNOTE\n"
+                + "1\tRaptor\ttab\\tnew\\nline\\\\path\n"
+                + "2\tPeter\t\\N\n");
+    }
+
+    @Test
+    public void executeSelect_paged() throws IOException {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        File outputFile = temporaryFolder.newFile("users.csv");
+        File checkpointFile = new File(temporaryFolder.getRoot(), "users.checkpoint");
+        SelectOptions options = new SelectOptions();
+        options.setFormat(OutputFormat.CSV);
+        options.setOutputFile(outputFile);
+        options.setPageKey("id");
+        options.setPageSize(2);
+        options.setCheckpointFile(checkpointFile);
+
+        // When
+        dbChecko.executeSelect("SELECT id, name FROM user_", options);
+
+        // Then
+        assertThat(Files.readAllLines(outputFile.toPath(), StandardCharsets.UTF_8))
+                .containsExactly("ID,NAME", "1,Raptor", "2,Peter", "3,John");
+        assertThat(checkpointFile).doesNotExist();
+    }
+
+    @Test
+    public void executeSelect_gzipShards() throws IOException {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        File outputFile = new File(temporaryFolder.getRoot(), "users.csv.gz");
+        SelectOptions options = new SelectOptions();
+        options.setFormat(OutputFormat.CSV);
+        options.setOutputFile(outputFile);
+        options.setCompression(Compression.GZIP);
+        options.setCompressionThreads(2);
+        options.setShardSize(1);
+
+        // When
+        dbChecko.executeSelect("SELECT id, name FROM user_ ORDER BY id", options);
+
+        // Then
+        assertThat(outputFile).doesNotExist();
+        assertThat(gunzip(new File(temporaryFolder.getRoot(), "users-00001.csv.gz"))).isEqualTo("ID,NAME\n1,Raptor\n");
+        assertThat(gunzip(new File(temporaryFolder.getRoot(), "users-00002.csv.gz"))).isEqualTo("ID,NAME\n2,Peter\n");
+        assertThat(gunzip(new File(temporaryFolder.getRoot(), "users-00003.csv.gz"))).isEqualTo("ID,NAME\n3,John\n");
+        assertThat(new File(temporaryFolder.getRoot(), "users-00004.csv.gz")).doesNotExist();
+    }
+
+    @Test
+    public void parallelGzipChannel_writesMembersInOrder() throws IOException {
+        // Given
+        File file = temporaryFolder.newFile("blocks.gz");
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            expected.append("row ").append(i).append('\n');
+        }
+
+        // When
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+                ParallelGzipChannel channel = new ParallelGzipChannel(fileChannel, 3, 100, Deflater.BEST_SPEED)) {
+            channel.write(ByteBuffer.wrap(expected.toString().getBytes(StandardCharsets.UTF_8)));
+            assertThat(channel.getInputSize()).isEqualTo(expected.length());
+        }
+
+        // Then
+        assertThat(gunzip(file)).isEqualTo(expected.toString());
+    }
+
+    @Test
+    public void executeSelect_pagedResume() throws IOException {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        final String query = "SELECT id, name FROM user_";
+        final String checkpointed = "ID,NAME\n1,Raptor\n";
+        File outputFile = temporaryFolder.newFile("users.csv");
+        Files.write(outputFile.toPath(), (checkpointed + "2,Pe").getBytes(StandardCharsets.UTF_8));
+        File checkpointFile = temporaryFolder.newFile("users.checkpoint");
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("query", query);
+        checkpoint.setProperty("key", "id");
+        checkpoint.setProperty("keyType", String.valueOf(Types.INTEGER));
+        checkpoint.setProperty("lastKey", "1");
+        checkpoint.setProperty("rows", "1");
+        checkpoint.setProperty("outputSize", String.valueOf(checkpointed.length()));
+        try (OutputStream out = Files.newOutputStream(checkpointFile.toPath())) {
+            checkpoint.store(out, null);
+        }
+        SelectOptions options = new SelectOptions();
+        options.setFormat(OutputFormat.CSV);
+        options.setOutputFile(outputFile);
+        options.setPageKey("id");
+        options.setPageSize(1);
+        options.setCheckpointFile(checkpointFile);
+        options.setResume(true);
+
+        // When
+        dbChecko.executeSelect(query, options);
+
+        // Then
+        assertThat(Files.readAllLines(outputFile.toPath(), StandardCharsets.UTF_8))
+                .containsExactly("ID,NAME", "1,Raptor", "2,Peter", "3,John");
+        assertThat(checkpointFile).doesNotExist();
+    }
+
+    @Test
+    public void executeSelect_jsonLines() {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        ByteArrayOutputStream testOutputStream = new ByteArrayOutputStream();
+        SelectOptions options = new SelectOptions();
+        options.setFormat(OutputFormat.JSONL);
+
+        // When
+        try (PrintStream output = new PrintStream(testOutputStream)) {
+            dbChecko.executeSelect("SELECT id, name, CASE WHEN id = 2 THEN 'a\tb' END AS note "
+                    + "FROM user_ ORDER BY id", options, output);
+
+            // Then
+            assertThat(testOutputStream.toString()).isEqualTo(
+                    "{\"ID\":1,\"NAME\":\"Raptor\",\"NOTE\":null}\n"
+                    + "{\"ID\":2,\"NAME\":\"Peter\",\"NOTE\":\"a\\tb\"}\n"
+                    + "{\"ID\":3,\"NAME\":\"John\",\"NOTE\":null}\n");
+        }
+    }
+
+    @Test
+    public void executeSelect_arrow() throws IOException {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        File outputFile = temporaryFolder.newFile("users.arrow");
+        SelectOptions options = new SelectOptions();
+        options.setFormat(OutputFormat.ARROW);
+        options.setOutputFile(outputFile);
+        options.setBatchSize(2);
+
+        // When
+        dbChecko.executeSelect("SELECT id, name FROM user_ ORDER BY id", options);
+
+        // Then
+        final byte[] bytes = Files.readAllBytes(outputFile.toPath());
+        final ByteBuffer stream = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int messageCount = 0;
+        while (true) {
+            assertThat(stream.getInt()).isEqualTo(0xFFFFFFFF);
+            final int metadataLength = stream.getInt();
+            if (metadataLength == 0) {
+                break;
+            }
+            assertThat(metadataLength % 8).isZero();
+            final int metadataStart = stream.position();
+            final int message = metadataStart + stream.getInt(metadataStart);
+            final int vtable = message - stream.getInt(message);
+            final int bodyLengthOffset = stream.getShort(vtable + 4 + 3 * 2);
+            final long bodyLength = bodyLengthOffset == 0 ? 0 : stream.getLong(message + bodyLengthOffset);
+            stream.position((int) (metadataStart + metadataLength + bodyLength));
+            messageCount++;
+        }
+        // schema and two record batches
+        assertThat(messageCount).isEqualTo(3);
+        assertThat(stream.hasRemaining()).isFalse();
+        assertThat(new String(bytes, StandardCharsets.UTF_8)).contains("ID", "NAME", "Raptor", "Peter", "John");
+    }
+
+    @Test
+    public void executeSelect_partitionedOrdered() {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        ByteArrayOutputStream testOutputStream = new ByteArrayOutputStream();
+        SelectOptions options = new SelectOptions();
+        options.setFormat(OutputFormat.CSV);
+        options.setPartitionColumn("id");
+        options.setParallelism(3);
+        options.setOrdered(true);
+
+        // When
+        try (PrintStream output = new PrintStream(testOutputStream)) {
+            dbChecko.executeSelect("SELECT id, name FROM user_", options, output);
+
+            // Then
+            assertThat(testOutputStream.toString()).isEqualTo("ID,NAME\n1,Raptor\n2,Peter\n3,John\n");
+        }
+    }
+
+    @Test
+    public void executeSelect_partitionedOrderedNullKey() throws SQLException {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        ByteArrayOutputStream testOutputStream = new ByteArrayOutputStream();
+        SelectOptions options = new SelectOptions();
+        options.setFormat(OutputFormat.CSV);
+        options.setPartitionColumn("k");
+        options.setParallelism(2);
+        options.setOrdered(true);
+
+        // When
+        try (Connection connection = getConnection(); Statement statement = connection.createStatement();
+                PrintStream output = new PrintStream(testOutputStream)) {
+            // nulls sorted last like PostgreSQL does
+            statement.execute("SET DATABASE SQL NULLS FIRST FALSE");
+            try {
+                dbChecko.executeSelect("SELECT CASE WHEN id = 2 THEN NULL ELSE id END AS k, name FROM user_",
+                        options, output);
+            } finally {
+                statement.execute("SET DATABASE SQL NULLS FIRST TRUE");
+            }
+        }
+
+        // Then
+        assertThat(testOutputStream.toString()).isEqualTo("K,NAME\n,Peter\n1,Raptor\n3,John\n");
+    }
+
+    @Test
+    public void executeSelect_partitionedUnordered() {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        ByteArrayOutputStream testOutputStream = new ByteArrayOutputStream();
+        SelectOptions options = new SelectOptions();
+        options.setFormat(OutputFormat.CSV);
+        options.setPartitionColumn("id");
+        options.setParallelism(2);
+
+        // When
+        try (PrintStream output = new PrintStream(testOutputStream)) {
+            dbChecko.executeSelect("SELECT id, name FROM user_", options, output);
+
+            // Then
+            final String[] lines = testOutputStream.toString().split("\n");
+            assertThat(lines[0]).isEqualTo("ID,NAME");
+            assertThat(lines).hasSize(4).contains("1,Raptor", "2,Peter", "3,John");
+        }
+    }
+
+    @Test
+    public void outputBuffer_sharedChannelGetsWholeRows() throws Exception {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SynchronizedChannel sharedChannel = new SynchronizedChannel(Channels.newChannel(out));
+        List<Thread> writers = new ArrayList<>();
+        for (char c : new char[] {'a', 'b'}) {
+            // rows are longer than the buffer, so every block grows beyond its capacity
+            writers.add(new Thread(() -> {
+                try (OutputBuffer buffer = new OutputBuffer(sharedChannel, StandardCharsets.US_ASCII, 16)) {
+                    for (int i = 0; i < 1000; i++) {
+                        buffer.repeat(c, 40).append('\n').endRow();
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+
+        // When
+        writers.forEach(Thread::start);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        // Then
+        String a = new String(new char[40]).replace('\0', 'a');
+        String b = new String(new char[40]).replace('\0', 'b');
+        String[] lines = new String(out.toByteArray(), StandardCharsets.US_ASCII).split("\n");
+        assertThat(lines).hasSize(2000).containsOnly(a, b);
+    }
+
+    @Test
+    public void executeBench() throws IOException {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        File valuesFile = temporaryFolder.newFile("ids.csv");
+        Files.write(valuesFile.toPath(), Arrays.asList("id", "1", "2", "3"), StandardCharsets.UTF_8);
+        BenchOptions benchOptions = new BenchOptions();
+        benchOptions.setConcurrency(3);
+        benchOptions.setIterations(300);
+        benchOptions.setWarmup(0);
+        benchOptions.setValuesFile(valuesFile);
+        benchOptions.setHeader(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        dbChecko.executeBench("SELECT * FROM user_ WHERE id >= ?", new SelectOptions(), benchOptions,
+                new PrintStream(out));
+
+        // Then
+        assertThat(out.toString())
+                .contains("Connections: 3, iterations: 300, errors: 0, rows: 600,")
+                .contains("QPS: ")
+                .contains("Latency ms  mean: ");
+    }
+
     @Test
     public void executeUpdate() throws SQLException {
         // Given
@@ -173,4 +938,342 @@ public class DbCheckoTest {
             }
         }
     }
+
+    @Test
+    public void executeBatch_statementsFile() throws IOException, SQLException {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        File statementsFile = temporaryFolder.newFile("fix.sql");
+        Files.write(statementsFile.toPath(), Arrays.asList(
+                "-- fix names",
+                "UPDATE user_ SET name = 'SuperRaptor' WHERE id = 1;",
+                "",
+                "UPDATE user_ SET name = 'SuperPeter' WHERE id = 2;",
+                "DELETE FROM user_ WHERE id = 3;"
+        ), StandardCharsets.UTF_8);
+        BatchOptions options = new BatchOptions();
+        options.setStatementsFile(statementsFile);
+        options.setBatchSize(2);
+
+        // When
+        dbChecko.executeBatch(options);
+
+        // Then
+        assertThat(selectNames()).containsExactly("SuperRaptor", "SuperPeter");
+    }
+
+    @Test
+    public void executeBatch_rewrittenTemplate() throws IOException, SQLException {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        File valuesFile = temporaryFolder.newFile("users.csv");
+        Files.write(valuesFile.toPath(), Arrays.asList(
+                "id,name",
+                "4,\"Smith, Anna\"",
+                "5,Lucy",
+                "6,\"\"",
+                "7,Mark",
+                "8,Tom"
+        ), StandardCharsets.UTF_8);
+        BatchOptions options = new BatchOptions();
+        options.setTemplate("INSERT INTO user_ (id, name) VALUES (?, ?)");
+        options.setValuesFile(valuesFile);
+        options.setHeader(true);
+        options.setBatchSize(3);
+        options.setCommitInterval(3);
+        options.setRewriteBatchedInserts(true);
+
+        // When
+        dbChecko.executeBatch(options);
+
+        // Then
+        assertThat(selectNames()).containsExactly("Raptor", "Peter", "John", "Smith, Anna", "Lucy", "", "Mark",
+                "Tom");
+    }
+
+    @Test
+    public void executeBatch_templateWithTrailingClause() throws IOException, SQLException {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        File valuesFile = temporaryFolder.newFile("users.csv");
+        Files.write(valuesFile.toPath(), Arrays.asList("1,Raptor", "4,Lucy", "2,Peter"), StandardCharsets.UTF_8);
+        BatchOptions options = new BatchOptions();
+        options.setTemplate("INSERT INTO user_ (id, name) VALUES (?, ?)"
+                + " ON DUPLICATE KEY UPDATE name = CONCAT(name, '!')");
+        options.setValuesFile(valuesFile);
+        options.setBatchSize(3);
+        options.setRewriteBatchedInserts(true);
+
+        // When
+        try (Connection connection = getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("SET DATABASE SQL SYNTAX MYS TRUE");
+            try {
+                dbChecko.executeBatch(options);
+            } finally {
+                statement.execute("SET DATABASE SQL SYNTAX MYS FALSE");
+            }
+        }
+
+        // Then
+        assertThat(selectNames()).containsExactly("Raptor!", "Peter!", "John", "Lucy");
+    }
+
+    @Test
+    public void executeImport() throws IOException, SQLException {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        File file = temporaryFolder.newFile("import.csv");
+        List<String> lines = new ArrayList<>();
+        lines.add("name;id");
+        for (int id = 4; id <= 2503; id++) {
+            lines.add("\"user;" + id + "\";" + id);
+        }
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+        ImportOptions options = new ImportOptions();
+        options.setFile(file);
+        options.setTable("user_");
+        options.setColumns(Arrays.asList("name", "id"));
+        options.setHeader(true);
+        options.setDelimiter(';');
+        options.setBatchSize(1000);
+
+        // When
+        dbChecko.executeImport(options);
+
+        // Then
+        final List<String> names = selectNames();
+        assertThat(names).hasSize(2503);
+        assertThat(names.subList(0, 4)).containsExactly("Raptor", "Peter", "John", "user;4");
+        assertThat(names.get(2502)).isEqualTo("user;2503");
+    }
+
+    @Test
+    public void session_reusesPooledConnection() throws SQLException {
+        // Given
+        PoolOptions options = new PoolOptions();
+        options.setMinSize(0);
+        options.setMaxSize(2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (DbCheckoSession session = new DbCheckoSession(dbConnection, options)) {
+            // When
+            assertThat(session.check()).isTrue();
+            session.executeUpdate("UPDATE user_ SET name='SuperRaptor' WHERE id=1");
+            session.executeSelect("SELECT name FROM user_ WHERE id=1", new PrintStream(out));
+
+            // Then
+            PoolStats stats = session.getPoolStats();
+            assertThat(stats.getCreated()).isEqualTo(1);
+            assertThat(stats.getBorrowed()).isEqualTo(3);
+            assertThat(stats.getActive()).isEqualTo(0);
+            assertThat(stats.getIdle()).isEqualTo(1);
+        }
+        assertThat(out.toString()).contains("SuperRaptor");
+    }
+
+    @Test
+    public void connectionPool_reusesPreparedStatements() throws SQLException {
+        // Given
+        PoolOptions options = new PoolOptions();
+        options.setMinSize(0);
+        options.setMaxSize(1);
+        final String sql = "SELECT name FROM user_ WHERE id = ?";
+
+        try (ConnectionPool pool = new ConnectionPool(dbConnection, options)) {
+            // When
+            PreparedStatement first;
+            try (Connection connection = pool.getConnection();
+                    StatementCache statements = StatementCache.of(connection)) {
+                first = statements.prepare(sql);
+            }
+            try (Connection connection = pool.getConnection();
+                    StatementCache statements = StatementCache.of(connection)) {
+                PreparedStatement second = statements.prepare(sql);
+
+                // Then
+                assertThat(second).isSameAs(first);
+                assertThat(statements.getHits()).isEqualTo(1);
+                assertThat(statements.getMisses()).isEqualTo(1);
+            }
+        }
+    }
+
+    @Test
+    public void connectionPool_neverExceedsMaxSize() throws SQLException {
+        // Given
+        PoolOptions options = new PoolOptions();
+        options.setMinSize(2);
+        options.setMaxSize(2);
+
+        for (int i = 0; i < 10; i++) {
+            try (ConnectionPool pool = new ConnectionPool(dbConnection, options)) {
+                // When the borrowers race the evictor filling the min size
+                try (Connection first = pool.getConnection(); Connection second = pool.getConnection()) {
+                    // Then
+                    assertThat(pool.getStats().getCreated()).isLessThanOrEqualTo(2);
+                }
+                assertThat(pool.getStats().getCreated()).isLessThanOrEqualTo(2);
+            }
+        }
+    }
+
+    @Test
+    public void connectionPool_restoresConnectionSettings() throws SQLException {
+        // Given
+        PoolOptions options = new PoolOptions();
+        options.setMinSize(0);
+        options.setMaxSize(1);
+
+        try (ConnectionPool pool = new ConnectionPool(dbConnection, options)) {
+            int defaultIsolation;
+            try (Connection connection = pool.getConnection()) {
+                defaultIsolation = connection.getTransactionIsolation();
+                connection.setReadOnly(true);
+                connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            }
+
+            // When
+            try (Connection connection = pool.getConnection()) {
+                // Then
+                assertThat(pool.getStats().getCreated()).isEqualTo(1);
+                assertThat(connection.isReadOnly()).isFalse();
+                assertThat(connection.getTransactionIsolation()).isEqualTo(defaultIsolation)
+                        .isNotEqualTo(Connection.TRANSACTION_SERIALIZABLE);
+            }
+        }
+    }
+
+    @Test
+    public void healthServer() throws Exception {
+        // Given
+        ServeOptions options = new ServeOptions();
+        options.setPort(0);
+        options.setBindAddress("127.0.0.1");
+        options.setInterval(50);
+
+        try (HealthServer server = new HealthServer(dbConnection, options)) {
+            // When
+            server.start();
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (server.getLastResult() == null && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            final String baseUrl = "http://127.0.0.1:" + server.getPort();
+
+            // Then
+            assertThat(server.getLastResult().getStatus()).isEqualTo(CheckResult.Status.OK);
+            assertThat(httpGet(baseUrl + "/health")).startsWith("200 {\"status\":\"OK\"");
+            assertThat(httpGet(baseUrl + "/ready")).startsWith("200 {\"status\":\"OK\"");
+            assertThat(httpGet(baseUrl + "/metrics")).startsWith("200 ").contains("\ndbchecko_up 1\n")
+                    .contains("\ndbchecko_connections_created_total 1\n");
+            assertThat(httpGet(baseUrl + "/unknown")).startsWith("404 ");
+        }
+    }
+
+    private static String gunzip(File file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file.toPath()))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, count);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String httpGet(String url) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            final int status = connection.getResponseCode();
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                final ByteArrayOutputStream body = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    body.write(buffer, 0, read);
+                }
+                return status + " " + new String(body.toByteArray(), StandardCharsets.UTF_8);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void executeDiff() throws SQLException {
+        // Given
+        DbConnection targetConnection = new DbConnection("jdbc:hsqldb:mem:users_copy", "sa", "", null);
+        try (Connection connection = targetConnection.connect(new Properties());
+                Statement statement = connection.createStatement()) {
+            executeScript("/sql/init-db.sql", connection);
+            statement.executeUpdate("DELETE FROM user_ WHERE id = 3");
+            statement.executeUpdate("UPDATE user_ SET name = 'Pete' WHERE id = 2");
+            statement.executeUpdate("INSERT INTO user_ VALUES (4, 'Paul')");
+        }
+        DiffOptions options = new DiffOptions();
+        options.setTable("user_");
+        options.setKey("id");
+        options.setChunkSize(2);
+        options.setParallelism(2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try {
+            // When
+            boolean same = new DbChecko(dbConnection).executeDiff(new DbChecko(targetConnection), options,
+                    new PrintStream(out));
+
+            // Then
+            assertThat(same).isFalse();
+            assertThat(out.toString()).containsSubsequence(
+                    "Different:      id=2",
+                    "Only in source: id=3",
+                    "Only in target: id=4",
+                    "Chunks: 2, different chunks: 2, source rows: 3, target rows: 3, different rows: 3"
+            );
+        } finally {
+            try (Connection connection = targetConnection.connect(new Properties())) {
+                executeScript("/sql/clean-db.sql", connection);
+            }
+        }
+    }
+
+    @Test
+    public void executeScript() throws IOException, SQLException {
+        // Given
+        DbChecko dbChecko = new DbChecko(dbConnection);
+        File scriptFile = temporaryFolder.newFile("script.sql");
+        Files.write(scriptFile.toPath(), Arrays.asList(
+                "-- rename users; keep ids",
+                "UPDATE user_ SET name = 'Raptor; the first' WHERE id = 1;",
+                "/* multi line",
+                "   statement; */",
+                "UPDATE user_",
+                "   SET name = 'Peter ''the second'''",
+                " WHERE id = 2;",
+                "SELECT * FROM user_;",
+                "DELETE FROM user_ WHERE id = 3"
+        ), StandardCharsets.UTF_8);
+        ScriptOptions options = new ScriptOptions();
+        options.setFile(scriptFile);
+        options.setCommitInterval(2);
+
+        // When
+        dbChecko.executeScript(options);
+
+        // Then
+        assertThat(selectNames()).containsExactly("Raptor; the first", "Peter 'the second'");
+    }
+
+    private List<String> selectNames() throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Connection connection = getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT name FROM user_ ORDER BY id")) {
+            while (resultSet.next()) {
+                names.add(resultSet.getString("name"));
+            }
+        }
+        return names;
+    }
 }
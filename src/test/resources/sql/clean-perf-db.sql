@@ -0,0 +1,4 @@
+DROP TABLE perf_lob;
+DROP TABLE perf_wide;
+DROP TABLE perf_update;
+DROP TABLE perf_narrow;
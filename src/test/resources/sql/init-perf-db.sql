@@ -0,0 +1,99 @@
+-- Tables of the performance test. Row counts are part of the stored baseline, change them only together with it.
+
+CREATE TABLE perf_narrow
+(
+    id      bigint                 NOT NULL,
+    name    character varying(50)  NOT NULL,
+    amount  numeric(12, 2),
+    created timestamp,
+    CONSTRAINT perf_narrow_pkey PRIMARY KEY (id)
+);
+
+INSERT INTO perf_narrow
+SELECT n,
+       'user-' || n,
+       CASE WHEN MOD(n, 10) = 0 THEN NULL ELSE MOD(n, 100000) * 0.01 END,
+       TIMESTAMP '2020-01-01 00:00:00' + CAST(n AS INTERVAL SECOND(7))
+FROM UNNEST(SEQUENCE_ARRAY(1, 2000000, 1)) AS t(n);
+
+-- copy of perf_narrow changed by the update scenario, so that the other scenarios read the same data in any order
+CREATE TABLE perf_update
+(
+    id      bigint                 NOT NULL,
+    name    character varying(50)  NOT NULL,
+    amount  numeric(12, 2),
+    created timestamp,
+    CONSTRAINT perf_update_pkey PRIMARY KEY (id)
+);
+
+INSERT INTO perf_update
+SELECT * FROM perf_narrow;
+
+CREATE TABLE perf_wide
+(
+    id bigint NOT NULL,
+    c01 character varying(40),
+    c02 character varying(40),
+    c03 character varying(40),
+    c04 character varying(40),
+    c05 character varying(40),
+    c06 character varying(40),
+    c07 character varying(40),
+    c08 character varying(40),
+    c09 character varying(40),
+    c10 character varying(40),
+    c11 character varying(40),
+    c12 character varying(40),
+    c13 character varying(40),
+    c14 character varying(40),
+    c15 character varying(40),
+    c16 character varying(40),
+    c17 character varying(40),
+    c18 character varying(40),
+    c19 character varying(40),
+    c20 character varying(40),
+    c21 character varying(40),
+    c22 character varying(40),
+    c23 character varying(40),
+    c24 character varying(40),
+    CONSTRAINT perf_wide_pkey PRIMARY KEY (id)
+);
+
+INSERT INTO perf_wide
+SELECT n,
+       RPAD('c01-' || n, 32, 'x'),
+       RPAD('c02-' || n, 32, 'x'),
+       RPAD('c03-' || n, 32, 'x'),
+       CASE WHEN MOD(n, 4) = 0 THEN NULL ELSE RPAD('c04-' || n, 32, 'x') END,
+       RPAD('c05-' || n, 32, 'x'),
+       RPAD('c06-' || n, 32, 'x'),
+       RPAD('c07-' || n, 32, 'x'),
+       CASE WHEN MOD(n, 8) = 0 THEN NULL ELSE RPAD('c08-' || n, 32, 'x') END,
+       RPAD('c09-' || n, 32, 'x'),
+       RPAD('c10-' || n, 32, 'x'),
+       RPAD('c11-' || n, 32, 'x'),
+       CASE WHEN MOD(n, 12) = 0 THEN NULL ELSE RPAD('c12-' || n, 32, 'x') END,
+       RPAD('c13-' || n, 32, 'x'),
+       RPAD('c14-' || n, 32, 'x'),
+       RPAD('c15-' || n, 32, 'x'),
+       CASE WHEN MOD(n, 16) = 0 THEN NULL ELSE RPAD('c16-' || n, 32, 'x') END,
+       RPAD('c17-' || n, 32, 'x'),
+       RPAD('c18-' || n, 32, 'x'),
+       RPAD('c19-' || n, 32, 'x'),
+       CASE WHEN MOD(n, 20) = 0 THEN NULL ELSE RPAD('c20-' || n, 32, 'x') END,
+       RPAD('c21-' || n, 32, 'x'),
+       RPAD('c22-' || n, 32, 'x'),
+       RPAD('c23-' || n, 32, 'x'),
+       CASE WHEN MOD(n, 24) = 0 THEN NULL ELSE RPAD('c24-' || n, 32, 'x') END
+FROM UNNEST(SEQUENCE_ARRAY(1, 100000, 1)) AS t(n);
+
+CREATE TABLE perf_lob
+(
+    id      bigint NOT NULL,
+    content clob,
+    CONSTRAINT perf_lob_pkey PRIMARY KEY (id)
+);
+
+INSERT INTO perf_lob
+SELECT n, REPEAT('lorem ipsum ' || n || ' ', 1000)
+FROM UNNEST(SEQUENCE_ARRAY(1, 5000, 1)) AS t(n);